@@ -11,7 +11,6 @@
 package org.openlowcode.client.runtime;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -25,7 +24,6 @@ import org.openlowcode.client.runtime.PageActionManager.ActionSourceTransformer;
 import org.openlowcode.tools.messages.MessageElement;
 import org.openlowcode.tools.messages.MessageError;
 import org.openlowcode.tools.messages.MessageReader;
-import org.openlowcode.tools.messages.MessageSimpleReader;
 import org.openlowcode.tools.messages.OLcRemoteException;
 import org.openlowcode.tools.misc.NiceFormatters;
 
@@ -560,23 +558,23 @@ public class ClientSession {
 			return feedback;
 		}
 		activedisplay.updateStatusBar("receives INLINEDATA for action = " + action + ", starting reading");
-		reader.returnNextStartStructure("ENCRES");
-		byte[] encryptedmessage = reader.returnNextLargeBinary("RESMES").getContent();
-		String decryptedmessage = localconnectiontoserver.decryptwithaeskey(encryptedmessage);
-		logger.warning(" -------------- Decryptedmessage ------------------------");
-		logger.warning(decryptedmessage);
-		MessageSimpleReader specificmessagereader = new MessageSimpleReader(new StringReader(decryptedmessage));
-		specificmessagereader.setAESCommunicator(localconnectiontoserver.getAESCommunicator());
-		MessageElement messagefirstelement = specificmessagereader.getNextElement();
-		
-		reader.returnNextEndStructure("ENCRES");
-		reader.returnNextEndMessage();
+		MessageReader specificmessagereader = reader;
+		// with stream encryption, the response is not wrapped in an encrypted message
+		if (!localconnectiontoserver.isStreamEncryption()) {
+			reader.returnNextStartStructure("ENCRES");
+			byte[] encryptedmessage = reader.returnNextLargeBinaryContent("RESMES");
+			specificmessagereader = localconnectiontoserver.getDecryptedMessageReader(encryptedmessage);
+			MessageElement messagefirstelement = specificmessagereader.getNextElement();
 
+			reader.returnNextEndStructure("ENCRES");
+			reader.returnNextEndMessage();
+		}
 		specificmessagereader.returnNextStartStructure("INLINEDATA");
 		CPageData newdata = new CPageData(specificmessagereader);
 		specificmessagereader.returnNextEndStructure("INLINEDATA");
 		specificmessagereader.returnNextEndMessage();
-		specificmessagereader.close();
+		if (specificmessagereader != reader)
+			specificmessagereader.close();
 		String extrastatusmessage = "";
 		if (newdata.getMessage() != null)
 			if (newdata.getMessage().length() > 0)
@@ -640,12 +638,8 @@ public class ClientSession {
 		// ------------------------------------------------
 
 		if (message.compareTo("ENCRES") == 0) {
-			byte[] encryptedmessage = reader.returnNextLargeBinary("RESMES").getContent();
-			String decryptedmessage = localconnectiontoserver.decryptwithaeskey(encryptedmessage);
-			logger.warning(" -------------- Decryptedmessage ------------------------");
-			logger.warning(decryptedmessage);
-			MessageSimpleReader specificmessagereader = new MessageSimpleReader(new StringReader(decryptedmessage));
-			specificmessagereader.setAESCommunicator(localconnectiontoserver.getAESCommunicator());
+			byte[] encryptedmessage = reader.returnNextLargeBinaryContent("RESMES");
+			MessageReader specificmessagereader = localconnectiontoserver.getDecryptedMessageReader(encryptedmessage);
 			MessageElement messagefirstelement = specificmessagereader.getNextElement();
 			DisplayPageFeedback feedback = displayPage(messagefirstelement, localconnectiontoserver,
 					specificmessagereader, activedisplay, starttime, showtechdetails, module, action, openinnewtab);
@@ -10,17 +10,24 @@
 
 package org.openlowcode.client.runtime;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.net.Socket;
 import java.nio.charset.Charset;
 import java.util.logging.Logger;
 
 import org.openlowcode.tools.enc.AESCommunicator;
+import org.openlowcode.tools.messages.MessageBinaryReader;
+import org.openlowcode.tools.messages.MessageBinaryWriter;
 import org.openlowcode.tools.messages.MessageBufferedWriter;
 import org.openlowcode.tools.messages.MessageElement;
 import org.openlowcode.tools.messages.MessageReader;
@@ -39,8 +46,8 @@ import org.openlowcode.tools.messages.SFile;
 public class ConnectionToServer {
 
 	private Socket clientsocket;
-	private MessageSimpleReader reader;
-	private MessageBufferedWriter writer;
+	private MessageReader reader;
+	private MessageWriter writer;
 	private String server = null;
 	private int port = -1;
 	private boolean relevant;
@@ -54,9 +61,43 @@ public class ConnectionToServer {
 		return aescommunicator;
 	}
 	
+	/**
+	 * @return true if stream encryption is used with the server. In this case,
+	 *         messages are sent and received directly, and not wrapped in
+	 *         encrypted messages (ENCMES and ENCRES)
+	 * @since 1.14
+	 */
+	public boolean isStreamEncryption() {
+		if (aescommunicator == null)
+			return false;
+		return aescommunicator.isStreamEncryption();
+	}
+
 	public String decryptwithaeskey(byte[] encryptedcontent) throws Exception {
 		return aescommunicator.decryptandunzip(encryptedcontent);
 	}
+
+	/**
+	 * @param encryptedcontent an encrypted message received from the server
+	 * @return a reader on the decrypted message, using the framing negotiated for
+	 *         the connection
+	 * @throws Exception if any issue is encountered during decryption
+	 * @since 1.14
+	 */
+	public MessageReader getDecryptedMessageReader(byte[] encryptedcontent) throws Exception {
+		MessageReader decryptedreader;
+		if (aescommunicator.isBinaryFraming()) {
+			decryptedreader = new MessageBinaryReader(
+					new ByteArrayInputStream(aescommunicator.decryptandunzipbytes(encryptedcontent)));
+		} else {
+			String decryptedmessage = aescommunicator.decryptandunzip(encryptedcontent);
+			logger.warning(" -------------- Decryptedmessage ------------------------");
+			logger.warning(decryptedmessage);
+			decryptedreader = new MessageSimpleReader(new StringReader(decryptedmessage));
+		}
+		decryptedreader.setAESCommunicator(aescommunicator);
+		return decryptedreader;
+	}
 	
 	/**
 	 * Should include all actions to send a full command to the server. The
@@ -91,14 +132,32 @@ public class ConnectionToServer {
 				if (clientsocket == null) {
 					initConnection();
 				}
-				CharArrayWriter encryptedmessageloc = new CharArrayWriter();
-				MessageBufferedWriter writertoencrypt = new MessageBufferedWriter(new BufferedWriter(encryptedmessageloc), false); 
-				writertoencrypt.setAESCommunicator(aescommunicator);
-				writertoserver.apply(writertoencrypt);
-				writertoencrypt.flushMessage();
-				String messagetoencrypt = encryptedmessageloc.toString();
-				writertoencrypt.close();
-				byte[]encodedmessagetosend = aescommunicator.zipandencrypt(messagetoencrypt);
+				if (aescommunicator.isStreamEncryption()) {
+					// the connection is encrypted, the message is sent directly
+					writertoserver.apply(writer);
+					writer.flushMessage();
+					sent = true;
+					return reader.getNextElement();
+				}
+				byte[]encodedmessagetosend;
+				if (aescommunicator.isBinaryFraming()) {
+					ByteArrayOutputStream binarymessageloc = new ByteArrayOutputStream();
+					MessageBinaryWriter writertoencrypt = new MessageBinaryWriter(binarymessageloc, false);
+					writertoencrypt.setAESCommunicator(aescommunicator);
+					writertoserver.apply(writertoencrypt);
+					writertoencrypt.flushMessage();
+					encodedmessagetosend = aescommunicator.zipandencrypt(binarymessageloc.toByteArray());
+					writertoencrypt.close();
+				} else {
+					CharArrayWriter encryptedmessageloc = new CharArrayWriter();
+					MessageBufferedWriter writertoencrypt = new MessageBufferedWriter(new BufferedWriter(encryptedmessageloc), false); 
+					writertoencrypt.setAESCommunicator(aescommunicator);
+					writertoserver.apply(writertoencrypt);
+					writertoencrypt.flushMessage();
+					String messagetoencrypt = encryptedmessageloc.toString();
+					writertoencrypt.close();
+					encodedmessagetosend = aescommunicator.zipandencrypt(messagetoencrypt);
+				}
 				writer.startNewMessage();
 				writer.startStructure("ENCMES");
 				writer.addLongBinaryField("ENCMES",new SFile("ENC",encodedmessagetosend));
@@ -195,13 +254,32 @@ public class ConnectionToServer {
 		logger.fine("Input stream reader encoding " + streamreader.getEncoding());
 		BufferedReader bufferedreader = new BufferedReader(streamreader, 9090);
 
-		reader = new MessageSimpleReader(bufferedreader);
+		MessageSimpleReader textreader = new MessageSimpleReader(bufferedreader);
 		OutputStreamWriter socketoutputstream = new OutputStreamWriter(clientsocket.getOutputStream(),
 				Charset.forName("UTF-8"));
 		logger.fine("OutputStream reader encoding" + socketoutputstream.getEncoding());
 		BufferedWriter bufferedwriter = new BufferedWriter(socketoutputstream);
-		writer = new MessageBufferedWriter(bufferedwriter, true);
-		aescommunicator = AESCommunicator.performServerHandshake(reader, writer);
+		MessageBufferedWriter textwriter = new MessageBufferedWriter(bufferedwriter, true);
+		aescommunicator = AESCommunicator.performServerHandshake(textreader, textwriter, true, true);
+		if (aescommunicator.isStreamEncryption()) {
+			logger.fine("Stream encryption negotiated with server");
+			reader = new MessageBinaryReader(
+					aescommunicator.getDecryptingStream(new BufferedInputStream(clientsocket.getInputStream())));
+			writer = new MessageBinaryWriter(
+					aescommunicator.getEncryptingStream(new BufferedOutputStream(clientsocket.getOutputStream())),
+					true);
+			reader.setAESCommunicator(aescommunicator);
+			writer.setAESCommunicator(aescommunicator);
+		} else if (aescommunicator.isBinaryFraming()) {
+			// the server sends nothing after confirming binary framing, so the text
+			// reader has not buffered any binary content
+			logger.fine("Binary framing negotiated with server");
+			reader = new MessageBinaryReader(new BufferedInputStream(clientsocket.getInputStream()));
+			writer = new MessageBinaryWriter(new BufferedOutputStream(clientsocket.getOutputStream()), true);
+		} else {
+			reader = textreader;
+			writer = textwriter;
+		}
 		
 		
 	}
@@ -3940,7 +3940,8 @@ public class DataObjectDefinition
 				String thisfieldclass = StringFormatter.formatForJavaClass(thisdecimalfield.getName());
 
 				sg.wl("	public FormulaElement<" + classname + "> get" + thisfieldclass + "FormulaElement() {");
-				sg.wl("		return ((" + classname + " object) -> (object.get" + thisfieldclass + "()));");
+				sg.wl("		return new StoredFieldFormulaElement<" + classname + ">(this,this.get" + thisfieldclass
+						+ "FieldSchema(),(" + classname + " object) -> (object.get" + thisfieldclass + "()));");
 				sg.wl("	}		");
 
 			}
@@ -3963,6 +3964,11 @@ public class DataObjectDefinition
 						+ " object) -> (ArrayBufferReplacement.replaceBufferDataInArray(object.getallchildrenfor"
 						+ linkedfromchildren.getInstancename().toLowerCase() + "(null)))));");
 				sg.wl("	}");
+				sg.wl("	public LinkedToChildrenSumQuery<" + classname + "> get"
+						+ StringFormatter.formatForJavaClass(linkedfromchildren.getName()) + "SumQuery() {");
+				sg.wl("		return ((" + classname + " object,StoredFieldSchema<BigDecimal> field) -> (object.sumonchildrenfor"
+						+ linkedfromchildren.getInstancename().toLowerCase() + "(field)));");
+				sg.wl("	}");
 
 			}
 			if (thisproperty instanceof LinkedToParent) {
@@ -3994,6 +4000,11 @@ public class DataObjectDefinition
 						+ " object)->(ArrayBufferReplacement.replaceBufferDataInTwoObjectsArray(" + classname
 						+ ".getlinksandrightobject(object.getId(),null)))));");
 				sg.wl("	}");
+				sg.wl("	public LinkSumQuery<" + leftobjectclass + "> getLinkSumQuery() {");
+				sg.wl("		return ((" + leftobjectclass + " object,StoredFieldSchema<BigDecimal> linkfield,"
+						+ "StoredFieldSchema<BigDecimal> rightfield) -> (" + classname
+						+ ".sumonlinksandrightobject(object.getId(),linkfield,rightfield)));");
+				sg.wl("	}");
 				sg.wl("	public LinkReverseNavigator<" + leftobjectclass + "," + classname + "," + rightobjectclass
 						+ "> getLinkReverseNavigator() {");
 				sg.wl("		return ((LinkReverseNavigator<" + leftobjectclass + "," + classname + "," + rightobjectclass
@@ -4305,6 +4316,66 @@ public class DataObjectDefinition
 		sg.wl("	public static void updatePersistenceStorage()  {");
 		sg.wl("		definition.updatePersistenceStorage();");
 		sg.wl("	}");
+		for (int i = 0; i < this.propertylist.getSize(); i++) {
+			Property<?> thisproperty = this.propertylist.get(i);
+			if (thisproperty instanceof LinkedFromChildren) {
+				LinkedFromChildren linkedfromchildren = (LinkedFromChildren) thisproperty;
+				sg.wl("	");
+				sg.wl("	public BigDecimal sumonchildrenfor" + linkedfromchildren.getInstancename().toLowerCase()
+						+ "(StoredFieldSchema<BigDecimal> field) {");
+				sg.wl("		return this." + StringFormatter.formatForAttribute(linkedfromchildren.getName())
+						+ ".sumonchildren(this,field);");
+				sg.wl("	}");
+			}
+			if (thisproperty instanceof LinkedToParent) {
+				LinkedToParent<?> linkedtoparent = (LinkedToParent<?>) thisproperty;
+				String parentclass = StringFormatter.formatForJavaClass(linkedtoparent.getParentObjectForLink().getName());
+				String helperattribute = "";
+				if (linkedtoparent.getName().compareTo(linkedtoparent.getPropertyclassname()) != 0)
+					helperattribute = "\"" + linkedtoparent.getName().toUpperCase() + "\"";
+				sg.wl("	");
+				sg.wl("	public static int foreachchildfor" + linkedtoparent.getInstancename().toLowerCase() + "(DataObjectId<"
+						+ parentclass + "> parentid,QueryFilter additionalcondition,Consumer<" + classname
+						+ "> consumer) {");
+				sg.wl("		return LinkedtoparentQueryHelper.get(" + helperattribute
+						+ ").foreachchild(parentid,additionalcondition,consumer,");
+				sg.wl("				definition," + parentclass + "Definition.get" + parentclass + "Definition(),definition.get"
+						+ StringFormatter.formatForJavaClass(linkedtoparent.getName()) + "Definition());");
+				sg.wl("	}");
+			}
+			if (thisproperty instanceof LinkObject) {
+				LinkObject<?, ?> thislink = (LinkObject<?, ?>) thisproperty;
+				String leftobjectclass = StringFormatter.formatForJavaClass(thislink.getLeftobjectforlink().getName());
+				String rightobjectclass = StringFormatter
+						.formatForJavaClass(thislink.getRightobjectforlink().getName());
+				sg.wl("	");
+				sg.wl("	public static BigDecimal sumonlinksandrightobject(DataObjectId<" + leftobjectclass
+						+ "> leftid,StoredFieldSchema<BigDecimal> linkfield,StoredFieldSchema<BigDecimal> rightfield) {");
+				sg.wl("		return LinkobjectQueryHelper.get().sumonlinksandrightobject(leftid,linkfield,rightfield,");
+				sg.wl("				definition," + leftobjectclass + "Definition.get" + leftobjectclass + "Definition(),"
+						+ rightobjectclass + "Definition.get" + rightobjectclass + "Definition(),definition.get"
+						+ StringFormatter.formatForJavaClass(thislink.getName()) + "Definition());");
+				sg.wl("	}");
+			}
+		}
+		if (this.getPropertyByName("STOREDOBJECT") != null) {
+			sg.wl("	");
+			sg.wl("	public static " + classname + "[] getactivepage(QueryFilter additionalcondition,QueryPage page) {");
+			sg.wl("		return StoredobjectQueryHelper.get().getactivepage(additionalcondition,page,");
+			sg.wl("				definition,definition.getStoredobjectDefinition());");
+			sg.wl("	}");
+			sg.wl("	");
+			sg.wl("	public static int foreachactive(QueryFilter additionalcondition,QueryPage page,Consumer<" + classname
+					+ "> consumer) {");
+			sg.wl("		return StoredobjectQueryHelper.get().foreachactive(additionalcondition,page,consumer,");
+			sg.wl("				definition,definition.getStoredobjectDefinition());");
+			sg.wl("	}");
+			sg.wl("	");
+			sg.wl("	public static int countallactive(QueryFilter additionalcondition) {");
+			sg.wl("		return StoredobjectQueryHelper.get().countallactive(additionalcondition,");
+			sg.wl("				definition,definition.getStoredobjectDefinition());");
+			sg.wl("	}");
+		}
 		for (int i = 0; i < this.fieldlist.getSize(); i++) {
 			Field thisfield = this.fieldlist.get(i);
 			sg.wl("	public " + thisfield.getJavaType() + " get"
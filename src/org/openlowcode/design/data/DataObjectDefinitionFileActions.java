@@ -47,7 +47,6 @@ public class DataObjectDefinitionFileActions {
 		String objectclass = StringFormatter.formatForJavaClass(name);
 
 		String childclass = StringFormatter.formatForJavaClass(linkedfromchildren.getChildObject().getName());
-		String childvariable = StringFormatter.formatForAttribute(linkedfromchildren.getChildObject().getName());
 		boolean hasextractorchoice = false;
 		ChoiceCategory categoryforextractor = null;
 		String returntype = "ActionOutputData";
@@ -92,11 +91,9 @@ public class DataObjectDefinitionFileActions {
 					+ "ChoiceDefinition>  exporttype,");
 		}
 		sg.wl("			Function<TableAlias, QueryFilter> datafilter)  {");
-		sg.wl("		" + childclass + "[] " + childvariable + " = " + childclass + ".getallchildrenfor"
-				+ linkedfromchildren.getRelatedLinkedToParent().getInstancename().toLowerCase() + "(parentid,null);");
 		sg.wl("		FlatFileExtractor<" + childclass + "> extractor = new FlatFileExtractor<" + childclass + ">("
 				+ childclass + ".getDefinition());");
-		String extraparameter = "";
+		String extraparameter = ",null";
 		if (hasextractorchoice) {
 			boolean processed = false;
 			if (isObjectDynamicHelper(linkedfromchildren.getChildObject(),name)) {
@@ -119,7 +116,10 @@ public class DataObjectDefinitionFileActions {
 			}
 		}
 		
-		sg.wl("		SFile returnfile = extractor.extractToExcel(" + childvariable + extraparameter + ");");
+		// children are streamed from the database to a spreadsheet written on disk
+		sg.wl("		SFile returnfile = extractor.streamToExcel((objectwriter) -> " + childclass + ".foreachchildfor"
+				+ linkedfromchildren.getRelatedLinkedToParent().getInstancename().toLowerCase()
+				+ "(parentid,null,objectwriter)" + extraparameter + ");");
 		if (hasextractorchoice) {
 			sg.wl("		return returnfile;");
 		} else {
@@ -206,11 +206,6 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("import java.util.ArrayList;");
 		sg.wl("import java.util.Date;");
-		if (canorder) {
-			sg.wl("import java.util.Arrays;");
-			sg.wl("import java.util.Collections;");
-			sg.wl("import java.util.List;");
-		}
 		sg.wl("");
 		sg.wl("import " + module.getPath() + ".action.generated.Abs" + actionname + ";");
 		sg.wl("");
@@ -348,20 +343,23 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("			");
 		sg.wl("		");
 		sg.wl("");
-		sg.wl("		" + objectclass + "[] result = " + objectclass
-				+ ".getallactive(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)));");
-		sg.wl("		AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(result);");
 		if (canorder) {
-
-			sg.wl("		List<" + objectclass + "> resultlist = Arrays.asList(result);");
+			// ordering is done by the database
+			sg.wl("		QueryPage page = QueryPage.all();");
 			if (linkobject.getRightobjectforlink().getPropertyByName("UPDATELOG") != null) {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getUpdatetime().compareTo(a.getUpdatetime())));");
+				sg.wl("		page.addOrderBy(" + objectclass + "Definition.get" + objectclass
+						+ "Definition().getUpdatelogDefinition().getUpdatetimeFieldSchema(),true);");
 			} else {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getCreatetime().compareTo(a.getCreatetime())));");
+				sg.wl("		page.addOrderBy(" + objectclass + "Definition.get" + objectclass
+						+ "Definition().getCreationlogDefinition().getCreatetimeFieldSchema(),true);");
 			}
-			sg.wl("		result = resultlist.toArray(new " + objectclass + "[0]);");
-
+			sg.wl("		" + objectclass + "[] result = " + objectclass
+					+ ".getactivepage(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)),page);");
+		} else {
+			sg.wl("		" + objectclass + "[] result = " + objectclass
+					+ ".getallactive(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)));");
 		}
+		sg.wl("		AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(result);");
 
 		if (isaddress) {
 			sg.wl("		return new ActionOutputData(result);");
@@ -1000,11 +998,6 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("");
 		sg.wl("import java.util.ArrayList;");
 		sg.wl("import java.util.Date;");
-		if (canorder) {
-			sg.wl("import java.util.Arrays;");
-			sg.wl("import java.util.Collections;");
-			sg.wl("import java.util.List;");
-		}
 		sg.wl("import java.util.function.Function;");
 		sg.wl("import org.openlowcode.server.data.storage.QueryFilter;");
 		sg.wl("");
@@ -1092,20 +1085,23 @@ public class DataObjectDefinitionSearchPagesAndActions {
 		sg.wl("			");
 		sg.wl("		");
 		sg.wl("");
-		sg.wl("		" + objectclass + "[] result = " + objectclass
-				+ ".getallactive(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)));");
-		sg.wl("		AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(result);");
 		if (canorder) {
-
-			sg.wl("		List<" + objectclass + "> resultlist = Arrays.asList(result);");
+			// ordering is done by the database
+			sg.wl("		QueryPage page = QueryPage.all();");
 			if (object.getPropertyByName("UPDATELOG") != null) {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getUpdatetime().compareTo(a.getUpdatetime())));");
+				sg.wl("		page.addOrderBy(" + objectclass + "Definition.get" + objectclass
+						+ "Definition().getUpdatelogDefinition().getUpdatetimeFieldSchema(),true);");
 			} else {
-				sg.wl("		Collections.sort(resultlist,(a,b)->(b.getCreatetime().compareTo(a.getCreatetime())));");
+				sg.wl("		page.addOrderBy(" + objectclass + "Definition.get" + objectclass
+						+ "Definition().getCreationlogDefinition().getCreatetimeFieldSchema(),true);");
 			}
-			sg.wl("		result = resultlist.toArray(new " + objectclass + "[0]);");
-
+			sg.wl("		" + objectclass + "[] result = " + objectclass
+					+ ".getactivepage(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)),page);");
+		} else {
+			sg.wl("		" + objectclass + "[] result = " + objectclass
+					+ ".getallactive(new QueryFilter(finalquerycondition,(additionalcondition!=null?additionalcondition.getAliases():null)));");
 		}
+		sg.wl("		AtgMassupdate" + objectattribute + "Action.get().freezeUnauthorizedObjects(result);");
 		if (isaddress) {
 			sg.wl("		return new ActionOutputData(result);");
 		} else {
@@ -159,6 +159,7 @@ public class DecimalField
 		sg.wl("import org.openlowcode.server.data.formula.CalculatedField;");
 		sg.wl("import org.openlowcode.server.data.formula.CalculatedFieldTrigger;");
 		sg.wl("import org.openlowcode.server.data.formula.SumOnChildren;");
+		sg.wl("import org.openlowcode.server.data.formula.StoredFieldFormulaElement;");
 		sg.wl("import org.openlowcode.server.data.formula.LocalPath;");
 		sg.wl("import org.openlowcode.server.data.formula.PathToCalculatedField;");
 		sg.wl("import org.openlowcode.server.data.formula.SumOnLinkRightObject;");
@@ -29,6 +29,8 @@ public class SequenceDefinition
 		extends
 		Named {
 	private Module parentmodule;
+	private int blocksize;
+	private boolean nativesequence;
 
 	/**
 	 * creates a sequence with the given name
@@ -37,7 +39,50 @@ public class SequenceDefinition
 	 */
 	public SequenceDefinition(String name) {
 		super(name);
+		this.blocksize = 1;
+		this.nativesequence = false;
+	}
 
+	/**
+	 * sets the number of values reserved in the database at once. Values are then
+	 * given from memory, which avoids a database round-trip (and a lock on the
+	 * sequence) for each value. Values stay unique, but there may be gaps when the
+	 * server stops. Default is 1 (each value is taken from the database)
+	 * 
+	 * @param blocksize number of values reserved at once (at least 1)
+	 * @since 1.14
+	 */
+	public void setBlockSize(int blocksize) {
+		if (blocksize < 1)
+			throw new RuntimeException("Block size for sequence " + this.getName() + " should be at least 1");
+		this.blocksize = blocksize;
+	}
+
+	/**
+	 * @return the number of values reserved in the database at once
+	 * @since 1.14
+	 */
+	public int getBlockSize() {
+		return this.blocksize;
+	}
+
+	/**
+	 * requests the sequence to use a native sequence of the database, when the
+	 * database supports it. Else, the generic sequence table is used
+	 * 
+	 * @param nativesequence true to use native sequence
+	 * @since 1.14
+	 */
+	public void setNativeSequence(boolean nativesequence) {
+		this.nativesequence = nativesequence;
+	}
+
+	/**
+	 * @return true if a native sequence of the database is used when supported
+	 * @since 1.14
+	 */
+	public boolean isNativeSequence() {
+		return this.nativesequence;
 	}
 
 	/**
@@ -73,7 +118,12 @@ public class SequenceDefinition
 		sg.wl("	private static " + idclass + "Sequence singleton = new " + idclass + "Sequence();");
 		sg.wl("	");
 		sg.wl("	private " + idclass + "Sequence() {");
-		sg.wl("		super(\"" + this.getName().toUpperCase() + "\");");
+		if ((this.blocksize == 1) && (!this.nativesequence)) {
+			sg.wl("		super(\"" + this.getName().toUpperCase() + "\");");
+		} else {
+			sg.wl("		super(\"" + this.getName().toUpperCase() + "\"," + this.blocksize + "," + this.nativesequence
+					+ ");");
+		}
 		sg.wl("	}");
 		sg.wl("	public static " + idclass + "Sequence get() {");
 		sg.wl("	return singleton;");
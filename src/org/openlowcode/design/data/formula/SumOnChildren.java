@@ -51,8 +51,9 @@ public class SumOnChildren
 
 	@Override
 	public String generateFormulaElement() {
-		return "new SumOnChildren(this.getLinkedfromchildrenfor"
-				+ this.linkedtoparentforsum.getLinkedFromChildrenName().toLowerCase() + "Navigator(),"
+		String linkedfromchildrenname = this.linkedtoparentforsum.getLinkedFromChildrenName().toLowerCase();
+		return "new SumOnChildren(this.getLinkedfromchildrenfor" + linkedfromchildrenname + "Navigator(),"
+				+ "this.getLinkedfromchildrenfor" + linkedfromchildrenname + "SumQuery(),"
 				+ childelementtosum.generateFormulaElement() + ")";
 	}
 
@@ -62,8 +62,10 @@ public class SumOnLinkRightObject
 	public String generateFormulaElement() {
 
 		String linkobjectclass = StringFormatter.formatForJavaClass(linkedobjectproperty.getParent().getName());
-		return "new SumOnLinkRightObject(" + linkobjectclass + "Definition.get" + linkobjectclass
-				+ "Definition().getLinkNavigator()," + childelementtosum.generateFormulaElement() + ")";
+		String linkobjectdefinition = linkobjectclass + "Definition.get" + linkobjectclass + "Definition()";
+		return "new SumOnLinkRightObject(" + linkobjectdefinition + ".getLinkNavigator()," + linkobjectdefinition
+				+ ".getLinkSumQuery()," + linkobjectdefinition + "," + childelementtosum.generateFormulaElement()
+				+ ")";
 	}
 
 	@Override
@@ -92,8 +92,9 @@ public class SumProductOnLinkRightObject
 	@Override
 	public String generateFormulaElement() {
 		String linkobjectclass = StringFormatter.formatForJavaClass(linkedobjectproperty.getParent().getName());
-		return "new SumProductOnLinkRightObject(" + linkobjectclass + "Definition.get" + linkobjectclass
-				+ "Definition().getLinkNavigator()," + linkelementforproduct.generateFormulaElement() + ","
+		String linkobjectdefinition = linkobjectclass + "Definition.get" + linkobjectclass + "Definition()";
+		return "new SumProductOnLinkRightObject(" + linkobjectdefinition + ".getLinkNavigator()," + linkobjectdefinition
+				+ ".getLinkSumQuery()," + linkelementforproduct.generateFormulaElement() + ","
 				+ childelementtosum.generateFormulaElement() + ")";
 
 	}
@@ -390,6 +390,7 @@ public class LinkObject<E extends DataObjectDefinition, F extends DataObjectDefi
 	@Override
 	public void writeDependentClass(SourceGenerator sg, Module module) throws IOException {
 		sg.wl("import org.openlowcode.server.data.formula.LinkNavigator;");
+		sg.wl("import org.openlowcode.server.data.formula.LinkSumQuery;");
 		sg.wl("import org.openlowcode.server.data.formula.LinkReverseNavigator;");
 		sg.wl("import org.openlowcode.server.data.formula.LinkToLeftReverseNavigator;");
 
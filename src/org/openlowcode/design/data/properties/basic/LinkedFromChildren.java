@@ -951,6 +951,7 @@ public class LinkedFromChildren
 	@Override
 	public void writeDependentClass(SourceGenerator sg, Module module) throws IOException {
 		sg.wl("import org.openlowcode.server.data.formula.LinkedToChildrenNavigator;");
+		sg.wl("import org.openlowcode.server.data.formula.LinkedToChildrenSumQuery;");
 
 	}
 
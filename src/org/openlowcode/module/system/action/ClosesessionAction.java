@@ -25,6 +25,7 @@ import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.graphic.SPage;
 import org.openlowcode.server.runtime.OLcServer;
 import org.openlowcode.server.runtime.SModule;
+import org.openlowcode.server.security.SessionCache;
 
 /**
  * an action to close the session for the current thread
@@ -77,6 +78,9 @@ public class ClosesessionAction
 		if (relevantsessions.length == 0) {
 			logger.warning("no session open for client '" + ip + "' and cid = '" + cid + "'.");
 		}
+		// invalidated once the session is closed on the database, so that it cannot be
+		// put back in cache by a concurrent session check
+		SessionCache.invalidate(ip, cid);
 		return null;
 	}
 
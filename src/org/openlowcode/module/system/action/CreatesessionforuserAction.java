@@ -31,6 +31,7 @@ import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.graphic.SPage;
 import org.openlowcode.server.runtime.OLcServer;
 import org.openlowcode.server.runtime.SModule;
+import org.openlowcode.server.security.SessionCache;
 import org.openlowcode.tools.enc.OLcEncrypter;
 
 /**
@@ -145,6 +146,8 @@ public class CreatesessionforuserAction
 							+ thissession.getClientip());
 				}
 			}
+		SessionCache.invalidateUser(userobject.getId());
+		SessionCache.invalidate(clientip, clientcid);
 
 		// 3 - create new usersession and return it
 		Usersession newsession = new Usersession();
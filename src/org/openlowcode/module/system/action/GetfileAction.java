@@ -24,7 +24,9 @@ import org.openlowcode.server.graphic.SPage;
 import org.openlowcode.server.runtime.SModule;
 
 /**
- * an action to get a file on the server giving a file id
+ * an action to get a file on the server giving a file id. Large content is
+ * read from the database in a temporary file, deleted when the inline data is
+ * disposed after being sent to the client
  * 
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
@@ -51,9 +53,9 @@ public class GetfileAction
 			Function<TableAlias, QueryFilter> datafilter) {
 		logger.info("try to get file id = " + fileid.getId());
 		Binaryfile file = Binaryfile.readone(fileid);
-		SFile fileobject = new SFile(file.getFilename(), file.getFilecontent().getContent());
+		SFile fileobject = new SFile(file.getFilename(), file.getFilecontent());
 		logger.info(
-				"found file  name = " + file.getFilename() + " length = " + file.getFilecontent().getContent().length);
+				"found file  name = " + file.getFilename() + " length = " + file.getFilecontent().getLength());
 
 		return new ActionOutputData(fileobject);
 	}
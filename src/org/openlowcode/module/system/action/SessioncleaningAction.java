@@ -20,6 +20,7 @@ import org.openlowcode.server.data.storage.QueryFilter;
 import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.graphic.SPage;
 import org.openlowcode.server.runtime.SModule;
+import org.openlowcode.server.security.SessionCache;
 /**
  * Action to clean sessions older than a provided nmber of days
  * 
@@ -53,6 +54,9 @@ public class SessioncleaningAction
 		}
 		Usersession[] sessionstodeletearray = sessionstodelete.toArray(new Usersession[0]);
 		Usersession.delete(sessionstodeletearray);
+		// invalidated once sessions are deleted, so that a deleted session cannot stay
+		// in cache
+		SessionCache.invalidateAll();
 	}
 
 	@Override
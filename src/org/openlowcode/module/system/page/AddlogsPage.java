@@ -62,4 +62,8 @@ public class AddlogsPage extends AbsAddlogsPage {
 		return mainband;
 	}
 
+	@Override
+	public String getLayoutVariant() {
+		return "";
+	}
 }
@@ -70,4 +70,13 @@ public class DefaultmenuPage
 		return pagemainframe;
 	}
 
+	@Override
+	public String getLayoutVariant() {
+		// the menu depends on the authorities of the user and on the server label
+		Systemattribute serverlabel = ServerSecurityBuffer.getUniqueInstance().getSystemattribute("S0.SERVERLABEL");
+		if (serverlabel != null)
+			if (serverlabel.getValue() != null)
+				return serverlabel.getValue();
+		return "";
+	}
 }
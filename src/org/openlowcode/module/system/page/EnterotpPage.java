@@ -60,4 +60,8 @@ public class EnterotpPage
 		return mainband;
 	}
 
+	@Override
+	public String getLayoutVariant() {
+		return "";
+	}
 }
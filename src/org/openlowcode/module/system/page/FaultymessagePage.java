@@ -46,4 +46,8 @@ public class FaultymessagePage
 		return mainband;
 	}
 
+	@Override
+	public String getLayoutVariant() {
+		return "";
+	}
 }
@@ -47,4 +47,8 @@ public class OtpokPage
 		return mainband;
 	}
 
+	@Override
+	public String getLayoutVariant() {
+		return "";
+	}
 }
@@ -13,11 +13,17 @@ package org.openlowcode.module.system.page;
 import org.openlowcode.module.system.action.AudittextAction;
 import org.openlowcode.module.system.action.GeneratefaultymessageAction;
 import org.openlowcode.module.system.page.generated.AbsTechnicaltoolsPage;
+import org.openlowcode.server.data.formula.FormulaDependencyGraph;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
+import org.openlowcode.server.data.storage.standardjdbc.SQLTextCache;
 import org.openlowcode.server.graphic.SPageNode;
 import org.openlowcode.server.graphic.widget.SActionButton;
 import org.openlowcode.server.graphic.widget.SComponentBand;
 import org.openlowcode.server.graphic.widget.SPageText;
 import org.openlowcode.server.graphic.widget.STextField;
+import org.openlowcode.server.runtime.PageLayoutCache;
+import org.openlowcode.server.runtime.TriggerQueue;
+import org.openlowcode.server.security.SessionCache;
 /**
  * A page proposing various technical tools
  * 
@@ -66,6 +72,13 @@ public class TechnicaltoolsPage extends AbsTechnicaltoolsPage {
 		
 		SActionButton audittextbutton = new SActionButton("Audit", audittextaction,this);
 		mainband.addElement(audittextbutton);
+		mainband.addElement(new SPageText("Server caches",SPageText.TYPE_TITLE, this));
+		mainband.addElement(new SPageText(SessionCache.getStatistics(),SPageText.TYPE_NORMAL, this));
+		mainband.addElement(new SPageText(PageLayoutCache.getStatistics(),SPageText.TYPE_NORMAL, this));
+		mainband.addElement(new SPageText(SQLTextCache.getStatistics(),SPageText.TYPE_NORMAL, this));
+		mainband.addElement(new SPageText(PreparedStatementCache.getStatistics(),SPageText.TYPE_NORMAL, this));
+		mainband.addElement(new SPageText(TriggerQueue.getStatistics(),SPageText.TYPE_NORMAL, this));
+		mainband.addElement(new SPageText(FormulaDependencyGraph.getStatistics(),SPageText.TYPE_NORMAL, this));
 		return mainband;
 	}
 
@@ -0,0 +1,139 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.message;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import org.openlowcode.tools.messages.MessageSimpleReader;
+import org.openlowcode.tools.messages.SFile;
+
+/**
+ * Measures the time to receive a large binary field on a text message through
+ * a loopback socket. A sender thread writes an UPLOAD message with a file of
+ * the given size, encoding it in base64 while sending it by small chunks, as a
+ * client on the network would do. The receiver reads the file with
+ * returnNextLargeBinary. Time, throughput and heap used are printed for each
+ * size.<br>
+ * Usage: OLcLargeBinaryBenchmark [sizes in MB, default 1 10 100]
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class OLcLargeBinaryBenchmark {
+	private static final int SEND_CHUNK = 8192;
+
+	public static void main(String[] args) {
+		try {
+			int[] sizes = new int[] { 1, 10, 100 };
+			if (args.length > 0) {
+				sizes = new int[args.length];
+				for (int i = 0; i < args.length; i++)
+					sizes[i] = Integer.parseInt(args[i]);
+			}
+			// first run to warm-up the code
+			receive(1024 * 1024).dispose();
+			for (int i = 0; i < sizes.length; i++) {
+				long start = System.nanoTime();
+				SFile file = receive(sizes[i] * 1024 * 1024);
+				long duration = System.nanoTime() - start;
+				System.gc();
+				long heap = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+				System.out.println(String.format(" %4d MB received in %8.1f ms, %8.1f MB/s, in memory = %s, heap = %d MB",
+						sizes[i], duration / 1000000.0, sizes[i] * 1000000000.0 / duration, file.isInMemory(),
+						heap / (1024 * 1024)));
+				file.dispose();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static SFile receive(int size) throws Exception {
+		try (ServerSocket serversocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			Thread sender = new Thread(() -> send(serversocket.getLocalPort(), size), "OLcLargeBinarySender");
+			sender.start();
+			try (Socket socket = serversocket.accept()) {
+				MessageSimpleReader reader = new MessageSimpleReader(
+						new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)));
+				reader.returnNextMessageStart();
+				reader.returnNextStartStructure("UPLOAD");
+				SFile file = reader.returnNextLargeBinary("FILE");
+				reader.returnNextEndStructure("UPLOAD");
+				reader.returnNextEndMessage();
+				sender.join();
+				if (file.getLength() != size)
+					throw new RuntimeException("Expected file of " + size + " bytes, got " + file.getLength());
+				return file;
+			}
+		}
+	}
+
+	private static void send(int port, int size) {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			OutputStream output = new BufferedOutputStream(socket.getOutputStream(), SEND_CHUNK);
+			int base64size = 4 * ((size + 2) / 3);
+			output.write(("{\n[UPLOAD:FILE=B" + base64size + ":\"file.bin\":").getBytes(StandardCharsets.UTF_8));
+			OutputStream encoder = Base64.getEncoder().wrap(new NonClosingStream(output));
+			Random random = new Random(size);
+			byte[] chunk = new byte[SEND_CHUNK];
+			int remaining = size;
+			while (remaining > 0) {
+				int length = Math.min(remaining, chunk.length);
+				random.nextBytes(chunk);
+				encoder.write(chunk, 0, length);
+				output.flush();
+				remaining -= length;
+			}
+			encoder.close();
+			output.write("]\n}\n".getBytes(StandardCharsets.UTF_8));
+			output.flush();
+			socket.shutdownOutput();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static class NonClosingStream
+			extends
+			OutputStream {
+		private OutputStream output;
+
+		private NonClosingStream(OutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			output.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			output.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			output.flush();
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.message;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.zip.Deflater;
+
+import org.openlowcode.tools.messages.MessageArrayEnd;
+import org.openlowcode.tools.messages.MessageArrayLine;
+import org.openlowcode.tools.messages.MessageArrayStart;
+import org.openlowcode.tools.messages.MessageBinaryReader;
+import org.openlowcode.tools.messages.MessageBinaryWriter;
+import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageElement;
+import org.openlowcode.tools.messages.MessageEnd;
+import org.openlowcode.tools.messages.MessageFieldSpec;
+import org.openlowcode.tools.messages.MessageFieldTypeBoolean;
+import org.openlowcode.tools.messages.MessageFieldTypeDate;
+import org.openlowcode.tools.messages.MessageFieldTypeDecimal;
+import org.openlowcode.tools.messages.MessageFieldTypeInteger;
+import org.openlowcode.tools.messages.MessageFieldTypeString;
+import org.openlowcode.tools.messages.MessageReader;
+import org.openlowcode.tools.messages.MessageSimpleReader;
+import org.openlowcode.tools.messages.MessageWriter;
+import org.openlowcode.tools.messages.SFile;
+
+/**
+ * Compares the text and binary framing of messages on a message similar to a
+ * DISPLAYPAGE sent by the server: request attributes, a tree of widgets, a
+ * compact array of data objects and an attached file. For each framing, the
+ * size of the message (raw and compressed, as the content of encrypted messages
+ * is compressed) and the time to write and read it are printed.<br>
+ * Usage: OLcMessageBenchmark [number of widgets] [number of lines in array]
+ * [iterations]
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class OLcMessageBenchmark {
+
+	private static final int WARMUP = 1000;
+
+	private interface WriterFactory {
+		public MessageWriter create(ByteArrayOutputStream output);
+	}
+
+	private interface ReaderFactory {
+		public MessageReader create(byte[] message);
+	}
+
+	public static void main(String[] args) {
+		try {
+			int widgets = (args.length > 0 ? Integer.parseInt(args[0]) : 200);
+			int lines = (args.length > 1 ? Integer.parseInt(args[1]) : 500);
+			int iterations = (args.length > 2 ? Integer.parseInt(args[2]) : 2000);
+			System.out.println(" -----------------------------------------------------------");
+			System.out.println(" DISPLAYPAGE message with " + widgets + " widgets and " + lines
+					+ " lines of data, " + iterations + " iterations");
+			benchmark("text", widgets, lines, iterations,
+					(output) -> new MessageBufferedWriter(
+							new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)), false),
+					(message) -> new MessageSimpleReader(
+							new InputStreamReader(new ByteArrayInputStream(message), StandardCharsets.UTF_8)));
+			benchmark("binary", widgets, lines, iterations, (output) -> new MessageBinaryWriter(output, false),
+					(message) -> new MessageBinaryReader(new ByteArrayInputStream(message)));
+		} catch (Exception e) {
+			System.err.println("An error happended " + e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++) {
+				System.err.println("   - " + e.getStackTrace()[i]);
+			}
+		}
+	}
+
+	private static void benchmark(
+			String framing,
+			int widgets,
+			int lines,
+			int iterations,
+			WriterFactory writerfactory,
+			ReaderFactory readerfactory) throws Exception {
+		byte[] message = null;
+		for (int i = 0; i < WARMUP; i++) {
+			message = write(writerfactory, widgets, lines);
+			read(readerfactory, message);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			message = write(writerfactory, widgets, lines);
+		long writetime = System.nanoTime() - start;
+		start = System.nanoTime();
+		int elements = 0;
+		for (int i = 0; i < iterations; i++)
+			elements = read(readerfactory, message);
+		long readtime = System.nanoTime() - start;
+		System.out.println(String.format(" %-7s size = %8d bytes, compressed = %7d bytes, elements = %6d", framing,
+				message.length, compressedSize(message), elements));
+		System.out.println(String.format("         write = %8.3f ms/message, read = %8.3f ms/message",
+				writetime / 1000000.0 / iterations, readtime / 1000000.0 / iterations));
+	}
+
+	private static int compressedSize(byte[] message) {
+		Deflater deflater = new Deflater();
+		deflater.setInput(message);
+		deflater.finish();
+		byte[] buffer = new byte[4096];
+		int size = 0;
+		while (!deflater.finished())
+			size += deflater.deflate(buffer);
+		deflater.end();
+		return size;
+	}
+
+	private static byte[] write(WriterFactory writerfactory, int widgets, int lines) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		MessageWriter writer = writerfactory.create(output);
+		writer.startNewMessage();
+		writer.startStructure("DISPLAYPAGE");
+		writer.startStructure("RQSATRS");
+		writer.addStringField("CID", "5f3a9c1e-0d44-4c1b-9a3e-2b8e5c7d1f00");
+		writer.addStringField("USR", "jsmith");
+		writer.addStringField("OTPSTATUS", "NONE");
+		writer.endStructure("RQSATRS");
+		writer.startStructure("CONTENT");
+		writer.addBooleanField("CTB", false);
+		writer.startStructure("COMPONENTBAND");
+		writer.addStringField("DIR", "2");
+		for (int i = 0; i < widgets; i++) {
+			writer.startStructure("FIELD");
+			writer.addStringField("ID", "FIELD" + i);
+			writer.addStringField("LBL", "Label of field " + i);
+			writer.addStringField("HLP", "Help text explaining the purpose of field number " + i);
+			writer.addIntegerField("LEN", 80);
+			writer.addBooleanField("RDO", (i % 2 == 0));
+			writer.addBooleanField("MDT", (i % 3 == 0));
+			writer.startStructure("DATAREF");
+			writer.addStringField("NAM", "OBJECT");
+			writer.addStringField("FLD", "FIELD" + i);
+			writer.endStructure("DATAREF");
+			writer.endStructure("FIELD");
+		}
+		writer.endStructure("COMPONENTBAND");
+		writer.endStructure("CONTENT");
+		writer.startStructure("PAGEDATA");
+		ArrayList<MessageFieldSpec> fieldspecs = new ArrayList<MessageFieldSpec>();
+		fieldspecs.add(new MessageFieldSpec("ID", MessageFieldTypeString.singleton));
+		fieldspecs.add(new MessageFieldSpec("NR", MessageFieldTypeString.singleton));
+		fieldspecs.add(new MessageFieldSpec("QTY", MessageFieldTypeInteger.singleton));
+		fieldspecs.add(new MessageFieldSpec("PRICE", MessageFieldTypeDecimal.singleton));
+		fieldspecs.add(new MessageFieldSpec("ACTIVE", MessageFieldTypeBoolean.singleton));
+		fieldspecs.add(new MessageFieldSpec("CREATED", MessageFieldTypeDate.singleton));
+		MessageArrayStart arraystart = new MessageArrayStart("OBJECTS", fieldspecs);
+		writer.sendMessageElement(arraystart);
+		Date created = new Date(1577836800000L);
+		for (int i = 0; i < lines; i++) {
+			writer.sendMessageElement(new MessageArrayLine(arraystart,
+					new Object[] { "OBJ" + (1000000 + i), "N" + i, Integer.valueOf(i * 7),
+							BigDecimal.valueOf(i * 1234L, 2), Boolean.valueOf(i % 2 == 0), created }));
+		}
+		writer.sendMessageElement(new MessageArrayEnd());
+		byte[] attachment = new byte[16384];
+		for (int i = 0; i < attachment.length; i++)
+			attachment[i] = (byte) (i * 31);
+		writer.addLongBinaryField("FILE", new SFile("attachment.bin", attachment));
+		writer.endStructure("PAGEDATA");
+		writer.endStructure("DISPLAYPAGE");
+		writer.endMessage();
+		return output.toByteArray();
+	}
+
+	private static int read(ReaderFactory readerfactory, byte[] message) throws Exception {
+		MessageReader reader = readerfactory.create(message);
+		int elements = 0;
+		MessageElement element = reader.getNextElement();
+		while (!(element instanceof MessageEnd)) {
+			elements++;
+			element = reader.getNextElement();
+		}
+		return elements;
+	}
+}
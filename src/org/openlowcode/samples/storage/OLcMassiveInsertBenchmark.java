@@ -0,0 +1,162 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.storage;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openlowcode.server.data.storage.DecimalStoredField;
+import org.openlowcode.server.data.storage.IntegerStoredField;
+import org.openlowcode.server.data.storage.MultipleTableRow;
+import org.openlowcode.server.data.storage.PersistentStorage;
+import org.openlowcode.server.data.storage.StoredField;
+import org.openlowcode.server.data.storage.StoredTableRow;
+import org.openlowcode.server.data.storage.StoredTableSchema;
+import org.openlowcode.server.data.storage.StringStoredField;
+import org.openlowcode.server.data.storage.TimestampStoredField;
+import org.openlowcode.server.data.storage.derbyjdbc.DerbyJDBCStorage;
+import org.openlowcode.server.data.storage.mariajdbc.MariadDBJDBCStorage;
+import org.openlowcode.server.data.storage.standardjdbc.BaseJDBCStorage;
+
+/**
+ * A benchmark utility comparing the throughput of inserts in the database for
+ * 1 000, 10 000 and 100 000 rows: row by row inserts, massive insert with
+ * single row statements in JDBC batches, and massive insert with multi-row
+ * statements (if supported by the database). The benchmark creates a table
+ * BENCHINSERT, and should be run on a test database.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class OLcMassiveInsertBenchmark {
+	private static final int[] ROW_NUMBERS = new int[] { 1000, 10000, 100000 };
+
+	private StoredTableSchema bench;
+	private StringStoredField name;
+	private DecimalStoredField amount;
+	private IntegerStoredField quantity;
+	private TimestampStoredField created;
+
+	private OLcMassiveInsertBenchmark() {
+		bench = new StoredTableSchema("BENCHINSERT");
+		name = new StringStoredField("NAME", bench, 64);
+		amount = new DecimalStoredField("AMOUNT", bench, 16, 4);
+		quantity = new IntegerStoredField("QUANTITY", bench, Integer.valueOf(0));
+		created = new TimestampStoredField("CREATED", bench);
+		bench.addField(name);
+		bench.addField(amount);
+		bench.addField(quantity);
+		bench.addField(created);
+	}
+
+	public static void main(String[] args) {
+		if ((args.length < 2) || ((!args[0].equals("DERBY")) && (!args[0].equals("MARIA10.2")))
+				|| ((args[0].equals("MARIA10.2")) && (args.length < 4))) {
+			System.err.println(" Error. Syntax java OLcMassiveInsertBenchmark DBTYPE URL [User Password]");
+			System.err.println("DBTYPE is either DERBY or MARIA10.2");
+			System.err.println("URL is :");
+			System.err.println("	- path of the folder if derby");
+			System.err.println("	- JDBC full URL for MARIA10.2");
+			System.exit(1);
+		}
+		try {
+			Logger.getLogger("").setLevel(Level.WARNING);
+			Connection connection;
+			PersistentStorage storage;
+			if (args[0].equals("DERBY")) {
+				connection = DriverManager.getConnection("jdbc:derby:" + args[1] + ";create=true");
+				storage = new DerbyJDBCStorage(connection);
+			} else {
+				connection = DriverManager.getConnection(args[1], args[2], args[3]);
+				storage = new MariadDBJDBCStorage(connection);
+			}
+			new OLcMassiveInsertBenchmark().run(connection, storage);
+		} catch (Exception e) {
+			System.err.println("--------------------------------------------------------");
+			System.err.println("  Exception : " + e.getMessage());
+			e.printStackTrace(System.err);
+		}
+	}
+
+	private void run(Connection connection, PersistentStorage storage) throws Exception {
+		if (!storage.DoesObjectExist(bench))
+			storage.createObject(bench);
+		System.err.println("rows;mode;milliseconds;rows per second");
+		for (int i = 0; i < ROW_NUMBERS.length; i++) {
+			int rows = ROW_NUMBERS[i];
+			clean(connection);
+			long start = System.currentTimeMillis();
+			for (int r = 0; r < rows; r++) {
+				StoredTableRow row = new StoredTableRow(bench);
+				row.setPayload(name, "ROW" + r);
+				row.setPayload(amount, new BigDecimal(r).movePointLeft(2));
+				row.setPayload(quantity, Integer.valueOf(r));
+				row.setPayload(created, new Date());
+				storage.insertOnDB(row);
+			}
+			report(rows, "row by row", start);
+
+			clean(connection);
+			BaseJDBCStorage.setMultiRowInsert(false);
+			start = System.currentTimeMillis();
+			storage.MassiveInsertOnDB(generate(rows));
+			report(rows, "batch", start);
+
+			clean(connection);
+			BaseJDBCStorage.setMultiRowInsert(true);
+			start = System.currentTimeMillis();
+			storage.MassiveInsertOnDB(generate(rows));
+			report(rows, "batch multi-row", start);
+		}
+		clean(connection);
+	}
+
+	private MultipleTableRow generate(int rows) {
+		MultipleTableRow multiplerow = new MultipleTableRow(bench);
+		for (int r = 0; r < rows; r++) {
+			if (r > 0)
+				multiplerow.setNextQuery();
+			StoredField<String> namefield = new StoredField<String>(name);
+			namefield.setPayload("ROW" + r);
+			StoredField<BigDecimal> amountfield = new StoredField<BigDecimal>(amount);
+			amountfield.setPayload(new BigDecimal(r).movePointLeft(2));
+			StoredField<Integer> quantityfield = new StoredField<Integer>(quantity);
+			quantityfield.setPayload(Integer.valueOf(r));
+			StoredField<Date> createdfield = new StoredField<Date>(created);
+			createdfield.setPayload(new Date());
+			multiplerow.addStoredFieldToCurrentRow(namefield);
+			multiplerow.addStoredFieldToCurrentRow(amountfield);
+			multiplerow.addStoredFieldToCurrentRow(quantityfield);
+			multiplerow.addStoredFieldToCurrentRow(createdfield);
+		}
+		return multiplerow;
+	}
+
+	private void clean(Connection connection) throws Exception {
+		PreparedStatement ps = connection.prepareStatement("DELETE FROM BENCHINSERT");
+		ps.execute();
+		ps.close();
+		if (!connection.getAutoCommit())
+			connection.commit();
+	}
+
+	private void report(int rows, String mode, long start) {
+		long elapsed = System.currentTimeMillis() - start;
+		long rowspersecond = (elapsed > 0 ? (rows * 1000L) / elapsed : rows * 1000L);
+		System.err.println(rows + ";" + mode + ";" + elapsed + ";" + rowspersecond);
+	}
+}
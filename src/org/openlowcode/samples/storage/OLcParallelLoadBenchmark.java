@@ -0,0 +1,192 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.samples.storage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openlowcode.server.data.loader.FlatFileLoader;
+import org.openlowcode.server.data.storage.DecimalStoredField;
+import org.openlowcode.server.data.storage.IntegerStoredField;
+import org.openlowcode.server.data.storage.MultipleTableRow;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.data.storage.PersistentStorage;
+import org.openlowcode.server.data.storage.StoredField;
+import org.openlowcode.server.data.storage.StoredTableSchema;
+import org.openlowcode.server.data.storage.StringStoredField;
+import org.openlowcode.server.data.storage.jdbcpool.SimpleConnectionPool;
+
+/**
+ * A benchmark utility measuring the scaling of a partitioned load from 1 to N
+ * workers. Lines are split between workers on their parent number the same way
+ * as the flat file loader in parallel mode, and each worker inserts its
+ * partition in batches with its own connections from the pool. The benchmark
+ * creates a table BENCHLOAD, and should be run on a test database.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class OLcParallelLoadBenchmark {
+	private static final int ROWS = 100000;
+	private static final int ROWS_PER_PARENT = 10;
+	private static final int BATCH_SIZE = 100;
+
+	private StoredTableSchema bench;
+	private StringStoredField parent;
+	private StringStoredField name;
+	private DecimalStoredField amount;
+	private IntegerStoredField quantity;
+	private SimpleConnectionPool connectionpool;
+
+	private OLcParallelLoadBenchmark(SimpleConnectionPool connectionpool) {
+		this.connectionpool = connectionpool;
+		bench = new StoredTableSchema("BENCHLOAD");
+		parent = new StringStoredField("PARENT", bench, 64);
+		name = new StringStoredField("NAME", bench, 64);
+		amount = new DecimalStoredField("AMOUNT", bench, 16, 4);
+		quantity = new IntegerStoredField("QUANTITY", bench, Integer.valueOf(0));
+		bench.addField(parent);
+		bench.addField(name);
+		bench.addField(amount);
+		bench.addField(quantity);
+	}
+
+	public static void main(String[] args) {
+		if ((args.length < 2) || ((!args[0].equals(PersistenceGateway.DBTYPE_DERBY))
+				&& (!args[0].equals(PersistenceGateway.DBTYPE_MARIA10_2)))
+				|| ((args[0].equals(PersistenceGateway.DBTYPE_MARIA10_2)) && (args.length < 4))) {
+			System.err.println(" Error. Syntax java OLcParallelLoadBenchmark DBTYPE URL [User Password] [MaxWorkers]");
+			System.err.println("DBTYPE is either DERBY or MARIA10.2");
+			System.err.println("URL is :");
+			System.err.println("	- path of the folder if derby");
+			System.err.println("	- JDBC full URL for MARIA10.2");
+			System.err.println("MaxWorkers is by default the number of processors");
+			System.exit(1);
+		}
+		try {
+			Logger.getLogger("").setLevel(Level.WARNING);
+			int maxworkers = Runtime.getRuntime().availableProcessors();
+			SimpleConnectionPool connectionpool;
+			if (args[0].equals(PersistenceGateway.DBTYPE_DERBY)) {
+				if (args.length > 2)
+					maxworkers = Integer.parseInt(args[2]);
+				connectionpool = new SimpleConnectionPool("jdbc:derby:" + args[1] + ";create=true", null, null, 1,
+						maxworkers + 1);
+			} else {
+				if (args.length > 4)
+					maxworkers = Integer.parseInt(args[4]);
+				connectionpool = new SimpleConnectionPool(args[1], args[2], args[3], 1, maxworkers + 1);
+			}
+			PersistenceGateway.setconnectionpool(args[0], connectionpool);
+			new OLcParallelLoadBenchmark(connectionpool).run(maxworkers);
+		} catch (Exception e) {
+			System.err.println("--------------------------------------------------------");
+			System.err.println("  Exception : " + e.getMessage());
+			e.printStackTrace(System.err);
+		}
+	}
+
+	private void run(int maxworkers) throws Exception {
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		if (!storage.DoesObjectExist(bench))
+			storage.createObject(bench);
+		System.err.println("rows;workers;milliseconds;rows per second;speedup");
+		long reference = 0;
+		for (int workers = 1; workers <= maxworkers; workers++) {
+			clean();
+			ArrayList<ArrayList<Integer>> partitions = new ArrayList<ArrayList<Integer>>();
+			for (int i = 0; i < workers; i++)
+				partitions.add(new ArrayList<Integer>());
+			for (int r = 0; r < ROWS; r++)
+				partitions.get(FlatFileLoader.getPartition(getParent(r), r, workers)).add(Integer.valueOf(r));
+			ExecutorService executor = Executors.newFixedThreadPool(workers);
+			long start = System.currentTimeMillis();
+			try {
+				ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+				for (int i = 0; i < workers; i++) {
+					ArrayList<Integer> partition = partitions.get(i);
+					futures.add(executor.submit(() -> {
+						try {
+							load(partition);
+							return null;
+						} finally {
+							PersistenceGateway.releaseForThread();
+						}
+					}));
+				}
+				for (int i = 0; i < futures.size(); i++)
+					futures.get(i).get();
+			} finally {
+				executor.shutdown();
+			}
+			long elapsed = System.currentTimeMillis() - start;
+			if (workers == 1)
+				reference = elapsed;
+			long rowspersecond = (elapsed > 0 ? (ROWS * 1000L) / elapsed : ROWS * 1000L);
+			String speedup = (elapsed > 0 ? new BigDecimal(reference).divide(new BigDecimal(elapsed), 2,
+					RoundingMode.HALF_UP).toPlainString() : "-");
+			System.err.println(ROWS + ";" + workers + ";" + elapsed + ";" + rowspersecond + ";" + speedup);
+		}
+		clean();
+		PersistenceGateway.releaseForThread();
+	}
+
+	private static String getParent(int row) {
+		return "P" + (row / ROWS_PER_PARENT);
+	}
+
+	private void load(ArrayList<Integer> partition) {
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		for (int i = 0; i < partition.size(); i += BATCH_SIZE) {
+			MultipleTableRow multiplerow = new MultipleTableRow(bench);
+			for (int j = i; j < Math.min(i + BATCH_SIZE, partition.size()); j++) {
+				int r = partition.get(j).intValue();
+				if (j > i)
+					multiplerow.setNextQuery();
+				StoredField<String> parentfield = new StoredField<String>(parent);
+				parentfield.setPayload(getParent(r));
+				StoredField<String> namefield = new StoredField<String>(name);
+				namefield.setPayload("ROW" + r);
+				StoredField<BigDecimal> amountfield = new StoredField<BigDecimal>(amount);
+				amountfield.setPayload(new BigDecimal(r).movePointLeft(2));
+				StoredField<Integer> quantityfield = new StoredField<Integer>(quantity);
+				quantityfield.setPayload(Integer.valueOf(r));
+				multiplerow.addStoredFieldToCurrentRow(parentfield);
+				multiplerow.addStoredFieldToCurrentRow(namefield);
+				multiplerow.addStoredFieldToCurrentRow(amountfield);
+				multiplerow.addStoredFieldToCurrentRow(quantityfield);
+			}
+			storage.MassiveInsertOnDB(multiplerow);
+		}
+	}
+
+	private void clean() throws Exception {
+		Connection connection = connectionpool.getConnectionWithRetry();
+		try {
+			PreparedStatement ps = connection.prepareStatement("DELETE FROM BENCHLOAD");
+			ps.execute();
+			ps.close();
+			if (!connection.getAutoCommit())
+				connection.commit();
+		} finally {
+			connectionpool.checkin(connection);
+		}
+	}
+}
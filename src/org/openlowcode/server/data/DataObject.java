@@ -37,6 +37,7 @@ import org.openlowcode.server.data.properties.Uniqueidentified;
 import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
 import org.openlowcode.server.data.properties.Versioned;
 import org.openlowcode.server.data.storage.Field;
+import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.Row;
 import org.openlowcode.server.data.storage.StoredField;
 import org.openlowcode.server.data.storage.TableAlias;
@@ -214,6 +215,23 @@ public abstract class DataObject<E extends DataObject<E>> extends Named {
 		return (Uniqueidentified<E>) uniqueidentifieduncast;
 	}
 
+	/**
+	 * persists the object only if the stored object still matches the provided
+	 * condition. The object should have the unique identified property
+	 * 
+	 * @param additionalcondition condition the stored object should match
+	 * @return true if the object was updated
+	 * @since 1.14
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean updateifmatches(QueryCondition additionalcondition) {
+		DataObjectProperty<E> uniqueidentifieduncast = this.payload.lookupPropertyOnName("UNIQUEIDENTIFIED");
+		if (uniqueidentifieduncast == null)
+			throw new RuntimeException(
+					"Conditional update requires property uniqueidentified on object " + this.getName());
+		return ((Uniqueidentified<E>) uniqueidentifieduncast).updateifmatches((E) this, additionalcondition);
+	}
+
 	/**
 	 * when the object is updated, it can fire triggers. This method returns all the
 	 * triggers. This should be only called by the framework
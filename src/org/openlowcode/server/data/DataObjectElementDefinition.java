@@ -13,6 +13,7 @@ package org.openlowcode.server.data;
 import org.openlowcode.tools.misc.Named;
 import org.openlowcode.tools.misc.NamedList;
 import org.openlowcode.server.data.formula.DataUpdateTrigger;
+import org.openlowcode.server.data.formula.FormulaDependencyGraph;
 
 import org.openlowcode.server.data.storage.FieldSchema;
 import org.openlowcode.server.data.storage.StoredTableIndex;
@@ -55,6 +56,19 @@ public abstract class DataObjectElementDefinition<E extends FieldSchema, F exten
 	public void setTriggerOnUpdate(DataUpdateTrigger<F> trigger) {
 
 		triggerlist.addIfNew(trigger);
+		if (!trigger.isCustomTrigger())
+			FormulaDependencyGraph.addDependency(getFormulaDependencyKey(), trigger.getName());
+	}
+
+	/**
+	 * @return the key of this element in the formula dependency graph. By
+	 *         default, the element is identified by its instance, elements that
+	 *         are calculated should return the name of the trigger calculating
+	 *         them
+	 * @since 1.14
+	 */
+	public String getFormulaDependencyKey() {
+		return this.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(this));
 	}
 
 	/**
@@ -207,6 +207,19 @@ public class DataObjectPayload {
 		return row;
 	}
 
+	/**
+	 * gives back the storage, and only then notifies the listeners of the table.
+	 * Storage operations run in autocommit, or commit their own transaction for
+	 * massive operations, so listeners are called once the change is committed
+	 * 
+	 * @param store  the storage used for the change
+	 * @param schema the table changed
+	 */
+	private static void checkinStorageAndNotify(PersistentStorage store, StoredTableSchema schema) {
+		PersistenceGateway.checkinStorage(store);
+		schema.notifyChange();
+	}
+
 	/**
 	 * 
 	 */
@@ -214,7 +227,7 @@ public class DataObjectPayload {
 		PersistentStorage store = PersistenceGateway.getStorage();
 		store.insertOnDB(getStoredObject());
 
-		PersistenceGateway.checkinStorage(store);
+		checkinStorageAndNotify(store, schema);
 
 	}
 
@@ -244,7 +257,7 @@ public class DataObjectPayload {
 			}
 			PersistentStorage store = PersistenceGateway.getStorage();
 			store.MassiveUpdateOnDB(multiplerow);
-			PersistenceGateway.checkinStorage(store);
+			checkinStorageAndNotify(store, payloads[0].schema);
 		}
 	}
 
@@ -273,7 +286,7 @@ public class DataObjectPayload {
 			}
 			PersistentStorage store = PersistenceGateway.getStorage();
 			store.MassiveDeleteOnDB(multiplerow);
-			PersistenceGateway.checkinStorage(store);
+			checkinStorageAndNotify(store, payloads[0].schema);
 		}
 	}
 
@@ -294,7 +307,7 @@ public class DataObjectPayload {
 				}
 				PersistentStorage store = PersistenceGateway.getStorage();
 				store.MassiveInsertOnDB(multiplerow);
-				PersistenceGateway.checkinStorage(store);
+				checkinStorageAndNotify(store, payloads[0].schema);
 			}
 	}
 
@@ -303,11 +316,13 @@ public class DataObjectPayload {
 	 * 
 	 * @param condition this method should be called with a query condition ensuring
 	 *                  that the correct rows are updated
+	 * @return the number of rows updated
 	 */
-	public void update(QueryCondition condition) {
+	public int update(QueryCondition condition) {
 		PersistentStorage store = PersistenceGateway.getStorage();
-		store.UpdateOnDB(new UpdateQuery(getStoredObject(), condition));
-		PersistenceGateway.checkinStorage(store);
+		int updatedrows = store.UpdateOnDB(new UpdateQuery(getStoredObject(), condition));
+		checkinStorageAndNotify(store, schema);
+		return updatedrows;
 	}
 
 	/**
@@ -319,7 +334,7 @@ public class DataObjectPayload {
 	public void delete(QueryCondition condition) {
 		PersistentStorage store = PersistenceGateway.getStorage();
 		store.DeleteOnDB(new DeleteQuery(getStoredObject().getStoredTableSchema(), condition));
-		PersistenceGateway.checkinStorage(store);
+		checkinStorageAndNotify(store, schema);
 	}
 
 	/**
@@ -42,6 +42,7 @@ public class DecimalDataObjectFieldFlatFileLoaderColumn<E extends DataObject<E>>
 	@SuppressWarnings("unused")
 	private ChoiceValue<ApplocaleChoiceDefinition> locale;
 	public BigDecimal multiplyatexport = new BigDecimal(1);
+	private CellStyle percentagecellstyle;
 
 	public static class DecimalParser {
 
@@ -95,7 +96,11 @@ public class DecimalDataObjectFieldFlatFileLoaderColumn<E extends DataObject<E>>
 				BigDecimal decimal = null;
 				if (value != null)
 					if (value.length() > 0) {
-						Number number = decimalformat.parse(value);
+						Number number;
+						// decimal format is not thread-safe, and the parser is shared by loader workers
+						synchronized (decimalformat) {
+							number = decimalformat.parse(value);
+						}
 						decimal = (BigDecimal) number;
 						if (specialtreatment == SPECIAL_TREATMENT_MULTIPLY_BY_1000)
 							decimal = decimal.multiply(new BigDecimal(1000));
@@ -238,8 +243,11 @@ public class DecimalDataObjectFieldFlatFileLoaderColumn<E extends DataObject<E>>
 		}
 		if (this.decimalparser.getSpecialTreatment() == DecimalParser.SPECIAL_TREATMENT_MULTIPLY_BY_100) {
 			logger.finest("special treatment for cell percentage");
-			CellStyle percentagecellstyle = FlatFileExtractor.createBorderedStyle(cell.getSheet().getWorkbook());
-			percentagecellstyle.setDataFormat(cell.getSheet().getWorkbook().createDataFormat().getFormat("0.0%"));
+			// style is created once per extraction as a workbook has a limited number of styles
+			if (percentagecellstyle == null) {
+				percentagecellstyle = FlatFileExtractor.createBorderedStyle(cell.getSheet().getWorkbook());
+				percentagecellstyle.setDataFormat(cell.getSheet().getWorkbook().createDataFormat().getFormat("0.0%"));
+			}
 			cell.setCellStyle(percentagecellstyle);
 			return true;
 		}
@@ -10,6 +10,10 @@
 
 package org.openlowcode.server.data;
 
+import java.util.function.Consumer;
+
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 import org.openlowcode.server.data.storage.Row;
@@ -33,7 +37,11 @@ public class QueryHelper {
 	}
 
 	/**
-	 * executes properly the query through persistence gateway
+	 * executes properly the query through persistence gateway. The storage is
+	 * checked in before the rows are read, so the caller should close the row in
+	 * a finally block: the prepared statement is given back to the statement
+	 * cache of the connection only when the row is closed, or when all rows have
+	 * been read
 	 * 
 	 * @param sq a select query
 	 * @return rows
@@ -46,4 +54,68 @@ public class QueryHelper {
 		return row;
 
 	}
+
+	/**
+	 * executes the query through persistence gateway and gives each row to the
+	 * row reader as soon as it is read. The storage is kept until all rows are
+	 * read, and the row is closed at the end even in case of error. To run in
+	 * constant memory, a fetch size should be set on the select query.<br>
+	 * The connection of the storage is dedicated to the stream: the row reader
+	 * can run other queries, they will take another connection from the pool
+	 * (the pool should so allow at least two connections per thread streaming).
+	 * 
+	 * @param sq        a select query
+	 * @param rowreader reader called for each row, with the row positioned on
+	 *                  the current record
+	 * @return the number of rows read
+	 * @since 1.14
+	 */
+	public int stream(SelectQuery sq, Consumer<Row> rowreader) {
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		try {
+			Row row = storage.selectOnDB(sq);
+			int count = 0;
+			try {
+				while (row.next()) {
+					rowreader.accept(row);
+					count++;
+				}
+			} finally {
+				row.close();
+			}
+			return count;
+		} finally {
+			PersistenceGateway.checkinStorage(storage);
+		}
+	}
+
+	/**
+	 * counts through persistence gateway the rows the query would return
+	 * 
+	 * @param sq a select query
+	 * @return number of rows
+	 * @since 1.14
+	 */
+	public int count(SelectQuery sq) {
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		try {
+			return storage.countOnDB(sq);
+		} finally {
+			PersistenceGateway.checkinStorage(storage);
+		}
+	}
+
+	/**
+	 * executes an aggregate query through persistence gateway
+	 * 
+	 * @param aq an aggregate query
+	 * @return rows, one per group
+	 * @since 1.14
+	 */
+	public AggregateRow aggregate(AggregateQuery aq) {
+		PersistentStorage storage = PersistenceGateway.getStorage();
+		AggregateRow row = storage.aggregateOnDB(aq);
+		PersistenceGateway.checkinStorage(storage);
+		return row;
+	}
 }
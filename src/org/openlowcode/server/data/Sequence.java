@@ -1,5 +1,5 @@
 /********************************************************************************
- * Copyright (c) 2020 [Open Lowcode SAS](https://openlowcode.com/)
+ * Copyright (c) 2019 [Open Lowcode SAS](https://openlowcode.com/)
  *
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License 2.0 which is available at
@@ -10,13 +10,23 @@
 
 package org.openlowcode.server.data;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
 import org.openlowcode.tools.misc.Named;
 
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 
 /**
- * An helper object to access to a persisted sequence
+ * An helper object to access to a persisted sequence.<br>
+ * If the sequence has a block size bigger than 1, values are reserved in the
+ * database by blocks, and given from memory. The next block is reserved in the
+ * background when the current block is running out. Values are unique, but
+ * there may be gaps (values reserved and not used when the server stops), and
+ * if several servers share the database, values are not given in strict order
+ * across servers.
  * 
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
@@ -25,6 +35,19 @@ import org.openlowcode.server.data.storage.PersistentStorage;
 public class Sequence
 		extends
 		Named {
+	private static Logger logger = Logger.getLogger(Sequence.class.getName());
+	private static ExecutorService refillexecutor = Executors.newSingleThreadExecutor((runnable) -> {
+		Thread thread = new Thread(runnable, "OLcSequenceRefill");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private int blocksize;
+	private boolean nativesequence;
+	private boolean nativeactive;
+	private int nextvalue;
+	private int blockend;
+	private int prefetchedstart;
+	private boolean refillinprogress;
 
 	/**
 	 * creates an helper to access a sequence
@@ -32,7 +55,38 @@ public class Sequence
 	 * @param name name of the sequence
 	 */
 	public Sequence(String name) {
+		this(name, 1, false);
+	}
+
+	/**
+	 * creates an helper to access a sequence reserving values by blocks
+	 * 
+	 * @param name           name of the sequence
+	 * @param blocksize      number of values reserved in the database at once (1
+	 *                       to get each value from the database)
+	 * @param nativesequence true to use a native sequence of the database if
+	 *                       supported, instead of the generic sequence table
+	 * @since 1.14
+	 */
+	public Sequence(String name, int blocksize, boolean nativesequence) {
 		super(name.toUpperCase());
+		if (blocksize < 1)
+			throw new RuntimeException("Block size for sequence " + name + " should be at least 1, got " + blocksize);
+		this.blocksize = blocksize;
+		this.nativesequence = nativesequence;
+		this.nativeactive = false;
+		this.nextvalue = 0;
+		this.blockend = 0;
+		this.prefetchedstart = -1;
+		this.refillinprogress = false;
+	}
+
+	/**
+	 * @return the number of values reserved in the database at once
+	 * @since 1.14
+	 */
+	public int getBlockSize() {
+		return blocksize;
 	}
 
 	/**
@@ -41,21 +95,94 @@ public class Sequence
 	 * @return the next sequence
 	 */
 	public int getNextValue() {
+		if ((blocksize == 1) && (!nativeactive))
+			return reserveBlock();
+		int value;
+		boolean launchrefill = false;
+		synchronized (this) {
+			if (nextvalue >= blockend) {
+				if (prefetchedstart >= 0) {
+					nextvalue = prefetchedstart;
+					prefetchedstart = -1;
+				} else {
+					nextvalue = reserveBlock();
+				}
+				blockend = nextvalue + blocksize;
+			}
+			value = nextvalue;
+			nextvalue++;
+			// the next block is reserved when three quarters of the block are used
+			if (blocksize > 1)
+				if ((blockend - nextvalue) <= blocksize / 4)
+					if ((prefetchedstart < 0) && (!refillinprogress)) {
+						refillinprogress = true;
+						launchrefill = true;
+					}
+		}
+		if (launchrefill)
+			refillexecutor.execute(() -> refill());
+		return value;
+	}
+
+	private void refill() {
+		try {
+			int start = reserveBlock();
+			synchronized (this) {
+				prefetchedstart = start;
+			}
+		} catch (Throwable t) {
+			logger.warning("Could not reserve next block for sequence " + this.getName() + ": " + t.getMessage());
+		} finally {
+			synchronized (this) {
+				refillinprogress = false;
+			}
+			PersistenceGateway.releaseForThread();
+		}
+	}
+
+	/**
+	 * reserves a block of values in the database
+	 * 
+	 * @return the first value of the block
+	 */
+	private int reserveBlock() {
 		PersistentStorage storage = PersistenceGateway.getStorage();
-		int nextvalue = storage.getNextValue(this.getName());
-		PersistenceGateway.checkinStorage(storage);
-		return nextvalue;
+		try {
+			if (nativeactive)
+				return storage.getNextNativeValue(this.getName());
+			return storage.getNextValues(this.getName(), blocksize);
+		} finally {
+			PersistenceGateway.checkinStorage(storage);
+		}
 	}
 
 	/**
-	 * updates the persistence layer, creating the sequence if required
+	 * updates the persistence layer, creating the sequence if required. If a
+	 * native sequence is requested and supported, it is created to start after the
+	 * last value given by the sequence table if it exists
 	 */
 	public void updatepersistence() {
 		PersistentStorage storage = PersistenceGateway.getStorage();
-		boolean issequence = storage.isSequenceExisting(this.getName());
-		if (!issequence) {
-			storage.createSequence(this.getName(), 1);
+		try {
+			boolean issequence = storage.isSequenceExisting(this.getName());
+			if (nativesequence) {
+				if (storage.isNativeSequenceSupported()) {
+					if (!storage.isNativeSequenceExisting(this.getName())) {
+						int firstvalue = 1;
+						if (issequence)
+							firstvalue = storage.getNextValues(this.getName(), 1);
+						storage.createNativeSequence(this.getName(), firstvalue, blocksize);
+					}
+					nativeactive = true;
+					return;
+				}
+				logger.warning("Native sequences not supported by database, sequence table used for " + this.getName());
+			}
+			if (!issequence) {
+				storage.createSequence(this.getName(), 1);
+			}
+		} finally {
+			PersistenceGateway.checkinStorage(storage);
 		}
-		PersistenceGateway.checkinStorage(storage);
 	}
 }
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 
 import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.properties.ComputeddecimalDefinition;
+import org.openlowcode.server.data.properties.DataObjectId;
 import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
 import org.openlowcode.server.runtime.OLcServer;
 import org.openlowcode.tools.misc.NamedList;
@@ -57,6 +58,8 @@ public class CalculatedFieldTrigger<E extends DataObject<E>, F extends DataObjec
 		NamedList<TriggerToExecute<E>> targetlocaltriggers = new NamedList<TriggerToExecute<E>>();
 		for (int i = 0; i < targetobjects.size(); i++) {
 			F targetobject = targetobjects.get(i);
+			if (!startEvaluation(targetobject))
+				continue;
 			NamedList<DataUpdateTrigger<F>> triggers = computeddecimal.getFormula().compute(targetobject);
 			if (!isLocal() || (isLocal() && forcelocalupdate)) {
 				OLcServer.getServer().setObjectInTriggerUpdateBuffer((UniqueidentifiedInterface<F>) (targetobject));
@@ -76,6 +79,24 @@ public class CalculatedFieldTrigger<E extends DataObject<E>, F extends DataObjec
 
 	}
 
+	/**
+	 * records the evaluation of the formula on the target object for the action
+	 * 
+	 * @param targetobject object the calculated field is on
+	 * @return true if the formula should be evaluated, false if it was already
+	 *         evaluated on the object during recalculation of the action
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean startEvaluation(F targetobject) {
+		OLcServer server = OLcServer.getServer();
+		if (server == null)
+			return true;
+		DataObjectId<F> targetid = null;
+		if (targetobject instanceof UniqueidentifiedInterface)
+			targetid = ((UniqueidentifiedInterface<F>) targetobject).getId();
+		return server.startFormulaEvaluation(getName(), targetid);
+	}
+
 	@Override
 	public boolean isLocal() {
 		return path.local();
@@ -0,0 +1,220 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.formula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.logging.Logger;
+
+/**
+ * The dependency graph of calculated fields on the server. It is built at
+ * startup when the definitions of data objects declare the triggers of their
+ * elements: each element (field or property) is linked to the calculated
+ * fields that use it in their formula.<br>
+ * The graph gives a level to each calculated field, so that a calculated field
+ * has a higher level than all the calculated fields it depends on. Calculated
+ * fields that depend on themselves, typically through a recursive structure of
+ * objects, are flagged as recursive, and all the fields of the same loop share
+ * the same level.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class FormulaDependencyGraph {
+	private static Logger logger = Logger.getLogger(FormulaDependencyGraph.class.getName());
+	private static HashMap<String, HashSet<String>> dependencies = new HashMap<String, HashSet<String>>();
+	private static volatile GraphLevels levels;
+
+	/**
+	 * levels computed for the current state of the graph, not modified once
+	 * published
+	 */
+	private static class GraphLevels {
+		private HashMap<String, Integer> levelpernode;
+		private HashSet<String> recursivenodes;
+		private int maxlevel;
+
+		private GraphLevels(HashMap<String, Integer> levelpernode, HashSet<String> recursivenodes, int maxlevel) {
+			this.levelpernode = levelpernode;
+			this.recursivenodes = recursivenodes;
+			this.maxlevel = maxlevel;
+		}
+	}
+
+	/**
+	 * declares that a calculated field depends on an element
+	 * 
+	 * @param element         key of the element (see
+	 *                        DataObjectElementDefinition.getFormulaDependencyKey)
+	 * @param calculatedfield name of the trigger calculating the field
+	 */
+	public static synchronized void addDependency(String element, String calculatedfield) {
+		HashSet<String> calculatedfields = dependencies.get(element);
+		if (calculatedfields == null) {
+			calculatedfields = new HashSet<String>();
+			dependencies.put(element, calculatedfields);
+		}
+		if (calculatedfields.add(calculatedfield))
+			levels = null;
+	}
+
+	/**
+	 * @param calculatedfield name of the trigger calculating the field
+	 * @return the level of the calculated field (0 if the field is not in the
+	 *         graph)
+	 */
+	public static int getLevel(String calculatedfield) {
+		Integer level = getLevels().levelpernode.get(calculatedfield);
+		if (level == null)
+			return 0;
+		return level.intValue();
+	}
+
+	/**
+	 * @param calculatedfield name of the trigger calculating the field
+	 * @return true if the calculated field depends on itself
+	 */
+	public static boolean isRecursive(String calculatedfield) {
+		return getLevels().recursivenodes.contains(calculatedfield);
+	}
+
+	/**
+	 * @return a one line summary of the graph
+	 */
+	public static String getStatistics() {
+		GraphLevels currentlevels = getLevels();
+		return "FORMULAGRAPH[nodes=" + currentlevels.levelpernode.size() + ",levels=" + (currentlevels.maxlevel + 1)
+				+ ",recursive=" + currentlevels.recursivenodes.size() + "]";
+	}
+
+	private static GraphLevels getLevels() {
+		GraphLevels currentlevels = levels;
+		if (currentlevels != null)
+			return currentlevels;
+		synchronized (FormulaDependencyGraph.class) {
+			if (levels == null) {
+				levels = computeLevels();
+				logger.info("Computed formula dependency graph " + getStatistics());
+			}
+			return levels;
+		}
+	}
+
+	/**
+	 * computes the levels on the graph. Loops in the graph are first grouped as
+	 * strongly connected components, then the level of each component is the
+	 * longest path to reach it from elements without dependencies
+	 * 
+	 * @return the levels for the current state of the graph
+	 */
+	private static GraphLevels computeLevels() {
+		ComponentFinder finder = new ComponentFinder();
+		Iterator<String> elements = dependencies.keySet().iterator();
+		while (elements.hasNext()) {
+			String element = elements.next();
+			if (!finder.index.containsKey(element))
+				finder.visit(element);
+		}
+		ArrayList<ArrayList<String>> components = finder.components;
+		HashMap<String, Integer> componentpernode = new HashMap<String, Integer>();
+		HashSet<String> recursivenodes = new HashSet<String>();
+		for (int i = 0; i < components.size(); i++) {
+			ArrayList<String> component = components.get(i);
+			for (int j = 0; j < component.size(); j++) {
+				String node = component.get(j);
+				componentpernode.put(node, Integer.valueOf(i));
+				boolean recursive = (component.size() > 1);
+				if (dependencies.containsKey(node))
+					if (dependencies.get(node).contains(node))
+						recursive = true;
+				if (recursive)
+					recursivenodes.add(node);
+			}
+		}
+		// components are found after all the components depending on them
+		int[] componentlevels = new int[components.size()];
+		for (int i = components.size() - 1; i >= 0; i--) {
+			ArrayList<String> component = components.get(i);
+			for (int j = 0; j < component.size(); j++) {
+				HashSet<String> calculatedfields = dependencies.get(component.get(j));
+				if (calculatedfields != null) {
+					Iterator<String> calculatedfielditerator = calculatedfields.iterator();
+					while (calculatedfielditerator.hasNext()) {
+						int targetcomponent = componentpernode.get(calculatedfielditerator.next()).intValue();
+						if (targetcomponent != i)
+							if (componentlevels[targetcomponent] < componentlevels[i] + 1)
+								componentlevels[targetcomponent] = componentlevels[i] + 1;
+					}
+				}
+			}
+		}
+		HashMap<String, Integer> levelpernode = new HashMap<String, Integer>();
+		int maxlevel = 0;
+		Iterator<String> nodes = componentpernode.keySet().iterator();
+		while (nodes.hasNext()) {
+			String node = nodes.next();
+			int level = componentlevels[componentpernode.get(node).intValue()];
+			levelpernode.put(node, Integer.valueOf(level));
+			if (level > maxlevel)
+				maxlevel = level;
+		}
+		return new GraphLevels(levelpernode, recursivenodes, maxlevel);
+	}
+
+	/**
+	 * finds the strongly connected components of the graph (Tarjan algorithm)
+	 */
+	private static class ComponentFinder {
+		private HashMap<String, Integer> index = new HashMap<String, Integer>();
+		private HashMap<String, Integer> lowlink = new HashMap<String, Integer>();
+		private ArrayDeque<String> stack = new ArrayDeque<String>();
+		private HashSet<String> onstack = new HashSet<String>();
+		private ArrayList<ArrayList<String>> components = new ArrayList<ArrayList<String>>();
+		private int counter = 0;
+
+		private void visit(String node) {
+			index.put(node, Integer.valueOf(counter));
+			lowlink.put(node, Integer.valueOf(counter));
+			counter++;
+			stack.push(node);
+			onstack.add(node);
+			HashSet<String> calculatedfields = dependencies.get(node);
+			if (calculatedfields != null) {
+				Iterator<String> calculatedfielditerator = calculatedfields.iterator();
+				while (calculatedfielditerator.hasNext()) {
+					String calculatedfield = calculatedfielditerator.next();
+					if (!index.containsKey(calculatedfield)) {
+						visit(calculatedfield);
+						lowlink.put(node, Integer.valueOf(
+								Math.min(lowlink.get(node).intValue(), lowlink.get(calculatedfield).intValue())));
+					} else if (onstack.contains(calculatedfield)) {
+						lowlink.put(node, Integer.valueOf(
+								Math.min(lowlink.get(node).intValue(), index.get(calculatedfield).intValue())));
+					}
+				}
+			}
+			if (lowlink.get(node).equals(index.get(node))) {
+				ArrayList<String> component = new ArrayList<String>();
+				String member;
+				do {
+					member = stack.pop();
+					onstack.remove(member);
+					component.add(member);
+				} while (!member.equals(node));
+				components.add(component);
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.formula;
+
+import java.math.BigDecimal;
+
+import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.storage.StoredFieldSchema;
+
+/**
+ * A method summing in the database a stored field on all the right objects
+ * linked to a left object, optionally multiplied by a stored field on the link,
+ * to be used in calculation formulas
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ *
+ * @param <E> the left object for the link
+ */
+@FunctionalInterface
+public interface LinkSumQuery<E extends DataObject<E>> {
+	/**
+	 * @param leftobject the left object
+	 * @param linkfield  a decimal field on the link object to multiply the right
+	 *                   object field by, or null to sum only the right object
+	 *                   field
+	 * @param rightfield a decimal field on the right object
+	 * @return the sum on all links and right objects
+	 */
+	public BigDecimal sumonlinks(
+			E leftobject,
+			StoredFieldSchema<BigDecimal> linkfield,
+			StoredFieldSchema<BigDecimal> rightfield);
+}
@@ -0,0 +1,36 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.formula;
+
+import java.math.BigDecimal;
+
+import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.storage.StoredFieldSchema;
+
+/**
+ * A method summing in the database a stored field on all the children of an
+ * object, to be used in calculation formulas
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ *
+ * @param <E> the parent object
+ */
+@FunctionalInterface
+public interface LinkedToChildrenSumQuery<E extends DataObject<E>> {
+	/**
+	 * @param parent the parent object
+	 * @param field  a decimal field on the child object
+	 * @return the sum of the field on all children
+	 */
+	public BigDecimal sumonchildren(E parent, StoredFieldSchema<BigDecimal> field);
+}
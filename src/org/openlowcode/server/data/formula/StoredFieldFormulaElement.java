@@ -0,0 +1,72 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.formula;
+
+import java.math.BigDecimal;
+
+import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.DataObjectDefinition;
+import org.openlowcode.server.data.storage.StoredFieldSchema;
+
+/**
+ * A formula element that is directly a decimal field stored in the database.
+ * Sums of this element on several objects can be calculated by the database
+ * instead of loading all the objects.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ *
+ * @param <E> object the field is on
+ */
+public class StoredFieldFormulaElement<E extends DataObject<E>>
+		implements
+		FormulaElement<E> {
+	private DataObjectDefinition<E> definition;
+	private StoredFieldSchema<BigDecimal> field;
+	private FormulaElement<E> extractor;
+
+	/**
+	 * creates a formula element for a stored decimal field
+	 * 
+	 * @param definition definition of the object the field is on
+	 * @param field      the stored field
+	 * @param extractor  extracts the value of the field from an object
+	 */
+	public StoredFieldFormulaElement(
+			DataObjectDefinition<E> definition,
+			StoredFieldSchema<BigDecimal> field,
+			FormulaElement<E> extractor) {
+		this.definition = definition;
+		this.field = field;
+		this.extractor = extractor;
+	}
+
+	/**
+	 * @return definition of the object the field is on
+	 */
+	public DataObjectDefinition<E> getDefinition() {
+		return definition;
+	}
+
+	/**
+	 * @return the stored field
+	 */
+	public StoredFieldSchema<BigDecimal> getField() {
+		return field;
+	}
+
+	@Override
+	public BigDecimal getValueForFormulaInput(E contextobject) {
+		return extractor.getValueForFormulaInput(contextobject);
+	}
+
+}
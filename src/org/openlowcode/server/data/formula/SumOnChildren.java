@@ -14,6 +14,7 @@ import java.math.BigDecimal;
 import java.util.logging.Logger;
 
 import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.runtime.OLcServer;
 
 /**
  * A formula element that sums some values on all children of the parent objecs
@@ -28,6 +29,7 @@ public class SumOnChildren<E extends DataObject<E>, F extends DataObject<F>> imp
 	private static Logger logger = Logger.getLogger(SumOnChildren.class.getName());
 	private LinkedToChildrenNavigator<E, F> linkedtochildrennavigator;
 	private FormulaElement<F> childobjectelement;
+	private LinkedToChildrenSumQuery<E> sumquery;
 
 	/**
 	 * creates a sum of children formula element
@@ -42,8 +44,37 @@ public class SumOnChildren<E extends DataObject<E>, F extends DataObject<F>> imp
 		this.childobjectelement = childobjectelement;
 	}
 
+	/**
+	 * creates a sum of children formula element that can calculate the sum in the
+	 * database when the element on the child object is a stored field
+	 * 
+	 * @param linkedtochildrennavigator navigator from a parent to all the relevant
+	 *                                  children
+	 * @param sumquery                  sums a stored field on all the children in
+	 *                                  the database
+	 * @param childobjectelement        element on the child object to sum
+	 * @since 1.14
+	 */
+	public SumOnChildren(
+			LinkedToChildrenNavigator<E, F> linkedtochildrennavigator,
+			LinkedToChildrenSumQuery<E> sumquery,
+			FormulaElement<F> childobjectelement) {
+		this(linkedtochildrennavigator, childobjectelement);
+		this.sumquery = sumquery;
+	}
+
 	@Override
 	public BigDecimal getValueForFormulaInput(E contextobject) {
+		if (sumquery != null)
+			if (childobjectelement instanceof StoredFieldFormulaElement) {
+				StoredFieldFormulaElement<F> storedfield = (StoredFieldFormulaElement<F>) childobjectelement;
+				// children modified by triggers are not yet persisted, sum is then done in memory
+				if (!OLcServer.getServer().hasObjectTypeInTriggerUpdateBuffer(storedfield.getDefinition())) {
+					BigDecimal result = sumquery.sumonchildren(contextobject, storedfield.getField());
+					logger.fine(" --- *** --- sum in database " + result);
+					return result;
+				}
+			}
 		F[] childobjects = linkedtochildrennavigator.navigate(contextobject);
 		BigDecimal result = new BigDecimal(0);
 		if (childobjects != null)
@@ -14,9 +14,11 @@ import java.math.BigDecimal;
 import java.util.logging.Logger;
 
 import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.TwoDataObjects;
 import org.openlowcode.server.data.properties.LinkobjectInterface;
 import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
+import org.openlowcode.server.runtime.OLcServer;
 
 /**
  * Sums on the left object calculated field the value of a formula element on
@@ -33,6 +35,8 @@ public class SumOnLinkRightObject<E extends DataObject<E> & UniqueidentifiedInte
 		implements FormulaElement<E> {
 	private LinkNavigator<E, F, G> linknavigator;
 	private FormulaElement<G> rightobjectelement;
+	private LinkSumQuery<E> sumquery;
+	private DataObjectDefinition<F> linkobjectdefinition;
 	private final static Logger logger = Logger.getLogger(SumOnLinkRightObject.class.getName());
 
 	/**
@@ -45,10 +49,43 @@ public class SumOnLinkRightObject<E extends DataObject<E> & UniqueidentifiedInte
 		this.rightobjectelement = rightobjectelement;
 	}
 
+	/**
+	 * Creates a new SumOnLinkRightObject that can calculate the sum in the
+	 * database when the element on the right object is a stored field
+	 * 
+	 * @param linknavigator        a navigator for the link
+	 * @param sumquery             sums a stored field on all the right objects in
+	 *                             the database
+	 * @param linkobjectdefinition definition of the link object
+	 * @param rightobjectelement   the element on the right object to sum
+	 * @since 1.14
+	 */
+	public SumOnLinkRightObject(
+			LinkNavigator<E, F, G> linknavigator,
+			LinkSumQuery<E> sumquery,
+			DataObjectDefinition<F> linkobjectdefinition,
+			FormulaElement<G> rightobjectelement) {
+		this(linknavigator, rightobjectelement);
+		this.sumquery = sumquery;
+		this.linkobjectdefinition = linkobjectdefinition;
+	}
+
 	@Override
 	public BigDecimal getValueForFormulaInput(E contextobject) {
-		logger.severe(
+		logger.fine(
 				"executing sm on link right object for " + contextobject.getName() + " ID = " + contextobject.getId());
+		if (sumquery != null)
+			if (rightobjectelement instanceof StoredFieldFormulaElement) {
+				StoredFieldFormulaElement<G> storedfield = (StoredFieldFormulaElement<G>) rightobjectelement;
+				// links and right objects modified by triggers are not yet persisted, sum is
+				// then done in memory
+				if (!OLcServer.getServer().hasObjectTypeInTriggerUpdateBuffer(linkobjectdefinition))
+					if (!OLcServer.getServer().hasObjectTypeInTriggerUpdateBuffer(storedfield.getDefinition())) {
+						BigDecimal result = sumquery.sumonlinks(contextobject, null, storedfield.getField());
+						logger.fine("sum in database is " + result);
+						return result;
+					}
+			}
 		TwoDataObjects<F, G>[] rightlinksandobjects = linknavigator.getLinksAndRightObjects(contextobject);
 		logger.fine("found " + rightlinksandobjects.length + " links and right objects");
 		BigDecimal sum = new BigDecimal(0);
@@ -17,6 +17,7 @@ import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.TwoDataObjects;
 import org.openlowcode.server.data.properties.LinkobjectInterface;
 import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
+import org.openlowcode.server.runtime.OLcServer;
 
 /**
  * This formula element will multiply an element on the link object and an
@@ -37,6 +38,7 @@ public class SumProductOnLinkRightObject<E extends DataObject<E> & Uniqueidentif
 	private LinkNavigator<E, F, G> linknavigator;
 	private FormulaElement<F> linkobjectelement;
 	private FormulaElement<G> rightobjectelement;
+	private LinkSumQuery<E> sumquery;
 	private final static Logger logger = Logger.getLogger(SumProductOnLinkRightObject.class.getName());
 
 	/**
@@ -53,11 +55,46 @@ public class SumProductOnLinkRightObject<E extends DataObject<E> & Uniqueidentif
 		this.rightobjectelement = rightobjectelement;
 	}
 
+	/**
+	 * creates a sum-product on link right object that can calculate the sum in the
+	 * database when both elements are stored fields
+	 * 
+	 * @param linknavigator      navigator for the link
+	 * @param sumquery           sums in the database the product of a stored field
+	 *                           on the link and a stored field on the right object
+	 * @param linkobjectelement  formula element on the link to sum/multiply
+	 * @param rightobjectelement formula element on the right object to sum/multiply
+	 * @since 1.14
+	 */
+	public SumProductOnLinkRightObject(
+			LinkNavigator<E, F, G> linknavigator,
+			LinkSumQuery<E> sumquery,
+			FormulaElement<F> linkobjectelement,
+			FormulaElement<G> rightobjectelement) {
+		this(linknavigator, linkobjectelement, rightobjectelement);
+		this.sumquery = sumquery;
+	}
+
 	@Override
 	public BigDecimal getValueForFormulaInput(E contextobject) {
-		TwoDataObjects<F, G>[] rightlinksandobjects = linknavigator.getLinksAndRightObjects(contextobject);
-		logger.severe("executing sum product on link right object for " + contextobject.getName() + " ID = "
+		logger.fine("executing sum product on link right object for " + contextobject.getName() + " ID = "
 				+ contextobject.getId());
+		if (sumquery != null)
+			if (linkobjectelement instanceof StoredFieldFormulaElement)
+				if (rightobjectelement instanceof StoredFieldFormulaElement) {
+					StoredFieldFormulaElement<F> linkfield = (StoredFieldFormulaElement<F>) linkobjectelement;
+					StoredFieldFormulaElement<G> rightfield = (StoredFieldFormulaElement<G>) rightobjectelement;
+					// links and right objects modified by triggers are not yet persisted, sum is
+					// then done in memory
+					if (!OLcServer.getServer().hasObjectTypeInTriggerUpdateBuffer(linkfield.getDefinition()))
+						if (!OLcServer.getServer().hasObjectTypeInTriggerUpdateBuffer(rightfield.getDefinition())) {
+							BigDecimal result = sumquery.sumonlinks(contextobject, linkfield.getField(),
+									rightfield.getField());
+							logger.fine("sum in database is " + result);
+							return result;
+						}
+				}
+		TwoDataObjects<F, G>[] rightlinksandobjects = linknavigator.getLinksAndRightObjects(contextobject);
 
 		BigDecimal sum = new BigDecimal(0);
 		if (rightlinksandobjects != null)
@@ -66,10 +103,10 @@ public class SumProductOnLinkRightObject<E extends DataObject<E> & Uniqueidentif
 				G rightobject = rightlinksandobjects[i].getObjectTwo();
 				BigDecimal valueforlinkobject = linkobjectelement.getValueForFormulaInput(linkobject);
 				BigDecimal valueforrightobject = rightobjectelement.getValueForFormulaInput(rightobject);
-				logger.severe("looking for field on right object = " + rightobject.getName() + " ID = "
-						+ rightobject.getId() + " value found = " + valueforrightobject);
-				logger.severe("looking for field on link object = " + rightobject.getName() + " ID = "
+				logger.fine("looking for field on right object = " + rightobject.getName() + " ID = "
 						+ rightobject.getId() + " value found = " + valueforrightobject);
+				logger.fine("looking for field on link object = " + linkobject.getName() + " ID = "
+						+ linkobject.getId() + " value found = " + valueforlinkobject);
 				BigDecimal product = null;
 				if (valueforlinkobject != null)
 					if (valueforrightobject != null)
@@ -77,7 +114,7 @@ public class SumProductOnLinkRightObject<E extends DataObject<E> & Uniqueidentif
 				if (product != null)
 					sum = sum.add(product);
 			}
-		logger.severe("sum is " + sum.floatValue());
+		logger.fine("sum is " + sum.floatValue());
 		return sum;
 	}
 }
@@ -24,6 +24,9 @@ import java.util.logging.Logger;
 import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.NodeTree;
+import org.openlowcode.server.data.QueryHelper;
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.tools.misc.StandardUtil;
 
 /**
@@ -150,6 +153,28 @@ public class ReportTree<E extends DataObject<E>> {
 		public void init(E newobject);
 	}
 
+	/**
+	 * creates a report object from a row of an aggregate query. The row holds the
+	 * values of the group by fields and the aggregates calculated in the database
+	 * for the group
+	 * 
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 *
+	 * @param <E> report data object
+	 */
+	@FunctionalInterface
+	public interface AggregateNodeBuilder<E extends DataObject<E>> {
+		/**
+		 * builds a report object from the current row of the aggregate query
+		 * 
+		 * @param row aggregate row positioned on a group
+		 * @return the report object, or null to skip the group
+		 */
+		public E build(AggregateRow row);
+	}
+
 	/**
 	 * Extracts a value from the report object
 	 * 
@@ -586,6 +611,37 @@ public class ReportTree<E extends DataObject<E>> {
 
 	}
 
+	/**
+	 * adds one node per group of an aggregate query. Data is summed in the database
+	 * by the query instead of adding one node per object and consolidating them in
+	 * memory. Consolidators still apply to roll-up the nodes into their parents,
+	 * and to nodes having the same label
+	 * 
+	 * @param parentlabels the parents, excluding root node
+	 * @param query        aggregate query, typically grouped by the fields
+	 *                     giving the label of the node
+	 * @param builder      creates the report object for each group
+	 * @return the number of groups added
+	 * @since 1.14
+	 */
+	public int addAggregatedNodes(String[] parentlabels, AggregateQuery query, AggregateNodeBuilder<E> builder) {
+		AggregateRow row = QueryHelper.getHelper().aggregate(query);
+		int count = 0;
+		try {
+			while (row.next()) {
+				E node = builder.build(row);
+				if (node != null) {
+					addNode(parentlabels, node);
+					count++;
+				}
+			}
+		} finally {
+			row.close();
+		}
+		logger.fine("added " + count + " aggregated nodes");
+		return count;
+	}
+
 	/**
 	 * @param objectdefinition
 	 * @return
@@ -11,11 +11,15 @@
 package org.openlowcode.server.data.loader;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 import org.apache.poi.hssf.util.HSSFColor;
@@ -35,8 +39,7 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddressList;
 import org.apache.poi.ss.util.CellReference;
-import org.apache.poi.xssf.usermodel.XSSFDataValidationHelper;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.DataObjectDefinition;
@@ -62,6 +65,8 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 	private static Logger logger = Logger.getLogger(FlatFileExtractor.class.getName());
 	private DataObjectDefinition<E> definition;
 	private static SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
+	private static final int STREAMING_ROW_WINDOW = 200;
+	private static final int STREAMING_WIDTH_SAMPLE = 1000;
 
 	/**
 	 * Creates a flat file extractor for the object
@@ -79,11 +84,32 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 	 * @return
 	 */
 	public SFile extractToExcel(E[] objectarray, String[] specificaliaslist) {
+		logger.info("parsing objects in array, nr = " + objectarray.length);
+		return extractToExcel((objectwriter) -> {
+			for (int i = 0; i < objectarray.length; i++)
+				objectwriter.accept(objectarray[i]);
+		}, specificaliaslist);
+	}
+
+	/**
+	 * Extracts to excel objects provided by a source, typically a streamed query
+	 * on the database (see StoredobjectQueryHelper.foreachactive). Objects are
+	 * written to the spreadsheet as soon as they are provided and are not kept by
+	 * the extractor.
+	 * 
+	 * @param objectsource      a source that gives each object to extract to the
+	 *                          object writer it receives
+	 * @param specificaliaslist the alias to put as column headers (also gives the
+	 *                          order of fields)
+	 * @return the binary file
+	 * @since 1.14
+	 */
+	public SFile extractToExcel(Consumer<Consumer<E>> objectsource, String[] specificaliaslist) {
 		try {
 			Workbook workbook = new XSSFWorkbook();
 			Sheet sheet = workbook.createSheet("Export Data");
 			Sheet referencessheet = workbook.createSheet("Reference Values");
-			loadWorkbook(sheet,referencessheet, objectarray, specificaliaslist);
+			loadWorkbook(sheet, referencessheet, objectsource, specificaliaslist, Integer.MAX_VALUE);
 			workbook.setActiveSheet(0); // setting active sheet to export data
 			ByteArrayOutputStream documentinmemory = new ByteArrayOutputStream();
 			workbook.write(documentinmemory);
@@ -103,6 +129,62 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 		}
 	}
 
+	/**
+	 * Extracts to excel objects provided by a source as a stream, for big
+	 * extractions. Only a window of rows is kept in memory, the others being
+	 * flushed to disk as they are written. Column widths are estimated on the
+	 * first rows, and the spreadsheet is written to a temporary file, so that the
+	 * file returned is not held in memory.
+	 * 
+	 * @param objectsource      a source that gives each object to extract to the
+	 *                          object writer it receives, typically a streamed
+	 *                          query on the database (see
+	 *                          StoredobjectQueryHelper.foreachactive)
+	 * @param specificaliaslist the alias to put as column headers (also gives the
+	 *                          order of fields)
+	 * @return the binary file, with content in a temporary file
+	 * @since 1.14
+	 */
+	public SFile streamToExcel(Consumer<Consumer<E>> objectsource, String[] specificaliaslist) {
+		SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_ROW_WINDOW);
+		File temporaryfile = null;
+		try {
+			workbook.setCompressTempFiles(true);
+			Sheet sheet = workbook.createSheet("Export Data");
+			Sheet referencessheet = workbook.createSheet("Reference Values");
+			loadWorkbook(sheet, referencessheet, objectsource, specificaliaslist, STREAMING_WIDTH_SAMPLE);
+			workbook.setActiveSheet(0); // setting active sheet to export data
+			temporaryfile = File.createTempFile("olcexport", ".xlsx");
+			try (OutputStream output = new FileOutputStream(temporaryfile)) {
+				workbook.write(output);
+			}
+			SFile returnresult = SFile.fromTemporaryFile("OpenLowcodeExport-" + sdf.format(new Date()) + ".xlsx",
+					temporaryfile);
+			logger.info("streamed objects to excel in temporary file, size = " + returnresult.getLength());
+			temporaryfile = null;
+			return returnresult;
+		} catch (IOException e) {
+			String exceptionstring = "Exception in streaming objects to excel " + definition.getName()
+					+ ", original IOException " + e.getMessage();
+			logger.severe(exceptionstring);
+			for (int i = 0; i < e.getStackTrace().length; i++) {
+				logger.severe("    " + e.getStackTrace()[i]);
+			}
+			throw new RuntimeException(exceptionstring);
+		} finally {
+			// removes the temporary files of the flushed rows
+			workbook.dispose();
+			try {
+				workbook.close();
+			} catch (IOException e) {
+				logger.warning("Exception in closing streamed workbook " + e.getMessage());
+			}
+			if (temporaryfile != null)
+				if (!temporaryfile.delete())
+					logger.warning("Could not delete temporary file " + temporaryfile.getAbsolutePath());
+		}
+	}
+
 	/**
 	 * Extracts to excel a tree of objects
 	 * 
@@ -276,11 +358,18 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 	 * 
 	 * @param sheet             active sheet
 	 * @param referencessheet   sheet to store reference values
-	 * @param objectarray       array of objects
+	 * @param objectsource      source of the objects to write
 	 * @param specificaliaslist the alias to put as column headers (also gives the
 	 *                          order of fields)
+	 * @param widthsamplerows   number of data rows used to compute the width of
+	 *                          columns
 	 */
-	private void loadWorkbook(Sheet sheet,Sheet referencessheet, E[] objectarray, String[] specificaliaslist) {
+	private void loadWorkbook(
+			Sheet sheet,
+			Sheet referencessheet,
+			Consumer<Consumer<E>> objectsource,
+			String[] specificaliaslist,
+			int widthsamplerows) {
 		String[] aliaslisttoconsider = specificaliaslist;
 		// if zero element, put it to null
 		if (aliaslisttoconsider != null)
@@ -374,20 +463,19 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 			// by default, set height for two lines
 			headerrow.setHeightInPoints(headerrow.getHeightInPoints() * 2);
 			// parse objects
-			int rowindex = 1;
+			int[] rowindexholder = new int[] { 1 };
 			CellStyle normalstyle = createBorderedStyle(sheet.getWorkbook());
-			logger.info("parsing objects in array, nr = " + objectarray.length);
-			String[] context = new String[] { null };
-			for (int i = 0; i < objectarray.length; i++) {
-				E currentobject = objectarray[i];
-				
-				if (complexextractor != null)
-					context = complexextractor.initComplexExtractorForObject(currentobject);
-				logger.finer("for line " + i + ", context length = " + context.length);
+			String[] aliasesforobjects = aliaslisttoconsider;
+			FlatFileLoaderColumn<E> complexextractorforobjects = complexextractor;
+			objectsource.accept((currentobject) -> {
+				String[] context = new String[] { null };
+				if (complexextractorforobjects != null)
+					context = complexextractorforobjects.initComplexExtractorForObject(currentobject);
+				logger.finer("for line " + rowindexholder[0] + ", context length = " + context.length);
 				for (int j = 0; j < context.length; j++) {
-					Row datarow = sheet.createRow(rowindex);
-					rowindex++;
-					for (int k = 0; k < aliaslisttoconsider.length; k++) {
+					Row datarow = sheet.createRow(rowindexholder[0]);
+					rowindexholder[0]++;
+					for (int k = 0; k < aliasesforobjects.length; k++) {
 						Cell cell = datarow.createCell(k);
 
 						cell.setCellStyle(normalstyle);
@@ -395,17 +483,19 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 						if (column != null) {
 
 							boolean formattingapplied = column.putContentInCell(currentobject, cell, context[j]);
-							columnmaxchar[k] = maxNumberCharacter(aliaslisttoconsider[k]);
-							int cellsize = getCellNbChar(cell);
-							if (cellsize > columnmaxchar[k])
-								columnmaxchar[k] = cellsize;
+							if (rowindexholder[0] <= widthsamplerows) {
+								int cellsize = getCellNbChar(cell);
+								if (cellsize > columnmaxchar[k])
+									columnmaxchar[k] = cellsize;
+							}
 							if (!formattingapplied)
 								cell.setCellStyle(normalstyle);
 						}
 					}
 				}
 
-			}
+			});
+			int rowindex = rowindexholder[0];
 			
 			// format two more lines to allow people to use data to enter template
 			for (int i = 0; i < 2; i++) {
@@ -430,10 +520,14 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 				int width = (int) (columnmaxchar[i] * 1.14388 * 256);
 				if (width > 80 * 256) {
 					width = 80 * 256;
+					// styles are shared between rows, rows already flushed in streaming mode are skipped
 					for (int j = 2; j < rowindex; j++) {
-						Cell cell = sheet.getRow(j).getCell(i);
-						cell.getCellStyle().setWrapText(true);
-
+						Row row = sheet.getRow(j);
+						if (row != null) {
+							Cell cell = row.getCell(i);
+							if (cell != null)
+								cell.getCellStyle().setWrapText(true);
+						}
 					}
 
 				}
@@ -510,7 +604,8 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 	}
 	
 	/**
-	 * create restrictions on the data cells
+	 * create restrictions on the data cells. This works both for workbooks in
+	 * memory and streamed workbooks
 	 * 
 	 * @param mainsheet sheet with data
 	 * @param restrictionsheet sheet with restriction values
@@ -519,7 +614,7 @@ public class FlatFileExtractor<E extends DataObject<E>> {
 	 * @param nbofrows number of rows (starting with zero)
 	 */
 	public static  void setRestrictionsOnCell(Sheet mainsheet,Sheet restrictionsheet,int column,int nbofchoices,int nbofrows) {
-		DataValidationHelper validationHelper = new XSSFDataValidationHelper((XSSFSheet)mainsheet);
+		DataValidationHelper validationHelper = mainsheet.getDataValidationHelper();
 		String columnletter =  CellReference.convertNumToColString(column);
 		String formula = "'"+restrictionsheet.getSheetName()+ "'!$"+columnletter+"$"+1+":$"+columnletter+"$"+nbofchoices;
 		DataValidationConstraint constraint = validationHelper.createFormulaListConstraint(formula);
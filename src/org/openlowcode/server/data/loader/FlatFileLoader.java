@@ -25,13 +25,22 @@ import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.openlowcode.module.system.data.Appuser;
 import org.openlowcode.module.system.data.Csvloadererror;
 import org.openlowcode.module.system.data.choice.ApplocaleChoiceDefinition;
 import org.openlowcode.module.system.data.choice.PreferedfileencodingChoiceDefinition;
@@ -42,11 +51,15 @@ import org.openlowcode.server.data.DecimalDataObjectFieldFlatFileLoaderColumn;
 import org.openlowcode.server.data.DecimalDataObjectFieldFlatFileLoaderColumn.DecimalParser;
 import org.openlowcode.server.data.loader.FlatFileLoaderColumn.LinePreparation;
 import org.openlowcode.server.data.loader.FlatFileLoaderColumn.LinePreparationExtra;
+import org.openlowcode.server.data.properties.DataObjectId;
 import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
 import org.openlowcode.server.data.properties.CustomloaderDefinition.CustomloaderHelper;
+import org.openlowcode.server.data.storage.PersistenceGateway;
+import org.openlowcode.server.runtime.OLcServer;
 import org.openlowcode.tools.file.CSVParser;
 import org.openlowcode.tools.file.ExcelReader;
 import org.openlowcode.tools.file.FileParser;
+import org.openlowcode.tools.file.StreamingExcelReader;
 import org.openlowcode.tools.file.StringParser;
 import org.openlowcode.tools.messages.SFile;
 
@@ -64,6 +77,13 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 	private ChoiceValue<ApplocaleChoiceDefinition> selectedlocale;
 	private FlatFileLoaderSupplement<E> supplement;
 	private ChoiceValue<PreferedfileencodingChoiceDefinition> preferedencoding;
+	private static int defaultbatchsize = 1;
+	private int batchsize;
+	private static int defaultworkers = 1;
+	private static long streamingworkbookthreshold = 4 * 1024 * 1024;
+	private int workers;
+	private String partitioncolumn;
+	private boolean ordered;
 
 	/**
 	 * Creates a FlatFileLoader without supplement
@@ -83,6 +103,8 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 		this.preferedencoding = preferedencoding;
 		if (this.preferedencoding == null)
 			this.preferedencoding = PreferedfileencodingChoiceDefinition.get().CP1522;
+		this.batchsize = defaultbatchsize;
+		this.workers = defaultworkers;
 	}
 
 	/**
@@ -102,6 +124,155 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 		this.supplement = supplement;
 	}
 
+	/**
+	 * sets the number of lines loaded together by flat file loaders created after
+	 * this call. Lines loaded together have their objects queried and persisted
+	 * in batch. With a batch size of 1, lines are loaded one by one.
+	 * 
+	 * @param defaultbatchsize number of lines loaded together (at least 1)
+	 * @since 1.14
+	 */
+	public static void setDefaultBatchSize(int defaultbatchsize) {
+		if (defaultbatchsize < 1)
+			throw new RuntimeException("Batch size for flat file loader should be at least 1, got " + defaultbatchsize);
+		FlatFileLoader.defaultbatchsize = defaultbatchsize;
+	}
+
+	/**
+	 * sets the number of lines loaded together by this loader.
+	 * 
+	 * @param batchsize number of lines loaded together (at least 1). With a batch
+	 *                  size of 1, lines are loaded one by one
+	 * @since 1.14
+	 */
+	public void setBatchSize(int batchsize) {
+		if (batchsize < 1)
+			throw new RuntimeException("Batch size for flat file loader should be at least 1, got " + batchsize);
+		this.batchsize = batchsize;
+	}
+
+	/**
+	 * sets the size from which XLSX files are read as a stream instead of being
+	 * loaded fully in memory
+	 * 
+	 * @param streamingworkbookthreshold size of the file in bytes (0 to always
+	 *                                   read XLSX files as a stream)
+	 * @since 1.14
+	 */
+	public static void setStreamingWorkbookThreshold(long streamingworkbookthreshold) {
+		if (streamingworkbookthreshold < 0)
+			throw new RuntimeException(
+					"Streaming workbook threshold should be positive, got " + streamingworkbookthreshold);
+		FlatFileLoader.streamingworkbookthreshold = streamingworkbookthreshold;
+	}
+
+	/**
+	 * sets the number of threads loading lines for flat file loaders created after
+	 * this call. With 1 worker, lines are loaded on the calling thread.
+	 * 
+	 * @param defaultworkers number of threads loading lines (at least 1)
+	 * @since 1.14
+	 */
+	public static void setDefaultWorkers(int defaultworkers) {
+		if (defaultworkers < 1)
+			throw new RuntimeException("Workers for flat file loader should be at least 1, got " + defaultworkers);
+		FlatFileLoader.defaultworkers = defaultworkers;
+	}
+
+	/**
+	 * sets the parallel loading for this loader. Lines are split in as many
+	 * partitions as workers using the value of the partition column, so that all
+	 * lines with the same value are loaded in order by the same worker. Each
+	 * worker loads its partition on its own thread, with its own connections from
+	 * the pool, and the reports of the partitions are merged in the order of the
+	 * file.<br>
+	 * Parallel loading is only performed if all columns are thread-safe, and if
+	 * there is no loader supplement or custom loader helper. Else, the file is
+	 * loaded on the calling thread.
+	 * 
+	 * @param workers         number of threads loading lines (at least 1)
+	 * @param partitioncolumn title of the column used to split lines. All lines
+	 *                        on the same object should have the same value in
+	 *                        this column. If null, the column defining if the line
+	 *                        is an insert or an update is used
+	 * @param ordered         if true, lines are loaded in the order of the file on
+	 *                        the calling thread, for loads where lines depend on
+	 *                        lines of other partitions
+	 * @since 1.14
+	 */
+	public void setParallelLoading(int workers, String partitioncolumn, boolean ordered) {
+		if (workers < 1)
+			throw new RuntimeException("Workers for flat file loader should be at least 1, got " + workers);
+		this.workers = workers;
+		this.partitioncolumn = partitioncolumn;
+		this.ordered = ordered;
+	}
+
+	/**
+	 * @param key        value of the partition column for the line (can be null)
+	 * @param lineindex  index of the line, used if the line has no key
+	 * @param partitions number of partitions
+	 * @return the partition of the line. Lines with the same key, ignoring case
+	 *         and trailing spaces, are always in the same partition
+	 * @since 1.14
+	 */
+	public static int getPartition(Object key, int lineindex, int partitions) {
+		String linekey = getLineKey(key);
+		if (linekey == null)
+			return lineindex % partitions;
+		return Math.floorMod(linekey.hashCode(), partitions);
+	}
+
+	/**
+	 * @param value value of a column identifying the object of the line
+	 * @return the key identifying the object of the line, or null if the object
+	 *         cannot be identified. Case and trailing spaces are ignored, as the
+	 *         database may ignore them when comparing
+	 */
+	private static String getLineKey(Object value) {
+		if (value == null)
+			return null;
+		try {
+			String key = FlatFileLoader.parseObject(value, "key of line");
+			if (key == null)
+				return null;
+			if (key.trim().length() == 0)
+				return null;
+			return key.trim().toUpperCase();
+		} catch (Exception e) {
+			// the line will be reported in error when prepared
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if lines should be loaded by several workers
+	 */
+	private boolean isParallelLoading(
+			ArrayList<FlatFileLoaderColumn<E>> loadercolumns,
+			HashMap<String, CustomloaderHelper<E>> activecustomloaderhelper) {
+		if (workers <= 1)
+			return false;
+		if (ordered) {
+			logger.info(" --- ordered load, lines are loaded on a single thread");
+			return false;
+		}
+		if (supplement != null) {
+			logger.info(" --- loader supplement is set, lines are loaded on a single thread");
+			return false;
+		}
+		if (activecustomloaderhelper.size() > 0) {
+			logger.info(" --- custom loader helpers are active, lines are loaded on a single thread");
+			return false;
+		}
+		for (int i = 0; i < loadercolumns.size(); i++)
+			if (!loadercolumns.get(i).isThreadSafe()) {
+				logger.info(" --- column " + i + " (" + loadercolumns.get(i) + ") is not thread-safe, lines are loaded on a single thread");
+				return false;
+			}
+		return true;
+	}
+
 	/**
 	 * This method returns true if the line has some data. A data is defined as a
 	 * string of length greater than 0
@@ -143,7 +314,8 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 			FileParser thirdparser) {
 		logger.info(" ------------- starting loader for object '" + objectdefinition.getName() + "' ---- "
 				+ (supplement != null ? "supplement of class " + supplement.getClass().getName() + " is set"
-						: "no supplement"));
+						: "no supplement")
+				+ ", batch size = " + batchsize + ", workers = " + workers);
 
 		TransientPropertiesForLoader<E> transientproperties = objectdefinition.getTransientPropertiesForLoader();
 
@@ -162,6 +334,7 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 			// be zero or 1 column like that
 			int linepreparatorindex = -1;
 			ArrayList<Integer> linepreparatorextraindex = new ArrayList<Integer>();
+			int partitioncolumnindex = -1;
 			if (headline != null) {
 				// parses headers
 				for (int i = 0; i < headline.length; i++) {
@@ -174,6 +347,9 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 						logger.fine("  -- Did not find alias for "+headlineelement+", continues with headline element");
 						alias = headlineelement;
 					}
+					if (partitioncolumn != null)
+						if ((partitioncolumn.equals(headlineelement)) || (partitioncolumn.equals(alias)))
+							partitioncolumnindex = i;
 					// column definition exists
 					if ((alias.trim().length() > 0) && (!alias.trim().equals("#DISCARDED#"))) {
 						String[] headlinesplit = StringParser.splitwithdoubleescape(alias, '&');
@@ -214,6 +390,9 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 					}
 
 				}
+				if (partitioncolumn != null)
+					if (partitioncolumnindex == -1)
+						throw new RuntimeException("Did not find partition column '" + partitioncolumn + "' in file");
 				// remove discarded columns at the end
 				int cleaningindex = loadercolumns.size() - 1;
 				while (cleaningindex >= 0) {
@@ -269,10 +448,7 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 						HashMap<String, String> uniquevalues = uniquevaluesforstaticprocessing.get(i);
 						logger.info("   - managing preprocessing for column " + columnindex + ", processing "
 								+ uniquevalues.size() + " elements");
-						Iterator<String> valuesiterator = uniquevalues.keySet().iterator();
-						while (valuesiterator.hasNext()) {
-							thiscolumn.staticpreprocessor(valuesiterator.next());
-						}
+						thiscolumn.staticpreprocessor(uniquevalues.keySet());
 					}
 					logger.info("  --- finished static preprocessing for for object '" + objectdefinition.getName()
 							+ "' - , read " + firstpass + " lines in file");
@@ -280,225 +456,46 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 				Object[] dataforloading = parser.parseOneLine();
 				// ---- loop on data
 				int lineindex = 0;
-				int error = 0;
-				int insert = 0;
-				int update = 0;
-				int untouched = 0;
-				int postprocerror = 0;
-				ArrayList<E> objects = new ArrayList<E>(); // saving values for postprocessing
-				while (dataforloading != null)
-					if (!hasdata(dataforloading)) {
-						dataforloading = parser.parseOneLine();
-					} else {
-						try {
-
-							logger.info(" -- starting processing for loading line " + lineindex + " ------------- ");
-							E objectforprocessing = null;
-							boolean thislineupdate = false;
-							boolean contentupdated = false;
-							// adds criteria for selection
-							ArrayList<
-									FlatFileLoaderColumn.LinePreparationExtra<
-											E>> linepreparatorextracriterias = new ArrayList<
-													FlatFileLoaderColumn.LinePreparationExtra<E>>();
-							for (int i = 0; i < linepreparatorextraindex.size(); i++) {
-								FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(linepreparatorextraindex.get(i));
-								linepreparatorextracriterias.add(thiscolumn
-										.generateLinePreparatorExtra(dataforloading[linepreparatorextraindex.get(i)]));
-							}
-							// supplement can add also a criteria for selection
-							if (this.supplement != null) {
-								LinePreparationExtra<E> linepreparatorextra = this.supplement.getSupplement();
-								if (linepreparatorextra != null)
-									linepreparatorextracriterias.add(linepreparatorextra);
-							}
-							// tries to get an object
-							if (linepreparatorindex != -1) {
-								if (dataforloading.length <= linepreparatorindex)
-									throw new RuntimeException(
-											"loooking for line preparator index at index = " + linepreparatorindex
-													+ " but line only has length = " + dataforloading.length);
-								FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(linepreparatorindex);
-								LinePreparation<E> thislineprep = thiscolumn.LinePreparation(
-										dataforloading[linepreparatorindex], linepreparatorextracriterias);
-								objectforprocessing = thislineprep.getPayload();
-								thislineupdate = thislineprep.isUpdate();
-								if (!thislineupdate) {
-									if (this.supplement != null) {
-										this.supplement.initializeNewObject(objectforprocessing);
-									}
-								}
-								logger.info(" -- finished preparing line " + lineindex);
-							}
-
-							if (objectforprocessing == null) {
-								objectforprocessing = objectdefinition.generateBlank();
-								if (this.supplement != null) {
-									this.supplement.initializeNewObject(objectforprocessing);
-								}
-							}
-							PostUpdateProcessingStore<E> postupdateprocessingstore = new PostUpdateProcessingStore<E>();
-							int columnnr = dataforloading.length;
-							if (columnnr > loadercolumns.size())
-								columnnr = loadercolumns.size();
-
-							for (int i = 0; i < columnnr; i++) {
-
-								FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(i);
-
-								if (!thiscolumn.secondpass())
-									if (!thiscolumn.processAfterLineInsertion()) {
-										logger.info(" -- started processing column " + i + " as preprocessing for "
-												+ lineindex + ", name =  " + thiscolumn.toString());
-
-										Object value = dataforloading[i];
-										boolean iscolumnupdated = thiscolumn.load(objectforprocessing, value,
-												postupdateprocessingstore);
-										if (iscolumnupdated) {
-											logger.info("line " + lineindex + ", column " + i + " updated " + value);
-											contentupdated = true;
-										}
-										logger.info(" -- finished processing column " + i + " as preprocessing for "
-												+ lineindex + ", name =  " + thiscolumn.toString());
-									}
-							}
-
-							for (int i = 0; i < columnnr; i++) {
-
-								FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(i);
-
-								if (thiscolumn.secondpass())
-									if (!thiscolumn.processAfterLineInsertion()) {
-										logger.info(" -- started processing column " + i + " as preprocessing for "
-												+ lineindex + ", name =  " + thiscolumn.toString());
-
-										Object value = dataforloading[i];
-										boolean iscolumnupdated = thiscolumn.load(objectforprocessing, value,
-												postupdateprocessingstore);
-										if (iscolumnupdated) {
-											logger.info("line " + lineindex + ", column " + i + " updated " + value);
-											contentupdated = true;
-										}
-										logger.info(" -- finished processing column " + i + " as preprocessing for "
-												+ lineindex + ", name =  " + thiscolumn.toString());
-									}
-							}
-
-							// ---------- runs multi-field checks and constraints
-							objectforprocessing.getDefinitionFromObject()
-									.checkMultiFieldConstraints(objectforprocessing);
-
-							if (thislineupdate)
-								if (contentupdated) {
-									objectforprocessing.update();
-									update++;
-									logger.info("    finished processing line " + lineindex + " with update ");
-
-								}
-
-							if (thislineupdate)
-								if (!contentupdated) {
-									untouched++;
-
-									logger.info("    finished processing line " + lineindex
-											+ " ignoring update as no change ");
-
-								}
-
-							if (!thislineupdate) {
-								objectforprocessing.insert();
-								insert++;
-								logger.info("    finished processing line " + lineindex + " with insert ");
-
-							}
-							// specific try cast to classify the error as a postproc error.
-
-							for (int i = 0; i < columnnr; i++) {
-								try {
-									FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(i);
-
-									if (thiscolumn.processAfterLineInsertion()) {
-										logger.info("    finished processing column " + i + " as preprocessing for "
-												+ lineindex + ", name =  " + thiscolumn.toString());
-
-										Object value = dataforloading[i];
-										thiscolumn.load(objectforprocessing, value, postupdateprocessingstore);
-										logger.info("    finished processing column " + i + " as preprocessing for "
-												+ lineindex + ", name =  " + thiscolumn.toString());
-
-									}
-								} catch (Exception e) {
-									postprocerror++;
-									Csvloadererror errorreport = new Csvloadererror();
-									errorreport.setError(buildExceptionMessage(e));
-									errorreport.setLinenr(lineindex + 1);
-									errorreport.setLinesource(dropOneLineAsText(dataforloading));
-									errors.add(errorreport);
-									logger.warning(" ---- Could not perform extra processing " + lineindex
-											+ ", error = " + e.getMessage());
-									for (int s = 0; s < e.getStackTrace().length; s++) {
-										logger.warning("          " + e.getStackTrace()[s]);
-									}
-								}
-							}
-
-							ArrayList<Exception> exceptionsinpostupdateprocessingstore = postupdateprocessingstore
-									.process(objectforprocessing);
-							for (int i = 0; i < exceptionsinpostupdateprocessingstore.size(); i++) {
-								Exception e = exceptionsinpostupdateprocessingstore.get(i);
-
-								postprocerror++;
-								Csvloadererror errorreport = new Csvloadererror();
-								errorreport.setError(buildExceptionMessage(e));
-								errorreport.setLinenr(lineindex + 1);
-								errorreport.setLinesource(dropOneLineAsText(dataforloading));
-								errors.add(errorreport);
-								logger.warning(" ---- Could not perform extra processing " + lineindex + ", error = "
-										+ e.getMessage());
-								for (int s = 0; s < e.getStackTrace().length; s++) {
-									logger.warning("          " + e.getStackTrace()[s]);
-								}
-							}
-
-							Iterator<CustomloaderHelper<E>> loaderhelperiterator = activecustomloaderhelper.values()
-									.iterator();
-							while (loaderhelperiterator.hasNext()) {
-								try {
-									CustomloaderHelper<E> customloaderhelper = loaderhelperiterator.next();
-									customloaderhelper.executeAtEndOfLine(objectforprocessing);
-								} catch (Exception e) {
-									postprocerror++;
-									Csvloadererror errorreport = new Csvloadererror();
-									errorreport.setError(buildExceptionMessage(e));
-									errorreport.setLinenr(lineindex + 1);
-									errorreport.setLinesource(dropOneLineAsText(dataforloading));
-									errors.add(errorreport);
-									logger.warning(" ---- Could not perform extra processing " + lineindex
-											+ ", error = " + e.getMessage());
-									for (int i = 0; i < e.getStackTrace().length; i++) {
-										logger.warning("          " + e.getStackTrace()[i]);
-									}
-								}
-							}
-
-							// keeping that anyways even if error with postprocessing
-							objects.add(objectforprocessing);
-						} catch (Exception e) {
-							error++;
-							Csvloadererror errorreport = new Csvloadererror();
-							errorreport.setError(buildExceptionMessage(e));
-							errorreport.setLinenr(lineindex + 1);
-							errorreport.setLinesource(dropOneLineAsText(dataforloading));
-							errors.add(errorreport);
-							logger.warning(" ---- Could not perform extra processing " + lineindex + ", error = "
-									+ e.getMessage());
-							for (int i = 0; i < e.getStackTrace().length; i++) {
-								logger.warning("          " + e.getStackTrace()[i]);
-							}
+				LoadingBatch batch = new LoadingBatch(loadercolumns, linepreparatorindex, linepreparatorextraindex,
+						activecustomloaderhelper, errors);
+				if (isParallelLoading(loadercolumns, activecustomloaderhelper)) {
+					int keyindex = (partitioncolumnindex != -1 ? partitioncolumnindex : linepreparatorindex);
+					ArrayList<PartitionLoader> partitions = new ArrayList<PartitionLoader>();
+					for (int i = 0; i < workers; i++)
+						partitions.add(new PartitionLoader(new LoadingBatch(loadercolumns, linepreparatorindex,
+								linepreparatorextraindex, activecustomloaderhelper, new ArrayList<Csvloadererror>())));
+					while (dataforloading != null)
+						if (!hasdata(dataforloading)) {
+							dataforloading = parser.parseOneLine();
+						} else {
+							Object key = ((keyindex != -1) && (keyindex < dataforloading.length)
+									? dataforloading[keyindex]
+									: null);
+							partitions.get(getPartition(key, lineindex, workers)).addLine(dataforloading, lineindex);
+							dataforloading = parser.parseOneLine();
+							lineindex++;
 						}
-						dataforloading = parser.parseOneLine();
-						lineindex++;
-					}
+					runPartitions(partitions);
+					mergePartitions(partitions, batch);
+				} else {
+					while (dataforloading != null)
+						if (!hasdata(dataforloading)) {
+							dataforloading = parser.parseOneLine();
+						} else {
+							batch.addLine(dataforloading, lineindex);
+							if (batch.isFull())
+								batch.process();
+							dataforloading = parser.parseOneLine();
+							lineindex++;
+						}
+					batch.process();
+				}
+				int error = batch.error;
+				int insert = batch.insert;
+				int update = batch.update;
+				int untouched = batch.untouched;
+				int postprocerror = batch.postprocerror;
+				ArrayList<E> objects = batch.objects; // saving values for postprocessing
 
 				logger.warning(" --- Loader First & second  passfinished, lines inserted = " + insert
 						+ ", line updated = " + update + ", untouched = " + untouched + ", error = " + error);
@@ -514,7 +511,7 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 						dataforloading = parser.parseOneLine();
 					} else {
 						try {
-							logger.info(
+							logger.fine(
 									" -- starting post-processing for loading line " + lineindex + " ------------- ");
 							int columnnr = dataforloading.length;
 							if (columnnr > loadercolumns.size())
@@ -592,6 +589,28 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 		return false;
 	}
 
+	/**
+	 * checks if the file is a workbook format that should be read as a stream.
+	 * This is the case for XLSX files bigger than the streaming threshold, or not
+	 * held in memory
+	 * 
+	 * @param file binary file
+	 * @return true if the workbook should be read as a stream
+	 * @since 1.14
+	 */
+	public static boolean isStreamingWorkbookFormat(SFile file) {
+		String filename = file.getFileName();
+		if (filename == null)
+			return false;
+		if (!filename.toLowerCase().endsWith(".xlsx"))
+			return false;
+		if (!file.isInMemory())
+			return true;
+		if (file.getLength() >= streamingworkbookthreshold)
+			return true;
+		return false;
+	}
+
 	/**
 	 * generates a CSVParser for the file with the correct charset corresponding to
 	 * the locale
@@ -612,16 +631,24 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 	}
 
 	/**
-	 * generates an excel parser for the file
+	 * generates an excel parser for the file. Big XLSX files are read as a stream
+	 * (see {@link #isStreamingWorkbookFormat(SFile)}), other files are loaded in
+	 * memory
 	 * 
 	 * @param file        binary file
 	 * @param preferedtab name of the prefered tab to use
 	 * @return the Excel Reader
 	 */
-	public ExcelReader generateExcelParser(SFile file, String preferedtab) {
-		ByteArrayInputStream batch = new ByteArrayInputStream(file.getContent());
+	public FileParser generateExcelParser(SFile file, String preferedtab) {
 		try {
 			ZipSecureFile.setMinInflateRatio(0.001);
+			if (isStreamingWorkbookFormat(file)) {
+				StreamingExcelReader parser = new StreamingExcelReader(file.getStream());
+				if (preferedtab != null)
+					parser.GoToSheet(preferedtab);
+				return parser;
+			}
+			ByteArrayInputStream batch = new ByteArrayInputStream(file.getContent());
 			ExcelReader parser = new ExcelReader(batch);
 			if (preferedtab != null)
 				parser.GoToSheet(preferedtab);
@@ -653,9 +680,9 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 
 			return load(file.getFileName(), parser1, parser2, parser3);
 		} else {
-			ExcelReader reader1 = generateExcelParser(file, this.objectdefinition.getPreferedSpreadsheetTab());
-			ExcelReader reader2 = generateExcelParser(file, this.objectdefinition.getPreferedSpreadsheetTab());
-			ExcelReader reader3 = generateExcelParser(file, this.objectdefinition.getPreferedSpreadsheetTab());
+			FileParser reader1 = generateExcelParser(file, this.objectdefinition.getPreferedSpreadsheetTab());
+			FileParser reader2 = generateExcelParser(file, this.objectdefinition.getPreferedSpreadsheetTab());
+			FileParser reader3 = generateExcelParser(file, this.objectdefinition.getPreferedSpreadsheetTab());
 			this.objectdefinition.getPreferedSpreadsheetTab();
 			return load(file.getFileName(), reader1, reader2, reader3);
 		}
@@ -909,4 +936,586 @@ public class FlatFileLoader<E extends DataObject<E> & UniqueidentifiedInterface<
 		}
 		return buffer.toString();
 	}
+
+	/**
+	 * A line of the file prepared for loading: the object to insert or update has
+	 * been found or created, and the content of the line has been loaded on it.
+	 * The object may not yet be persisted.
+	 * 
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	private class PreparedLine {
+		private Object[] data;
+		private int lineindex;
+		private E object;
+		private boolean update;
+		private boolean contentupdated;
+		private PostUpdateProcessingStore<E> postupdateprocessingstore;
+		private int columnnr;
+		private boolean pending;
+		private boolean failed;
+
+		/**
+		 * @return true if the object has to be persisted (insert, or update with
+		 *         content changed)
+		 */
+		private boolean isToPersist() {
+			return (!update || contentupdated);
+		}
+	}
+
+	/**
+	 * The lines of the file loaded together. Lines are prepared one after the
+	 * other, and objects are then persisted by massive insert and update, before
+	 * the processing after persistence of each line. Objects with data update
+	 * triggers, or that the line preparator cannot batch, are persisted
+	 * individually, as massive insert and update do not execute triggers. When a
+	 * line refers to an object already in the batch, earlier lines are persisted
+	 * before the line is prepared.<br>
+	 * With a batch size of 1, lines are processed and persisted one by one. Errors
+	 * are reported per line in all cases.
+	 * 
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	private class LoadingBatch {
+		private ArrayList<FlatFileLoaderColumn<E>> loadercolumns;
+		private int linepreparatorindex;
+		private ArrayList<Integer> linepreparatorextraindex;
+		private HashMap<String, CustomloaderHelper<E>> activecustomloaderhelper;
+		private ArrayList<Csvloadererror> errors;
+		private ArrayList<Object[]> lines;
+		private ArrayList<Integer> lineindexes;
+		private ArrayList<PreparedLine> preparedlines;
+		private HashSet<String> pendingkeys;
+		private ArrayList<Integer> errorlineindexes;
+		private ArrayList<E> objects;
+		private ArrayList<Integer> objectlineindexes;
+		private int error = 0;
+		private int insert = 0;
+		private int update = 0;
+		private int untouched = 0;
+		private int postprocerror = 0;
+
+		private LoadingBatch(
+				ArrayList<FlatFileLoaderColumn<E>> loadercolumns,
+				int linepreparatorindex,
+				ArrayList<Integer> linepreparatorextraindex,
+				HashMap<String, CustomloaderHelper<E>> activecustomloaderhelper,
+				ArrayList<Csvloadererror> errors) {
+			this.loadercolumns = loadercolumns;
+			this.linepreparatorindex = linepreparatorindex;
+			this.linepreparatorextraindex = linepreparatorextraindex;
+			this.activecustomloaderhelper = activecustomloaderhelper;
+			this.errors = errors;
+			this.lines = new ArrayList<Object[]>();
+			this.lineindexes = new ArrayList<Integer>();
+			this.preparedlines = new ArrayList<PreparedLine>();
+			this.pendingkeys = new HashSet<String>();
+			this.errorlineindexes = new ArrayList<Integer>();
+			this.objects = new ArrayList<E>();
+			this.objectlineindexes = new ArrayList<Integer>();
+		}
+
+		/**
+		 * @param data      a line of the file with data
+		 * @param lineindex index of the line
+		 */
+		private void addLine(Object[] data, int lineindex) {
+			lines.add(data);
+			lineindexes.add(Integer.valueOf(lineindex));
+		}
+
+		/**
+		 * @return true if the batch has reached the batch size of the loader
+		 */
+		private boolean isFull() {
+			return (lines.size() >= batchsize);
+		}
+
+		private void reportError(Exception e, Object[] data, int lineindex, String message) {
+			Csvloadererror errorreport = new Csvloadererror();
+			errorreport.setError(buildExceptionMessage(e));
+			errorreport.setLinenr(lineindex + 1);
+			errorreport.setLinesource(dropOneLineAsText(data));
+			errors.add(errorreport);
+			errorlineindexes.add(Integer.valueOf(lineindex));
+			logger.warning(" ---- " + message + " " + lineindex + ", error = " + e.getMessage());
+			for (int s = 0; s < e.getStackTrace().length; s++) {
+				logger.warning("          " + e.getStackTrace()[s]);
+			}
+		}
+
+		/**
+		 * loads all the lines of the batch
+		 */
+		private void process() {
+			if (lines.size() == 0)
+				return;
+			FlatFileLoaderColumn<E> linepreparator = (linepreparatorindex != -1
+					? loadercolumns.get(linepreparatorindex)
+					: null);
+			boolean batchpreparation = false;
+			if (lines.size() > 1)
+				if (linepreparator != null)
+					if (linepreparator.isBatchLinePreparator())
+						if (linepreparatorextraindex.size() == 0)
+							if ((supplement == null) || (supplement.getSupplement() == null))
+								batchpreparation = true;
+			try {
+				if (batchpreparation) {
+					Object[] linepreparatorvalues = new Object[lines.size()];
+					for (int i = 0; i < lines.size(); i++) {
+						Object[] data = lines.get(i);
+						linepreparatorvalues[i] = (linepreparatorindex < data.length ? data[linepreparatorindex] : null);
+					}
+					linepreparator.prepareLines(linepreparatorvalues);
+				}
+				for (int i = 0; i < lines.size(); i++) {
+					Object[] data = lines.get(i);
+					int lineindex = lineindexes.get(i).intValue();
+					Object linepreparatorvalue = null;
+					if (linepreparator != null)
+						if (linepreparatorindex < data.length)
+							linepreparatorvalue = data[linepreparatorindex];
+					String key = getLineKey(linepreparatorvalue);
+					if (key != null)
+						if (!pendingkeys.add(key)) {
+							// the line refers to an object already in the batch
+							persistAndFinish();
+							pendingkeys.add(key);
+						}
+					PreparedLine preparedline = prepareLine(data, lineindex, linepreparator);
+					if (preparedline == null)
+						continue;
+					if (preparedline.isToPersist()) {
+						if (isPersistedAlone(preparedline, linepreparator, linepreparatorvalue)) {
+							if (!persistAlone(preparedline))
+								continue;
+						} else {
+							preparedline.pending = true;
+						}
+					} else {
+						untouched++;
+						logger.fine("    finished processing line " + lineindex + " ignoring update as no change ");
+					}
+					preparedlines.add(preparedline);
+				}
+				persistAndFinish();
+			} finally {
+				if (batchpreparation)
+					linepreparator.prepareLines(new Object[0]);
+				lines.clear();
+				lineindexes.clear();
+			}
+		}
+
+		/**
+		 * finds or creates the object of the line, and loads the content of the line
+		 * on the object. The object is not persisted.
+		 * 
+		 * @return the prepared line, or null if the line is in error (error is
+		 *         reported)
+		 */
+		private PreparedLine prepareLine(Object[] dataforloading, int lineindex,
+				FlatFileLoaderColumn<E> linepreparator) {
+			try {
+
+				logger.fine(" -- starting processing for loading line " + lineindex + " ------------- ");
+				E objectforprocessing = null;
+				boolean thislineupdate = false;
+				boolean contentupdated = false;
+				// adds criteria for selection
+				ArrayList<
+						FlatFileLoaderColumn.LinePreparationExtra<
+								E>> linepreparatorextracriterias = new ArrayList<
+										FlatFileLoaderColumn.LinePreparationExtra<E>>();
+				for (int i = 0; i < linepreparatorextraindex.size(); i++) {
+					FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(linepreparatorextraindex.get(i));
+					linepreparatorextracriterias.add(
+							thiscolumn.generateLinePreparatorExtra(dataforloading[linepreparatorextraindex.get(i)]));
+				}
+				// supplement can add also a criteria for selection
+				if (supplement != null) {
+					LinePreparationExtra<E> linepreparatorextra = supplement.getSupplement();
+					if (linepreparatorextra != null)
+						linepreparatorextracriterias.add(linepreparatorextra);
+				}
+				// tries to get an object
+				if (linepreparator != null) {
+					if (dataforloading.length <= linepreparatorindex)
+						throw new RuntimeException("loooking for line preparator index at index = "
+								+ linepreparatorindex + " but line only has length = " + dataforloading.length);
+					LinePreparation<E> thislineprep = linepreparator
+							.LinePreparation(dataforloading[linepreparatorindex], linepreparatorextracriterias);
+					objectforprocessing = thislineprep.getPayload();
+					thislineupdate = thislineprep.isUpdate();
+					if (!thislineupdate) {
+						if (supplement != null) {
+							supplement.initializeNewObject(objectforprocessing);
+						}
+					}
+					logger.fine(" -- finished preparing line " + lineindex);
+				}
+
+				if (objectforprocessing == null) {
+					objectforprocessing = objectdefinition.generateBlank();
+					if (supplement != null) {
+						supplement.initializeNewObject(objectforprocessing);
+					}
+				}
+				PostUpdateProcessingStore<E> postupdateprocessingstore = new PostUpdateProcessingStore<E>();
+				int columnnr = dataforloading.length;
+				if (columnnr > loadercolumns.size())
+					columnnr = loadercolumns.size();
+
+				for (int i = 0; i < columnnr; i++) {
+
+					FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(i);
+
+					if (!thiscolumn.secondpass())
+						if (!thiscolumn.processAfterLineInsertion()) {
+							Object value = dataforloading[i];
+							boolean iscolumnupdated = thiscolumn.load(objectforprocessing, value,
+									postupdateprocessingstore);
+							if (iscolumnupdated) {
+								logger.fine("line " + lineindex + ", column " + i + " updated " + value);
+								contentupdated = true;
+							}
+						}
+				}
+
+				for (int i = 0; i < columnnr; i++) {
+
+					FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(i);
+
+					if (thiscolumn.secondpass())
+						if (!thiscolumn.processAfterLineInsertion()) {
+							Object value = dataforloading[i];
+							boolean iscolumnupdated = thiscolumn.load(objectforprocessing, value,
+									postupdateprocessingstore);
+							if (iscolumnupdated) {
+								logger.fine("line " + lineindex + ", column " + i + " updated " + value);
+								contentupdated = true;
+							}
+						}
+				}
+
+				// ---------- runs multi-field checks and constraints
+				objectforprocessing.getDefinitionFromObject().checkMultiFieldConstraints(objectforprocessing);
+				PreparedLine preparedline = new PreparedLine();
+				preparedline.data = dataforloading;
+				preparedline.lineindex = lineindex;
+				preparedline.object = objectforprocessing;
+				preparedline.update = thislineupdate;
+				preparedline.contentupdated = contentupdated;
+				preparedline.postupdateprocessingstore = postupdateprocessingstore;
+				preparedline.columnnr = columnnr;
+				return preparedline;
+			} catch (Exception e) {
+				error++;
+				reportError(e, dataforloading, lineindex, "Could not load line");
+				return null;
+			}
+		}
+
+		/**
+		 * @return true if the object of the line should be persisted individually
+		 */
+		private boolean isPersistedAlone(
+				PreparedLine preparedline,
+				FlatFileLoaderColumn<E> linepreparator,
+				Object linepreparatorvalue) {
+			if (batchsize <= 1)
+				return true;
+			if (linepreparator != null)
+				if (!linepreparator.isBatchable(linepreparatorvalue))
+					return true;
+			// massive insert and update do not execute data update triggers
+			if (preparedline.object.getDataUpdateTriggers().getSize() > 0)
+				return true;
+			return false;
+		}
+
+		/**
+		 * persists the object of the line individually
+		 * 
+		 * @return true if the object was persisted, false if an error was reported
+		 */
+		private boolean persistAlone(PreparedLine preparedline) {
+			try {
+				if (preparedline.update) {
+					preparedline.object.update();
+					update++;
+					logger.fine("    finished processing line " + preparedline.lineindex + " with update ");
+				} else {
+					preparedline.object.insert();
+					insert++;
+					logger.fine("    finished processing line " + preparedline.lineindex + " with insert ");
+				}
+				return true;
+			} catch (Exception e) {
+				error++;
+				reportError(e, preparedline.data, preparedline.lineindex, "Could not load line");
+				return false;
+			}
+		}
+
+		/**
+		 * persists the objects of the lines waiting for massive insert or update, and
+		 * performs the processing after persistence for all prepared lines
+		 */
+		private void persistAndFinish() {
+			ArrayList<PreparedLine> linestoinsert = new ArrayList<PreparedLine>();
+			ArrayList<PreparedLine> linestoupdate = new ArrayList<PreparedLine>();
+			for (int i = 0; i < preparedlines.size(); i++) {
+				PreparedLine preparedline = preparedlines.get(i);
+				if (preparedline.pending) {
+					if (preparedline.update) {
+						linestoupdate.add(preparedline);
+					} else {
+						linestoinsert.add(preparedline);
+					}
+				}
+			}
+			persistMassive(linestoinsert, false);
+			persistMassive(linestoupdate, true);
+			for (int i = 0; i < preparedlines.size(); i++) {
+				PreparedLine preparedline = preparedlines.get(i);
+				if (!preparedline.failed)
+					finishLine(preparedline);
+			}
+			preparedlines.clear();
+			pendingkeys.clear();
+		}
+
+		/**
+		 * persists the objects of the lines with a massive insert or update. If the
+		 * persistence fails, all lines are reported in error
+		 */
+		private void persistMassive(ArrayList<PreparedLine> batchlines, boolean massiveupdate) {
+			if (batchlines.size() == 0)
+				return;
+			ArrayList<E> objectbatch = new ArrayList<E>();
+			for (int i = 0; i < batchlines.size(); i++)
+				objectbatch.add(batchlines.get(i).object);
+			E[] objectarray = objectbatch.toArray(objectdefinition.generateArrayTemplate());
+			try {
+				if (massiveupdate) {
+					objectarray[0].getMassiveUpdate().update(objectarray);
+					update += objectarray.length;
+				} else {
+					objectarray[0].getMassiveInsert().insert(objectarray);
+					insert += objectarray.length;
+				}
+				logger.fine("    finished processing " + objectarray.length + " lines with massive "
+						+ (massiveupdate ? "update" : "insert"));
+			} catch (Exception e) {
+				for (int i = 0; i < batchlines.size(); i++) {
+					PreparedLine preparedline = batchlines.get(i);
+					preparedline.failed = true;
+					error++;
+					reportError(e, preparedline.data, preparedline.lineindex,
+							"Could not persist batch for line");
+				}
+			}
+		}
+
+		/**
+		 * performs the processing after persistence of the object of the line
+		 */
+		private void finishLine(PreparedLine preparedline) {
+			Object[] dataforloading = preparedline.data;
+			int lineindex = preparedline.lineindex;
+			E objectforprocessing = preparedline.object;
+			// specific try cast to classify the error as a postproc error.
+
+			for (int i = 0; i < preparedline.columnnr; i++) {
+				try {
+					FlatFileLoaderColumn<E> thiscolumn = loadercolumns.get(i);
+
+					if (thiscolumn.processAfterLineInsertion()) {
+						Object value = dataforloading[i];
+						thiscolumn.load(objectforprocessing, value, preparedline.postupdateprocessingstore);
+						logger.fine("    finished processing column " + i + " after insertion for " + lineindex
+								+ ", name =  " + thiscolumn.toString());
+
+					}
+				} catch (Exception e) {
+					postprocerror++;
+					reportError(e, dataforloading, lineindex, "Could not perform extra processing");
+				}
+			}
+
+			ArrayList<Exception> exceptionsinpostupdateprocessingstore = preparedline.postupdateprocessingstore
+					.process(objectforprocessing);
+			for (int i = 0; i < exceptionsinpostupdateprocessingstore.size(); i++) {
+				postprocerror++;
+				reportError(exceptionsinpostupdateprocessingstore.get(i), dataforloading, lineindex,
+						"Could not perform extra processing");
+			}
+
+			Iterator<CustomloaderHelper<E>> loaderhelperiterator = activecustomloaderhelper.values().iterator();
+			while (loaderhelperiterator.hasNext()) {
+				try {
+					CustomloaderHelper<E> customloaderhelper = loaderhelperiterator.next();
+					customloaderhelper.executeAtEndOfLine(objectforprocessing);
+				} catch (Exception e) {
+					postprocerror++;
+					reportError(e, dataforloading, lineindex, "Could not perform extra processing");
+				}
+			}
+
+			// keeping that anyways even if error with postprocessing
+			objects.add(objectforprocessing);
+			objectlineindexes.add(Integer.valueOf(lineindex));
+		}
+	}
+
+	/**
+	 * The lines of a partition of the file, loaded by a worker thread. The worker
+	 * runs with the user of the calling thread, gets its own connections from the
+	 * pool, and executes the triggers of the partition before releasing its
+	 * connections.
+	 * 
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	private class PartitionLoader
+			implements
+			Callable<Void> {
+		private LoadingBatch batch;
+		private ArrayList<Object[]> lines;
+		private ArrayList<Integer> lineindexes;
+		private DataObjectId<Appuser> userid;
+
+		private PartitionLoader(LoadingBatch batch) {
+			this.batch = batch;
+			this.lines = new ArrayList<Object[]>();
+			this.lineindexes = new ArrayList<Integer>();
+		}
+
+		private void addLine(Object[] data, int lineindex) {
+			lines.add(data);
+			lineindexes.add(Integer.valueOf(lineindex));
+		}
+
+		@Override
+		public Void call() {
+			OLcServer server = OLcServer.getServer();
+			long start = System.currentTimeMillis();
+			try {
+				if (server != null) {
+					server.setUserIdForConnection(userid);
+					server.resetTriggersList();
+				}
+				for (int i = 0; i < lines.size(); i++) {
+					batch.addLine(lines.get(i), lineindexes.get(i).intValue());
+					if (batch.isFull())
+						batch.process();
+				}
+				batch.process();
+				if (server != null)
+					server.executeTriggerList();
+				logger.info(" --- partition of " + lines.size() + " lines loaded in "
+						+ (System.currentTimeMillis() - start) + "ms, inserted = " + batch.insert + ", updated = "
+						+ batch.update + ", error = " + batch.error);
+				return null;
+			} finally {
+				if (server != null)
+					server.removeUserIdConnectionReference();
+				PersistenceGateway.releaseForThread();
+			}
+		}
+	}
+
+	/**
+	 * loads the partitions, each on its own thread, and waits for all partitions
+	 * to be loaded
+	 * 
+	 * @param partitions partitions of the file
+	 */
+	private void runPartitions(ArrayList<PartitionLoader> partitions) {
+		ExecutorService executor = Executors.newFixedThreadPool(workers, (runnable) -> {
+			Thread thread = new Thread(runnable, "OLcLoaderWorker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			DataObjectId<Appuser> userid = (OLcServer.getServer() != null
+					? OLcServer.getServer().getUserIdForConnection()
+					: null);
+			ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < partitions.size(); i++) {
+				PartitionLoader partition = partitions.get(i);
+				if (partition.lines.size() > 0) {
+					partition.userid = userid;
+					futures.add(executor.submit(partition));
+				}
+			}
+			logger.info(" --- started " + futures.size() + " workers for loading");
+			RuntimeException workerexception = null;
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException e) {
+					Throwable cause = (e.getCause() != null ? e.getCause() : e);
+					logger.warning(" ---- Error in loader worker " + cause.getClass().getName() + " - "
+							+ cause.getMessage());
+					if (workerexception == null)
+						workerexception = new RuntimeException(
+								"Error in loader worker " + cause.getClass().getName() + " - " + cause.getMessage());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting for loader workers");
+				}
+			}
+			if (workerexception != null)
+				throw workerexception;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * merges the counters, errors and objects of the partitions in the given
+	 * batch. Errors and objects are put in the order of the lines in the file
+	 * 
+	 * @param partitions partitions loaded
+	 * @param merged     batch to merge the partitions into
+	 */
+	private void mergePartitions(ArrayList<PartitionLoader> partitions, LoadingBatch merged) {
+		// each position is line index, partition index, index in partition
+		ArrayList<int[]> errorpositions = new ArrayList<int[]>();
+		ArrayList<int[]> objectpositions = new ArrayList<int[]>();
+		for (int i = 0; i < partitions.size(); i++) {
+			LoadingBatch batch = partitions.get(i).batch;
+			merged.error += batch.error;
+			merged.insert += batch.insert;
+			merged.update += batch.update;
+			merged.untouched += batch.untouched;
+			merged.postprocerror += batch.postprocerror;
+			for (int j = 0; j < batch.errors.size(); j++)
+				errorpositions.add(new int[] { batch.errorlineindexes.get(j).intValue(), i, j });
+			for (int j = 0; j < batch.objects.size(); j++)
+				objectpositions.add(new int[] { batch.objectlineindexes.get(j).intValue(), i, j });
+		}
+		Comparator<int[]> lineorder = (first, second) -> Integer.compare(first[0], second[0]);
+		Collections.sort(errorpositions, lineorder);
+		Collections.sort(objectpositions, lineorder);
+		for (int i = 0; i < errorpositions.size(); i++) {
+			int[] position = errorpositions.get(i);
+			merged.errors.add(partitions.get(position[1]).batch.errors.get(position[2]));
+			merged.errorlineindexes.add(Integer.valueOf(position[0]));
+		}
+		for (int i = 0; i < objectpositions.size(); i++) {
+			int[] position = objectpositions.get(i);
+			merged.objects.add(partitions.get(position[1]).batch.objects.get(position[2]));
+			merged.objectlineindexes.add(Integer.valueOf(position[0]));
+		}
+	}
 }
@@ -11,6 +11,8 @@
 package org.openlowcode.server.data.loader;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 
 import org.apache.poi.ss.usermodel.Cell;
 
@@ -42,6 +44,18 @@ public abstract class FlatFileLoaderColumn<E extends DataObject<E>> {
 		return false;
 	}
 
+	/**
+	 * @return true if the column can load several lines at the same time from
+	 *         different threads. Static preprocessing is always performed before
+	 *         lines are loaded. Columns using state that cannot be shared between
+	 *         threads should return false, so that the file is loaded on a single
+	 *         thread.
+	 * @since 1.14
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	/**
 	 * @param next
 	 */
@@ -49,6 +63,21 @@ public abstract class FlatFileLoaderColumn<E extends DataObject<E>> {
 		throw new RuntimeException("Static preprocessor not implemented");
 	}
 
+	/**
+	 * performs the static preprocessing for all the distinct values of the column
+	 * in the file. By default, the static preprocessor is called for each value.
+	 * Columns querying the database for each value should override this method to
+	 * query values by batch.
+	 * 
+	 * @param values distinct values of the column in the file
+	 * @since 1.14
+	 */
+	public void staticpreprocessor(Collection<String> values) {
+		Iterator<String> iterator = values.iterator();
+		while (iterator.hasNext())
+			staticpreprocessor(iterator.next());
+	}
+
 	/**
 	 * 
 	 * @return true if the loader has a preparator. Preparator will be executed
@@ -79,6 +108,39 @@ public abstract class FlatFileLoaderColumn<E extends DataObject<E>> {
 		throw new RuntimeException("no line  preparator with two attribute");
 	}
 
+	/**
+	 * @return true if the line preparator can query the objects for several lines
+	 *         at once (see {@link #prepareLines(Object[])})
+	 * @since 1.14
+	 */
+	public boolean isBatchLinePreparator() {
+		return false;
+	}
+
+	/**
+	 * queries at once the objects for a batch of lines. The next line preparation
+	 * without extra criteria for one of the values will use the objects queried.
+	 * Each value queried is used only once, so that a later line with the same
+	 * value gets the object as persisted by the earlier line. Values not used are
+	 * discarded at the next call.
+	 * 
+	 * @param maincolumnvalues values of the column for the lines of the batch
+	 * @since 1.14
+	 */
+	public void prepareLines(Object[] maincolumnvalues) {
+		throw new RuntimeException("no batch line preparator");
+	}
+
+	/**
+	 * @param maincolumnvalue value of the line preparator column for the line
+	 * @return true if the object of the line can be persisted together with the
+	 *         objects of other lines, false if it has to be persisted alone
+	 * @since 1.14
+	 */
+	public boolean isBatchable(Object maincolumnvalue) {
+		return true;
+	}
+
 	/**
 	 * true if processing after line insertion
 	 * 
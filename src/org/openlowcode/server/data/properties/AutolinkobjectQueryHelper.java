@@ -155,34 +155,41 @@ public class AutolinkobjectQueryHelper {
 			if (additionalcondition.getCondition() != null)
 				extendedcondition = new AndQueryCondition(extendedcondition, additionalcondition.getCondition());
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
-		}
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
 
-		// is autolink, giving back the left and right link in the same query
-		if (autolinkobjectDefinition.isSymetricLink()) {
-			NamedList<TableAlias> aliaslistforsymetricrightquery = new NamedList<TableAlias>();
-			TableAlias aliasforsymetricrightquery = parentobjectdefinition.getAlias("SINGLEOBJECT");
-			aliaslistforsymetricrightquery.add(aliasforsymetricrightquery);
-			QueryCondition rightconditionforautolink = parentobjectdefinition
-					.extendquery(aliaslistforsymetricrightquery, aliasforsymetricrightquery, getRightidQueryCondition(
-							aliasforsymetricrightquery, leftid, parentobjectdefinition, linkedobjectdefinition));
-			Row rowforsymetricrightquery = QueryHelper.getHelper()
-					.query(new SelectQuery(aliaslistforsymetricrightquery, rightconditionforautolink));
-
-			while (rowforsymetricrightquery.next()) {
-				E linkobject = parentobjectdefinition.generateFromRow(rowforsymetricrightquery,
-						aliasforsymetricrightquery);
-
-				if (!linkobject.getLfid().equals(leftid)) {
-					linkobject.exchangeleftandrightfields();
-					returnlist.add(linkobject);
+			// is autolink, giving back the left and right link in the same query
+			if (autolinkobjectDefinition.isSymetricLink()) {
+				NamedList<TableAlias> aliaslistforsymetricrightquery = new NamedList<TableAlias>();
+				TableAlias aliasforsymetricrightquery = parentobjectdefinition.getAlias("SINGLEOBJECT");
+				aliaslistforsymetricrightquery.add(aliasforsymetricrightquery);
+				QueryCondition rightconditionforautolink = parentobjectdefinition
+						.extendquery(aliaslistforsymetricrightquery, aliasforsymetricrightquery, getRightidQueryCondition(
+								aliasforsymetricrightquery, leftid, parentobjectdefinition, linkedobjectdefinition));
+				Row rowforsymetricrightquery = QueryHelper.getHelper()
+						.query(new SelectQuery(aliaslistforsymetricrightquery, rightconditionforautolink));
+				try {
+					while (rowforsymetricrightquery.next()) {
+						E linkobject = parentobjectdefinition.generateFromRow(rowforsymetricrightquery,
+								aliasforsymetricrightquery);
+
+						if (!linkobject.getLfid().equals(leftid)) {
+							linkobject.exchangeleftandrightfields();
+							returnlist.add(linkobject);
+						}
+					}
+				} finally {
+					rowforsymetricrightquery.close();
 				}
 			}
-		}
 
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
+		}
 	}
 
 	/**
@@ -239,10 +246,14 @@ public class AutolinkobjectQueryHelper {
 				if (additionalcondition.getCondition() != null)
 					extendedcondition = new AndQueryCondition(extendedcondition, additionalcondition.getCondition());
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-			while (answer.next()) {
-				E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-				// put all results in a hasmap;
-				results.add(formattedanswer);
+			try {
+				while (answer.next()) {
+					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+					// put all results in a hasmap;
+					results.add(formattedanswer);
+				}
+			} finally {
+				answer.close();
 			}
 		}}
 
@@ -288,10 +299,14 @@ public class AutolinkobjectQueryHelper {
 								additionalcondition.getCondition());
 
 				Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-				while (answer.next()) {
-					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-					// put all results in a hasmap;
-					results.add(formattedanswer);
+				try {
+					while (answer.next()) {
+						E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+						// put all results in a hasmap;
+						results.add(formattedanswer);
+					}
+				} finally {
+					answer.close();
 				}
 			}}
 				
@@ -334,14 +349,18 @@ public class AutolinkobjectQueryHelper {
 		if (linkuniversalcondition != null)
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
+		try {
 
-		// TODO solve this mess
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			// TODO solve this mess
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
 
+			}
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
 
 	/**
@@ -403,12 +422,16 @@ public class AutolinkobjectQueryHelper {
 
 			QueryCondition extendedcondition = parentobjectdefinition.extendquery(aliaslist, alias, finalcondition);
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-			logger.severe("before infernal call");
-			while (answer.next()) {
-				logger.severe("in infernal loop");
-				E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-				// put all results in a hasmap;
-				results.add(formattedanswer);
+			try {
+				logger.severe("before infernal call");
+				while (answer.next()) {
+					logger.severe("in infernal loop");
+					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+					// put all results in a hasmap;
+					results.add(formattedanswer);
+				}
+			} finally {
+				answer.close();
 			}
 		}}
 
@@ -455,11 +478,15 @@ public class AutolinkobjectQueryHelper {
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
 
 	/**
@@ -535,16 +562,20 @@ public class AutolinkobjectQueryHelper {
 					rightuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleftandright));
+		try {
 
-		ArrayList<ThreeDataObjects<F, E, F>> returnlist = new ArrayList<ThreeDataObjects<F, E, F>>();
-		while (row.next()) {
+			ArrayList<ThreeDataObjects<F, E, F>> returnlist = new ArrayList<ThreeDataObjects<F, E, F>>();
+			while (row.next()) {
 
-			F objectone = linkedobjectdefinition.generateFromRow(row, leftobjectalias);
-			E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
-			F objectthree = linkedobjectdefinition.generateFromRow(row, rightobjectalias);
-			returnlist.add(new ThreeDataObjects<F, E, F>(objectone, objecttwo, objectthree));
+				F objectone = linkedobjectdefinition.generateFromRow(row, leftobjectalias);
+				E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
+				F objectthree = linkedobjectdefinition.generateFromRow(row, rightobjectalias);
+				returnlist.add(new ThreeDataObjects<F, E, F>(objectone, objecttwo, objectthree));
+			}
+			return returnlist.toArray(new ThreeDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new ThreeDataObjects[0]);
 	}
 
 	/**
@@ -655,14 +686,18 @@ public class AutolinkobjectQueryHelper {
 			extendedconditionforright = new AndQueryCondition(extendedconditionforright, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
-		ArrayList<TwoDataObjects<E, F>> returnlist = new ArrayList<TwoDataObjects<E, F>>();
-		while (row.next()) {
+		try {
+			ArrayList<TwoDataObjects<E, F>> returnlist = new ArrayList<TwoDataObjects<E, F>>();
+			while (row.next()) {
 
-			E objectone = parentobject.generateFromRow(row, linkalias);
-			F objecttwo = linkedobjectdefinition.generateFromRow(row, rightobjectalias);
-			returnlist.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+				E objectone = parentobject.generateFromRow(row, linkalias);
+				F objecttwo = linkedobjectdefinition.generateFromRow(row, rightobjectalias);
+				returnlist.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+			}
+			return returnlist.toArray(new TwoDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new TwoDataObjects[0]);
 	}
 
 	/**
@@ -722,14 +757,18 @@ public class AutolinkobjectQueryHelper {
 			extendedconditionforleft = new AndQueryCondition(extendedconditionforleft, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleft));
-		ArrayList<TwoDataObjects<F, E>> returnlist = new ArrayList<TwoDataObjects<F, E>>();
-		while (row.next()) {
+		try {
+			ArrayList<TwoDataObjects<F, E>> returnlist = new ArrayList<TwoDataObjects<F, E>>();
+			while (row.next()) {
 
-			F objectone = linkedobjectdefinition.generateFromRow(row, leftobjectalias);
-			E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
-			returnlist.add(new TwoDataObjects<F, E>(objectone, objecttwo));
+				F objectone = linkedobjectdefinition.generateFromRow(row, leftobjectalias);
+				E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
+				returnlist.add(new TwoDataObjects<F, E>(objectone, objecttwo));
+			}
+			return returnlist.toArray(new TwoDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new TwoDataObjects[0]);
 	}
 
 }
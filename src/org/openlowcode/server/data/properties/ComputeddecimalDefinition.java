@@ -136,4 +136,9 @@ public class ComputeddecimalDefinition<E extends DataObject<E>>
 				+ ":COMPUTEDDECIMAL:" + this.getName().toUpperCase();
 	}
 
+	@Override
+	public String getFormulaDependencyKey() {
+		return getTriggerName();
+	}
+
 }
@@ -67,6 +67,15 @@ public class CreationlogDefinition<E extends DataObject<E>> extends DataObjectPr
 
 	}
 
+	/**
+	 * @return the stored field holding the creation time, to be used for ordering
+	 *         queries
+	 * @since 1.14
+	 */
+	public TimestampStoredField getCreatetimeFieldSchema() {
+		return this.createtime;
+	}
+
 	public void setFieldsInTitle() {
 		this.fieldsintitle = true;
 	}
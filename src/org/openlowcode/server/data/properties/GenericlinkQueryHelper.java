@@ -131,12 +131,16 @@ public class GenericlinkQueryHelper {
 				finalcondition = new AndQueryCondition(finalcondition, additionalcondition.getCondition());
 		QueryCondition extendedcondition = parentdefinition.extendquery(aliaslist, alias, finalcondition);
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
+		try {
 
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentdefinition.generateFromRow(row, alias));
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentdefinition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(parentdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(parentdefinition.generateArrayTemplate());
 	}
 
 }
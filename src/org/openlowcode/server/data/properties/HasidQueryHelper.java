@@ -90,22 +90,26 @@ public class HasidQueryHelper {
 
 		QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		boolean hasline = answer.next();
-		if (hasline) {
-			E formattedanswer = definition.generateFromRow(answer, alias);
-			if (answer.next()) {
-				String firstobject = formattedanswer.dropToString();
-				E secondillegalanswer = definition.generateFromRow(answer, alias);
-				String secondillegalanswerdrop = secondillegalanswer.dropToString();
-				answer.close();
-				throw new RuntimeException(
-						"Expected one row, got more, for object type = " + definition.getName() + ", id = " + id.getId()
-								+ " normal object " + firstobject + ", additional object " + secondillegalanswerdrop);
-			}
+		try {
+			boolean hasline = answer.next();
+			if (hasline) {
+				E formattedanswer = definition.generateFromRow(answer, alias);
+				if (answer.next()) {
+					String firstobject = formattedanswer.dropToString();
+					E secondillegalanswer = definition.generateFromRow(answer, alias);
+					String secondillegalanswerdrop = secondillegalanswer.dropToString();
+					answer.close();
+					throw new RuntimeException(
+							"Expected one row, got more, for object type = " + definition.getName() + ", id = " + id.getId()
+									+ " normal object " + firstobject + ", additional object " + secondillegalanswerdrop);
+				}
 
-			return formattedanswer;
-		} else {
-			return null;
+				return formattedanswer;
+			} else {
+				return null;
+			}
+		} finally {
+			answer.close();
 		}
 	}
 
@@ -172,10 +176,14 @@ public class HasidQueryHelper {
 
 			QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-			while (answer.next()) {
-				E formattedanswer = definition.generateFromRow(answer, alias);
-				// put all results in a hasmap;
-				resultsbyid.put(formattedanswer.getId().getId(), formattedanswer);
+			try {
+				while (answer.next()) {
+					E formattedanswer = definition.generateFromRow(answer, alias);
+					// put all results in a hasmap;
+					resultsbyid.put(formattedanswer.getId().getId(), formattedanswer);
+				}
+			} finally {
+				answer.close();
 			}
 			}
 		}
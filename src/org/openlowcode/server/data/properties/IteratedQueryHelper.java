@@ -91,11 +91,15 @@ public class IteratedQueryHelper {
 
 		QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(definition.generateFromRow(row, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(definition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(definition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(definition.generateArrayTemplate());
 	}
 
 	/**
@@ -128,20 +132,24 @@ public class IteratedQueryHelper {
 		extendedcondition = new AndQueryCondition(extendedcondition,
 				getIterationQueryCondition(alias, iteration, definition));
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		boolean hasline = answer.next();
-		if (hasline) {
-			E formattedanswer = definition.generateFromRow(answer, alias);
-			if (answer.next()) {
-				String firstobject = formattedanswer.dropToString();
-				E secondillegalanswer = definition.generateFromRow(answer, alias);
-				String secondillegalanswerdrop = secondillegalanswer.dropToString();
-				throw new RuntimeException(
-						"Expected one row, got more, for object type = " + definition.getName() + ", id = " + id.getId()
-								+ " normal object " + firstobject + ", additional object " + secondillegalanswerdrop);
+		try {
+			boolean hasline = answer.next();
+			if (hasline) {
+				E formattedanswer = definition.generateFromRow(answer, alias);
+				if (answer.next()) {
+					String firstobject = formattedanswer.dropToString();
+					E secondillegalanswer = definition.generateFromRow(answer, alias);
+					String secondillegalanswerdrop = secondillegalanswer.dropToString();
+					throw new RuntimeException(
+							"Expected one row, got more, for object type = " + definition.getName() + ", id = " + id.getId()
+									+ " normal object " + firstobject + ", additional object " + secondillegalanswerdrop);
+				}
+				return formattedanswer;
+			} else {
+				return null;
 			}
-			return formattedanswer;
-		} else {
-			return null;
+		} finally {
+			answer.close();
 		}
 
 	}
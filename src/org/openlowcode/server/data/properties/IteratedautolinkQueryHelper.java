@@ -86,13 +86,17 @@ public class IteratedautolinkQueryHelper {
 			if (additionalcondition.getCondition() != null)
 				extendedcondition = new AndQueryCondition(extendedcondition, additionalcondition.getCondition());
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
+		try {
 
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
-		}
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
 
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
+		}
 	}
 
 	/**
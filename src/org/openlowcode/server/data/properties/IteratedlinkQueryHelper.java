@@ -125,12 +125,16 @@ public class IteratedlinkQueryHelper {
 		extendedcondition = new AndQueryCondition(extendedcondition,
 				getIterationQueryCondition(alias, leftiteration, parentobjectdefinition, iteratedlinkdefinition));
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
+		try {
 
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
-		}
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
 
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
+		}
 	}
 }
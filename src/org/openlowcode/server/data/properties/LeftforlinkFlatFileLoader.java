@@ -10,8 +10,12 @@
 
 package org.openlowcode.server.data.properties;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.logging.Logger;
 
 import org.apache.poi.ss.usermodel.Cell;
@@ -158,6 +162,74 @@ public class LeftforlinkFlatFileLoader<E extends DataObject<E> & NumberedInterfa
 
 	}
 
+	@Override
+	public void staticpreprocessor(Collection<String> values) {
+		if (constraints.length > 0)
+			if (createrightifnotexists)
+				throw new RuntimeException("Link " + linkobjectdefinition + " have " + constraints.length
+						+ " not yet supported constraints ");
+		LinkedHashSet<String> numberstoquery = new LinkedHashSet<String>();
+		Iterator<String> iterator = values.iterator();
+		while (iterator.hasNext()) {
+			String next = iterator.next();
+			if (next.length() > 0) {
+				String[] rightobjectnumbers = null;
+				if (hardcodedvalue == null) {
+					rightobjectnumbers = next.split("\\|");
+				} else {
+					rightobjectnumbers = new String[] { hardcodedvalue };
+				}
+				for (int i = 0; i < rightobjectnumbers.length; i++)
+					if (!rightobjectmapbynumber.containsKey(rightobjectnumbers[i]))
+						numberstoquery.add(rightobjectnumbers[i]);
+			}
+		}
+		if (numberstoquery.size() == 0)
+			return;
+		G[] rightobjects = NumberedQueryHelper.get().getobjectsbynumber(numberstoquery.toArray(new String[0]), null,
+				rightobjectdefinition, rightobjectnumberproperty);
+		HashMap<String, ArrayList<G>> rightobjectsbynumber = new HashMap<String, ArrayList<G>>();
+		Iterator<String> numberiterator = numberstoquery.iterator();
+		while (numberiterator.hasNext())
+			rightobjectsbynumber.put(numberiterator.next(), new ArrayList<G>());
+		HashSet<String> approximatenumbers = new HashSet<String>();
+		for (int i = 0; i < rightobjects.length; i++) {
+			ArrayList<G> objectsfornumber = rightobjectsbynumber.get(rightobjects[i].getNr());
+			if (objectsfornumber != null) {
+				objectsfornumber.add(rightobjects[i]);
+			} else if (rightobjects[i].getNr() != null) {
+				approximatenumbers.add(rightobjects[i].getNr().trim().toUpperCase());
+			}
+		}
+		numberiterator = numberstoquery.iterator();
+		while (numberiterator.hasNext()) {
+			String thisrightobjectnumber = numberiterator.next();
+			// the database may match numbers differing by case or trailing spaces. Those
+			// numbers are left to the single value preprocessor
+			if (approximatenumbers.contains(thisrightobjectnumber.trim().toUpperCase())) {
+				staticpreprocessor(thisrightobjectnumber);
+				continue;
+			}
+			ArrayList<G> thisrightobject = rightobjectsbynumber.get(thisrightobjectnumber);
+			if (thisrightobject.size() == 1) {
+				rightobjectmapbynumber.put(thisrightobjectnumber, thisrightobject.get(0));
+			}
+			if (thisrightobject.size() == 0) {
+				if (createrightifnotexists) {
+					G newrightobject = rightobjectdefinition.generateBlank();
+					newrightobject.setobjectnumber(thisrightobjectnumber);
+					newrightobject.insert();
+					rightobjectmapbynumber.put(thisrightobjectnumber, newrightobject);
+				}
+			}
+			if (thisrightobject.size() > 1)
+				throw new RuntimeException("found several right objects " + rightobjectdefinition.getName()
+						+ " with number " + thisrightobjectnumber);
+		}
+		logger.fine("preprocessing for left for link " + linkobjectdefinition.getName() + ", queried "
+				+ numberstoquery.size() + " right object numbers, found " + rightobjects.length + " objects");
+	}
+
 	@Override
 	public boolean load(E object, Object value, PostUpdateProcessingStore<E> postupdateprocessingstore) {
 		boolean oneupdate = false;
@@ -10,7 +10,11 @@
 
 package org.openlowcode.server.data.properties;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.logging.Logger;
 
 import org.apache.poi.ss.usermodel.Cell;
@@ -97,6 +101,64 @@ public class LinkedToParentFlatFileLoader<E extends DataObject<E> & Uniqueidenti
 		}
 	}
 
+	@SuppressWarnings("static-access")
+	@Override
+	public void staticpreprocessor(Collection<String> values) {
+		ArrayList<String> numberstoquery = new ArrayList<String>();
+		Iterator<String> iterator = values.iterator();
+		while (iterator.hasNext()) {
+			String next = iterator.next();
+			if (!parentobjectsbykey.containsKey(next))
+				numberstoquery.add(next);
+		}
+		if (numberstoquery.size() == 0)
+			return;
+		QueryCondition extracondition = null;
+		if (parentdefinition.hasProperty("VERSIONED")) {
+			extracondition = VersionedQueryHelper.get()
+					.getLatestVersionQueryCondition(parentdefinition.getAlias("SINGLEOBJECT"), parentdefinition);
+		}
+		@SuppressWarnings("unchecked")
+		F[] objects = NumberedQueryHelper.get().getobjectsbynumber(numberstoquery.toArray(new String[0]),
+				extracondition, parentdefinition, (NumberedDefinition<F>) parentdefinition.getProperty("NUMBERED"));
+		HashMap<String, ArrayList<F>> objectsbynumber = new HashMap<String, ArrayList<F>>();
+		for (int i = 0; i < numberstoquery.size(); i++)
+			objectsbynumber.put(numberstoquery.get(i), new ArrayList<F>());
+		HashSet<String> approximatenumbers = new HashSet<String>();
+		for (int i = 0; i < objects.length; i++) {
+			ArrayList<F> objectsfornumber = objectsbynumber.get(objects[i].getNr());
+			if (objectsfornumber != null) {
+				objectsfornumber.add(objects[i]);
+			} else if (objects[i].getNr() != null) {
+				approximatenumbers.add(objects[i].getNr().trim().toUpperCase());
+			}
+		}
+		for (int i = 0; i < numberstoquery.size(); i++) {
+			String next = numberstoquery.get(i);
+			ArrayList<F> objectsfornumber = objectsbynumber.get(next);
+			// the database may match numbers differing by case or trailing spaces. Those
+			// numbers are left to the single value preprocessor
+			if (approximatenumbers.contains(next.trim().toUpperCase())) {
+				staticpreprocessor(next);
+				continue;
+			}
+			if (objectsfornumber.size() > 0) {
+				if (objectsfornumber.size() == 1)
+					parentobjectsbykey.put(next, objectsfornumber.get(0));
+			} else {
+				if (createmissing) {
+					F newparent = parentdefinition.generateBlank();
+					newparent.setobjectnumber(next);
+					newparent.insert();
+					parentobjectsbykey.put(next, newparent);
+					logger.fine("Inserted new parent object " + parentdefinition.getName() + " with nr = " + next);
+				}
+			}
+		}
+		logger.fine("Static preprocessing for parent " + parentdefinition.getName() + ", queried "
+				+ numberstoquery.size() + " numbers, found " + objects.length + " objects");
+	}
+
 	@Override
 	public boolean load(E object, Object value, PostUpdateProcessingStore<E> postupdateprocessingstore) {
 		String stringvalue = FlatFileLoader.parseObject(value, "Linked To Parent for " + objectdefinition.getName());
@@ -10,6 +10,7 @@
 
 package org.openlowcode.server.data.properties;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 
 import org.openlowcode.server.data.DataObject;
@@ -17,6 +18,7 @@ import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.DataObjectPayload;
 import org.openlowcode.server.data.DataObjectProperty;
 import org.openlowcode.server.data.storage.QueryFilter;
+import org.openlowcode.server.data.storage.StoredFieldSchema;
 
 
 /**
@@ -81,6 +83,22 @@ public class Linkedfromchildren<E extends DataObject<E> & UniqueidentifiedInterf
 						linkedfromchildrendefinition.getGenericsChildobjectforlinkProperty());
 	}
 
+	/**
+	 * sums in the database a decimal field on all the children of the current data
+	 * object
+	 * 
+	 * @param object current data object
+	 * @param field  decimal field on the child object
+	 * @return the sum of the field on all children
+	 * @since 1.14
+	 */
+	public BigDecimal sumonchildren(E object, StoredFieldSchema<BigDecimal> field) {
+		return LinkedtoparentQueryHelper
+				.get(linkedfromchildrendefinition.getGenericsChildobjectforlinkProperty().getName())
+				.<F, E>sumonchildren(uniqueidentified.getRelatedHasid().getId(), field, childrendefinition,
+						referenceobjectdefinition, linkedfromchildrendefinition.getGenericsChildobjectforlinkProperty());
+	}
+
 	/**
 	 * before deleting this object, checks if it has children. If the propery
 	 * 'delete children' is set, children will be deleted, else, an exception will
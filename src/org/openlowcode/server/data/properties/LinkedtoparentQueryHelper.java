@@ -10,8 +10,10 @@
 
 package org.openlowcode.server.data.properties;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.function.Consumer;
 
 import java.util.logging.Logger;
 
@@ -19,6 +21,8 @@ import org.openlowcode.tools.misc.NamedList;
 import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.QueryHelper;
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.server.data.storage.AndQueryCondition;
 import org.openlowcode.server.data.storage.OrQueryCondition;
 import org.openlowcode.server.data.storage.QueryCondition;
@@ -164,10 +168,14 @@ public class LinkedtoparentQueryHelper {
 						extendedcondition = new AndQueryCondition(extendedcondition,
 								additionalcondition.getCondition());
 				Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-				while (answer.next()) {
-					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-					// put all results in a hasmap;
-					results.add(formattedanswer);
+				try {
+					while (answer.next()) {
+						E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+						// put all results in a hasmap;
+						results.add(formattedanswer);
+					}
+				} finally {
+					answer.close();
 				}
 			}
 		}
@@ -196,6 +204,107 @@ public class LinkedtoparentQueryHelper {
 					LinkedtoparentDefinition<E, F> propertydefinition) {
 		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
 		TableAlias alias = parentobjectdefinition.getAlias(CHILD_OBJECT_ALIAS);
+		QueryCondition extendedcondition = getallchildrenquerycondition(aliaslist, alias, parentid, additionalcondition,
+				parentobjectdefinition, linkedobjectdefinition, propertydefinition);
+		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
+		try {
+
+			// TODO solve this mess
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
+		}
+	}
+
+	/**
+	 * reads all the children for the specified parent id through a database
+	 * cursor, and gives each child to the consumer as soon as it is read. Children
+	 * are selected the same way as in the getallchildren method, but are not kept
+	 * in memory.
+	 * 
+	 * @param parentid               parent object id
+	 * @param additionalcondition    additional filter condition on the child object
+	 * @param consumer               consumer called for each child
+	 * @param parentobjectdefinition definition of the child object
+	 * @param linkedobjectdefinition definition of the parent object
+	 * @param propertydefinition     definition of the linkedtoparent property for
+	 *                               the child object
+	 * @return the number of children read
+	 * @since 1.14
+	 */
+	public <
+			E extends DataObject<E> & UniqueidentifiedInterface<E>,
+			F extends DataObject<F> & UniqueidentifiedInterface<F>> int foreachchild(
+					DataObjectId<F> parentid,
+					QueryFilter additionalcondition,
+					Consumer<E> consumer,
+					DataObjectDefinition<E> parentobjectdefinition,
+					DataObjectDefinition<F> linkedobjectdefinition,
+					LinkedtoparentDefinition<E, F> propertydefinition) {
+		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
+		TableAlias alias = parentobjectdefinition.getAlias(CHILD_OBJECT_ALIAS);
+		QueryCondition extendedcondition = getallchildrenquerycondition(aliaslist, alias, parentid, additionalcondition,
+				parentobjectdefinition, linkedobjectdefinition, propertydefinition);
+		SelectQuery query = new SelectQuery(aliaslist, extendedcondition);
+		query.setFetchSize(StoredobjectQueryHelper.getStreamFetchSize());
+		return QueryHelper.getHelper()
+				.stream(query, (row) -> consumer.accept(parentobjectdefinition.generateFromRow(row, alias)));
+	}
+
+	/**
+	 * sums in the database a field on all the children of the specified parent id.
+	 * Children are selected the same way as in the getallchildren method
+	 * 
+	 * @param parentid               parent object id
+	 * @param field                  decimal field of the child object to sum
+	 * @param parentobjectdefinition definition of the child object
+	 * @param linkedobjectdefinition definition of the parent object
+	 * @param propertydefinition     definition of the linkedtoparent property for
+	 *                               the child object
+	 * @return the sum of the field on all children, 0 if there is no child
+	 * @since 1.14
+	 */
+	public <
+			E extends DataObject<E> & UniqueidentifiedInterface<E>,
+			F extends DataObject<F> & UniqueidentifiedInterface<F>> BigDecimal sumonchildren(
+					DataObjectId<F> parentid,
+					StoredFieldSchema<BigDecimal> field,
+					DataObjectDefinition<E> parentobjectdefinition,
+					DataObjectDefinition<F> linkedobjectdefinition,
+					LinkedtoparentDefinition<E, F> propertydefinition) {
+		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
+		TableAlias alias = parentobjectdefinition.getAlias(CHILD_OBJECT_ALIAS);
+		QueryCondition extendedcondition = getallchildrenquerycondition(aliaslist, alias, parentid, null,
+				parentobjectdefinition, linkedobjectdefinition, propertydefinition);
+		AggregateQuery query = new AggregateQuery(aliaslist, extendedcondition);
+		int sumindex = query.addAggregate(AggregateQuery.Function.SUM, alias, field);
+		AggregateRow row = QueryHelper.getHelper().aggregate(query);
+		BigDecimal result = null;
+		try {
+			if (row.next())
+				result = row.getAggregate(sumindex);
+		} finally {
+			row.close();
+		}
+		if (result == null)
+			return new BigDecimal(0);
+		return result;
+	}
+
+	private <
+			E extends DataObject<E> & UniqueidentifiedInterface<E>,
+			F extends DataObject<F> & UniqueidentifiedInterface<F>> QueryCondition getallchildrenquerycondition(
+					NamedList<TableAlias> aliaslist,
+					TableAlias alias,
+					DataObjectId<F> parentid,
+					QueryFilter additionalcondition,
+					DataObjectDefinition<E> parentobjectdefinition,
+					DataObjectDefinition<F> linkedobjectdefinition,
+					LinkedtoparentDefinition<E, F> propertydefinition) {
 		aliaslist.add(alias);
 		if (additionalcondition != null)
 			if (additionalcondition.getAliases() != null)
@@ -210,14 +319,6 @@ public class LinkedtoparentQueryHelper {
 		if (additionalcondition != null)
 			if (additionalcondition.getCondition() != null)
 				finalcondition = new AndQueryCondition(finalcondition, additionalcondition.getCondition());
-		QueryCondition extendedcondition = parentobjectdefinition.extendquery(aliaslist, alias, finalcondition);
-		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-
-		// TODO solve this mess
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
-		}
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		return parentobjectdefinition.extendquery(aliaslist, alias, finalcondition);
 	}
 }
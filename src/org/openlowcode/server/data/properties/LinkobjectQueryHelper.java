@@ -10,6 +10,7 @@
 
 package org.openlowcode.server.data.properties;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 
 import org.openlowcode.tools.misc.NamedList;
@@ -20,6 +21,8 @@ import org.openlowcode.server.data.QueryHelper;
 import org.openlowcode.server.data.ThreeDataObjects;
 import org.openlowcode.server.data.TwoDataObjects;
 import org.openlowcode.server.data.properties.constraints.ConstraintOnLinkObject;
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.server.data.storage.AndQueryCondition;
 import org.openlowcode.server.data.storage.JoinQueryCondition;
 import org.openlowcode.server.data.storage.OrQueryCondition;
@@ -155,12 +158,16 @@ public class LinkobjectQueryHelper {
 		if (linkuniversalcondition != null)
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
-		}
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
 
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
+		}
 	}
 
 	/**
@@ -214,10 +221,14 @@ public class LinkobjectQueryHelper {
 
 			QueryCondition extendedcondition = parentobjectdefinition.extendquery(aliaslist, alias, finalcondition);
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-			while (answer.next()) {
-				E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-				// put all results in a hasmap;
-				results.add(formattedanswer);
+			try {
+				while (answer.next()) {
+					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+					// put all results in a hasmap;
+					results.add(formattedanswer);
+				}
+			} finally {
+				answer.close();
 			}
 			}
 		}
@@ -284,10 +295,14 @@ public class LinkobjectQueryHelper {
 
 			QueryCondition extendedcondition = parentobjectdefinition.extendquery(aliaslist, alias, finalcondition);
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-			while (answer.next()) {
-				E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-				// put all results in a hasmap;
-				results.add(formattedanswer);
+			try {
+				while (answer.next()) {
+					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+					// put all results in a hasmap;
+					results.add(formattedanswer);
+				}
+			} finally {
+				answer.close();
 			}
 		}}
 
@@ -328,11 +343,15 @@ public class LinkobjectQueryHelper {
 		if (linkuniversalcondition != null)
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
 
 	/**
@@ -373,11 +392,15 @@ public class LinkobjectQueryHelper {
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
 
 	public final static String LINKSANDBOTHOBJECTS_LINKOBJECTALIAS = "SINGLEOBJECT";
@@ -454,14 +477,18 @@ public class LinkobjectQueryHelper {
 					linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleftandright));
-		ArrayList<ThreeDataObjects<F, E, G>> returnlist = new ArrayList<ThreeDataObjects<F, E, G>>();
-		while (row.next()) {
-			F objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
-			E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
-			G objectthree = rightobjectdefinition.generateFromRow(row, rightobjectalias);
-			returnlist.add(new ThreeDataObjects<F, E, G>(objectone, objecttwo, objectthree));
+		try {
+			ArrayList<ThreeDataObjects<F, E, G>> returnlist = new ArrayList<ThreeDataObjects<F, E, G>>();
+			while (row.next()) {
+				F objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+				E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
+				G objectthree = rightobjectdefinition.generateFromRow(row, rightobjectalias);
+				returnlist.add(new ThreeDataObjects<F, E, G>(objectone, objecttwo, objectthree));
+			}
+			return returnlist.toArray(new ThreeDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new ThreeDataObjects[0]);
 	}
 
 	/**
@@ -657,13 +684,17 @@ public class LinkobjectQueryHelper {
 			extendedconditionforleft = new AndQueryCondition(extendedconditionforleft, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleft));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
 
-			returnlist.add(objectone);
+				returnlist.add(objectone);
+			}
+			return returnlist.toArray(leftobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(leftobjectdefinition.generateArrayTemplate());
 	}
 
 	/**
@@ -738,10 +769,14 @@ public class LinkobjectQueryHelper {
 				extendedconditionforright = new AndQueryCondition(extendedconditionforright, linkuniversalcondition);
 
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
-			while (answer.next()) {
-				F objectone = linkobjectdefinition.generateFromRow(answer, linkalias);
-				G objecttwo = rightobjectdefinition.generateFromRow(answer, rightobjectalias);
-				results.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+			try {
+				while (answer.next()) {
+					F objectone = linkobjectdefinition.generateFromRow(answer, linkalias);
+					G objecttwo = rightobjectdefinition.generateFromRow(answer, rightobjectalias);
+					results.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+				}
+			} finally {
+				answer.close();
 			}
 		}}
 
@@ -768,6 +803,88 @@ public class LinkobjectQueryHelper {
 		TableAlias linkalias = linkobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_LINKOBJECTALIAS);
 		TableAlias rightobjectalias = rightobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_RIGHTOBJECTALIAS);
 		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
+		QueryCondition extendedconditionforright = getlinksandrightobjectquerycondition(aliaslist, linkalias,
+				rightobjectalias, leftid, additionalcondition, linkobjectdefinition, leftobjectdefinition,
+				rightobjectdefinition, propertyDefinition);
+		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
+		try {
+			ArrayList<TwoDataObjects<F, G>> returnlist = new ArrayList<TwoDataObjects<F, G>>();
+			while (row.next()) {
+
+				F objectone = linkobjectdefinition.generateFromRow(row, linkalias);
+				G objecttwo = rightobjectdefinition.generateFromRow(row, rightobjectalias);
+				returnlist.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+			}
+			return returnlist.toArray(new TwoDataObjects[0]);
+		} finally {
+			row.close();
+		}
+	}
+
+	/**
+	 * sums in the database a field of the right objects, or the product of a field
+	 * of the link by a field of the right object, on all links and right objects
+	 * of the specified left object. Links and right objects are selected the same
+	 * way as in the getlinksandrightobject method
+	 * 
+	 * @param leftid                specified left object id
+	 * @param linkfield             decimal field on the link object to multiply
+	 *                              the right object field by, or null to only sum
+	 *                              the right object field
+	 * @param rightfield            decimal field on the right object
+	 * @param linkobjectdefinition  definition of the link object
+	 * @param leftobjectdefinition  left object definition
+	 * @param rightobjectdefinition right object definition
+	 * @param propertydefinition    definition of the link object property
+	 * @return the sum, 0 if there is no link
+	 * @since 1.14
+	 */
+	public <
+			E extends DataObject<E> & UniqueidentifiedInterface<E>,
+			F extends DataObject<F> & LinkobjectInterface<F, E, G>,
+			G extends DataObject<G> & UniqueidentifiedInterface<G>> BigDecimal sumonlinksandrightobject(
+					DataObjectId<E> leftid,
+					StoredFieldSchema<BigDecimal> linkfield,
+					StoredFieldSchema<BigDecimal> rightfield,
+					DataObjectDefinition<F> linkobjectdefinition,
+					DataObjectDefinition<E> leftobjectdefinition,
+					DataObjectDefinition<G> rightobjectdefinition,
+					LinkobjectDefinition<F, E, G> propertyDefinition) {
+		TableAlias linkalias = linkobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_LINKOBJECTALIAS);
+		TableAlias rightobjectalias = rightobjectdefinition.getAlias(LINKSANDBOTHOBJECTS_RIGHTOBJECTALIAS);
+		NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
+		QueryCondition extendedconditionforright = getlinksandrightobjectquerycondition(aliaslist, linkalias,
+				rightobjectalias, leftid, null, linkobjectdefinition, leftobjectdefinition, rightobjectdefinition,
+				propertyDefinition);
+		AggregateQuery query = new AggregateQuery(aliaslist, extendedconditionforright);
+		int sumindex = (linkfield != null ? query.addSumProduct(linkalias, linkfield, rightobjectalias, rightfield)
+				: query.addAggregate(AggregateQuery.Function.SUM, rightobjectalias, rightfield));
+		AggregateRow row = QueryHelper.getHelper().aggregate(query);
+		BigDecimal result = null;
+		try {
+			if (row.next())
+				result = row.getAggregate(sumindex);
+		} finally {
+			row.close();
+		}
+		if (result == null)
+			return new BigDecimal(0);
+		return result;
+	}
+
+	private <
+			E extends DataObject<E> & UniqueidentifiedInterface<E>,
+			F extends DataObject<F> & LinkobjectInterface<F, E, G>,
+			G extends DataObject<G> & UniqueidentifiedInterface<G>> QueryCondition getlinksandrightobjectquerycondition(
+					NamedList<TableAlias> aliaslist,
+					TableAlias linkalias,
+					TableAlias rightobjectalias,
+					DataObjectId<E> leftid,
+					QueryFilter additionalcondition,
+					DataObjectDefinition<F> linkobjectdefinition,
+					DataObjectDefinition<E> leftobjectdefinition,
+					DataObjectDefinition<G> rightobjectdefinition,
+					LinkobjectDefinition<F, E, G> propertyDefinition) {
 		aliaslist.add(linkalias);
 		aliaslist.add(rightobjectalias);
 		if (additionalcondition != null)
@@ -803,16 +920,7 @@ public class LinkobjectQueryHelper {
 				LINKSANDBOTHOBJECTS_LINKOBJECTALIAS);
 		if (linkuniversalcondition != null)
 			extendedconditionforright = new AndQueryCondition(extendedconditionforright, linkuniversalcondition);
-
-		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
-		ArrayList<TwoDataObjects<F, G>> returnlist = new ArrayList<TwoDataObjects<F, G>>();
-		while (row.next()) {
-
-			F objectone = linkobjectdefinition.generateFromRow(row, linkalias);
-			G objecttwo = rightobjectdefinition.generateFromRow(row, rightobjectalias);
-			returnlist.add(new TwoDataObjects<F, G>(objectone, objecttwo));
-		}
-		return returnlist.toArray(new TwoDataObjects[0]);
+		return extendedconditionforright;
 	}
 
 	/**
@@ -889,12 +997,16 @@ public class LinkobjectQueryHelper {
 				extendedconditionforleft = new AndQueryCondition(extendedconditionforleft, linkuniversalcondition);
 
 			Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleft));
+			try {
 			
-			while (row.next()) {
+				while (row.next()) {
 
-				E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
-				F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
-				results.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+					E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+					F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
+					results.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+				}
+			} finally {
+				row.close();
 			}
 			
 			
@@ -960,14 +1072,18 @@ public class LinkobjectQueryHelper {
 			extendedconditionforleft = new AndQueryCondition(extendedconditionforleft, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleft));
-		ArrayList<TwoDataObjects<E, F>> returnlist = new ArrayList<TwoDataObjects<E, F>>();
-		while (row.next()) {
+		try {
+			ArrayList<TwoDataObjects<E, F>> returnlist = new ArrayList<TwoDataObjects<E, F>>();
+			while (row.next()) {
 
-			E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
-			F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
-			returnlist.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+				E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+				F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
+				returnlist.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+			}
+			return returnlist.toArray(new TwoDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new TwoDataObjects[0]);
 	}
 
 }
@@ -177,12 +177,16 @@ public class LinkobjecttomasterQueryHelper {
 		if (linkuniversalcondition != null)
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
-		}
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
 
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
+		}
 	}
 
 	/**
@@ -242,10 +246,14 @@ public class LinkobjecttomasterQueryHelper {
 
 				QueryCondition extendedcondition = parentobjectdefinition.extendquery(aliaslist, alias, finalcondition);
 				Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-				while (answer.next()) {
-					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-					// put all results in a hasmap;
-					results.add(formattedanswer);
+				try {
+					while (answer.next()) {
+						E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+						// put all results in a hasmap;
+						results.add(formattedanswer);
+					}
+				} finally {
+					answer.close();
 				}
 			}
 		}
@@ -318,10 +326,14 @@ public class LinkobjecttomasterQueryHelper {
 
 				QueryCondition extendedcondition = parentobjectdefinition.extendquery(aliaslist, alias, finalcondition);
 				Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-				while (answer.next()) {
-					E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
-					// put all results in a hasmap;
-					results.add(formattedanswer);
+				try {
+					while (answer.next()) {
+						E formattedanswer = parentobjectdefinition.generateFromRow(answer, alias);
+						// put all results in a hasmap;
+						results.add(formattedanswer);
+					}
+				} finally {
+					answer.close();
 				}
 			}
 		}
@@ -369,11 +381,15 @@ public class LinkobjecttomasterQueryHelper {
 		if (linkuniversalcondition != null)
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
 
 	/**
@@ -421,11 +437,15 @@ public class LinkobjecttomasterQueryHelper {
 			extendedcondition = new AndQueryCondition(extendedcondition, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(parentobjectdefinition.generateFromRow(row, alias));
+			}
+			return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(parentobjectdefinition.generateArrayTemplate());
 	}
 
 	public final static String LINKSANDBOTHOBJECTS_LINKOBJECTALIAS = "SINGLEOBJECT";
@@ -509,14 +529,18 @@ public class LinkobjecttomasterQueryHelper {
 					linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleftandright));
-		ArrayList<ThreeDataObjects<F, E, G>> returnlist = new ArrayList<ThreeDataObjects<F, E, G>>();
-		while (row.next()) {
-			F objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
-			E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
-			G objectthree = rightobjectdefinition.generateFromRow(row, rightobjectalias);
-			returnlist.add(new ThreeDataObjects<F, E, G>(objectone, objecttwo, objectthree));
+		try {
+			ArrayList<ThreeDataObjects<F, E, G>> returnlist = new ArrayList<ThreeDataObjects<F, E, G>>();
+			while (row.next()) {
+				F objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+				E objecttwo = parentobjectdefinition.generateFromRow(row, linkalias);
+				G objectthree = rightobjectdefinition.generateFromRow(row, rightobjectalias);
+				returnlist.add(new ThreeDataObjects<F, E, G>(objectone, objecttwo, objectthree));
+			}
+			return returnlist.toArray(new ThreeDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new ThreeDataObjects[0]);
 	}
 
 	/**
@@ -730,13 +754,17 @@ public class LinkobjecttomasterQueryHelper {
 			extendedconditionforleft = new AndQueryCondition(extendedconditionforleft, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleft));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
 
-			returnlist.add(objectone);
+				returnlist.add(objectone);
+			}
+			return returnlist.toArray(leftobjectdefinition.generateArrayTemplate());
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(leftobjectdefinition.generateArrayTemplate());
 	}
 
 	/**
@@ -821,10 +849,14 @@ public class LinkobjecttomasterQueryHelper {
 							linkuniversalcondition);
 
 				Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
-				while (answer.next()) {
-					F objectone = linkobjectdefinition.generateFromRow(answer, linkalias);
-					G objecttwo = rightobjectdefinition.generateFromRow(answer, rightobjectalias);
-					results.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+				try {
+					while (answer.next()) {
+						F objectone = linkobjectdefinition.generateFromRow(answer, linkalias);
+						G objecttwo = rightobjectdefinition.generateFromRow(answer, rightobjectalias);
+						results.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+					}
+				} finally {
+					answer.close();
 				}
 			}
 		}
@@ -897,14 +929,18 @@ public class LinkobjecttomasterQueryHelper {
 			extendedconditionforright = new AndQueryCondition(extendedconditionforright, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforright));
-		ArrayList<TwoDataObjects<F, G>> returnlist = new ArrayList<TwoDataObjects<F, G>>();
-		while (row.next()) {
+		try {
+			ArrayList<TwoDataObjects<F, G>> returnlist = new ArrayList<TwoDataObjects<F, G>>();
+			while (row.next()) {
 
-			F objectone = linkobjectdefinition.generateFromRow(row, linkalias);
-			G objecttwo = rightobjectdefinition.generateFromRow(row, rightobjectalias);
-			returnlist.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+				F objectone = linkobjectdefinition.generateFromRow(row, linkalias);
+				G objecttwo = rightobjectdefinition.generateFromRow(row, rightobjectalias);
+				returnlist.add(new TwoDataObjects<F, G>(objectone, objecttwo));
+			}
+			return returnlist.toArray(new TwoDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new TwoDataObjects[0]);
 	}
 
 	/**
@@ -988,12 +1024,16 @@ public class LinkobjecttomasterQueryHelper {
 					extendedconditionforleft = new AndQueryCondition(extendedconditionforleft, linkuniversalcondition);
 
 				Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleft));
+				try {
 
-				while (row.next()) {
+					while (row.next()) {
 
-					E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
-					F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
-					results.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+						E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+						F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
+						results.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+					}
+				} finally {
+					row.close();
 				}
 
 			}
@@ -1066,14 +1106,18 @@ public class LinkobjecttomasterQueryHelper {
 			extendedconditionforleft = new AndQueryCondition(extendedconditionforleft, linkuniversalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedconditionforleft));
-		ArrayList<TwoDataObjects<E, F>> returnlist = new ArrayList<TwoDataObjects<E, F>>();
-		while (row.next()) {
+		try {
+			ArrayList<TwoDataObjects<E, F>> returnlist = new ArrayList<TwoDataObjects<E, F>>();
+			while (row.next()) {
 
-			E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
-			F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
-			returnlist.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+				E objectone = leftobjectdefinition.generateFromRow(row, leftobjectalias);
+				F objecttwo = linkobjectdefinition.generateFromRow(row, linkalias);
+				returnlist.add(new TwoDataObjects<E, F>(objectone, objecttwo));
+			}
+			return returnlist.toArray(new TwoDataObjects[0]);
+		} finally {
+			row.close();
 		}
-		return returnlist.toArray(new TwoDataObjects[0]);
 	}
 
 }
@@ -11,6 +11,9 @@
 package org.openlowcode.server.data.properties;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.openlowcode.server.data.DataObject;
@@ -34,6 +37,8 @@ public class NumberedFlatFileLoader<E extends DataObject<E> & NumberedInterface<
 	private NumberedDefinition<E> numberedproperty;
 	private PropertyExtractor<E> propertyextractor;
 	private boolean updateifexists;
+	private ThreadLocal<HashMap<String, ArrayList<E>>> preparedobjectsbynumber = new ThreadLocal<
+			HashMap<String, ArrayList<E>>>();
 	public NumberedFlatFileLoader(DataObjectDefinition<E> objectdefinition,NumberedDefinition<E> numberedproperty, boolean updateifexists,PropertyExtractor<E> propertyextractor) {
 		this.objectdefinition = objectdefinition;
 		this.updateifexists=updateifexists;
@@ -48,6 +53,72 @@ public class NumberedFlatFileLoader<E extends DataObject<E> & NumberedInterface<
 		return true;
 	}
 
+	@Override
+	public boolean isBatchLinePreparator() {
+		return true;
+	}
+
+	@Override
+	public boolean isBatchable(Object maincolumnvalue) {
+		String string = FlatFileLoader.parseObject(maincolumnvalue, "LinePreparation for Numbered");
+		if (string == null)
+			return false;
+		if (string.trim().length() == 0)
+			return false;
+		return true;
+	}
+
+	@Override
+	public void prepareLines(Object[] maincolumnvalues) {
+		if (maincolumnvalues.length == 0) {
+			preparedobjectsbynumber.remove();
+			return;
+		}
+		HashMap<String, ArrayList<E>> newpreparedobjects = new HashMap<String, ArrayList<E>>();
+		for (int i = 0; i < maincolumnvalues.length; i++) {
+			String string = FlatFileLoader.parseObject(maincolumnvalues[i], "LinePreparation for Numbered");
+			if (string != null)
+				if (string.trim().length() > 0)
+					newpreparedobjects.put(string, new ArrayList<E>());
+		}
+		if (newpreparedobjects.size() > 0) {
+			QueryCondition extracondition = null;
+			if (objectdefinition.hasProperty("VERSIONED")) {
+				extracondition = VersionedQueryHelper.getLatestVersionQueryCondition(
+						objectdefinition.getAlias(NumberedQueryHelper.SINGLEOBJECT), objectdefinition);
+			}
+			E[] objectresult = NumberedQueryHelper.get().getobjectsbynumber(
+					newpreparedobjects.keySet().toArray(new String[0]), extracondition, objectdefinition,
+					numberedproperty);
+			HashSet<String> approximatenumbers = new HashSet<String>();
+			HashSet<String> normalizednumbers = new HashSet<String>();
+			Iterator<String> numberiterator = newpreparedobjects.keySet().iterator();
+			while (numberiterator.hasNext()) {
+				String normalizednumber = numberiterator.next().trim().toUpperCase();
+				if (!normalizednumbers.add(normalizednumber))
+					approximatenumbers.add(normalizednumber);
+			}
+			for (int i = 0; i < objectresult.length; i++) {
+				ArrayList<E> objectsfornumber = newpreparedobjects.get(objectresult[i].getNr());
+				if (objectsfornumber != null) {
+					objectsfornumber.add(objectresult[i]);
+				} else if (objectresult[i].getNr() != null) {
+					approximatenumbers.add(objectresult[i].getNr().trim().toUpperCase());
+				}
+			}
+			// the database may match numbers differing by case or trailing spaces. Those
+			// numbers, and numbers present several times in the batch with a different
+			// case, are left to the single query of the line preparation
+			if (approximatenumbers.size() > 0) {
+				String[] numbers = newpreparedobjects.keySet().toArray(new String[0]);
+				for (int i = 0; i < numbers.length; i++)
+					if (approximatenumbers.contains(numbers[i].trim().toUpperCase()))
+						newpreparedobjects.remove(numbers[i]);
+			}
+		}
+		this.preparedobjectsbynumber.set(newpreparedobjects);
+	}
+
 	@Override
 	public LinePreparation<E> LinePreparation(Object object,ArrayList<LinePreparationExtra<E>> linepreparatorextracriterias)
 			 {
@@ -72,7 +143,14 @@ public class NumberedFlatFileLoader<E extends DataObject<E> & NumberedInterface<
 				extracondition = extracriteria;
 			}
 		}
-		E[] objectresult = NumberedQueryHelper.get().getobjectbynumber(string,extracondition, objectdefinition, numberedproperty);
+		ArrayList<E> preparedobjects = null;
+		HashMap<String, ArrayList<E>> preparedobjectsforthread = preparedobjectsbynumber.get();
+		if (preparedobjectsforthread != null)
+			if (linepreparatorextracriterias.size() == 0)
+				preparedobjects = preparedobjectsforthread.remove(string);
+		E[] objectresult = (preparedobjects != null ? preparedobjects.toArray(objectdefinition.generateArrayTemplate())
+				: NumberedQueryHelper.get().getobjectbynumber(string, extracondition, objectdefinition,
+						numberedproperty));
 		if (objectresult.length==1) {
 			if (!updateifexists) throw new RuntimeException("Flat file loader is configured only to provide new elements, but element with nr = "+string+" already exists");
 			return new LinePreparation<E>(objectresult[0],true);
@@ -18,6 +18,7 @@ import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.QueryHelper;
 import org.openlowcode.server.data.storage.AndQueryCondition;
+import org.openlowcode.server.data.storage.OrQueryCondition;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
 import org.openlowcode.server.data.storage.QueryOperatorEqual;
@@ -37,6 +38,11 @@ import org.openlowcode.server.data.storage.TableAlias;
  */
 public class NumberedQueryHelper {
 	public static String SINGLEOBJECT = "SINGLEOBJECT";
+	/**
+	 * number of object numbers queried at once when querying several objects by
+	 * number
+	 */
+	public static final int BATCH_QUERY_SIZE = 20;
 	private static NumberedQueryHelper singleton = new NumberedQueryHelper();
 
 	public static NumberedQueryHelper get() {
@@ -85,12 +91,69 @@ public class NumberedQueryHelper {
 		if (additionalcondition != null)
 			extendedcondition = new AndQueryCondition(extendedcondition, additionalcondition);
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (answer.next()) {
+				returnlist.add(definition.generateFromRow(answer, alias));
+			}
+			return returnlist.toArray(definition.generateArrayTemplate());
+		} finally {
+			answer.close();
+		}
+
+	}
+
+	/**
+	 * gets all the objects with one of the numbers provided. Numbers are queried
+	 * by batches of {@link #BATCH_QUERY_SIZE} in a single query, so that loading
+	 * many objects by number does not require one query per number. The last batch
+	 * is completed by repeating the last number, so that all queries have the same
+	 * structure
+	 * 
+	 * @param nr                  the list of numbers (should not contain null
+	 *                            values)
+	 * @param additionalcondition an additional condition, using the alias
+	 *                            SINGLEOBJECT (can be null)
+	 * @param definition          definition of the object
+	 * @param propertydefinition  definition of the numbered property
+	 * @return all the objects found, in no specific order. Several objects can be
+	 *         returned for the same number
+	 * @since 1.14
+	 */
+	public <E extends DataObject<E> & UniqueidentifiedInterface<E>> E[] getobjectsbynumber(String[] nr,
+			QueryCondition additionalcondition, DataObjectDefinition<E> definition,
+			NumberedDefinition<E> propertydefinition) {
 		ArrayList<E> returnlist = new ArrayList<E>();
-		while (answer.next()) {
-			returnlist.add(definition.generateFromRow(answer, alias));
+		if (nr == null)
+			return returnlist.toArray(definition.generateArrayTemplate());
+		for (int i = 0; i < nr.length; i += BATCH_QUERY_SIZE) {
+			NamedList<TableAlias> aliaslist = new NamedList<TableAlias>();
+			TableAlias alias = definition.getAlias(SINGLEOBJECT);
+			aliaslist.add(alias);
+			QueryCondition objectuniversalcondition = definition.getUniversalQueryCondition(propertydefinition,
+					SINGLEOBJECT);
+			OrQueryCondition numbercondition = new OrQueryCondition();
+			for (int j = i; j < i + BATCH_QUERY_SIZE; j++) {
+				String thisnr = (j < nr.length ? nr[j] : nr[nr.length - 1]);
+				numbercondition.addCondition(getNrQueryCondition(alias, thisnr, definition));
+			}
+			QueryCondition finalcondition = numbercondition;
+			if (objectuniversalcondition != null) {
+				finalcondition = new AndQueryCondition(objectuniversalcondition, numbercondition);
+			}
+			QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
+			if (additionalcondition != null)
+				extendedcondition = new AndQueryCondition(extendedcondition, additionalcondition);
+			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
+			try {
+				while (answer.next()) {
+					returnlist.add(definition.generateFromRow(answer, alias));
+				}
+			} finally {
+				answer.close();
+			}
 		}
 		return returnlist.toArray(definition.generateArrayTemplate());
-
 	}
 
 	public <E extends DataObject<E> & UniqueidentifiedInterface<E>> E getuniqueobjectbynumber(String nr,
@@ -116,14 +179,18 @@ public class NumberedQueryHelper {
 		if (additionalcondition != null)
 			extendedcondition = new AndQueryCondition(extendedcondition, additionalcondition.getCondition());
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		if (!answer.next())
-			throw new RuntimeException("Found no object '" + definition.getLabel() + "' for number '" + nr + "' "
-					+ (additionalcondition != null ? "and additional condition " + additionalcondition : ""));
-		E returnobject = definition.generateFromRow(answer, alias);
-		if (answer.next())
-			throw new RuntimeException("Found several objects '" + definition.getLabel() + "' for number '" + nr + "' "
-					+ (additionalcondition != null ? "and additional condition " + additionalcondition : ""));
-		return returnobject;
+		try {
+			if (!answer.next())
+				throw new RuntimeException("Found no object '" + definition.getLabel() + "' for number '" + nr + "' "
+						+ (additionalcondition != null ? "and additional condition " + additionalcondition : ""));
+			E returnobject = definition.generateFromRow(answer, alias);
+			if (answer.next())
+				throw new RuntimeException("Found several objects '" + definition.getLabel() + "' for number '" + nr + "' "
+						+ (additionalcondition != null ? "and additional condition " + additionalcondition : ""));
+			return returnobject;
+		} finally {
+			answer.close();
+		}
 	}
 
 }
@@ -71,11 +71,15 @@ public class NumberedforparentQueryHelper {
 		finalcondition = new AndQueryCondition(finalcondition, parentcondition);
 		QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (answer.next()) {
-			returnlist.add(definition.generateFromRow(answer, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (answer.next()) {
+				returnlist.add(definition.generateFromRow(answer, alias));
+			}
+			return returnlist.toArray(definition.generateArrayTemplate());
+		} finally {
+			answer.close();
 		}
-		return returnlist.toArray(definition.generateArrayTemplate());
 
 	}
 }
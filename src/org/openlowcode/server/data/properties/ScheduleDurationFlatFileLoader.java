@@ -62,6 +62,16 @@ public class ScheduleDurationFlatFileLoader<E extends DataObject<E> & Uniqueiden
 			decimalformat = (DecimalFormat) NumberFormat.getInstance(Locale.FRENCH);
 		decimalformat.setParseBigDecimal(true);
 	}
+
+	/**
+	 * the column uses date and decimal formats that cannot be shared between
+	 * threads
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public boolean load(E object, Object value,PostUpdateProcessingStore<E> postupdateprocessingstore) {
 		BigDecimal decimal = null;
@@ -11,6 +11,7 @@
 package org.openlowcode.server.data.properties;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 import org.openlowcode.tools.misc.NamedList;
 
@@ -20,6 +21,7 @@ import org.openlowcode.server.data.QueryHelper;
 import org.openlowcode.server.data.storage.AndQueryCondition;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
+import org.openlowcode.server.data.storage.QueryPage;
 import org.openlowcode.server.data.storage.Row;
 import org.openlowcode.server.data.storage.SelectQuery;
 import org.openlowcode.server.data.storage.StoredFieldSchema;
@@ -39,6 +41,36 @@ public class StoredobjectQueryHelper {
 	 * the alias for the main table for get all active query
 	 */
 	public static String maintablealiasforgetallactive = "U0";
+	/**
+	 * default number of rows brought back from the database at each round-trip
+	 * when active records are streamed
+	 * 
+	 * @since 1.14
+	 */
+	public static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+	private static int fetchsizeforstream = DEFAULT_STREAM_FETCH_SIZE;
+
+	/**
+	 * sets the number of rows brought back from the database at each round-trip
+	 * when active records are streamed. This is set by the server at startup.
+	 * 
+	 * @param fetchsize a strictly positive number of rows
+	 * @since 1.14
+	 */
+	public static void setStreamFetchSize(int fetchsize) {
+		if (fetchsize < 1)
+			throw new RuntimeException("Stream fetch size should be at least 1, got " + fetchsize);
+		fetchsizeforstream = fetchsize;
+	}
+
+	/**
+	 * @return the number of rows brought back from the database at each
+	 *         round-trip when records are streamed
+	 * @since 1.14
+	 */
+	public static int getStreamFetchSize() {
+		return fetchsizeforstream;
+	}
 
 	/**
 	 * @return the singleton query helper
@@ -90,12 +122,16 @@ public class StoredobjectQueryHelper {
 		// QueryCondition enhancedcondition = definition.extendquery(tablelist, mainobjectalias, finalcondition);
 
 		Row row = QueryHelper.getHelper().query(new SelectQuery(tablelist, finalcondition,true));
-		ArrayList<String> returnstrings = new ArrayList<String>();
-		while (row.next()) {
-			String value = row.getValue(fieldtoextract, mainobjectalias);
-			if (value!=null) if (value.length()>0) returnstrings.add(value);
-			}
-		return returnstrings.toArray(new String[0]);
+		try {
+			ArrayList<String> returnstrings = new ArrayList<String>();
+			while (row.next()) {
+				String value = row.getValue(fieldtoextract, mainobjectalias);
+				if (value!=null) if (value.length()>0) returnstrings.add(value);
+				}
+			return returnstrings.toArray(new String[0]);
+		} finally {
+			row.close();
+		}
 	}
 
 	/**
@@ -109,6 +145,90 @@ public class StoredobjectQueryHelper {
 			QueryFilter condition,
 			DataObjectDefinition<E> definition,
 			StoredobjectDefinition<E> propertydefinition) {
+		return getactivepage(condition, null, definition, propertydefinition);
+	}
+
+	/**
+	 * gets a page of active records, ordered and limited in the database
+	 * 
+	 * @param condition          condition to filter further all active records
+	 * @param page               ordering and page of the results (if null, all
+	 *                           records are brought back without ordering)
+	 * @param definition         definition of the object
+	 * @param propertydefinition definition of the stored object property for the
+	 *                           object
+	 * @return the list of objects in the page
+	 * @since 1.14
+	 */
+	public <E extends DataObject<E>> E[] getactivepage(
+			QueryFilter condition,
+			QueryPage page,
+			DataObjectDefinition<E> definition,
+			StoredobjectDefinition<E> propertydefinition) {
+		SelectQuery query = generateActiveQuery(condition, page, definition, propertydefinition);
+		TableAlias mainobjectalias = query.getTable(0);
+		Row row = QueryHelper.getHelper().query(query);
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (row.next()) {
+				returnlist.add(definition.generateFromRow(row, mainobjectalias));
+			}
+			return returnlist.toArray(definition.generateArrayTemplate());
+		} finally {
+			row.close();
+		}
+	}
+
+	/**
+	 * reads active records through a database cursor and gives each object to
+	 * the consumer as soon as it is read. Objects are not kept in memory, so that
+	 * large scans (typically exports) run in constant memory.
+	 * 
+	 * @param condition          condition to filter further all active records
+	 * @param page               ordering and page of the results (if null, all
+	 *                           records are read without ordering)
+	 * @param consumer           consumer called for each object
+	 * @param definition         definition of the object
+	 * @param propertydefinition definition of the stored object property for the
+	 *                           object
+	 * @return the number of objects read
+	 * @since 1.14
+	 */
+	public <E extends DataObject<E>> int foreachactive(
+			QueryFilter condition,
+			QueryPage page,
+			Consumer<E> consumer,
+			DataObjectDefinition<E> definition,
+			StoredobjectDefinition<E> propertydefinition) {
+		SelectQuery query = generateActiveQuery(condition, page, definition, propertydefinition);
+		query.setFetchSize(fetchsizeforstream);
+		TableAlias mainobjectalias = query.getTable(0);
+		return QueryHelper.getHelper()
+				.stream(query, (row) -> consumer.accept(definition.generateFromRow(row, mainobjectalias)));
+	}
+
+	/**
+	 * counts active records in the database without bringing them back
+	 * 
+	 * @param condition          condition to filter further all active records
+	 * @param definition         definition of the object
+	 * @param propertydefinition definition of the stored object property for the
+	 *                           object
+	 * @return the number of records brought back by the getallactive query
+	 * @since 1.14
+	 */
+	public <E extends DataObject<E>> int countallactive(
+			QueryFilter condition,
+			DataObjectDefinition<E> definition,
+			StoredobjectDefinition<E> propertydefinition) {
+		return QueryHelper.getHelper().count(generateActiveQuery(condition, null, definition, propertydefinition));
+	}
+
+	private <E extends DataObject<E>> SelectQuery generateActiveQuery(
+			QueryFilter condition,
+			QueryPage page,
+			DataObjectDefinition<E> definition,
+			StoredobjectDefinition<E> propertydefinition) {
 		NamedList<TableAlias> tablelist = new NamedList<TableAlias>();
 		if (definition == null)
 			throw new RuntimeException("definition is expected to be not null");
@@ -136,13 +256,14 @@ public class StoredobjectQueryHelper {
 		}
 
 		QueryCondition enhancedcondition = definition.extendquery(tablelist, mainobjectalias, finalcondition);
-
-		Row row = QueryHelper.getHelper().query(new SelectQuery(tablelist, enhancedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (row.next()) {
-			returnlist.add(definition.generateFromRow(row, mainobjectalias));
-		}
-		return returnlist.toArray(definition.generateArrayTemplate());
+		if (page == null)
+			return new SelectQuery(tablelist, enhancedcondition);
+		QueryCondition keysetcondition = page.getKeysetCondition(mainobjectalias);
+		if (keysetcondition != null)
+			enhancedcondition = new AndQueryCondition(enhancedcondition, keysetcondition);
+		SelectQuery pagedquery = new SelectQuery(tablelist, enhancedcondition);
+		page.apply(pagedquery, mainobjectalias);
+		return pagedquery;
 	}
 
 }
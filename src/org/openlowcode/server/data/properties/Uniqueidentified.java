@@ -143,6 +143,33 @@ public class Uniqueidentified<E extends DataObject<E>>
 
 	}
 
+	/**
+	 * persists all changes done to this object in-memory version into the
+	 * persistence layer, only if the stored object still matches the provided
+	 * condition. This allows to update an object without overwriting a change
+	 * done concurrently by another thread
+	 * 
+	 * @param object              the object to update
+	 * @param additionalcondition condition the stored object should match
+	 * @return true if the object was updated, false if the stored object does not
+	 *         match the condition
+	 * @since 1.14
+	 */
+	public boolean updateifmatches(E object, QueryCondition additionalcondition) {
+		QueryCondition objectuniversalcondition = definition.getParentObject().getUniversalQueryCondition(definition,
+				null);
+		QueryCondition uniqueidcondition = HasidQueryHelper.getIdQueryCondition(null, this.hasid.getId().getId(),
+				definition.getParentObject());
+		AndQueryCondition finalcondition = new AndQueryCondition(uniqueidcondition, additionalcondition);
+		if (objectuniversalcondition != null)
+			finalcondition.addCondition(objectuniversalcondition);
+		NamedList<DataUpdateTrigger<E>> triggers = object.getDataUpdateTriggers();
+		TriggerLauncher<E> triggerlauncher = new TriggerLauncher<E>(triggers);
+		triggerlauncher.executeTriggerList(object);
+
+		return (parentpayload.update(finalcondition) > 0);
+	}
+
 	/**
 	 * performs a similar action to the update method, except it will be registered
 	 * as a refresh, typically meaning the business data was not changed manually by
@@ -72,6 +72,15 @@ public class UpdatelogDefinition<E extends DataObject<E>>
 		this.addIndex(updateuseridindex);
 	}
 
+	/**
+	 * @return the stored field holding the last update time, to be used for
+	 *         ordering queries
+	 * @since 1.14
+	 */
+	public TimestampStoredField getUpdatetimeFieldSchema() {
+		return this.updatetime;
+	}
+
 	/**
 	 * If true, fields are forced to be shown in title
 	 */
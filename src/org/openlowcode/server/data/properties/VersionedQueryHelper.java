@@ -133,20 +133,24 @@ public class VersionedQueryHelper {
 
 		QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		boolean hasline = answer.next();
-		if (hasline) {
-			E formattedanswer = definition.generateFromRow(answer, alias);
-			if (answer.next()) {
-				String firstobject = formattedanswer.dropToString();
-				E secondillegalanswer = definition.generateFromRow(answer, alias);
-				String secondillegalanswerdrop = secondillegalanswer.dropToString();
-				throw new RuntimeException("Expected one row, got more, for object type = " + definition.getName()
-						+ ", masterid = " + masterid.getId() + " normal object " + firstobject + ", additional object "
-						+ secondillegalanswerdrop);
+		try {
+			boolean hasline = answer.next();
+			if (hasline) {
+				E formattedanswer = definition.generateFromRow(answer, alias);
+				if (answer.next()) {
+					String firstobject = formattedanswer.dropToString();
+					E secondillegalanswer = definition.generateFromRow(answer, alias);
+					String secondillegalanswerdrop = secondillegalanswer.dropToString();
+					throw new RuntimeException("Expected one row, got more, for object type = " + definition.getName()
+							+ ", masterid = " + masterid.getId() + " normal object " + firstobject + ", additional object "
+							+ secondillegalanswerdrop);
+				}
+				return formattedanswer;
+			} else {
+				return null;
 			}
-			return formattedanswer;
-		} else {
-			return null;
+		} finally {
+			answer.close();
 		}
 	}
 
@@ -194,9 +198,13 @@ public class VersionedQueryHelper {
 
 			QueryCondition extendedcondition = definition.extendquery(aliaslist, alias, finalcondition);
 			Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-			while (answer.next()) {
-				E formattedanswer = definition.generateFromRow(answer, alias);
-				results.add(formattedanswer);
+			try {
+				while (answer.next()) {
+					E formattedanswer = definition.generateFromRow(answer, alias);
+					results.add(formattedanswer);
+				}
+			} finally {
+				answer.close();
 			}
 			}
 		}
@@ -243,11 +251,15 @@ public class VersionedQueryHelper {
 				extendedcondition = new AndQueryCondition(extendedcondition, additionalquerycondition.getCondition());
 
 		Row answer = QueryHelper.getHelper().query(new SelectQuery(aliaslist, extendedcondition));
-		ArrayList<E> returnlist = new ArrayList<E>();
-		while (answer.next()) {
-			returnlist.add(definition.generateFromRow(answer, alias));
+		try {
+			ArrayList<E> returnlist = new ArrayList<E>();
+			while (answer.next()) {
+				returnlist.add(definition.generateFromRow(answer, alias));
+			}
+			return returnlist.toArray(definition.generateArrayTemplate());
+		} finally {
+			answer.close();
 		}
-		return returnlist.toArray(definition.generateArrayTemplate());
 	}
 
 }
@@ -0,0 +1,284 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+import java.util.ArrayList;
+
+import org.openlowcode.tools.misc.NamedList;
+
+/**
+ * A query calculating aggregates (SUM, COUNT, MIN, MAX) in the database,
+ * optionally grouped by some fields. This allows to get totals without
+ * bringing back all the rows of data.<br>
+ * Results are read through an AggregateRow: the fields used for grouping are
+ * read as for a select query, and the aggregates are read by their index.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class AggregateQuery {
+	/**
+	 * the aggregate functions supported
+	 *
+	 */
+	public enum Function {
+		SUM, COUNT, MIN, MAX
+	}
+
+	/**
+	 * an aggregate calculated by the query
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	public static class Aggregate {
+		private Function function;
+		private TableAlias alias;
+		private StoredFieldSchema<?> field;
+		private TableAlias secondalias;
+		private StoredFieldSchema<?> secondfield;
+
+		private Aggregate(Function function, TableAlias alias, StoredFieldSchema<?> field) {
+			this.function = function;
+			this.alias = alias;
+			this.field = field;
+		}
+
+		private Aggregate(
+				Function function,
+				TableAlias alias,
+				StoredFieldSchema<?> field,
+				TableAlias secondalias,
+				StoredFieldSchema<?> secondfield) {
+			this(function, alias, field);
+			this.secondalias = secondalias;
+			this.secondfield = secondfield;
+		}
+
+		/**
+		 * @return the aggregate function
+		 */
+		public Function getFunction() {
+			return function;
+		}
+
+		/**
+		 * @return alias of the table, or null for a count of rows
+		 */
+		public TableAlias getAlias() {
+			return alias;
+		}
+
+		/**
+		 * @return the field aggregated, or null for a count of rows
+		 */
+		public StoredFieldSchema<?> getField() {
+			return field;
+		}
+
+		/**
+		 * @return alias of the table of the second field, or null if the aggregate
+		 *         is not on a product
+		 */
+		public TableAlias getSecondAlias() {
+			return secondalias;
+		}
+
+		/**
+		 * @return the field the first field is multiplied by before aggregation, or
+		 *         null if the aggregate is not on a product
+		 */
+		public StoredFieldSchema<?> getSecondField() {
+			return secondfield;
+		}
+	}
+
+	/**
+	 * a field used to group rows
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	public static class GroupBy {
+		private TableAlias alias;
+		private StoredFieldSchema<?> field;
+
+		private GroupBy(TableAlias alias, StoredFieldSchema<?> field) {
+			this.alias = alias;
+			this.field = field;
+		}
+
+		/**
+		 * @return alias of the table
+		 */
+		public TableAlias getAlias() {
+			return alias;
+		}
+
+		/**
+		 * @return the field to group on
+		 */
+		public StoredFieldSchema<?> getField() {
+			return field;
+		}
+	}
+
+	private NamedList<TableAlias> tables;
+	private QueryCondition qd;
+	private ArrayList<Aggregate> aggregates;
+	private ArrayList<GroupBy> groupby;
+
+	/**
+	 * creates an aggregate query with no aggregate yet
+	 *
+	 * @param tables tables to put in query
+	 * @param qd     query condition on objects in the table or join
+	 */
+	public AggregateQuery(NamedList<TableAlias> tables, QueryCondition qd) {
+		this.tables = tables;
+		this.qd = qd;
+		this.aggregates = new ArrayList<Aggregate>();
+		this.groupby = new ArrayList<GroupBy>();
+	}
+
+	/**
+	 * adds an aggregate on a numeric field. The result is read as a BigDecimal.
+	 *
+	 * @param function aggregate function
+	 * @param alias    alias of the table
+	 * @param field    decimal or integer field
+	 * @return the index of the aggregate, to read the result
+	 */
+	public int addAggregate(Function function, TableAlias alias, StoredFieldSchema<?> field) {
+		if (function == null)
+			throw new RuntimeException("Aggregate function is null");
+		checkNumericField(function, alias, field);
+		aggregates.add(new Aggregate(function, alias, field));
+		return aggregates.size() - 1;
+	}
+
+	/**
+	 * adds the sum of the product of two numeric fields, that can be on different
+	 * tables of the query (equivalent to SQL SUM(A.FIELD1*B.FIELD2)). Rows where
+	 * one of the fields is null are not counted. The result is read as a
+	 * BigDecimal.
+	 *
+	 * @param alias       alias of the table of the first field
+	 * @param field       first decimal or integer field
+	 * @param secondalias alias of the table of the second field
+	 * @param secondfield second decimal or integer field
+	 * @return the index of the aggregate, to read the result
+	 */
+	public int addSumProduct(
+			TableAlias alias,
+			StoredFieldSchema<?> field,
+			TableAlias secondalias,
+			StoredFieldSchema<?> secondfield) {
+		checkNumericField(Function.SUM, alias, field);
+		checkNumericField(Function.SUM, secondalias, secondfield);
+		aggregates.add(new Aggregate(Function.SUM, alias, field, secondalias, secondfield));
+		return aggregates.size() - 1;
+	}
+
+	private void checkNumericField(Function function, TableAlias alias, StoredFieldSchema<?> field) {
+		if (alias == null)
+			throw new RuntimeException("Alias for aggregate is null");
+		if (field == null)
+			throw new RuntimeException("Field for aggregate is null");
+		if (!(field instanceof DecimalStoredField))
+			if (!(field instanceof IntegerStoredField))
+				throw new RuntimeException("Aggregate " + function + " is only supported on decimal or integer field, "
+						+ field.getName() + " is " + field.getClass().getName());
+		if (tables.lookupOnName(alias.getName()) == null)
+			throw new RuntimeException("Alias " + alias.getName() + " for aggregate is not in the query tables");
+	}
+
+	/**
+	 * adds a count of rows (equivalent to SQL COUNT(*))
+	 *
+	 * @return the index of the aggregate, to read the result
+	 */
+	public int addCount() {
+		aggregates.add(new Aggregate(Function.COUNT, null, null));
+		return aggregates.size() - 1;
+	}
+
+	/**
+	 * adds a field to group rows on. The value of the field can be read in the
+	 * result row
+	 *
+	 * @param alias alias of the table
+	 * @param field field to group on
+	 */
+	public void addGroupBy(TableAlias alias, StoredFieldSchema<?> field) {
+		if (alias == null)
+			throw new RuntimeException("Alias for group by is null");
+		if (field == null)
+			throw new RuntimeException("Field for group by is null");
+		groupby.add(new GroupBy(alias, field));
+	}
+
+	/**
+	 * @return the number of tables in the query
+	 */
+	public int getTableNumber() {
+		return tables.getSize();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getTableNumber (excluded)
+	 * @return the table alias at the given index
+	 */
+	public TableAlias getTable(int index) {
+		return tables.get(index);
+	}
+
+	/**
+	 * @return the query condition
+	 */
+	public QueryCondition getQueryCondition() {
+		return qd;
+	}
+
+	/**
+	 * @return the number of aggregates in the query
+	 */
+	public int getAggregateNumber() {
+		return aggregates.size();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getAggregateNumber
+	 *              (excluded)
+	 * @return the aggregate at the given index
+	 */
+	public Aggregate getAggregate(int index) {
+		return aggregates.get(index);
+	}
+
+	/**
+	 * @return the number of fields to group on
+	 */
+	public int getGroupByNumber() {
+		return groupby.size();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getGroupByNumber (excluded)
+	 * @return the group by field at the given index
+	 */
+	public GroupBy getGroupBy(int index) {
+		return groupby.get(index);
+	}
+}
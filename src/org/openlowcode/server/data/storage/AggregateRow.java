@@ -0,0 +1,34 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+import java.math.BigDecimal;
+
+/**
+ * A set of rows given as a result of an aggregate query. There is one row per
+ * group. Values of fields used for grouping are read through the getValue
+ * method.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public interface AggregateRow
+		extends
+		Row {
+	/**
+	 * @param index index of the aggregate as returned when adding it to the
+	 *              aggregate query
+	 * @return the value of the aggregate for the current group, or null if there
+	 *         was no value to aggregate (except for COUNT that returns 0)
+	 */
+	public BigDecimal getAggregate(int index);
+}
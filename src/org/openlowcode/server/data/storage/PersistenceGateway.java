@@ -14,6 +14,7 @@ import java.sql.Connection;
 
 import org.openlowcode.server.data.storage.derbyjdbc.DerbyJDBCStorage;
 import org.openlowcode.server.data.storage.jdbcpool.ConnectionPool;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
 import org.openlowcode.server.data.storage.mariajdbc.MariadDBJDBCStorage;
 
 
@@ -73,6 +74,7 @@ public class PersistenceGateway {
 				JDBCstorage jdbcstorage = (JDBCstorage) storage;
 			
 			Connection connection = jdbcstorage.getConnection();
+			PreparedStatementCache.invalidate(connection);
 			connectionpool.checkinandreset(connection);
 			if (getconnectionback) {
 				Connection newconnection = connectionpool.getConnectionWithRetry();
@@ -37,6 +37,25 @@ public interface PersistentStorage {
 	 */
 	public Row selectOnDB(SelectQuery sq);
 
+	/**
+	 * counts the rows the select query would return. Ordering and page of the
+	 * select query are ignored
+	 * 
+	 * @param sq select query
+	 * @return the number of rows
+	 * @since 1.14
+	 */
+	public int countOnDB(SelectQuery sq);
+
+	/**
+	 * calculates aggregates (sum, count, min, max) in the persistent storage
+	 * 
+	 * @param aq aggregate query
+	 * @return a set of rows, one per group
+	 * @since 1.14
+	 */
+	public AggregateRow aggregateOnDB(AggregateQuery aq);
+
 	/**
 	 * Insert a single row in the persistent storage
 	 * 
@@ -69,8 +88,10 @@ public interface PersistentStorage {
 	 * updates a single line in the database
 	 * 
 	 * @param uq query to update a single row
+	 * @return the number of rows updated (0 if no row matches the condition of
+	 *         the query)
 	 */
-	public void UpdateOnDB(UpdateQuery uq);
+	public int UpdateOnDB(UpdateQuery uq);
 
 	/**
 	 * deletes a single line in the database
@@ -235,6 +256,52 @@ public interface PersistentStorage {
 	 */
 	public int getNextValue(String sequencename);
 
+	/**
+	 * reserves a block of consecutive values from the sequence
+	 * 
+	 * @param sequencename name of the sequence
+	 * @param blocksize    number of values to reserve
+	 * @return the first value of the block, the block ending at this value plus
+	 *         block size (excluded)
+	 * @since 1.14
+	 */
+	public int getNextValues(String sequencename, int blocksize);
+
+	/**
+	 * @return true if the database supports native sequences
+	 * @since 1.14
+	 */
+	public boolean isNativeSequenceSupported();
+
+	/**
+	 * Checks if a native sequence already exists
+	 * 
+	 * @param sequencename name of the sequence
+	 * @return true if the native sequence exists
+	 * @since 1.14
+	 */
+	public boolean isNativeSequenceExisting(String sequencename);
+
+	/**
+	 * creates a native sequence in the database
+	 * 
+	 * @param sequencename name of the sequence
+	 * @param firstvalue   first value of the sequence
+	 * @param increment    increment between two values of the sequence (a value
+	 *                     is the start of a block of this size)
+	 * @since 1.14
+	 */
+	public void createNativeSequence(String sequencename, int firstvalue, int increment);
+
+	/**
+	 * gets the next value from the native sequence
+	 * 
+	 * @param sequencename name of the sequence
+	 * @return the next value
+	 * @since 1.14
+	 */
+	public int getNextNativeValue(String sequencename);
+
 	/**
 	 * close all connections of the persistence layer
 	 */
@@ -0,0 +1,201 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+import java.util.ArrayList;
+
+/**
+ * Specification of a page of results for a query on a data object: ordering on
+ * fields of the main table, and either an offset or a keyset start. Keyset
+ * pagination (rows after the last value of a unique field read in the previous
+ * page) is more efficient than offset on large tables, as the database does not
+ * read the skipped rows. When other ordering fields are specified, the keyset
+ * start also gives the values of those fields on the last row, and the keyset
+ * field is used as tie-breaker.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class QueryPage {
+	private int offset;
+	private int pagesize;
+	private ArrayList<StoredFieldSchema<?>> orderfields;
+	private ArrayList<Boolean> orderdescending;
+	private StoredFieldSchema<?> keysetfield;
+	private Object keysetlastvalue;
+	private boolean keysetdescending;
+	private Object[] lastordervalues;
+
+	/**
+	 * creates a query page
+	 *
+	 * @param offset   number of rows to skip
+	 * @param pagesize maximum number of rows in the page, -1 for no limit
+	 */
+	public QueryPage(int offset, int pagesize) {
+		if (offset < 0)
+			throw new RuntimeException("Offset cannot be negative, got " + offset);
+		this.offset = offset;
+		this.pagesize = pagesize;
+		this.orderfields = new ArrayList<StoredFieldSchema<?>>();
+		this.orderdescending = new ArrayList<Boolean>();
+	}
+
+	/**
+	 * @param pagesize maximum number of rows in the page
+	 * @return the first page of results
+	 */
+	public static QueryPage first(int pagesize) {
+		return new QueryPage(0, pagesize);
+	}
+
+	/**
+	 * @return a query page with no limit, used to only specify ordering
+	 */
+	public static QueryPage all() {
+		return new QueryPage(0, -1);
+	}
+
+	/**
+	 * adds a field of the main table to the ordering
+	 *
+	 * @param field      the field
+	 * @param descending true for descending order
+	 */
+	public void addOrderBy(StoredFieldSchema<?> field, boolean descending) {
+		this.orderfields.add(field);
+		this.orderdescending.add(Boolean.valueOf(descending));
+	}
+
+	/**
+	 * sets a keyset start: the page will start after the last row of the
+	 * previous page, and the field is used as last ordering criteria. The field
+	 * should be unique (typically the id or the number) for the pages to be
+	 * consistent. If ordering fields were added, the values of those fields on
+	 * the last row of the previous page should be given in the same order, and
+	 * should not be null.
+	 *
+	 * @param field           a unique field of the main table
+	 * @param lastvalue       value of the field for the last row of the previous
+	 *                        page (null for the first page)
+	 * @param descending      true if pages are in descending order of the field
+	 * @param lastordervalues values of the ordering fields for the last row of the
+	 *                        previous page
+	 */
+	public <E extends Object> void setKeysetStart(
+			StoredFieldSchema<E> field,
+			E lastvalue,
+			boolean descending,
+			Object... lastordervalues) {
+		if (lastvalue != null) {
+			if (lastordervalues.length != orderfields.size())
+				throw new RuntimeException("Keyset start after " + lastvalue + " has " + lastordervalues.length
+						+ " values for ordering fields, but the page has " + orderfields.size() + " ordering fields");
+			for (int i = 0; i < lastordervalues.length; i++)
+				if (lastordervalues[i] == null)
+					throw new RuntimeException("Keyset start after " + lastvalue
+							+ " has a null value for ordering field " + orderfields.get(i).getName());
+		}
+		this.keysetfield = field;
+		this.keysetlastvalue = lastvalue;
+		this.keysetdescending = descending;
+		this.lastordervalues = lastordervalues;
+	}
+
+	/**
+	 * @return the query page for the following page using offset
+	 */
+	public QueryPage next() {
+		if (pagesize < 0)
+			throw new RuntimeException("Query page has no limit, there is no next page");
+		QueryPage next = new QueryPage(offset + pagesize, pagesize);
+		next.orderfields.addAll(orderfields);
+		next.orderdescending.addAll(orderdescending);
+		return next;
+	}
+
+	/**
+	 * @return the number of rows to skip
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the maximum number of rows in the page, -1 if there is no limit
+	 */
+	public int getPageSize() {
+		return pagesize;
+	}
+
+	/**
+	 * applies ordering and page limits to the select query
+	 *
+	 * @param query     the select query
+	 * @param mainalias alias of the main table
+	 */
+	public void apply(SelectQuery query, TableAlias mainalias) {
+		for (int i = 0; i < orderfields.size(); i++)
+			query.addOrderBy(mainalias, orderfields.get(i), orderdescending.get(i).booleanValue());
+		if (keysetfield != null)
+			query.addOrderBy(mainalias, keysetfield, keysetdescending);
+		query.setPage(offset, pagesize);
+	}
+
+	/**
+	 * gives the condition selecting the rows after the keyset start, in the order
+	 * of the page. With ordering fields o1...on and keyset field k, this is the
+	 * row-value comparison (o1,...,on,k) &gt; (v1,...,vn,kv) written as (o1 &gt;
+	 * v1) OR (o1 = v1 AND o2 &gt; v2) OR ... OR (o1 = v1 AND ... AND on = vn AND k
+	 * &gt; kv), each comparison following the direction of its field.
+	 * 
+	 * @param mainalias alias of the main table
+	 * @return the condition for the keyset start, to be added to the query
+	 *         condition, or null if there is no keyset start
+	 */
+	public QueryCondition getKeysetCondition(TableAlias mainalias) {
+		if ((keysetfield == null) || (keysetlastvalue == null))
+			return null;
+		QueryCondition keysetcondition = getAfterCondition(mainalias, keysetfield, keysetlastvalue, keysetdescending);
+		if (orderfields.size() == 0)
+			return keysetcondition;
+		OrQueryCondition aftercondition = new OrQueryCondition();
+		for (int i = 0; i <= orderfields.size(); i++) {
+			AndQueryCondition branch = new AndQueryCondition();
+			for (int j = 0; j < i; j++)
+				branch.addCondition(getEqualCondition(mainalias, orderfields.get(j), lastordervalues[j]));
+			if (i < orderfields.size()) {
+				branch.addCondition(getAfterCondition(mainalias, orderfields.get(i), lastordervalues[i],
+						orderdescending.get(i).booleanValue()));
+			} else {
+				branch.addCondition(keysetcondition);
+			}
+			aftercondition.addCondition(branch);
+		}
+		return aftercondition;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static QueryCondition getAfterCondition(
+			TableAlias mainalias,
+			StoredFieldSchema<?> field,
+			Object lastvalue,
+			boolean descending) {
+		QueryOperator operator = (descending ? new QueryOperatorSmallerThan() : new QueryOperatorGreaterThan());
+		return new SimpleQueryCondition(mainalias, (StoredFieldSchema) field, operator, lastvalue);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static QueryCondition getEqualCondition(TableAlias mainalias, StoredFieldSchema<?> field, Object lastvalue) {
+		return new SimpleQueryCondition(mainalias, (StoredFieldSchema) field, new QueryOperatorEqual(), lastvalue);
+	}
+}
@@ -0,0 +1,323 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+import java.util.ArrayList;
+
+import org.openlowcode.server.data.storage.TableAlias.FieldSelectionAlias;
+
+/**
+ * The structure of a query, ignoring the values of the payload. Two queries
+ * with the same shape generate the same SQL text, and only differ by the values
+ * set in the prepared statement. A query shape can be used as a key to cache
+ * the SQL text.<br>
+ * The shape is a list of tokens (names of tables, aliases and fields, operator
+ * classes, null payloads and structure of AND / OR conditions). Table schemas
+ * selecting all fields are compared by identity.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class QueryShape
+		implements
+		QueryCondition.Visitor {
+	private static final String SELECT = "#SELECT";
+	private static final String UPDATE = "#UPDATE";
+	private static final String DELETE = "#DELETE";
+	private static final String INSERT = "#INSERT";
+	private static final String WHERE = "#WHERE";
+	private static final String AND = "#AND";
+	private static final String OR = "#OR";
+	private static final String JOIN = "#JOIN";
+	private static final String SIMPLE = "#SIMPLE";
+	private static final String ALWAYS = "#ALWAYS";
+	private static final String NEVER = "#NEVER";
+	private static final String ALLFIELDS = "#ALLFIELDS";
+	private static final String NULL = "#NULL";
+	private static final String ORDERBY = "#ORDERBY";
+	private static final String COUNT = "#COUNT";
+	private static final String AGGREGATE = "#AGGREGATE";
+
+	private ArrayList<Object> tokens;
+	private int hash;
+
+	private QueryShape() {
+		this.tokens = new ArrayList<Object>(32);
+		this.hash = 1;
+	}
+
+	/**
+	 * @param sq a select query
+	 * @return the shape of the select query
+	 */
+	public static QueryShape forSelect(SelectQuery sq) {
+		QueryShape shape = new QueryShape();
+		shape.add(SELECT);
+		shape.add(Boolean.valueOf(sq.isDistinctValues()));
+		for (int i = 0; i < sq.getTableNumber(); i++)
+			shape.addAlias(sq.getTable(i));
+		shape.addWhere(sq.getQueryCondition());
+		shape.add(ORDERBY);
+		shape.add(Integer.valueOf(sq.getOrderByNumber()));
+		for (int i = 0; i < sq.getOrderByNumber(); i++) {
+			SelectQuery.OrderBy orderby = sq.getOrderBy(i);
+			shape.add(orderby.getAlias() != null ? orderby.getAlias().getName() : null);
+			shape.add(orderby.getField().getName());
+			shape.add(Boolean.valueOf(orderby.isDescending()));
+		}
+		shape.add(Boolean.valueOf(sq.hasOffset()));
+		shape.add(Boolean.valueOf(sq.hasLimit()));
+		return shape;
+	}
+
+	/**
+	 * @param sq a select query
+	 * @return the shape of the query counting the rows of the select query
+	 *         (ordering and page are ignored)
+	 */
+	public static QueryShape forCount(SelectQuery sq) {
+		QueryShape shape = new QueryShape();
+		shape.add(COUNT);
+		shape.add(Boolean.valueOf(sq.isDistinctValues()));
+		for (int i = 0; i < sq.getTableNumber(); i++)
+			shape.addAlias(sq.getTable(i));
+		shape.addWhere(sq.getQueryCondition());
+		return shape;
+	}
+
+	/**
+	 * @param aq an aggregate query
+	 * @return the shape of the aggregate query
+	 * @since 1.14
+	 */
+	public static QueryShape forAggregate(AggregateQuery aq) {
+		QueryShape shape = new QueryShape();
+		shape.add(AGGREGATE);
+		for (int i = 0; i < aq.getTableNumber(); i++) {
+			TableAlias alias = aq.getTable(i);
+			shape.add(alias.getName());
+			shape.addTable(alias.getTable());
+		}
+		shape.add(Integer.valueOf(aq.getAggregateNumber()));
+		for (int i = 0; i < aq.getAggregateNumber(); i++) {
+			AggregateQuery.Aggregate aggregate = aq.getAggregate(i);
+			shape.add(aggregate.getFunction().toString());
+			shape.add(aggregate.getAlias() != null ? aggregate.getAlias().getName() : null);
+			shape.add(aggregate.getField() != null ? aggregate.getField().getName() : null);
+			shape.add(aggregate.getSecondAlias() != null ? aggregate.getSecondAlias().getName() : null);
+			shape.add(aggregate.getSecondField() != null ? aggregate.getSecondField().getName() : null);
+		}
+		shape.add(Integer.valueOf(aq.getGroupByNumber()));
+		for (int i = 0; i < aq.getGroupByNumber(); i++) {
+			AggregateQuery.GroupBy groupby = aq.getGroupBy(i);
+			shape.add(groupby.getAlias().getName());
+			shape.add(groupby.getField().getName());
+		}
+		shape.addWhere(aq.getQueryCondition());
+		return shape;
+	}
+
+	/**
+	 * @param table     the table updated (all fields are updated)
+	 * @param condition condition to select the rows to update
+	 * @return the shape of the update query
+	 */
+	public static QueryShape forUpdate(StoredTableSchema table, QueryCondition condition) {
+		QueryShape shape = new QueryShape();
+		shape.add(UPDATE);
+		shape.addTable(table);
+		shape.addWhere(condition);
+		return shape;
+	}
+
+	/**
+	 * @param table     the table to delete rows from
+	 * @param condition condition to select the rows to delete
+	 * @return the shape of the delete query
+	 */
+	public static QueryShape forDelete(StoredTableSchema table, QueryCondition condition) {
+		QueryShape shape = new QueryShape();
+		shape.add(DELETE);
+		shape.addTable(table);
+		shape.addWhere(condition);
+		return shape;
+	}
+
+	/**
+	 * @param table the table to insert a row in (all fields are inserted)
+	 * @return the shape of the insert query
+	 */
+	public static QueryShape forInsert(StoredTableSchema table) {
+		QueryShape shape = new QueryShape();
+		shape.add(INSERT);
+		shape.addTable(table);
+		return shape;
+	}
+
+	/**
+	 * @param table the table to insert rows in (all fields are inserted)
+	 * @param rows  number of rows inserted by the statement
+	 * @return the shape of the multi-row insert query
+	 * @since 1.14
+	 */
+	public static QueryShape forInsert(StoredTableSchema table, int rows) {
+		QueryShape shape = forInsert(table);
+		if (rows != 1)
+			shape.add(Integer.valueOf(rows));
+		return shape;
+	}
+
+	private void add(Object token) {
+		tokens.add(token);
+		int tokenhash = 0;
+		if (token != null) {
+			if (isValueToken(token)) {
+				tokenhash = token.hashCode();
+			} else {
+				tokenhash = System.identityHashCode(token);
+			}
+		}
+		hash = 31 * hash + tokenhash;
+	}
+
+	private static boolean isValueToken(Object token) {
+		if (token instanceof String)
+			return true;
+		if (token instanceof Integer)
+			return true;
+		if (token instanceof Boolean)
+			return true;
+		return false;
+	}
+
+	private void addTable(StoredTableSchema table) {
+		add(table);
+		add(table.getName());
+		add(Integer.valueOf(table.getStoredFieldNumber()));
+	}
+
+	@SuppressWarnings("rawtypes")
+	private void addAlias(TableAlias alias) {
+		add(alias.getName());
+		addTable(alias.getTable());
+		if (alias.queryAllFields()) {
+			add(ALLFIELDS);
+		} else {
+			FieldSelectionAlias[] selection = alias.getFieldSelection();
+			add(Integer.valueOf(selection.length));
+			for (int i = 0; i < selection.length; i++) {
+				add(selection[i].getField() != null ? selection[i].getField().getName() : null);
+				add(selection[i].getAlias());
+			}
+		}
+	}
+
+	private void addWhere(QueryCondition condition) {
+		if (condition != null)
+			if (condition.isSignificant(0)) {
+				add(WHERE);
+				condition.accept(this);
+			}
+	}
+
+	@Override
+	public <E> void visit(SimpleQueryCondition<E> simplequerycondition) {
+		add(SIMPLE);
+		add(simplequerycondition.getAlias() != null ? simplequerycondition.getAlias().getName() : null);
+		add(simplequerycondition.getField().getName());
+		add(simplequerycondition.getOperator().getClass());
+		if (simplequerycondition.getPayload() == null)
+			add(NULL);
+	}
+
+	@Override
+	public <E> void visit(JoinQueryCondition<E> joinquerycondition) {
+		add(JOIN);
+		add(joinquerycondition.getMaintable().getName());
+		add(joinquerycondition.getMaintablefield().getName());
+		add(joinquerycondition.getJoinqueryoperator().getClass());
+		add(joinquerycondition.getSidetable().getName());
+		add(joinquerycondition.getSidetablefield().getName());
+	}
+
+	@Override
+	public void visit(AndQueryCondition andquerycondition) {
+		QueryCondition[] conditions = andquerycondition.returnAllConditions();
+		add(AND);
+		add(Integer.valueOf(conditions.length));
+		for (int i = 0; i < conditions.length; i++)
+			if (conditions[i] != null) {
+				conditions[i].accept(this);
+			} else {
+				add(null);
+			}
+	}
+
+	@Override
+	public void visit(OrQueryCondition orquerycondition) {
+		QueryCondition[] conditions = orquerycondition.returnAllConditions();
+		add(OR);
+		add(Integer.valueOf(conditions.length));
+		for (int i = 0; i < conditions.length; i++)
+			if (conditions[i] != null) {
+				conditions[i].accept(this);
+			} else {
+				add(null);
+			}
+	}
+
+	@Override
+	public void visit(QueryConditionAlways always) {
+		add(ALWAYS);
+	}
+
+	@Override
+	public void visit(QueryConditionNever never) {
+		add(NEVER);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof QueryShape))
+			return false;
+		QueryShape other = (QueryShape) obj;
+		if (other.hash != this.hash)
+			return false;
+		if (other.tokens.size() != this.tokens.size())
+			return false;
+		for (int i = 0; i < tokens.size(); i++) {
+			Object token = tokens.get(i);
+			Object othertoken = other.tokens.get(i);
+			if (token == othertoken)
+				continue;
+			if (token == null)
+				return false;
+			if (!isValueToken(token))
+				return false;
+			if (!token.equals(othertoken))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "QUERYSHAPE[hash=" + hash + ",tokens=" + tokens.size() + "]";
+	}
+}
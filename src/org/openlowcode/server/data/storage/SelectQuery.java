@@ -10,6 +10,8 @@
 
 package org.openlowcode.server.data.storage;
 
+import java.util.ArrayList;
+
 import org.openlowcode.tools.misc.NamedList;
 
 /**
@@ -24,6 +26,59 @@ public class SelectQuery {
 	private NamedList<TableAlias> tables;
 	private QueryCondition qd;
 	private boolean distinctvalues;
+	private ArrayList<OrderBy> ordering;
+	private int offset;
+	private int limit;
+	private int fetchsize;
+
+	/**
+	 * An element of the ordering of the query
+	 * 
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	public static class OrderBy {
+		private TableAlias alias;
+		private StoredFieldSchema<?> field;
+		private boolean descending;
+
+		/**
+		 * @param alias      alias of the table
+		 * @param field      field to order on
+		 * @param descending true for descending order, false for ascending order
+		 */
+		public OrderBy(TableAlias alias, StoredFieldSchema<?> field, boolean descending) {
+			if (alias == null)
+				throw new RuntimeException("Alias for order by is null");
+			if (field == null)
+				throw new RuntimeException("Field for order by is null");
+			this.alias = alias;
+			this.field = field;
+			this.descending = descending;
+		}
+
+		/**
+		 * @return alias of the table
+		 */
+		public TableAlias getAlias() {
+			return alias;
+		}
+
+		/**
+		 * @return the field to order on
+		 */
+		public StoredFieldSchema<?> getField() {
+			return field;
+		}
+
+		/**
+		 * @return true for descending order, false for ascending order
+		 */
+		public boolean isDescending() {
+			return descending;
+		}
+	}
 
 	/**
 	 * @param tables tables to put in query
@@ -44,6 +99,120 @@ public class SelectQuery {
 		this.tables = tables;
 		this.qd = qd;
 		this.distinctvalues = distinctvalues;
+		this.ordering = new ArrayList<OrderBy>();
+		this.offset = 0;
+		this.limit = -1;
+		this.fetchsize = 0;
+	}
+
+	/**
+	 * adds a field to the ordering of the query. Fields are used in the order
+	 * they are added
+	 * 
+	 * @param alias      alias of the table
+	 * @param field      field to order on
+	 * @param descending true for descending order, false for ascending order
+	 * @since 1.14
+	 */
+	public void addOrderBy(TableAlias alias, StoredFieldSchema<?> field, boolean descending) {
+		this.ordering.add(new OrderBy(alias, field, descending));
+	}
+
+	/**
+	 * @return the number of fields in the ordering of the query
+	 * @since 1.14
+	 */
+	public int getOrderByNumber() {
+		return ordering.size();
+	}
+
+	/**
+	 * @param index a number between 0 (included) and getOrderByNumber (excluded)
+	 * @return the ordering element at the given index
+	 * @since 1.14
+	 */
+	public OrderBy getOrderBy(int index) {
+		return ordering.get(index);
+	}
+
+	/**
+	 * restricts the query to a page of results. An ordering should be specified
+	 * for the pages to be consistent
+	 * 
+	 * @param offset number of rows to skip (0 for the first page)
+	 * @param limit  maximum number of rows to bring back, -1 for no limit
+	 * @since 1.14
+	 */
+	public void setPage(int offset, int limit) {
+		if (offset < 0)
+			throw new RuntimeException("Offset cannot be negative, got " + offset);
+		this.offset = offset;
+		this.limit = limit;
+	}
+
+	/**
+	 * @return the number of rows to skip, 0 if query starts at the first row
+	 * @since 1.14
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the maximum number of rows to bring back, -1 if there is no limit
+	 * @since 1.14
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return true if the query skips rows at the start
+	 * @since 1.14
+	 */
+	public boolean hasOffset() {
+		return offset > 0;
+	}
+
+	/**
+	 * @return true if the query has a maximum number of rows
+	 * @since 1.14
+	 */
+	public boolean hasLimit() {
+		return limit >= 0;
+	}
+
+	/**
+	 * sets the query to be read as a stream: the result is read through a
+	 * forward-only, read-only cursor bringing rows from the database by batches
+	 * of the given size, so that large scans run in constant memory. Rows should
+	 * be read until the end or the row closed.
+	 * 
+	 * @param fetchsize number of rows brought back from the database at each
+	 *                  round-trip, 0 for the driver default (no streaming)
+	 * @since 1.14
+	 */
+	public void setFetchSize(int fetchsize) {
+		if (fetchsize < 0)
+			throw new RuntimeException("Fetch size cannot be negative, got " + fetchsize);
+		this.fetchsize = fetchsize;
+	}
+
+	/**
+	 * @return the number of rows brought back at each round-trip, 0 for the
+	 *         driver default
+	 * @since 1.14
+	 */
+	public int getFetchSize() {
+		return fetchsize;
+	}
+
+	/**
+	 * @return true if the result of the query should be streamed
+	 * @since 1.14
+	 */
+	public boolean isStreamed() {
+		return fetchsize > 0;
 	}
 
 	/**
@@ -28,6 +28,7 @@ public class StoredTableSchema extends Named {
 	 * @param name a unique name of an object for the application
 	 */
 	private NamedList<StoredTableIndex> indexlist;
+	private volatile Runnable[] changelisteners = new Runnable[0];
 
 	/**
 	 * creates a blank table schema
@@ -39,6 +40,36 @@ public class StoredTableSchema extends Named {
 		indexlist = new NamedList<StoredTableIndex>();
 	}
 
+	/**
+	 * adds a listener called each time data is inserted, updated or deleted in
+	 * this table through data objects. This allows buffers of data to be
+	 * refreshed only when the data they contain changes. Listeners are called
+	 * after the change is committed and the storage is given back, and should be
+	 * fast
+	 * 
+	 * @param listener the listener
+	 * @since 1.14
+	 */
+	public synchronized void addChangeListener(Runnable listener) {
+		if (listener == null)
+			throw new RuntimeException("Change listener cannot be null for table " + this.getName());
+		Runnable[] newlisteners = new Runnable[changelisteners.length + 1];
+		System.arraycopy(changelisteners, 0, newlisteners, 0, changelisteners.length);
+		newlisteners[changelisteners.length] = listener;
+		this.changelisteners = newlisteners;
+	}
+
+	/**
+	 * notifies all listeners that data changed in this table
+	 * 
+	 * @since 1.14
+	 */
+	public void notifyChange() {
+		Runnable[] listeners = this.changelisteners;
+		for (int i = 0; i < listeners.length; i++)
+			listeners[i].run();
+	}
+
 	/**
 	 * @return the number of indexes
 	 */
@@ -140,4 +140,31 @@ public class DerbyJDBCStorage
 
 	}
 
+	@Override
+	public boolean isNativeSequenceSupported() {
+		return true;
+	}
+
+	@Override
+	public boolean isNativeSequenceExisting(String sequencename) {
+		Integer result = executeIntegerQuery("SELECT COUNT(*) FROM SYS.SYSSEQUENCES WHERE SEQUENCENAME = ?",
+				getNativeSequenceName(sequencename));
+		return ((result != null) && (result.intValue() > 0));
+	}
+
+	@Override
+	public void createNativeSequence(String sequencename, int firstvalue, int increment) {
+		executeDefinitionStatement("CREATE SEQUENCE " + getNativeSequenceName(sequencename) + " AS INTEGER START WITH "
+				+ firstvalue + " INCREMENT BY " + increment + " NO CYCLE");
+	}
+
+	@Override
+	public int getNextNativeValue(String sequencename) {
+		String stringquery = "VALUES NEXT VALUE FOR " + getNativeSequenceName(sequencename);
+		Integer result = executeIntegerQuery(stringquery, null);
+		if (result == null)
+			throw new RuntimeException("No value returned for native sequence " + sequencename);
+		return result.intValue();
+	}
+
 }
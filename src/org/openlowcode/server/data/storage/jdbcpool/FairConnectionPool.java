@@ -0,0 +1,536 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage.jdbcpool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A connection pool that does not poll. Free connections are kept in a
+ * concurrent deque (the most recently used connection is given first, the
+ * oldest idle connection is evicted first). Threads that cannot get a
+ * connection are parked on a FIFO queue, and a connection that is checked-in
+ * is handed over directly to the first thread waiting.<br>
+ * A housekeeping daemon validates and evicts idle connections above the
+ * minimum number. Counters on waiting time and occupancy are available for
+ * monitoring.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class FairConnectionPool implements ConnectionPool {
+	private static Logger logger = Logger.getLogger(FairConnectionPool.class.getCanonicalName());
+	private static final long TIMEOUT = 50000; // 50s in ms
+	private static final int VALIDATION_TIMEOUT = 5; // in seconds, as per JDBC isValid
+	private static final long VALIDATION_AFTER_IDLE = 30000; // 30s in ms
+	private static final long HOUSEKEEPING_FREQUENCY = 30000; // 30s in ms
+	private static final Object CANCELLED = new Object();
+
+	/**
+	 * a connection managed by the pool, with its status
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 *
+	 */
+	private class PooledConnection {
+		private Connection connection;
+		private volatile Thread bookingthread;
+		private volatile boolean sick = false;
+		private volatile long lastused;
+		private final AtomicBoolean inuse = new AtomicBoolean(false);
+
+		/**
+		 * @param connection a connection freshly created
+		 */
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.lastused = System.currentTimeMillis();
+		}
+
+		/**
+		 * recreates the connection if it was marked as sick or if it is not valid
+		 * anymore after a long idle time
+		 *
+		 * @throws SQLException if the connection could not be recreated
+		 */
+		private void cure() throws SQLException {
+			if (!sick)
+				if (System.currentTimeMillis() - lastused > VALIDATION_AFTER_IDLE)
+					if (!isValid())
+						sick = true;
+			if (sick) {
+				logger.warning("Resetting connection after SQL Exception or failed validation");
+				closeQuietly();
+				connectionsbyobject.remove(connection);
+				this.connection = createConnection();
+				connectionsbyobject.put(connection, this);
+				this.sick = false;
+				destroyed.increment();
+			}
+		}
+
+		/**
+		 * @return true if the connection answers in the validation timeout
+		 */
+		private boolean isValid() {
+			try {
+				return connection.isValid(VALIDATION_TIMEOUT);
+			} catch (SQLException e) {
+				logger.warning("Error during validation of connection " + e.getSQLState() + "/" + e.getErrorCode()
+						+ "/" + e.getMessage());
+				return false;
+			}
+		}
+
+		/**
+		 * closes the connection, only logging errors
+		 */
+		private void closeQuietly() {
+			PreparedStatementCache.invalidate(connection);
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				logger.warning("  **** Error during closing of SQL Connection " + e.getSQLState() + "/"
+						+ e.getErrorCode() + "/" + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * a thread waiting for a connection. The slot is set either to the connection
+	 * handed over, or to the cancelled marker if the thread stopped waiting.
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 *
+	 */
+	private static class Waiter {
+		private final Thread thread = Thread.currentThread();
+		private final AtomicReference<Object> slot = new AtomicReference<Object>();
+	}
+
+	private int minnumber;
+	private int maxnumber;
+	private long idletimeout;
+	private String url;
+	private String user;
+	private String password;
+	private final ConcurrentLinkedDeque<PooledConnection> freeconnections;
+	private final ConcurrentLinkedQueue<Waiter> waiters;
+	private final ConcurrentHashMap<Connection, PooledConnection> connectionsbyobject;
+	private final AtomicInteger totalconnections;
+	private volatile boolean closed = false;
+
+	private final LongAdder checkouts = new LongAdder();
+	private final LongAdder checkoutswithwait = new LongAdder();
+	private final LongAdder totalwaitingtimems = new LongAdder();
+	private final AtomicLong maxwaitingtimems = new AtomicLong();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder destroyed = new LongAdder();
+
+	/**
+	 * Creates a fair connection pool for a JDBC database
+	 *
+	 * @param url         URL of the database
+	 * @param user        user to create the connection (null for embedded
+	 *                    database)
+	 * @param password    password to create the connection
+	 * @param minnumber   minimum number of connections in the pool
+	 * @param maxnumber   maximum number of connections in the pool
+	 * @param idletimeout time in ms after which a connection that has not been
+	 *                    used is closed if there are more than the minimum number
+	 *                    of connections
+	 * @throws SQLException SQL Exception if any error is encountered
+	 */
+	public FairConnectionPool(String url, String user, String password, int minnumber, int maxnumber,
+			long idletimeout) throws SQLException {
+		if (maxnumber < 1)
+			throw new RuntimeException("Maximum number of connections should be at least 1, got " + maxnumber);
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minnumber = Math.min(minnumber, maxnumber);
+		this.maxnumber = maxnumber;
+		this.idletimeout = idletimeout;
+		this.freeconnections = new ConcurrentLinkedDeque<PooledConnection>();
+		this.waiters = new ConcurrentLinkedQueue<Waiter>();
+		this.connectionsbyobject = new ConcurrentHashMap<Connection, PooledConnection>();
+		this.totalconnections = new AtomicInteger(0);
+		for (int i = 0; i < this.minnumber; i++) {
+			totalconnections.incrementAndGet();
+			PooledConnection pooledconnection = new PooledConnection(createConnection());
+			connectionsbyobject.put(pooledconnection.connection, pooledconnection);
+			freeconnections.offerFirst(pooledconnection);
+		}
+		logger.info("initiated fair connection pool with database url = " + url + ", minnumber = " + this.minnumber
+				+ ", maxnumber = " + maxnumber + ", idle timeout = " + idletimeout + "ms");
+		Thread housekeeper = new Thread(() -> housekeeping(), "OLcConnectionPoolHousekeeper");
+		housekeeper.setDaemon(true);
+		housekeeper.start();
+	}
+
+	private Connection createConnection() throws SQLException {
+		Connection connection;
+		if (user == null) {
+			connection = DriverManager.getConnection(url);
+		} else {
+			connection = DriverManager.getConnection(url, user, password);
+		}
+		if (connection == null)
+			throw new SQLException("Null connection with user = " + user + " for url = " + url);
+		created.increment();
+		logger.info("created connection for url = " + url + (user != null ? " with user = " + user : "")
+				+ ", total connections = " + totalconnections.get());
+		return connection;
+	}
+
+	@Override
+	public Connection getConnectionWithRetry() throws SQLException, InterruptedException {
+		long starttime = System.currentTimeMillis();
+		PooledConnection pooledconnection = null;
+		// fast path: no thread is waiting, so taking a free connection is fair
+		if (waiters.isEmpty())
+			pooledconnection = freeconnections.pollFirst();
+		if (pooledconnection == null)
+			pooledconnection = createIfAllowed();
+		if (pooledconnection == null) {
+			pooledconnection = waitForConnection(starttime + TIMEOUT);
+			if (pooledconnection == null) {
+				timeouts.increment();
+				logger.warning("could not book connection for Thread " + Thread.currentThread().getId() + " after "
+						+ TIMEOUT + "ms, " + getStatistics());
+				return null;
+			}
+			long waitingtime = System.currentTimeMillis() - starttime;
+			checkoutswithwait.increment();
+			totalwaitingtimems.add(waitingtime);
+			maxwaitingtimems.accumulateAndGet(waitingtime, Math::max);
+		}
+		pooledconnection.inuse.set(true);
+		pooledconnection.bookingthread = Thread.currentThread();
+		try {
+			pooledconnection.cure();
+		} catch (SQLException e) {
+			discard(pooledconnection);
+			throw e;
+		}
+		checkouts.increment();
+		logger.fine("connection assigned to Thread " + Thread.currentThread().getId());
+		return pooledconnection.connection;
+	}
+
+	/**
+	 * creates a new connection if the maximum number of connections is not
+	 * reached
+	 *
+	 * @return the new connection, or null if the pool is full
+	 * @throws SQLException if the connection could not be created
+	 */
+	private PooledConnection createIfAllowed() throws SQLException {
+		while (true) {
+			int current = totalconnections.get();
+			if (current >= maxnumber)
+				return null;
+			if (totalconnections.compareAndSet(current, current + 1))
+				break;
+		}
+		try {
+			PooledConnection pooledconnection = new PooledConnection(createConnection());
+			connectionsbyobject.put(pooledconnection.connection, pooledconnection);
+			return pooledconnection;
+		} catch (SQLException | RuntimeException e) {
+			totalconnections.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * parks the current thread at the end of the waiting queue until a connection
+	 * is handed over or the deadline is reached
+	 *
+	 * @param deadline deadline in ms
+	 * @return a connection, or null if deadline is reached
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	private PooledConnection waitForConnection(long deadline) throws InterruptedException {
+		Waiter waiter = new Waiter();
+		waiters.offer(waiter);
+		// a connection may have been freed between the first attempt and the queuing
+		PooledConnection free = freeconnections.pollFirst();
+		if (free != null)
+			if (!waiter.slot.compareAndSet(null, free))
+				handover(free);
+		while (true) {
+			Object slotcontent = waiter.slot.get();
+			if (slotcontent instanceof PooledConnection)
+				return (PooledConnection) slotcontent;
+			long remaining = deadline - System.currentTimeMillis();
+			boolean interrupted = Thread.interrupted();
+			if ((remaining <= 0) || (interrupted)) {
+				if (waiter.slot.compareAndSet(null, CANCELLED)) {
+					waiters.remove(waiter);
+					if (interrupted)
+						throw new InterruptedException("Interrupted while waiting for a database connection");
+					return null;
+				}
+				// connection was handed over at the same time
+				if (interrupted)
+					Thread.currentThread().interrupt();
+				return (PooledConnection) waiter.slot.get();
+			}
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remaining));
+		}
+	}
+
+	/**
+	 * gives the connection to the first thread waiting, or puts it back in the
+	 * free list if no thread is waiting
+	 *
+	 * @param pooledconnection a connection not used
+	 */
+	private void handover(PooledConnection pooledconnection) {
+		while (pooledconnection != null) {
+			Waiter waiter;
+			boolean given = false;
+			while ((waiter = waiters.poll()) != null) {
+				if (waiter.slot.compareAndSet(null, pooledconnection)) {
+					LockSupport.unpark(waiter.thread);
+					given = true;
+					break;
+				}
+			}
+			if (given)
+				return;
+			freeconnections.offerFirst(pooledconnection);
+			// a thread may have queued after the poll above: it will check the free list
+			// itself, but the connection is taken back here if it is still there to
+			// avoid parking the thread until timeout
+			if (waiters.isEmpty())
+				return;
+			pooledconnection = freeconnections.pollFirst();
+		}
+	}
+
+	/**
+	 * closes the connection and removes it from the pool. If threads are waiting,
+	 * a replacement connection is created and handed over.
+	 *
+	 * @param pooledconnection connection to remove
+	 */
+	private void discard(PooledConnection pooledconnection) {
+		connectionsbyobject.remove(pooledconnection.connection);
+		pooledconnection.closeQuietly();
+		totalconnections.decrementAndGet();
+		destroyed.increment();
+		if ((!closed) && (!waiters.isEmpty()))
+			try {
+				PooledConnection replacement = createIfAllowed();
+				if (replacement != null)
+					handover(replacement);
+			} catch (SQLException e) {
+				logger.warning("could not create replacement connection " + e.getSQLState() + "/" + e.getErrorCode()
+						+ "/" + e.getMessage());
+			}
+	}
+
+	/**
+	 * releases the connection
+	 *
+	 * @param connection connection to release
+	 * @param reset      true if the connection should be recreated before next
+	 *                   usage
+	 */
+	private void release(Connection connection, boolean reset) {
+		if (connection == null)
+			return;
+		PooledConnection pooledconnection = connectionsbyobject.get(connection);
+		if (pooledconnection == null) {
+			logger.warning("trying to release a connection not managed by the pool, closing it");
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				logger.warning("  **** Error during closing of SQL Connection " + e.getMessage());
+			}
+			return;
+		}
+		if (!pooledconnection.inuse.compareAndSet(true, false)) {
+			logger.fine("connection already released, ignoring");
+			return;
+		}
+		if (reset)
+			pooledconnection.sick = true;
+		pooledconnection.bookingthread = null;
+		pooledconnection.lastused = System.currentTimeMillis();
+		if (closed) {
+			discard(pooledconnection);
+			return;
+		}
+		handover(pooledconnection);
+	}
+
+	@Override
+	public void checkin(Connection connection) {
+		release(connection, false);
+	}
+
+	@Override
+	public void checkinandreset(Connection connection) {
+		logger.warning("releasing connection for thread " + Thread.currentThread().getId() + " after SQL Error");
+		release(connection, true);
+	}
+
+	@Override
+	public void freecurrentthreadconnections() {
+		Thread currentthread = Thread.currentThread();
+		Iterator<PooledConnection> iterator = connectionsbyobject.values().iterator();
+		while (iterator.hasNext()) {
+			PooledConnection pooledconnection = iterator.next();
+			if (pooledconnection.bookingthread == currentthread) {
+				logger.info(" Free connection for thread id = " + currentthread.getId()
+						+ " as part of exception handling ");
+				release(pooledconnection.connection, false);
+			}
+		}
+	}
+
+	/**
+	 * evicts connections idle for longer than the idle timeout (keeping the
+	 * minimum number of connections) and validates the other idle connections
+	 */
+	private void housekeeping() {
+		while (!closed) {
+			try {
+				Thread.sleep(HOUSEKEEPING_FREQUENCY);
+				long now = System.currentTimeMillis();
+				int evicted = 0;
+				// connections are taken out of the free list one at a time, so that other
+				// idle connections stay available while a connection is validated
+				ArrayList<PooledConnection> idleconnections = new ArrayList<PooledConnection>(freeconnections);
+				for (int i = 0; i < idleconnections.size(); i++) {
+					PooledConnection pooledconnection = idleconnections.get(i);
+					// the connection may have been given to a thread in the meantime
+					if (!freeconnections.remove(pooledconnection))
+						continue;
+					boolean idletoolong = (now - pooledconnection.lastused > idletimeout)
+							&& (totalconnections.get() > minnumber);
+					if (idletoolong || pooledconnection.sick || !pooledconnection.isValid()) {
+						discard(pooledconnection);
+						evicted++;
+					} else {
+						handover(pooledconnection);
+					}
+				}
+				if (evicted > 0)
+					logger.info("connection pool housekeeping evicted " + evicted + " connections, "
+							+ getStatistics());
+			} catch (InterruptedException e) {
+				logger.warning("connection pool housekeeping interrupted, stopping");
+				return;
+			} catch (Throwable t) {
+				logger.warning("error during connection pool housekeeping " + t.getClass() + " - " + t.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * closes all free connections and stops the housekeeping. Connections in use
+	 * are closed when they are checked-in.
+	 */
+	public void close() {
+		closed = true;
+		PooledConnection pooledconnection;
+		while ((pooledconnection = freeconnections.pollFirst()) != null)
+			discard(pooledconnection);
+	}
+
+	/**
+	 * @return number of connections currently open, used or free
+	 */
+	public int getTotalConnections() {
+		return totalconnections.get();
+	}
+
+	/**
+	 * @return number of connections currently used by a thread
+	 */
+	public int getActiveConnections() {
+		return Math.max(0, totalconnections.get() - freeconnections.size());
+	}
+
+	/**
+	 * @return number of threads currently waiting for a connection
+	 */
+	public int getWaitingThreads() {
+		return waiters.size();
+	}
+
+	/**
+	 * @return total number of connections given to a thread since start
+	 */
+	public long getCheckouts() {
+		return checkouts.sum();
+	}
+
+	/**
+	 * @return number of connections given to a thread that had to wait
+	 */
+	public long getCheckoutsWithWait() {
+		return checkoutswithwait.sum();
+	}
+
+	/**
+	 * @return cumulated waiting time of all threads in ms
+	 */
+	public long getTotalWaitingTimeMs() {
+		return totalwaitingtimems.sum();
+	}
+
+	/**
+	 * @return the maximum time a thread waited for a connection in ms
+	 */
+	public long getMaxWaitingTimeMs() {
+		return maxwaitingtimems.get();
+	}
+
+	/**
+	 * @return number of threads that could not get a connection before timeout
+	 */
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * @return a one line summary of the counters of the pool
+	 */
+	public String getStatistics() {
+		return "POOL[total=" + getTotalConnections() + ",active=" + getActiveConnections() + ",waiting="
+				+ getWaitingThreads() + ",checkouts=" + getCheckouts() + ",withwait=" + getCheckoutsWithWait()
+				+ ",totalwaitms=" + getTotalWaitingTimeMs() + ",maxwaitms=" + getMaxWaitingTimeMs() + ",timeouts="
+				+ getTimeouts() + ",created=" + created.sum() + ",destroyed=" + destroyed.sum() + "]";
+	}
+}
@@ -0,0 +1,242 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage.jdbcpool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A bounded cache of prepared statements for one pooled connection, keyed by
+ * SQL text, and evicting the least recently used statement when full.<br>
+ * A statement is given to only one user at a time: if the same query is
+ * prepared again while the cached statement is still used (typically a nested
+ * query while a result set is read), a non-cached statement is prepared, and
+ * closed when released.<br>
+ * Caches are attached to the connection, and should be invalidated by the
+ * connection pool when the connection is closed or reset.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class PreparedStatementCache {
+	private static Logger logger = Logger.getLogger(PreparedStatementCache.class.getCanonicalName());
+	/**
+	 * default number of statements cached per connection
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+	private static volatile int capacity = DEFAULT_CAPACITY;
+	private static final ConcurrentHashMap<Connection, PreparedStatementCache> caches = new ConcurrentHashMap<Connection, PreparedStatementCache>();
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	private static final LongAdder concurrentuses = new LongAdder();
+	private static final LongAdder evictions = new LongAdder();
+
+	/**
+	 * a statement in the cache with its status
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 *
+	 */
+	private static class CachedStatement {
+		private PreparedStatement statement;
+		private boolean inuse;
+		private boolean evicted;
+
+		private CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	private final Connection connection;
+	private final LinkedHashMap<String, CachedStatement> statements;
+	private final IdentityHashMap<PreparedStatement, CachedStatement> borrowed;
+
+	/**
+	 * sets the number of statements cached for each connection. 0 disables the
+	 * cache.
+	 *
+	 * @param capacity maximum number of statements per connection
+	 */
+	public static void setCapacity(int capacity) {
+		PreparedStatementCache.capacity = capacity;
+		logger.info("prepared statement cache capacity set to " + capacity + " per connection");
+	}
+
+	/**
+	 * @return the number of statements cached for each connection, 0 if the cache
+	 *         is disabled
+	 */
+	public static int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * gets the cache for the connection, creating it if it does not exist
+	 *
+	 * @param connection a pooled connection
+	 * @return the cache for the connection, or null if cache is disabled
+	 */
+	public static PreparedStatementCache get(Connection connection) {
+		if (capacity <= 0)
+			return null;
+		if (connection == null)
+			return null;
+		return caches.computeIfAbsent(connection, (a) -> new PreparedStatementCache(a));
+	}
+
+	/**
+	 * closes all statements cached for the connection, and removes the cache. To
+	 * be called when a connection is reset or closed.
+	 *
+	 * @param connection a pooled connection
+	 */
+	public static void invalidate(Connection connection) {
+		if (connection == null)
+			return;
+		PreparedStatementCache cache = caches.remove(connection);
+		if (cache != null)
+			cache.clear();
+	}
+
+	/**
+	 * @return the ratio of statements served from cache, between 0 and 1
+	 */
+	public static double getHitRate() {
+		long hitsnow = hits.sum();
+		long total = hitsnow + misses.sum();
+		if (total == 0)
+			return 0;
+		return ((double) hitsnow) / total;
+	}
+
+	/**
+	 * @return a one line summary of the counters for all connections
+	 */
+	public static String getStatistics() {
+		return "STATEMENTCACHE[capacity=" + capacity + ",connections=" + caches.size() + ",hits=" + hits.sum()
+				+ ",misses=" + misses.sum() + ",concurrentuses=" + concurrentuses.sum() + ",evictions="
+				+ evictions.sum() + ",hitrate=" + String.format("%.3f", getHitRate()) + "]";
+	}
+
+	private PreparedStatementCache(Connection connection) {
+		this.connection = connection;
+		this.borrowed = new IdentityHashMap<PreparedStatement, CachedStatement>();
+		this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() <= capacity)
+					return false;
+				evictions.increment();
+				CachedStatement evicted = eldest.getValue();
+				evicted.evicted = true;
+				if (!evicted.inuse)
+					closeQuietly(evicted.statement);
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * gets a prepared statement for the query, either from cache, or newly
+	 * prepared. The statement should be given back through the release method.
+	 *
+	 * @param query SQL query
+	 * @return a prepared statement
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	public synchronized PreparedStatement prepare(String query) throws SQLException {
+		CachedStatement cached = statements.get(query);
+		if (cached != null) {
+			if (!cached.inuse) {
+				hits.increment();
+				cached.inuse = true;
+				borrowed.put(cached.statement, cached);
+				return cached.statement;
+			}
+			// statement already used by an open result set, prepare another one
+			concurrentuses.increment();
+			return connection.prepareStatement(query);
+		}
+		misses.increment();
+		PreparedStatement statement = connection.prepareStatement(query);
+		cached = new CachedStatement(statement);
+		cached.inuse = true;
+		borrowed.put(statement, cached);
+		statements.put(query, cached);
+		return statement;
+	}
+
+	/**
+	 * gives back a statement got from the prepare method. Parameters and batch
+	 * are cleared so that the statement does not hold references to payload. If
+	 * the statement is not in cache, it is closed.
+	 *
+	 * @param statement a statement
+	 */
+	public synchronized void release(PreparedStatement statement) {
+		if (statement == null)
+			return;
+		CachedStatement cached = borrowed.remove(statement);
+		if (cached == null) {
+			closeQuietly(statement);
+			return;
+		}
+		cached.inuse = false;
+		if (cached.evicted) {
+			closeQuietly(statement);
+			return;
+		}
+		try {
+			statement.clearParameters();
+			statement.clearBatch();
+		} catch (SQLException e) {
+			// statement is in an unknown state, it is removed from the cache
+			logger.warning("could not reset cached statement, removing it " + e.getMessage());
+			cached.evicted = true;
+			statements.values().remove(cached);
+			closeQuietly(statement);
+		}
+	}
+
+	/**
+	 * closes all statements of this cache
+	 */
+	private synchronized void clear() {
+		Iterator<CachedStatement> iterator = statements.values().iterator();
+		while (iterator.hasNext()) {
+			CachedStatement cached = iterator.next();
+			cached.evicted = true;
+			if (!cached.inuse)
+				closeQuietly(cached.statement);
+		}
+		statements.clear();
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			logger.fine("error while closing cached statement " + e.getMessage());
+		}
+	}
+}
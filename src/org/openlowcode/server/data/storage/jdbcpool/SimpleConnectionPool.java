@@ -61,6 +61,7 @@ public class SimpleConnectionPool implements ConnectionPool {
 		public void cure() throws SQLException {
 			if (sick) {
 				logger.warning("Resetting connection after SQL Exception ");
+				PreparedStatementCache.invalidate(this.connection);
 				try {
 
 					this.connection.close();
@@ -11,7 +11,11 @@
 package org.openlowcode.server.data.storage.mariajdbc;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 
+import org.openlowcode.server.data.storage.SelectQuery;
 import org.openlowcode.server.data.storage.standardjdbc.BaseJDBCStorage;
 
 /**
@@ -35,4 +39,99 @@ public class MariadDBJDBCStorage
 
 	}
 
+	/**
+	 * MariaDB before 10.6 does not support the SQL:2008 syntax, the LIMIT clause
+	 * is used instead. As MariaDB does not allow an offset without limit, the
+	 * maximum possible limit is used in that case.
+	 */
+	@Override
+	protected void appendPagination(StringBuffer query, boolean hasoffset, boolean haslimit) {
+		if (haslimit) {
+			query.append(" LIMIT ? ");
+		} else {
+			query.append(" LIMIT 18446744073709551615 ");
+		}
+		if (hasoffset)
+			query.append(" OFFSET ? ");
+	}
+
+	@Override
+	protected int setPaginationParameters(PreparedStatement ps, int index, SelectQuery sq) throws SQLException {
+		if (sq.hasLimit())
+			ps.setInt(index++, sq.getLimit());
+		if (sq.hasOffset())
+			ps.setInt(index++, sq.getOffset());
+		return index;
+	}
+
+	/**
+	 * MariaDB Connector/J streams the result by batches of the fetch size when a
+	 * positive fetch size is set. The MySQL driver only streams results row by
+	 * row when the fetch size is Integer.MIN_VALUE. While a result is streamed,
+	 * the MySQL driver throws an exception if another query is run on the same
+	 * connection. This cannot happen as the storage refuses any query while a
+	 * streamed result is open: queries run while reading the stream take another
+	 * connection from the pool.
+	 */
+	@Override
+	protected void setStreamingFetchSize(PreparedStatement ps, int fetchsize) throws SQLException {
+		String drivername = ps.getConnection().getMetaData().getDriverName();
+		if ((drivername != null) && (drivername.toUpperCase().indexOf("MYSQL") != -1)) {
+			ps.setFetchSize(Integer.MIN_VALUE);
+			return;
+		}
+		ps.setFetchSize(fetchsize);
+	}
+
+	/**
+	 * MariaDB parses a multi-row insert much faster than the same number of single
+	 * row statements sent in a batch (unless the driver rewrites batches).
+	 */
+	@Override
+	protected int getMultiRowInsertSize() {
+		return 100;
+	}
+
+	/**
+	 * sequences are supported from MariaDB 10.3
+	 */
+	@Override
+	public boolean isNativeSequenceSupported() {
+		try {
+			DatabaseMetaData metadata = connection.getMetaData();
+			int major = metadata.getDatabaseMajorVersion();
+			int minor = metadata.getDatabaseMinorVersion();
+			if (major > 10)
+				return true;
+			if ((major == 10) && (minor >= 3))
+				return true;
+			return false;
+		} catch (SQLException e) {
+			throw new RuntimeException("Could not read database version " + e.getMessage());
+		}
+	}
+
+	@Override
+	public boolean isNativeSequenceExisting(String sequencename) {
+		Integer result = executeIntegerQuery(
+				"SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'SEQUENCE' AND TABLE_NAME = ?",
+				getNativeSequenceName(sequencename));
+		return ((result != null) && (result.intValue() > 0));
+	}
+
+	@Override
+	public void createNativeSequence(String sequencename, int firstvalue, int increment) {
+		executeDefinitionStatement("CREATE SEQUENCE " + getNativeSequenceName(sequencename) + " START WITH "
+				+ firstvalue + " INCREMENT BY " + increment + " NOCYCLE");
+	}
+
+	@Override
+	public int getNextNativeValue(String sequencename) {
+		String stringquery = "SELECT NEXTVAL(" + getNativeSequenceName(sequencename) + ")";
+		Integer result = executeIntegerQuery(stringquery, null);
+		if (result == null)
+			throw new RuntimeException("No value returned for native sequence " + sequencename);
+		return result.intValue();
+	}
+
 }
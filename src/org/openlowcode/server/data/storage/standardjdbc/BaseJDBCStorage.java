@@ -10,6 +10,8 @@
 
 package org.openlowcode.server.data.storage.standardjdbc;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -18,14 +20,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
-import javax.sql.rowset.serial.SerialBlob;
-
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
 import org.openlowcode.server.data.storage.DecimalStoredField;
 import org.openlowcode.server.data.storage.DeleteQuery;
 import org.openlowcode.server.data.storage.IntegerStoredField;
@@ -35,6 +38,7 @@ import org.openlowcode.server.data.storage.MultipleTableRow;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 import org.openlowcode.server.data.storage.QueryCondition;
+import org.openlowcode.server.data.storage.QueryShape;
 import org.openlowcode.server.data.storage.Row;
 import org.openlowcode.server.data.storage.SelectQuery;
 import org.openlowcode.server.data.storage.StoredFieldSchema;
@@ -48,6 +52,7 @@ import org.openlowcode.server.data.storage.StoredFieldSchema.TestVisitor;
 import org.openlowcode.server.data.storage.StoredFieldSchema.Visitor;
 import org.openlowcode.server.data.storage.TableAlias.FieldSelectionAlias;
 import org.openlowcode.server.data.storage.derbyjdbc.DerbyJDBCStorage;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
 import org.openlowcode.tools.messages.SFile;
 
 /**
@@ -64,8 +69,41 @@ public abstract class BaseJDBCStorage
 		JDBCstorage {
 	public static int MAX_SQLERROR_RETRY = 5;
 	public static int TIMEOUT_SQLERROR_RETRY_MS = 20; // in ms
+	/**
+	 * default number of rows sent to the database in one JDBC batch for massive
+	 * inserts
+	 * 
+	 * @since 1.14
+	 */
+	public static final int DEFAULT_INSERT_BATCH_SIZE = 1000;
+	private static int insertbatchsize = DEFAULT_INSERT_BATCH_SIZE;
+	private static boolean multirowinsert = true;
 	private static Logger LOGGER = Logger.getLogger(DerbyJDBCStorage.class.getName());
 
+	/**
+	 * sets the number of rows sent to the database in one JDBC batch for massive
+	 * inserts. This is set by the server at startup.
+	 * 
+	 * @param batchsize a strictly positive number of rows
+	 * @since 1.14
+	 */
+	public static void setInsertBatchSize(int batchsize) {
+		if (batchsize < 1)
+			throw new RuntimeException("Insert batch size should be at least 1, got " + batchsize);
+		insertbatchsize = batchsize;
+	}
+
+	/**
+	 * sets if massive inserts use multi-row insert statements when the database
+	 * supports them. This is set by the server at startup (default is true).
+	 * 
+	 * @param multirow true to use multi-row insert statements
+	 * @since 1.14
+	 */
+	public static void setMultiRowInsert(boolean multirow) {
+		multirowinsert = multirow;
+	}
+
 	@Override
 	public Connection getConnection() {
 		return connection;
@@ -76,6 +114,7 @@ public abstract class BaseJDBCStorage
 	private DatabaseMetaData metadata;
 	protected Function<StringBuffer, Visitor> fieldvisitorgenerator;
 	protected Function<DatabaseColumnType, TestVisitor<Integer>> fieldanalyzer;
+	private JDBCRow openstream;
 
 	/**
 	 * creates a new JDBC storage
@@ -95,6 +134,96 @@ public abstract class BaseJDBCStorage
 		this.fieldanalyzer = fieldanalyzer;
 	}
 
+	/**
+	 * @return the prepared statement cache of the current connection, or null if
+	 *         statement cache is disabled
+	 * @since 1.14
+	 */
+	protected PreparedStatementCache getStatementCache() {
+		if (!isStatementCacheSupported())
+			return null;
+		return PreparedStatementCache.get(connection);
+	}
+
+	/**
+	 * Specifies if statements can be kept open and reused on the connection after
+	 * commit. This is true for the supported drivers: Derby keeps statements
+	 * valid across commits, and MariaDB Connector/J prepares statements on client
+	 * side by default (server side statements, if activated, are limited by the
+	 * cache capacity). A dialect may override this method to return false.
+	 * 
+	 * @return true if prepared statements can be cached for this database
+	 * @since 1.14
+	 */
+	protected boolean isStatementCacheSupported() {
+		return true;
+	}
+
+	/**
+	 * gets a prepared statement for the query, from the statement cache of the
+	 * connection if possible. The statement should be given back through
+	 * releaseStatement and not closed directly.
+	 * 
+	 * @param query the SQL query
+	 * @return a prepared statement
+	 * @throws SQLException if the statement cannot be prepared
+	 * @since 1.14
+	 */
+	protected PreparedStatement prepareCachedStatement(String query) throws SQLException {
+		PreparedStatementCache cache = getStatementCache();
+		if (cache != null)
+			return cache.prepare(query);
+		return connection.prepareStatement(query);
+	}
+
+	/**
+	 * gives back a statement got through prepareCachedStatement
+	 * 
+	 * @param ps the statement
+	 * @since 1.14
+	 */
+	protected void releaseStatement(PreparedStatement ps) {
+		releaseStatement(getStatementCache(), ps);
+	}
+
+	private static void releaseStatement(PreparedStatementCache cache, PreparedStatement ps) {
+		if (cache != null) {
+			cache.release(ps);
+			return;
+		}
+		try {
+			ps.close();
+		} catch (SQLException e) {
+			LOGGER.warning("Error in closing statement " + e.getMessage());
+		}
+	}
+
+	/**
+	 * sets the content of a file in the prepared statement as a stream, so that
+	 * the content is not copied in memory
+	 * 
+	 * @param ps    prepared statement
+	 * @param index index of the parameter
+	 * @param file  a file that is not empty
+	 * @return the stream set, to be closed after the statement is executed
+	 * @throws SQLException if the parameter cannot be set
+	 * @since 1.14
+	 */
+	protected static InputStream setBinaryContent(PreparedStatement ps, int index, SFile file) throws SQLException {
+		InputStream stream = file.getStream();
+		ps.setBinaryStream(index, stream, file.getLength());
+		return stream;
+	}
+
+	private static void closeStreams(ArrayList<InputStream> streams) {
+		for (int i = 0; i < streams.size(); i++)
+			try {
+				streams.get(i).close();
+			} catch (IOException e) {
+				LOGGER.warning("Error in closing binary stream " + e.getMessage());
+			}
+	}
+
 	/**
 	 * Processes an error
 	 * 
@@ -149,6 +278,9 @@ public abstract class BaseJDBCStorage
 		// back
 		protected boolean forceautocommitifrollaback = false;
 		protected boolean forceautocommitiferror;
+		// if set to false, the error is sent back to the caller without relaunch.
+		// This is used when the execution is part of a transaction of the caller
+		protected boolean relaunchiferror = true;
 
 		/**
 		 * creates a new sql execution
@@ -192,6 +324,15 @@ public abstract class BaseJDBCStorage
 	 * @return the data if the query returns any data
 	 */
 	public <E extends Object> E executeWithRelaunch(SQLExecution<E> execution) {
+		// some drivers (MySQL Connector/J) fail if a query is run on the connection
+		// while a streamed result is read, and others read the stream in memory
+		if (openstream != null) {
+			if (!openstream.isClosed())
+				throw new RuntimeException(
+						"Query run on a connection while a streamed result is still open, query = "
+								+ execution.stringquery);
+			openstream = null;
+		}
 		SQLException lastsqlexception = null;
 		for (int i = 0; i < MAX_SQLERROR_RETRY; i++) {
 			if (i != 0)
@@ -234,6 +375,8 @@ public abstract class BaseJDBCStorage
 						LOGGER.warning(" ---- Exception during rollback " + rollbackexception);
 					}
 				}
+				if (!execution.relaunchiferror)
+					throw new RuntimeException("Database sqlerror in transaction, no relaunch " + e, e);
 				while (i < MAX_SQLERROR_RETRY) {
 					try {
 						try {
@@ -259,10 +402,39 @@ public abstract class BaseJDBCStorage
 		throw new RuntimeException("Database sqlerror, even after retries " + lastsqlexception);
 	}
 
-	@Override
-	public Row selectOnDB(SelectQuery sq) {
-
+	/**
+	 * generates the SQL text for the select query
+	 * 
+	 * @param sq select query
+	 * @return the SQL text
+	 * @since 1.14
+	 */
+	protected String generateSelectQuery(SelectQuery sq) {
 		StringBuffer query = new StringBuffer();
+		appendSelectFromAndWhere(query, sq);
+		for (int i = 0; i < sq.getOrderByNumber(); i++) {
+			SelectQuery.OrderBy orderby = sq.getOrderBy(i);
+			query.append(i == 0 ? " ORDER BY " : " , ");
+			if (orderby.getAlias() != null) {
+				query.append(orderby.getAlias().getName());
+				query.append('.');
+			}
+			query.append(orderby.getField().getName());
+			query.append(orderby.isDescending() ? " DESC" : " ASC");
+		}
+		if ((sq.hasOffset()) || (sq.hasLimit()))
+			appendPagination(query, sq.hasOffset(), sq.hasLimit());
+		return query.toString();
+	}
+
+	/**
+	 * appends the select, from and where clauses of the select query
+	 * 
+	 * @param query the query being built
+	 * @param sq    select query
+	 * @since 1.14
+	 */
+	private void appendSelectFromAndWhere(StringBuffer query, SelectQuery sq) {
 		query.append(" SELECT ");
 		if (sq.isDistinctValues()) query.append(" DISTINCT ");
 		// build selectclause
@@ -300,6 +472,17 @@ public abstract class BaseJDBCStorage
 			}
 
 		}
+		appendFromAndWhere(query, sq);
+	}
+
+	/**
+	 * appends the from and where clauses of the select query
+	 * 
+	 * @param query the query being built
+	 * @param sq    select query
+	 * @since 1.14
+	 */
+	private void appendFromAndWhere(StringBuffer query, SelectQuery sq) {
 		query.append(" FROM ");
 		// builds from clause
 		for (int i = 0; i < sq.getTableNumber(); i++) {
@@ -311,38 +494,183 @@ public abstract class BaseJDBCStorage
 			query.append(thisalias.getName());
 		}
 		QueryCondition condition = sq.getQueryCondition();
-
 		if (condition != null)
 			if (condition.isSignificant(0)) {
 				query.append(" WHERE ");
 				SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
 				condition.accept(generator);
 			}
-		// end of query init
+	}
 
-		String stringquery = query.toString();
-		return this.executeWithRelaunch(new SQLExecution<JDBCRow>(stringquery) {
+	/**
+	 * appends the clause restricting the rows returned to a page. The default
+	 * implementation uses the SQL:2008 syntax (OFFSET ? ROWS FETCH NEXT ? ROWS
+	 * ONLY). Databases using another syntax should override this method and
+	 * setPaginationParameters
+	 * 
+	 * @param query     the query being built
+	 * @param hasoffset true if rows are skipped
+	 * @param haslimit  true if the number of rows is limited
+	 * @since 1.14
+	 */
+	protected void appendPagination(StringBuffer query, boolean hasoffset, boolean haslimit) {
+		if (hasoffset)
+			query.append(" OFFSET ? ROWS ");
+		if (haslimit)
+			query.append(" FETCH NEXT ? ROWS ONLY ");
+	}
 
-			@Override
-			public JDBCRow executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				if (condition != null) {
-					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
-					condition.accept(filler);
-				}
-				ResultSet rs = ps.executeQuery();
-				return new JDBCRow(ps, rs, stringquery);
-			}
+	/**
+	 * sets the parameters of the pagination clause in the prepared statement
+	 * 
+	 * @param ps    prepared statement
+	 * @param index index of the first pagination parameter
+	 * @param sq    select query
+	 * @return the index of the next parameter
+	 * @throws SQLException if the parameters cannot be set
+	 * @since 1.14
+	 */
+	protected int setPaginationParameters(PreparedStatement ps, int index, SelectQuery sq) throws SQLException {
+		if (sq.hasOffset())
+			ps.setInt(index++, sq.getOffset());
+		if (sq.hasLimit())
+			ps.setInt(index++, sq.getLimit());
+		return index;
+	}
 
-		});
+	/**
+	 * sets the fetch size on a statement whose result will be read as a stream.
+	 * The default implementation only sets the fetch size, this is enough for
+	 * drivers that stream results by batches of the fetch size on a forward-only
+	 * cursor. A dialect may override this method if the driver needs a specific
+	 * setting to stream results.
+	 * 
+	 * @param ps        a statement prepared with a forward-only, read-only cursor
+	 * @param fetchsize the number of rows to bring back at each round-trip
+	 * @throws SQLException if the fetch size cannot be set
+	 * @since 1.14
+	 */
+	protected void setStreamingFetchSize(PreparedStatement ps, int fetchsize) throws SQLException {
+		ps.setFetchSize(fetchsize);
+	}
 
+	/**
+	 * generates the SQL text counting the rows returned by the select query.
+	 * Ordering and page of the select query are ignored.
+	 * 
+	 * @param sq select query
+	 * @return the SQL text
+	 * @since 1.14
+	 */
+	protected String generateCountQuery(SelectQuery sq) {
+		StringBuffer query = new StringBuffer();
+		if (sq.isDistinctValues()) {
+			// distinct rows are counted on a sub-query
+			query.append(" SELECT COUNT(*) FROM ( ");
+			appendSelectFromAndWhere(query, sq);
+			query.append(" ) CNT ");
+			return query.toString();
+		}
+		query.append(" SELECT COUNT(*) ");
+		appendFromAndWhere(query, sq);
+		return query.toString();
 	}
 
-	@Override
-	public void MassiveInsertOnDB(MultipleTableRow multiplerow) {
-		StoredTableSchema tableschema = multiplerow.getTableSchema();
-		// ---------- Generate Insert
+	/**
+	 * generates the SQL text for the aggregate query. Fields used for grouping
+	 * are named as in a select query, and aggregates are named AGG followed by
+	 * their index
+	 * 
+	 * @param aq aggregate query
+	 * @return the SQL text
+	 * @since 1.14
+	 */
+	protected String generateAggregateQuery(AggregateQuery aq) {
+		if (aq.getAggregateNumber() == 0)
+			throw new RuntimeException("Aggregate query without aggregate");
+		StringBuffer query = new StringBuffer();
+		query.append(" SELECT ");
+		for (int i = 0; i < aq.getGroupByNumber(); i++) {
+			AggregateQuery.GroupBy groupby = aq.getGroupBy(i);
+			query.append(groupby.getAlias().getName());
+			query.append('.');
+			query.append(groupby.getField().getName());
+			query.append(" AS ");
+			query.append(groupby.getAlias().getName());
+			query.append('_');
+			query.append(groupby.getField().getName());
+			query.append(" , ");
+		}
+		for (int i = 0; i < aq.getAggregateNumber(); i++) {
+			AggregateQuery.Aggregate aggregate = aq.getAggregate(i);
+			if (i > 0)
+				query.append(" , ");
+			query.append(aggregate.getFunction().toString());
+			query.append('(');
+			if (aggregate.getField() == null) {
+				query.append('*');
+			} else {
+				query.append(aggregate.getAlias().getName());
+				query.append('.');
+				query.append(aggregate.getField().getName());
+				if (aggregate.getSecondField() != null) {
+					query.append('*');
+					query.append(aggregate.getSecondAlias().getName());
+					query.append('.');
+					query.append(aggregate.getSecondField().getName());
+				}
+			}
+			query.append(") AS ");
+			query.append(JDBCAggregateRow.AGGREGATE_PREFIX);
+			query.append(i);
+		}
+		query.append(" FROM ");
+		for (int i = 0; i < aq.getTableNumber(); i++) {
+			if (i != 0)
+				query.append(" , ");
+			TableAlias thisalias = aq.getTable(i);
+			query.append(thisalias.getTable().getName());
+			query.append(' ');
+			query.append(thisalias.getName());
+		}
+		QueryCondition condition = aq.getQueryCondition();
+		if (condition != null)
+			if (condition.isSignificant(0)) {
+				query.append(" WHERE ");
+				SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
+				condition.accept(generator);
+			}
+		for (int i = 0; i < aq.getGroupByNumber(); i++) {
+			AggregateQuery.GroupBy groupby = aq.getGroupBy(i);
+			query.append(i == 0 ? " GROUP BY " : " , ");
+			query.append(groupby.getAlias().getName());
+			query.append('.');
+			query.append(groupby.getField().getName());
+		}
+		return query.toString();
+	}
 
+	/**
+	 * generates the SQL text to insert a row with all fields of the table
+	 * 
+	 * @param tableschema the table
+	 * @return the SQL text
+	 * @since 1.14
+	 */
+	protected String generateInsertQuery(StoredTableSchema tableschema) {
+		return generateInsertQuery(tableschema, 1);
+	}
+
+	/**
+	 * generates the SQL text to insert several rows in the table with a single
+	 * statement (all fields are inserted)
+	 * 
+	 * @param tableschema the table
+	 * @param rows        number of rows inserted
+	 * @return the SQL text
+	 * @since 1.14
+	 */
+	protected String generateInsertQuery(StoredTableSchema tableschema, int rows) {
 		StringBuffer query = new StringBuffer();
 		query.append(" INSERT INTO ");
 		query.append(tableschema.getName());
@@ -354,108 +682,283 @@ public abstract class BaseJDBCStorage
 			query.append(thisfield.getName());
 		}
 		query.append(" ) ");
-		query.append(" VALUES (");
+		query.append(" VALUES ");
+		for (int r = 0; r < rows; r++) {
+			if (r != 0)
+				query.append(" , ");
+			query.append("(");
+			for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
+				if (i != 0)
+					query.append(",");
+				query.append("?");
+			}
+			query.append(" ) ");
+		}
+		return query.toString();
+	}
+
+	/**
+	 * generates the SQL text to update all fields of rows of the table
+	 * 
+	 * @param tableschema the table
+	 * @param condition   condition to select rows to update
+	 * @return the SQL text
+	 * @since 1.14
+	 */
+	protected String generateUpdateQuery(StoredTableSchema tableschema, QueryCondition condition) {
+		StringBuffer query = new StringBuffer();
+		query.append(" UPDATE ");
+		query.append(tableschema.getName());
+		query.append(" SET ");
 		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
 			if (i != 0)
-				query.append(",");
-			query.append("?");
+				query.append(" , ");
+			StoredFieldSchema sf = tableschema.getStoredField(i);
+			query.append(sf.getName());
+			query.append(" = ? ");
 		}
-		query.append(" ) ");
-		String stringquery = query.toString();
-		// generates data
+		query.append(" WHERE ");
+		SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
+		condition.accept(generator);
+		return query.toString();
+	}
 
-		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
+	/**
+	 * generates the SQL text to delete rows of the table
+	 * 
+	 * @param tableschema the table
+	 * @param condition   condition to select rows to delete
+	 * @return the SQL text
+	 * @since 1.14
+	 */
+	protected String generateDeleteQuery(StoredTableSchema tableschema, QueryCondition condition) {
+		StringBuffer query = new StringBuffer();
+		query.append(" DELETE FROM ");
+		query.append(tableschema.getName());
+		query.append(" WHERE ");
+		SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
+		condition.accept(generator);
+		return query.toString();
+	}
+
+	@Override
+	public Row selectOnDB(SelectQuery sq) {
+		QueryCondition condition = sq.getQueryCondition();
+		String stringquery = SQLTextCache.get(QueryShape.forSelect(sq), () -> generateSelectQuery(sq));
+		return this.executeWithRelaunch(new SQLExecution<JDBCRow>(stringquery) {
 
 			@Override
-			public Object executes() throws SQLException {
-				boolean autocommit = connection.getAutoCommit();
-				if (autocommit)
-					connection.setAutoCommit(false);
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				for (int rowindex = 0; rowindex < multiplerow.getPayloadSize(); rowindex++) {
+			public JDBCRow executes() throws SQLException {
+				// streamed statements are not cached as the fetch size is kept on the
+				// statement, and the driver may keep the connection busy until closed
+				PreparedStatementCache cache = (sq.isStreamed() ? null : getStatementCache());
+				PreparedStatement ps = null;
+				if (sq.isStreamed()) {
+					ps = connection.prepareStatement(stringquery, ResultSet.TYPE_FORWARD_ONLY,
+							ResultSet.CONCUR_READ_ONLY);
+				} else {
+					ps = (cache != null ? cache.prepare(stringquery) : connection.prepareStatement(stringquery));
+				}
+				try {
+					if (sq.isStreamed())
+						setStreamingFetchSize(ps, sq.getFetchSize());
+					int nextindex = 1;
+					if (condition != null) {
+						SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+						condition.accept(filler);
+						nextindex = filler.getNextCounter();
+					}
+					if ((sq.hasOffset()) || (sq.hasLimit()))
+						setPaginationParameters(ps, nextindex, sq);
+					ResultSet rs = ps.executeQuery();
+					JDBCRow row = new JDBCRow(ps, rs, stringquery, cache);
+					if (sq.isStreamed())
+						openstream = row;
+					return row;
+				} catch (SQLException | RuntimeException e) {
+					releaseStatement(cache, ps);
+					throw e;
+				}
+			}
 
-					for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-						StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
+		});
 
-						boolean treated = false;
-						if (thisfieldschema instanceof StringStoredField) {
-							StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-							String payload = multiplerow.getPayload(rowindex, castedfieldschema);
-							ps.setString(i + 1, payload);
-							LOGGER.fine("JDBC Prepared Statement SetString " + (i + 1) + " " + payload);
-							treated = true;
-						}
-						if (thisfieldschema instanceof TimestampStoredField) {
-							TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-							Date thisdate = (Date) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement Timestamp " + (i + 1) + " " + thisdate);
-							if (thisdate != null)
-								ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
-							if (thisdate == null)
-								ps.setTimestamp(i + 1, null);
-							treated = true;
-						}
-						if (thisfieldschema instanceof DecimalStoredField) {
-							DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-							BigDecimal thisdecimal = (BigDecimal) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement BigDecimal " + (i + 1) + " " + thisdecimal);
+	}
 
-							if (thisdecimal != null)
-								ps.setBigDecimal(i + 1, thisdecimal);
-							if (thisdecimal == null)
-								ps.setBigDecimal(i + 1, null);
-							treated = true;
-						}
+	@Override
+	public int countOnDB(SelectQuery sq) {
+		QueryCondition condition = sq.getQueryCondition();
+		String stringquery = SQLTextCache.get(QueryShape.forCount(sq), () -> generateCountQuery(sq));
+		return this.executeWithRelaunch(new SQLExecution<Integer>(stringquery) {
 
-						if (thisfieldschema instanceof IntegerStoredField) {
-							IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-							Integer thisinteger = (Integer) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement Integer " + (i + 1) + " " + thisinteger);
+			@Override
+			public Integer executes() throws SQLException {
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				try {
+					if (condition != null) {
+						SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+						condition.accept(filler);
+					}
+					ResultSet rs = ps.executeQuery();
+					try {
+						if (!rs.next())
+							throw new RuntimeException("No result for count query " + stringquery);
+						return Integer.valueOf(rs.getInt(1));
+					} finally {
+						rs.close();
+					}
+				} finally {
+					releaseStatement(ps);
+				}
+			}
 
-							if (thisinteger != null)
-								ps.setInt(i + 1, thisinteger.intValue());
-							if (thisinteger == null)
-								ps.setNull(i + 1, java.sql.Types.INTEGER);
-							treated = true;
-						}
-						if (thisfieldschema instanceof LargeBinaryStoredField) {
-							LargeBinaryStoredField castedfieldschema = (LargeBinaryStoredField) thisfieldschema;
-							SFile thisfile = (SFile) multiplerow.getPayload(rowindex, castedfieldschema);
-							LOGGER.fine("JDBC Prepared Statement set File " + (i + 1) + " empty=" + thisfile.isEmpty());
-
-							if (thisfile.isEmpty())
-								ps.setNull(i + 1, java.sql.Types.BLOB);
-							if (!thisfile.isEmpty())
-								ps.setBlob(i + 1, new SerialBlob(thisfile.getContent()));
-							treated = true;
-						}
+		}).intValue();
+	}
 
-						if (!treated)
-							throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
-									tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+	@Override
+	public AggregateRow aggregateOnDB(AggregateQuery aq) {
+		QueryCondition condition = aq.getQueryCondition();
+		String stringquery = SQLTextCache.get(QueryShape.forAggregate(aq), () -> generateAggregateQuery(aq));
+		return this.executeWithRelaunch(new SQLExecution<JDBCAggregateRow>(stringquery) {
 
+			@Override
+			public JDBCAggregateRow executes() throws SQLException {
+				PreparedStatementCache cache = getStatementCache();
+				PreparedStatement ps = (cache != null ? cache.prepare(stringquery)
+						: connection.prepareStatement(stringquery));
+				try {
+					if (condition != null) {
+						SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+						condition.accept(filler);
 					}
-					ps.addBatch();
+					ResultSet rs = ps.executeQuery();
+					return new JDBCAggregateRow(ps, rs, stringquery, cache, aq);
+				} catch (SQLException | RuntimeException e) {
+					releaseStatement(cache, ps);
+					throw e;
 				}
-				ps.executeBatch();
-				ps.close();
+			}
+
+		});
+	}
+
+	@Override
+	public void MassiveInsertOnDB(MultipleTableRow multiplerow) {
+		StoredTableSchema tableschema = multiplerow.getTableSchema();
+		StoredTableBinder binder = StoredTableBinder.get(tableschema);
+		int rownumber = multiplerow.getPayloadSize();
+		// ---------- Generate Insert
+		int rowsperstatement = (multirowinsert ? getMultiRowInsertSize() : 1);
+		if (rowsperstatement < 1)
+			rowsperstatement = 1;
+		if (rowsperstatement > rownumber)
+			rowsperstatement = 1;
+		int multirowstatements = (rowsperstatement > 1 ? rownumber / rowsperstatement : 0);
+		int multirowsize = rowsperstatement;
+		String stringquery = SQLTextCache.get(QueryShape.forInsert(tableschema),
+				() -> generateInsertQuery(tableschema));
+		String multirowquery = (multirowstatements > 0 ? SQLTextCache.get(
+				QueryShape.forInsert(tableschema, multirowsize), () -> generateInsertQuery(tableschema, multirowsize))
+				: null);
+		// generates data
+
+		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
+
+			@Override
+			public Object executes() throws SQLException {
+				boolean autocommit = connection.getAutoCommit();
+				// if the insert has its own transaction, batches already executed are rolled
+				// back if a later batch fails, so that a relaunch does not insert them twice.
+				// If the caller has a transaction open, the error is sent back so that the
+				// transaction of the caller fails as a whole
+				this.requiresrollback = autocommit;
+				this.forceautocommitifrollaback = autocommit;
+				this.relaunchiferror = autocommit;
+				if (autocommit)
+					connection.setAutoCommit(false);
+				int rowindex = 0;
+				if (multirowstatements > 0)
+					rowindex = insertBatches(multirowquery, binder, multiplerow, rowindex, multirowstatements,
+							multirowsize);
+				insertBatches(stringquery, binder, multiplerow, rowindex, rownumber - rowindex, 1);
 				connection.setAutoCommit(autocommit);
 				return null;
 			}
 		});
 	}
 
+	/**
+	 * inserts rows through batches of statements. The batch is executed every
+	 * insert batch size rows to limit the size of buffers in the driver
+	 * 
+	 * @param stringquery      insert query for the given number of rows per
+	 *                         statement
+	 * @param binder           binder for the table
+	 * @param multiplerow      rows to insert
+	 * @param firstrow         index of the first row to insert
+	 * @param statements       number of statements to execute
+	 * @param rowsperstatement number of rows inserted by each statement
+	 * @return the index of the row after the last row inserted
+	 * @throws SQLException if any error happens in the database
+	 */
+	private int insertBatches(
+			String stringquery,
+			StoredTableBinder binder,
+			MultipleTableRow multiplerow,
+			int firstrow,
+			int statements,
+			int rowsperstatement) throws SQLException {
+		if (statements == 0)
+			return firstrow;
+		int rowindex = firstrow;
+		PreparedStatement ps = prepareCachedStatement(stringquery);
+		ArrayList<InputStream> openstreams = new ArrayList<InputStream>();
+		try {
+			int rowsinbatch = 0;
+			for (int i = 0; i < statements; i++) {
+				int parameterindex = 1;
+				for (int j = 0; j < rowsperstatement; j++) {
+					int thisrow = rowindex;
+					parameterindex = binder.bindRow(ps, parameterindex,
+							(field) -> multiplerow.getPayload(thisrow, field), openstreams);
+					rowindex++;
+				}
+				ps.addBatch();
+				rowsinbatch += rowsperstatement;
+				if (rowsinbatch >= insertbatchsize) {
+					ps.executeBatch();
+					closeStreams(openstreams);
+					openstreams.clear();
+					rowsinbatch = 0;
+				}
+			}
+			if (rowsinbatch > 0)
+				ps.executeBatch();
+		} finally {
+			closeStreams(openstreams);
+			releaseStatement(ps);
+		}
+		return rowindex;
+	}
+
+	/**
+	 * gives the number of rows inserted by a single multi-row insert statement
+	 * (INSERT ... VALUES (...),(...)) in massive inserts. The default is 1 (no
+	 * multi-row statement, rows are only grouped in JDBC batches)
+	 * 
+	 * @return the number of rows per insert statement
+	 * @since 1.14
+	 */
+	protected int getMultiRowInsertSize() {
+		return 1;
+	}
+
 	@Override
 	public void MassiveDeleteOnDB(MultipleTableRow rowstodelete) {
 		StoredTableSchema tableschema = rowstodelete.getTableSchema();
-		StringBuffer query = new StringBuffer();
-		query.append(" DELETE FROM ");
-		query.append(tableschema.getName());
-
-		query.append(" WHERE ");
-		SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
-		rowstodelete.getQueryCondition(0).accept(generator);
-		String stringquery = query.toString();
+		QueryCondition condition = rowstodelete.getQueryCondition(0);
+		String stringquery = SQLTextCache.get(QueryShape.forDelete(tableschema, condition),
+				() -> generateDeleteQuery(tableschema, condition));
 		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
 
 			@Override
@@ -463,18 +966,21 @@ public abstract class BaseJDBCStorage
 				boolean autocommit = connection.getAutoCommit();
 				if (autocommit)
 					connection.setAutoCommit(false);
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				try {
+					// ------------ builds variable -----------------
 
-				for (int rowindex = 0; rowindex < rowstodelete.getPayloadSize(); rowindex++) {
+					for (int rowindex = 0; rowindex < rowstodelete.getPayloadSize(); rowindex++) {
 
-					// -- then condition to select correct line
-					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
-					rowstodelete.getQueryCondition(rowindex).accept(filler);
-					ps.addBatch();
+						// -- then condition to select correct line
+						SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+						rowstodelete.getQueryCondition(rowindex).accept(filler);
+						ps.addBatch();
+					}
+					ps.executeBatch();
+				} finally {
+					releaseStatement(ps);
 				}
-				ps.executeBatch();
-				ps.close();
 				connection.setAutoCommit(autocommit);
 				return null;
 			}
@@ -487,21 +993,9 @@ public abstract class BaseJDBCStorage
 	public void MassiveUpdateOnDB(MultipleTableRow multiplerow) {
 		StoredTableSchema tableschema = multiplerow.getTableSchema();
 
-		StringBuffer query = new StringBuffer();
-		query.append(" UPDATE ");
-		query.append(tableschema.getName());
-		query.append(" SET ");
-		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-			if (i != 0)
-				query.append(" , ");
-			StoredFieldSchema sf = tableschema.getStoredField(i);
-			query.append(sf.getName());
-			query.append(" = ? ");
-		}
-		query.append(" WHERE ");
-		SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
-		multiplerow.getQueryCondition(0).accept(generator);
-		String stringquery = query.toString();
+		QueryCondition condition = multiplerow.getQueryCondition(0);
+		String stringquery = SQLTextCache.get(QueryShape.forUpdate(tableschema, condition),
+				() -> generateUpdateQuery(tableschema, condition));
 		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
 
 			@Override
@@ -509,10 +1003,111 @@ public abstract class BaseJDBCStorage
 				boolean autocommit = connection.getAutoCommit();
 				if (autocommit)
 					connection.setAutoCommit(false);
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				try {
+					// ------------ builds variable -----------------
+
+					for (int rowindex = 0; rowindex < multiplerow.getPayloadSize(); rowindex++) {
+						// -- first update fields
+						for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
+
+							StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
+							boolean treated = false;
+							if (thisfieldschema instanceof StringStoredField) {
+								StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
+								ps.setString(i + 1, multiplerow.getPayload(rowindex, castedfieldschema));
+								treated = true;
+							}
+							if (thisfieldschema instanceof TimestampStoredField) {
+								TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
+								Date thisdate = (Date) multiplerow.getPayload(rowindex, castedfieldschema);
+								if (thisdate != null)
+									ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
+								if (thisdate == null)
+									ps.setTimestamp(i + 1, null);
+								treated = true;
+							}
+							if (thisfieldschema instanceof DecimalStoredField) {
+								DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
+								BigDecimal thisdecimal = (BigDecimal) multiplerow.getPayload(rowindex, castedfieldschema);
+								if (thisdecimal != null)
+									ps.setBigDecimal(i + 1, thisdecimal);
+								if (thisdecimal == null)
+									ps.setBigDecimal(i + 1, null);
+								treated = true;
+							}
+							if (thisfieldschema instanceof IntegerStoredField) {
+								IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
+								Integer thisinteger = (Integer) multiplerow.getPayload(rowindex, castedfieldschema);
+								if (thisinteger != null)
+									ps.setInt(i + 1, thisinteger.intValue());
+								if (thisinteger == null)
+									ps.setNull(i + 1, java.sql.Types.INTEGER);
+								treated = true;
+							}
+
+							if (!treated)
+								throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
+										tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+
+						}
+						// -- then condition to select correct line
+						SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, tableschema.getStoredFieldNumber() + 1);
+						multiplerow.getQueryCondition(rowindex).accept(filler);
+						ps.addBatch();
+					}
+					ps.executeBatch();
+				} finally {
+					releaseStatement(ps);
+				}
+				connection.setAutoCommit(autocommit);
+				return null;
+			}
+
+		});
+
+	}
+
+	@Override
+	public void insertOnDB(StoredTableRow row) {
+		StoredTableSchema tableschema = row.getStoredTableSchema();
+		StoredTableBinder binder = StoredTableBinder.get(tableschema);
+		String stringquery = SQLTextCache.get(QueryShape.forInsert(tableschema),
+				() -> generateInsertQuery(tableschema));
+		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
+
+			@Override
+			public Object executes() throws SQLException {
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				ArrayList<InputStream> openstreams = new ArrayList<InputStream>();
+				try {
+					binder.bindRow(ps, 1, (field) -> row.getPayload(field), openstreams);
+					ps.execute();
+				} finally {
+					closeStreams(openstreams);
+					releaseStatement(ps);
+				}
+				return null;
+			}
+		});
+
+	}
+
+	@Override
+	public int UpdateOnDB(UpdateQuery uq) {
+		StoredTableSchema tableschema = uq.getRow().getStoredTableSchema();
+
+		QueryCondition condition = uq.getCondition();
+		String stringquery = SQLTextCache.get(QueryShape.forUpdate(tableschema, condition),
+				() -> generateUpdateQuery(tableschema, condition));
+		return this.executeWithRelaunch(new SQLExecution<Integer>(stringquery) {
+
+			@Override
+			public Integer executes() throws SQLException {
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				try {
+					// ------------ builds variable -----------------
 
-				for (int rowindex = 0; rowindex < multiplerow.getPayloadSize(); rowindex++) {
 					// -- first update fields
 					for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
 
@@ -520,34 +1115,39 @@ public abstract class BaseJDBCStorage
 						boolean treated = false;
 						if (thisfieldschema instanceof StringStoredField) {
 							StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-							ps.setString(i + 1, multiplerow.getPayload(rowindex, castedfieldschema));
+							String payload = uq.getRow().getPayload(castedfieldschema);
+							ps.setString(i + 1, payload);
+							LOGGER.info("JDBC preparedstatement update setString " + (i + 1) + "," + payload);
 							treated = true;
 						}
 						if (thisfieldschema instanceof TimestampStoredField) {
 							TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-							Date thisdate = (Date) multiplerow.getPayload(rowindex, castedfieldschema);
+							Date thisdate = (Date) uq.getRow().getPayload(castedfieldschema);
 							if (thisdate != null)
 								ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
 							if (thisdate == null)
 								ps.setTimestamp(i + 1, null);
+							LOGGER.info("JDBC preparedstatement update setTimestamp " + (i + 1) + "," + thisdate);
 							treated = true;
 						}
 						if (thisfieldschema instanceof DecimalStoredField) {
 							DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-							BigDecimal thisdecimal = (BigDecimal) multiplerow.getPayload(rowindex, castedfieldschema);
+							BigDecimal thisdecimal = (BigDecimal) uq.getRow().getPayload(castedfieldschema);
 							if (thisdecimal != null)
 								ps.setBigDecimal(i + 1, thisdecimal);
 							if (thisdecimal == null)
 								ps.setBigDecimal(i + 1, null);
+							LOGGER.info("JDBC preparedstatement update setDecimal " + (i + 1) + "," + thisdecimal);
 							treated = true;
 						}
 						if (thisfieldschema instanceof IntegerStoredField) {
 							IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-							Integer thisinteger = (Integer) multiplerow.getPayload(rowindex, castedfieldschema);
+							Integer thisinteger = (Integer) uq.getRow().getPayload(castedfieldschema);
 							if (thisinteger != null)
 								ps.setInt(i + 1, thisinteger.intValue());
 							if (thisinteger == null)
 								ps.setNull(i + 1, java.sql.Types.INTEGER);
+							LOGGER.info("JDBC preparedstatement update setInteger " + (i + 1) + "," + thisinteger);
 							treated = true;
 						}
 
@@ -558,196 +1158,12 @@ public abstract class BaseJDBCStorage
 					}
 					// -- then condition to select correct line
 					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, tableschema.getStoredFieldNumber() + 1);
-					multiplerow.getQueryCondition(rowindex).accept(filler);
-					ps.addBatch();
-				}
-				ps.executeBatch();
-				ps.close();
-				connection.setAutoCommit(autocommit);
-				return null;
-			}
-
-		});
-
-	}
-
-	@Override
-	public void insertOnDB(StoredTableRow row) {
-		StoredTableSchema tableschema = row.getStoredTableSchema();
-		StringBuffer query = new StringBuffer();
-		query.append(" INSERT INTO ");
-		query.append(tableschema.getName());
-		query.append(" ( ");
-		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-			if (i != 0)
-				query.append(",");
-			StoredFieldSchema thisfield = tableschema.getStoredField(i);
-			query.append(thisfield.getName());
-		}
-		query.append(" ) ");
-		query.append(" VALUES (");
-		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-			if (i != 0)
-				query.append(",");
-			query.append("?");
-		}
-		query.append(" ) ");
-		String stringquery = query.toString();
-		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
-
-			@Override
-			public Object executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-					StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
-
-					boolean treated = false;
-					if (thisfieldschema instanceof StringStoredField) {
-						StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-						String payload = row.getPayload(castedfieldschema);
-						ps.setString(i + 1, payload);
-						LOGGER.fine("JDBC Prepared Statement SetString " + (i + 1) + " " + payload);
-						treated = true;
-					}
-					if (thisfieldschema instanceof TimestampStoredField) {
-						TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-						Date thisdate = (Date) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement Timestamp " + (i + 1) + " " + thisdate);
-						if (thisdate != null)
-							ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
-						if (thisdate == null)
-							ps.setTimestamp(i + 1, null);
-						treated = true;
-					}
-					if (thisfieldschema instanceof DecimalStoredField) {
-						DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-						BigDecimal thisdecimal = (BigDecimal) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement BigDecimal " + (i + 1) + " " + thisdecimal);
-
-						if (thisdecimal != null)
-							ps.setBigDecimal(i + 1, thisdecimal);
-						if (thisdecimal == null)
-							ps.setBigDecimal(i + 1, null);
-						treated = true;
-					}
-
-					if (thisfieldschema instanceof IntegerStoredField) {
-						IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-						Integer thisinteger = (Integer) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement Integer " + (i + 1) + " " + thisinteger);
-
-						if (thisinteger != null)
-							ps.setInt(i + 1, thisinteger.intValue());
-						if (thisinteger == null)
-							ps.setNull(i + 1, java.sql.Types.INTEGER);
-						treated = true;
-					}
-					if (thisfieldschema instanceof LargeBinaryStoredField) {
-						LargeBinaryStoredField castedfieldschema = (LargeBinaryStoredField) thisfieldschema;
-						SFile thisfile = (SFile) row.getPayload(castedfieldschema);
-						LOGGER.fine("JDBC Prepared Statement set File " + (i + 1) + " empty=" + thisfile.isEmpty());
-
-						if (thisfile.isEmpty())
-							ps.setNull(i + 1, java.sql.Types.BLOB);
-						if (!thisfile.isEmpty())
-							ps.setBlob(i + 1, new SerialBlob(thisfile.getContent()));
-						treated = true;
-					}
-
-					if (!treated)
-						throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
-								tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
-
-				}
-				ps.execute();
-				ps.close();
-				return null;
-			}
-		});
-
-	}
-
-	@Override
-	public void UpdateOnDB(UpdateQuery uq) {
-		StoredTableSchema tableschema = uq.getRow().getStoredTableSchema();
-
-		StringBuffer query = new StringBuffer();
-		query.append(" UPDATE ");
-		query.append(tableschema.getName());
-		query.append(" SET ");
-		for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-			if (i != 0)
-				query.append(" , ");
-			StoredFieldSchema sf = tableschema.getStoredField(i);
-			query.append(sf.getName());
-			query.append(" = ? ");
-		}
-		query.append(" WHERE ");
-		SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
-		uq.getCondition().accept(generator);
-		String stringquery = query.toString();
-		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
-
-			@Override
-			public Object executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
-
-				// -- first update fields
-				for (int i = 0; i < tableschema.getStoredFieldNumber(); i++) {
-
-					StoredFieldSchema thisfieldschema = tableschema.getStoredField(i);
-					boolean treated = false;
-					if (thisfieldschema instanceof StringStoredField) {
-						StringStoredField castedfieldschema = (StringStoredField) thisfieldschema;
-						String payload = uq.getRow().getPayload(castedfieldschema);
-						ps.setString(i + 1, payload);
-						LOGGER.info("JDBC preparedstatement update setString " + (i + 1) + "," + payload);
-						treated = true;
-					}
-					if (thisfieldschema instanceof TimestampStoredField) {
-						TimestampStoredField castedfieldschema = (TimestampStoredField) thisfieldschema;
-						Date thisdate = (Date) uq.getRow().getPayload(castedfieldschema);
-						if (thisdate != null)
-							ps.setTimestamp(i + 1, new Timestamp(thisdate.getTime()));
-						if (thisdate == null)
-							ps.setTimestamp(i + 1, null);
-						LOGGER.info("JDBC preparedstatement update setTimestamp " + (i + 1) + "," + thisdate);
-						treated = true;
-					}
-					if (thisfieldschema instanceof DecimalStoredField) {
-						DecimalStoredField castedfieldschema = (DecimalStoredField) thisfieldschema;
-						BigDecimal thisdecimal = (BigDecimal) uq.getRow().getPayload(castedfieldschema);
-						if (thisdecimal != null)
-							ps.setBigDecimal(i + 1, thisdecimal);
-						if (thisdecimal == null)
-							ps.setBigDecimal(i + 1, null);
-						LOGGER.info("JDBC preparedstatement update setDecimal " + (i + 1) + "," + thisdecimal);
-						treated = true;
-					}
-					if (thisfieldschema instanceof IntegerStoredField) {
-						IntegerStoredField castedfieldschema = (IntegerStoredField) thisfieldschema;
-						Integer thisinteger = (Integer) uq.getRow().getPayload(castedfieldschema);
-						if (thisinteger != null)
-							ps.setInt(i + 1, thisinteger.intValue());
-						if (thisinteger == null)
-							ps.setNull(i + 1, java.sql.Types.INTEGER);
-						LOGGER.info("JDBC preparedstatement update setInteger " + (i + 1) + "," + thisinteger);
-						treated = true;
-					}
-
-					if (!treated)
-						throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
-								tableschema.getName(), thisfieldschema.getName(), thisfieldschema.getClass()));
+					uq.getCondition().accept(filler);
 
+					return Integer.valueOf(ps.executeUpdate());
+				} finally {
+					releaseStatement(ps);
 				}
-				// -- then condition to select correct line
-				SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, tableschema.getStoredFieldNumber() + 1);
-				uq.getCondition().accept(filler);
-
-				ps.execute();
-				ps.close();
-				return null;
 			}
 
 		});
@@ -1051,26 +1467,25 @@ public abstract class BaseJDBCStorage
 	public void DeleteOnDB(DeleteQuery dq) {
 		StoredTableSchema tableschema = dq.getTableSchema();
 
-		StringBuffer query = new StringBuffer();
-		query.append(" DELETE FROM ");
-		query.append(tableschema.getName());
-		query.append(" WHERE ");
-		SQLQueryConditionGenerator generator = new SQLQueryConditionGenerator(query);
-		dq.getCondition().accept(generator);
-		String stringquery = query.toString();
+		QueryCondition condition = dq.getCondition();
+		String stringquery = SQLTextCache.get(QueryShape.forDelete(tableschema, condition),
+				() -> generateDeleteQuery(tableschema, condition));
 		this.executeWithRelaunch(new SQLExecution<Object>(stringquery) {
 
 			@Override
 			public Object executes() throws SQLException {
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				// ------------ builds variable -----------------
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				try {
+					// ------------ builds variable -----------------
 
-				// -- then condition to select correct line
-				SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
-				dq.getCondition().accept(filler);
+					// -- then condition to select correct line
+					SQLQueryPSFiller filler = new SQLQueryPSFiller(ps, 1);
+					dq.getCondition().accept(filler);
 
-				ps.execute();
-				ps.close();
+					ps.execute();
+				} finally {
+					releaseStatement(ps);
+				}
 				return null;
 			}
 
@@ -1117,6 +1532,7 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public void refreshConnection(Connection connection) {
+		PreparedStatementCache.invalidate(this.connection);
 		this.connection = connection;
 
 	}
@@ -1200,12 +1616,16 @@ public abstract class BaseJDBCStorage
 
 	@Override
 	public int getNextValue(String sequencename) {
+		return getNextValues(sequencename, 1);
+	}
 
-		StringBuffer buffer = new StringBuffer();
-		buffer.append("SELECT SEQVALUE FROM GSEQUENCE WHERE SEQNAME = '");
-		buffer.append(sequencename.toUpperCase());
-		buffer.append("' FOR UPDATE");
-		String stringquery = buffer.toString();
+	@Override
+	public int getNextValues(String sequencename, int blocksize) {
+		if (blocksize < 1)
+			throw new RuntimeException("Block size for sequence " + sequencename + " should be at least 1, got " + blocksize);
+		String stringquery = "SELECT SEQVALUE FROM GSEQUENCE WHERE SEQNAME = ? FOR UPDATE";
+		String updatequery = "UPDATE GSEQUENCE SET SEQVALUE = ? WHERE SEQNAME = ?";
+		String upperseqname = sequencename.toUpperCase();
 
 		Integer sequence = this.executeWithRelaunch(new SQLExecution<Integer>(stringquery) {
 
@@ -1221,25 +1641,31 @@ public abstract class BaseJDBCStorage
 
 				if (autocommit)
 					connection.setAutoCommit(false);
-				PreparedStatement ps = connection.prepareStatement(stringquery);
-				ResultSet rs = ps.executeQuery();
-				if (rs.next()) {
-					int value = rs.getInt(1);
-					rs.close();
-					StringBuffer update = new StringBuffer("UPDATE GSEQUENCE SET SEQVALUE = ");
-					update.append(value + 1);
-					update.append(" WHERE SEQNAME = '");
-					update.append(sequencename.toUpperCase());
-					update.append("'");
-					PreparedStatement updateps = connection.prepareStatement(update.toString());
-					updateps.execute();
-					updateps.close();
-					connection.commit();
-					connection.setAutoCommit(autocommit);
-					return value;
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				try {
+					ps.setString(1, upperseqname);
+					ResultSet rs = ps.executeQuery();
+					if (rs.next()) {
+						int value = rs.getInt(1);
+						rs.close();
+						PreparedStatement updateps = prepareCachedStatement(updatequery);
+						try {
+							updateps.setInt(1, value + blocksize);
+							updateps.setString(2, upperseqname);
+							updateps.execute();
+						} finally {
+							releaseStatement(updateps);
+						}
+						connection.commit();
+						connection.setAutoCommit(autocommit);
+						return value;
 
+					}
+					rs.close();
+					return null;
+				} finally {
+					releaseStatement(ps);
 				}
-				return null;
 			}
 
 		});
@@ -1249,6 +1675,91 @@ public abstract class BaseJDBCStorage
 
 	}
 
+	/**
+	 * The default implementation does not support native sequences. A dialect
+	 * supporting them should override this method and the other native sequence
+	 * methods
+	 */
+	@Override
+	public boolean isNativeSequenceSupported() {
+		return false;
+	}
+
+	@Override
+	public boolean isNativeSequenceExisting(String sequencename) {
+		throw new RuntimeException("Native sequences are not supported by " + this.getClass().getName());
+	}
+
+	@Override
+	public void createNativeSequence(String sequencename, int firstvalue, int increment) {
+		throw new RuntimeException("Native sequences are not supported by " + this.getClass().getName());
+	}
+
+	@Override
+	public int getNextNativeValue(String sequencename) {
+		throw new RuntimeException("Native sequences are not supported by " + this.getClass().getName());
+	}
+
+	/**
+	 * @param sequencename name of the sequence
+	 * @return the name of the native sequence object in the database
+	 * @since 1.14
+	 */
+	protected String getNativeSequenceName(String sequencename) {
+		return "NSQ_" + sequencename.toUpperCase();
+	}
+
+	/**
+	 * executes a query bringing back a single integer
+	 * 
+	 * @param stringquery a query with at most one string parameter
+	 * @param parameter   the value of the string parameter, or null if the query
+	 *                    has no parameter
+	 * @return the integer, or null if the query does not bring back any row
+	 * @since 1.14
+	 */
+	protected Integer executeIntegerQuery(String stringquery, String parameter) {
+		return this.executeWithRelaunch(new SQLExecution<Integer>(stringquery) {
+
+			@Override
+			public Integer executes() throws SQLException {
+				PreparedStatement ps = prepareCachedStatement(stringquery);
+				try {
+					if (parameter != null)
+						ps.setString(1, parameter);
+					ResultSet rs = ps.executeQuery();
+					try {
+						if (rs.next())
+							return Integer.valueOf(rs.getInt(1));
+						return null;
+					} finally {
+						rs.close();
+					}
+				} finally {
+					releaseStatement(ps);
+				}
+			}
+
+		});
+	}
+
+	/**
+	 * executes a data definition statement
+	 * 
+	 * @param stringquery the statement
+	 * @since 1.14
+	 */
+	protected void executeDefinitionStatement(String stringquery) {
+		try {
+			PreparedStatement ps = connection.prepareStatement(stringquery);
+			ps.execute();
+			ps.close();
+			LOGGER.info("[PERSISTENCE] Model update: " + stringquery);
+		} catch (Throwable e) {
+			throw treatThrowable(e, stringquery);
+		}
+	}
+
 	/**
 	 * A simple class to store the definition of a field as extracted from the JDBC
 	 * metadata query on table columns
@@ -0,0 +1,85 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage.standardjdbc;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.openlowcode.server.data.storage.AggregateQuery;
+import org.openlowcode.server.data.storage.AggregateRow;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
+
+/**
+ * a wrapper around JDBC resultset as a result of aggregate queries in the
+ * persistence storage. Aggregates are in columns named AGG followed by their
+ * index.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class JDBCAggregateRow
+		extends
+		JDBCRow
+		implements
+		AggregateRow {
+	/**
+	 * prefix of the column name for aggregates
+	 */
+	public static final String AGGREGATE_PREFIX = "AGG";
+	private AggregateQuery aggregatequery;
+
+	/**
+	 * creates a JDBC aggregate row
+	 * 
+	 * @param ps             prepared statement
+	 * @param rs             resultset
+	 * @param stringquery    the query for further reference (error handling)
+	 * @param cache          the cache the statement will be given back to when
+	 *                       the row is closed, null if the statement should be
+	 *                       closed
+	 * @param aggregatequery the aggregate query
+	 */
+	public JDBCAggregateRow(
+			PreparedStatement ps,
+			ResultSet rs,
+			String stringquery,
+			PreparedStatementCache cache,
+			AggregateQuery aggregatequery) {
+		super(ps, rs, stringquery, cache);
+		this.aggregatequery = aggregatequery;
+	}
+
+	@Override
+	public BigDecimal getAggregate(int index) {
+		if (index < 0 || index >= aggregatequery.getAggregateNumber())
+			throw new RuntimeException(
+					"Aggregate index " + index + " out of range, query has " + aggregatequery.getAggregateNumber());
+		ResultSet rs = getResultSet();
+		if (rs == null)
+			throw new RuntimeException("End of ResultSet reached for preparedStatement");
+		try {
+			// aggregates are selected after the fields used for grouping
+			BigDecimal result = rs.getBigDecimal(aggregatequery.getGroupByNumber() + index + 1);
+			if (result == null)
+				if (aggregatequery.getAggregate(index).getFunction() == AggregateQuery.Function.COUNT)
+					return BigDecimal.ZERO;
+			return result;
+		} catch (SQLException e) {
+			throw new RuntimeException(
+					"SQL Exception " + e.getMessage() + " reading aggregate " + index + " ---> Query = "
+							+ getStringQuery());
+		}
+	}
+
+}
@@ -10,6 +10,8 @@
 
 package org.openlowcode.server.data.storage.standardjdbc;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.PreparedStatement;
@@ -18,6 +20,8 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.logging.Logger;
 
 import org.openlowcode.server.data.storage.DecimalStoredField;
@@ -30,6 +34,7 @@ import org.openlowcode.server.data.storage.StoredFieldSchema;
 import org.openlowcode.server.data.storage.StringStoredField;
 import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.data.storage.TimestampStoredField;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
 import org.openlowcode.tools.messages.SFile;
 
 /**
@@ -43,12 +48,21 @@ import org.openlowcode.tools.messages.SFile;
 @SuppressWarnings({ "rawtypes", "unchecked" })
 public class JDBCRow implements Row {
 	private static Logger logger = Logger.getLogger(JDBCRow.class.getName());
+	/**
+	 * binary content bigger than this size (in bytes) is spooled to a temporary
+	 * file when read, instead of being held in memory
+	 * 
+	 * @since 1.14
+	 */
+	public static int MAX_BLOB_IN_MEMORY = 1024 * 1024;
 	private ResultSet rs;
 	private PreparedStatement ps;
-	private ResultSetMetaData rsmetadata;
-	private String columnlist = null;
+	private HashMap<String, Integer> columnindexbylabel;
+	private IdentityHashMap<TableAlias, IdentityHashMap<FieldSchema, Integer>> columnindexbyfield;
 	private long readcolumns;
 	private String stringquery;
+	private PreparedStatementCache cache;
+	private boolean closed = false;
 
 	/**
 	 * creates a JDBC Row
@@ -57,10 +71,41 @@ public class JDBCRow implements Row {
 	 * @param stringquery the query for further reference (error handling)
 	 */
 	public JDBCRow(PreparedStatement ps, ResultSet rs, String stringquery) {
+		this(ps, rs, stringquery, null);
+	}
+
+	/**
+	 * creates a JDBC Row on a statement that may come from the statement cache
+	 * 
+	 * @param ps          prepared statement
+	 * @param rs          resultset
+	 * @param stringquery the query for further reference (error handling)
+	 * @param cache       the cache the statement will be given back to when the
+	 *                    row is closed, null if the statement should be closed
+	 * @since 1.14
+	 */
+	public JDBCRow(PreparedStatement ps, ResultSet rs, String stringquery, PreparedStatementCache cache) {
 		this.ps = ps;
 		this.rs = rs;
 		this.readcolumns = 0;
 		this.stringquery = stringquery;
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the result set, for subclasses reading specific columns
+	 * @since 1.14
+	 */
+	protected ResultSet getResultSet() {
+		return this.rs;
+	}
+
+	/**
+	 * @return the query, for error messages
+	 * @since 1.14
+	 */
+	protected String getStringQuery() {
+		return this.stringquery;
 	}
 
 	@Override
@@ -70,46 +115,47 @@ public class JDBCRow implements Row {
 		if (objectalias == null)
 			throw new RuntimeException("ObjectAlias is null");
 		try {
-			if (this.rsmetadata == null) {
-				this.rsmetadata = rs.getMetaData();
-				columnlist = "[";
-				for (int i = 1; i <= this.rsmetadata.getColumnCount(); i++) {
-					if (i > 1)
-						columnlist += "; ";
-					columnlist += this.rsmetadata.getTableName(i) + ":" + this.rsmetadata.getColumnName(i) + ":"
-							+ this.rsmetadata.getColumnTypeName(i);
-				}
-				columnlist += "]";
-			}
-			String fieldname = objectalias.getName() + "_" + fd.getName();
 			if (fd instanceof StringStoredField) {
-				String result = rs.getString(fieldname);
-				logger.finest("processing string stored field " + fieldname + ": " + result);
+				String result = rs.getString(getColumnIndex(objectalias, fd));
+				logger.finest("processing string stored field " + fd.getName() + ": " + result);
 				return fd.castToType(result);
 			}
 			if (fd instanceof TimestampStoredField) {
-				Timestamp result = rs.getTimestamp(fieldname);
-				logger.finest("processing timestamp stored field " + fieldname + ": " + result);
+				Timestamp result = rs.getTimestamp(getColumnIndex(objectalias, fd));
+				logger.finest("processing timestamp stored field " + fd.getName() + ": " + result);
 				return fd.castToType(result);
 			}
 
 			if (fd instanceof DecimalStoredField) {
-				BigDecimal result = rs.getBigDecimal(fieldname);
-				logger.finest("processing bigdecimal stored field " + fieldname + ": " + result);
+				BigDecimal result = rs.getBigDecimal(getColumnIndex(objectalias, fd));
+				logger.finest("processing bigdecimal stored field " + fd.getName() + ": " + result);
 				return fd.castToType(result);
 			}
 			if (fd instanceof IntegerStoredField) {
-				int result = rs.getInt(fieldname);
-				logger.finest("processing timestamp stored field " + fieldname + ": " + result);
+				int result = rs.getInt(getColumnIndex(objectalias, fd));
+				logger.finest("processing timestamp stored field " + fd.getName() + ": " + result);
 				return fd.castToType(new Integer(result));
 			}
 			if (fd instanceof LargeBinaryStoredField) {
-				Blob blob = rs.getBlob(fieldname);
+				Blob blob = rs.getBlob(getColumnIndex(objectalias, fd));
 				if (blob != null) {
-					byte bytes[] = blob.getBytes(1, (int) (blob.length()));
-					logger.finest("processing largebinary stored field " + fieldname + " size = " + bytes.length + "b");
-
-					return fd.castToType(new SFile("TEMPORARY", bytes));
+					long length = blob.length();
+					logger.finest("processing largebinary stored field " + fd.getName() + " size = " + length + "b");
+					// the blob is only valid during the transaction, large content is spooled
+					// to a temporary file instead of being held in memory
+					InputStream blobstream = blob.getBinaryStream();
+					try {
+						return fd.castToType(SFile.fromStream("TEMPORARY", blobstream, length, MAX_BLOB_IN_MEMORY));
+					} catch (IOException e) {
+						throw new SQLException("Error in reading binary stream " + e.getMessage(), e);
+					} finally {
+						try {
+							blobstream.close();
+						} catch (IOException e) {
+							logger.warning("Error in closing binary stream " + e.getMessage());
+						}
+						blob.free();
+					}
 				} else {
 					return fd.castToType(new SFile());
 				}
@@ -127,21 +173,21 @@ public class JDBCRow implements Row {
 				if (externalfieldschemalist.size() == 1) {
 
 					StoredFieldSchema<E> referencedfield = externalfieldschemalist.get(0);
-					String name = objectalias.getName() + externalfieldschema.getName() + "_0";
+					int columnindex = getColumnIndex(objectalias.getName() + externalfieldschema.getName() + "_0");
 
 					if (referencedfield instanceof StringStoredField) {
 						StringStoredField referencedstringfield = (StringStoredField) referencedfield;
 						logger.finest("processed field = " + referencedstringfield.getName() + " from field "
 								+ externalfieldschema.getName());
-						return (E) referencedstringfield.castToType(rs.getString(name));
+						return (E) referencedstringfield.castToType(rs.getString(columnindex));
 
 					}
 					if (referencedfield instanceof TimestampStoredField) {
 
-						return referencedfield.castToType(rs.getTimestamp(name));
+						return referencedfield.castToType(rs.getTimestamp(columnindex));
 					}
 					if (referencedfield instanceof DecimalStoredField) {
-						return referencedfield.castToType(rs.getBigDecimal(name));
+						return referencedfield.castToType(rs.getBigDecimal(columnindex));
 					}
 				}
 				if (externalfieldschemalist.size() > 1) {
@@ -150,7 +196,7 @@ public class JDBCRow implements Row {
 						String name = objectalias.getName() + externalfieldschema.getName() + "_" + i;
 						if (i > 1)
 							compactstring += " ";
-						compactstring += rs.getString(name);
+						compactstring += rs.getString(getColumnIndex(name));
 						if (i == 0)
 							compactstring += " (";
 					}
@@ -173,11 +219,77 @@ public class JDBCRow implements Row {
 				}
 			}
 			throw new RuntimeException("SQL Exception " + e.getMessage() + " at " + exceptionline
-					+ ", drop table field list " + this.columnlist + "\\			---> Query = " + this.stringquery);
+					+ ", drop table field list " + getColumnList() + "\\			---> Query = " + this.stringquery);
 		}
 		throw new RuntimeException(" type of attribute not supported yet " + fd.getClass().getCanonicalName());
 	}
 
+	/**
+	 * gets the index of the column for the field of the table alias. The index is
+	 * resolved on the first call for the pair, then kept for the following rows
+	 * of the result
+	 * 
+	 * @param objectalias alias of the table
+	 * @param fd          field
+	 * @return the index of the column in the result set
+	 * @throws SQLException if the metadata of the result set cannot be read
+	 * @since 1.14
+	 */
+	protected int getColumnIndex(TableAlias objectalias, FieldSchema fd) throws SQLException {
+		if (columnindexbyfield == null)
+			columnindexbyfield = new IdentityHashMap<TableAlias, IdentityHashMap<FieldSchema, Integer>>();
+		IdentityHashMap<FieldSchema, Integer> columnindexforalias = columnindexbyfield.get(objectalias);
+		if (columnindexforalias == null) {
+			columnindexforalias = new IdentityHashMap<FieldSchema, Integer>();
+			columnindexbyfield.put(objectalias, columnindexforalias);
+		}
+		Integer columnindex = columnindexforalias.get(fd);
+		if (columnindex == null) {
+			columnindex = Integer.valueOf(getColumnIndex(objectalias.getName() + "_" + fd.getName()));
+			columnindexforalias.put(fd, columnindex);
+		}
+		return columnindex.intValue();
+	}
+
+	/**
+	 * gets the index of the column with the given label (case insensitive). The
+	 * labels are read once from the metadata of the result set
+	 * 
+	 * @param label label of the column in the query
+	 * @return the index of the column in the result set
+	 * @throws SQLException if the metadata of the result set cannot be read
+	 * @since 1.14
+	 */
+	protected int getColumnIndex(String label) throws SQLException {
+		if (columnindexbylabel == null) {
+			ResultSetMetaData rsmetadata = rs.getMetaData();
+			columnindexbylabel = new HashMap<String, Integer>();
+			for (int i = 1; i <= rsmetadata.getColumnCount(); i++)
+				columnindexbylabel.put(rsmetadata.getColumnLabel(i).toUpperCase(), Integer.valueOf(i));
+		}
+		Integer columnindex = columnindexbylabel.get(label.toUpperCase());
+		if (columnindex == null)
+			throw new SQLException("Column " + label + " not found in result set");
+		return columnindex.intValue();
+	}
+
+	private String getColumnList() {
+		try {
+			ResultSetMetaData rsmetadata = rs.getMetaData();
+			StringBuffer columnlist = new StringBuffer("[");
+			for (int i = 1; i <= rsmetadata.getColumnCount(); i++) {
+				if (i > 1)
+					columnlist.append("; ");
+				columnlist.append(rsmetadata.getTableName(i) + ":" + rsmetadata.getColumnName(i) + ":"
+						+ rsmetadata.getColumnTypeName(i));
+			}
+			columnlist.append("]");
+			return columnlist.toString();
+		} catch (SQLException e) {
+			return "[unavailable: " + e.getMessage() + "]";
+		}
+	}
+
 	@Override
 	public boolean next() {
 		try {
@@ -205,11 +317,26 @@ public class JDBCRow implements Row {
 		}
 	}
 
+	/**
+	 * @return true if the result set and the statement are closed
+	 * @since 1.14
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
 	@Override
-	public void close() {
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
 		try {
 			rs.close();
-			ps.close();
+			if (cache != null) {
+				cache.release(ps);
+			} else {
+				ps.close();
+			}
 		} catch (SQLException e) {
 			throw new RuntimeException(String.format("Error in closing connection %s", e.getMessage()));
 		}
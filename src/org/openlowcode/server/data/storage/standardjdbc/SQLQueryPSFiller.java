@@ -51,6 +51,15 @@ public class SQLQueryPSFiller implements QueryCondition.Visitor {
 		this.counter = nextcounter;
 	}
 
+	/**
+	 * @return the index of the next parameter of the prepared statement after
+	 *         the parameters filled by this filler
+	 * @since 1.14
+	 */
+	public int getNextCounter() {
+		return this.counter;
+	}
+
 	@Override
 	public <E extends Object> void visit(SimpleQueryCondition<E> simplequerycondition) {
 		try {
@@ -107,7 +116,7 @@ public class SQLQueryPSFiller implements QueryCondition.Visitor {
 						ps.setNull(counter, java.sql.Types.BLOB);
 						LOGGER.info("JDBC preparedstatement set binary " + counter + ", NULL");
 					} else {
-						ps.setBlob(counter, binarycontent.getStream(), binarycontent.getLength());
+						ps.setBinaryStream(counter, binarycontent.getStream(), binarycontent.getLength());
 						LOGGER.info("JDBC preparedstatement set binary " + counter + ", contentlength = "
 								+ binarycontent.getLength());
 
@@ -0,0 +1,126 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage.standardjdbc;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.openlowcode.server.data.storage.QueryShape;
+
+/**
+ * A bounded cache of SQL text generated for a query shape. As queries are
+ * generated from a limited number of call sites, the SQL text is built only
+ * once per shape, and the query then goes straight to the prepared statement
+ * and the SQLQueryPSFiller.<br>
+ * The cache is read without lock. When it exceeds its capacity, a single
+ * thread evicts the least recently used shapes, so that eviction is
+ * approximate: the cache may briefly hold more shapes than its capacity.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class SQLTextCache {
+	/**
+	 * maximum number of query shapes kept in the cache
+	 */
+	public static final int CAPACITY = 4096;
+	/**
+	 * number of shapes kept when the cache is evicted
+	 */
+	private static final int SIZE_AFTER_EVICTION = CAPACITY * 9 / 10;
+
+	/**
+	 * the SQL text for a shape, with the time it was last used
+	 */
+	private static class CachedText {
+		private final String sql;
+		private volatile long lastused;
+
+		private CachedText(String sql) {
+			this.sql = sql;
+			this.lastused = System.nanoTime();
+		}
+	}
+
+	private static final ConcurrentHashMap<QueryShape, CachedText> cache = new ConcurrentHashMap<QueryShape, CachedText>(
+			1024);
+	private static final AtomicBoolean evicting = new AtomicBoolean(false);
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	private static final LongAdder evictions = new LongAdder();
+
+	/**
+	 * gets the SQL text for the shape, generating it if not yet in cache
+	 *
+	 * @param shape     shape of the query
+	 * @param generator generates the SQL text for the query
+	 * @return the SQL text
+	 */
+	public static String get(QueryShape shape, Supplier<String> generator) {
+		CachedText cached = cache.get(shape);
+		if (cached != null) {
+			hits.increment();
+			cached.lastused = System.nanoTime();
+			return cached.sql;
+		}
+		misses.increment();
+		String sql = generator.get();
+		// if another thread generated the same shape meanwhile, the SQL text is the
+		// same, the entry is simply replaced
+		cache.put(shape, new CachedText(sql));
+		if (cache.size() > CAPACITY)
+			evict();
+		return sql;
+	}
+
+	/**
+	 * removes the least recently used shapes to go back under the capacity. Only
+	 * one thread evicts at a time, other threads do not wait for it.
+	 */
+	private static void evict() {
+		if (!evicting.compareAndSet(false, true))
+			return;
+		try {
+			long[] lastuses = new long[cache.size()];
+			int count = 0;
+			Iterator<CachedText> iterator = cache.values().iterator();
+			while ((iterator.hasNext()) && (count < lastuses.length))
+				lastuses[count++] = iterator.next().lastused;
+			int toremove = count - SIZE_AFTER_EVICTION;
+			if (toremove <= 0)
+				return;
+			Arrays.sort(lastuses, 0, count);
+			long threshold = lastuses[toremove - 1];
+			Iterator<CachedText> removeiterator = cache.values().iterator();
+			while (removeiterator.hasNext()) {
+				if (removeiterator.next().lastused <= threshold) {
+					removeiterator.remove();
+					evictions.increment();
+				}
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	/**
+	 * @return a one line summary of the counters of the cache
+	 */
+	public static String getStatistics() {
+		return "SQLTEXTCACHE[size=" + cache.size() + ",hits=" + hits.sum() + ",misses=" + misses.sum() + ",evictions="
+				+ evictions.sum() + "]";
+	}
+}
@@ -0,0 +1,156 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage.standardjdbc;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.openlowcode.server.data.storage.DecimalStoredField;
+import org.openlowcode.server.data.storage.IntegerStoredField;
+import org.openlowcode.server.data.storage.LargeBinaryStoredField;
+import org.openlowcode.server.data.storage.StoredFieldSchema;
+import org.openlowcode.server.data.storage.StoredTableSchema;
+import org.openlowcode.server.data.storage.StringStoredField;
+import org.openlowcode.server.data.storage.TimestampStoredField;
+import org.openlowcode.tools.messages.SFile;
+
+/**
+ * The setters of prepared statement parameters for all the fields of a table,
+ * in the order of the insert and update queries. The type of each field is
+ * analyzed once when the binder is built, so that a row is bound without
+ * testing the type of each field again.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+@SuppressWarnings("rawtypes")
+public class StoredTableBinder {
+	private static ConcurrentHashMap<StoredTableSchema, StoredTableBinder> binders = new ConcurrentHashMap<
+			StoredTableSchema, StoredTableBinder>();
+
+	/**
+	 * sets a field payload as parameter of a prepared statement
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	@FunctionalInterface
+	private interface FieldBinder {
+		/**
+		 * @param ps          prepared statement
+		 * @param index       index of the parameter
+		 * @param payload     payload of the field (may be null)
+		 * @param openstreams list to add streams set in the statement to, to be
+		 *                    closed after execution
+		 * @throws SQLException if the parameter cannot be set
+		 */
+		public void bind(PreparedStatement ps, int index, Object payload, ArrayList<InputStream> openstreams)
+				throws SQLException;
+	}
+
+	private StoredTableSchema tableschema;
+	private StoredFieldSchema[] fields;
+	private FieldBinder[] fieldbinders;
+
+	/**
+	 * gets the binder for the table, building it on first call
+	 * 
+	 * @param tableschema the table
+	 * @return the binder for all fields of the table
+	 */
+	public static StoredTableBinder get(StoredTableSchema tableschema) {
+		StoredTableBinder binder = binders.get(tableschema);
+		// the binder is rebuilt if fields were added to the schema since it was built
+		if ((binder == null) || (binder.fields.length != tableschema.getStoredFieldNumber())) {
+			binder = new StoredTableBinder(tableschema);
+			binders.put(tableschema, binder);
+		}
+		return binder;
+	}
+
+	private StoredTableBinder(StoredTableSchema tableschema) {
+		this.tableschema = tableschema;
+		this.fields = new StoredFieldSchema[tableschema.getStoredFieldNumber()];
+		this.fieldbinders = new FieldBinder[tableschema.getStoredFieldNumber()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = tableschema.getStoredField(i);
+			fieldbinders[i] = buildBinder(fields[i]);
+		}
+	}
+
+	private FieldBinder buildBinder(StoredFieldSchema field) {
+		if (field instanceof StringStoredField)
+			return (ps, index, payload, openstreams) -> ps.setString(index, (String) payload);
+		if (field instanceof TimestampStoredField)
+			return (ps, index, payload, openstreams) -> ps.setTimestamp(index,
+					(payload != null ? new Timestamp(((Date) payload).getTime()) : null));
+		if (field instanceof DecimalStoredField)
+			return (ps, index, payload, openstreams) -> ps.setBigDecimal(index, (BigDecimal) payload);
+		if (field instanceof IntegerStoredField)
+			return (ps, index, payload, openstreams) -> {
+				if (payload != null) {
+					ps.setInt(index, ((Integer) payload).intValue());
+				} else {
+					ps.setNull(index, java.sql.Types.INTEGER);
+				}
+			};
+		if (field instanceof LargeBinaryStoredField)
+			return (ps, index, payload, openstreams) -> {
+				SFile file = (SFile) payload;
+				if ((file == null) || (file.isEmpty())) {
+					ps.setNull(index, java.sql.Types.BLOB);
+				} else {
+					openstreams.add(BaseJDBCStorage.setBinaryContent(ps, index, file));
+				}
+			};
+		return (ps, index, payload, openstreams) -> {
+			throw new RuntimeException(String.format("object type not supported for %s.%s (%s)",
+					tableschema.getName(), field.getName(), field.getClass()));
+		};
+	}
+
+	/**
+	 * @return the number of fields bound for a row
+	 */
+	public int getFieldNumber() {
+		return fields.length;
+	}
+
+	/**
+	 * sets all the fields of a row as parameters of the prepared statement
+	 * 
+	 * @param ps          prepared statement
+	 * @param firstindex  index of the parameter for the first field
+	 * @param payload     function giving the payload for a field of the row
+	 * @param openstreams list to add streams set in the statement to, to be
+	 *                    closed after execution
+	 * @return the index of the parameter after the last field
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	public int bindRow(
+			PreparedStatement ps,
+			int firstindex,
+			Function<StoredFieldSchema, Object> payload,
+			ArrayList<InputStream> openstreams) throws SQLException {
+		for (int i = 0; i < fields.length; i++)
+			fieldbinders[i].bind(ps, firstindex + i, payload.apply(fields[i]), openstreams);
+		return firstindex + fields.length;
+	}
+}
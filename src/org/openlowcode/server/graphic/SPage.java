@@ -138,6 +138,38 @@ public abstract class SPage extends Named {
 		return answer;
 	}
 
+	/**
+	 * The layout of a page can be cached on the server if it only depends on the
+	 * class of the page, the locale and the authorities of the user, and on the
+	 * returned variant. By default, the layout depends on the data of the page,
+	 * and is not cached. Pages whose layout does not depend on the data should
+	 * override this method.
+	 * 
+	 * @return a string identifying the layout among the layouts of the page class,
+	 *         or null if the layout cannot be cached
+	 * @since 1.14
+	 */
+	public String getLayoutVariant() {
+		return null;
+	}
+
+	/**
+	 * @return the layout variant of the page and the page add-on, or null if the
+	 *         layout cannot be cached
+	 * @since 1.14
+	 */
+	public String getFinalLayoutVariant() {
+		String variant = getLayoutVariant();
+		if (variant == null)
+			return null;
+		if (addon == null)
+			return variant;
+		String addonvariant = addon.getLayoutVariant();
+		if (addonvariant == null)
+			return null;
+		return addon.getClass().getName() + ":" + addonvariant + "/" + variant;
+	}
+
 	/**
 	 * @return the root path of the page
 	 */
@@ -15,6 +15,7 @@ import java.io.IOException;
 import org.openlowcode.tools.messages.MessageWriter;
 import org.openlowcode.tools.misc.NamedList;
 import org.openlowcode.tools.structure.DataElt;
+import org.openlowcode.tools.structure.LargeBinaryDataElt;
 
 /**
  * The business data of a page. Open Lowcode pages separate strictly business
@@ -80,6 +81,23 @@ public class SPageData {
 		writer.addBooleanField("POP", popup);
 	}
 
+	/**
+	 * disposes the files of the page data once they have been sent, so that the
+	 * temporary files holding large content are deleted
+	 * 
+	 * @since 1.14
+	 */
+	public void dispose() {
+		for (int i = 0; i < dataelements.getSize(); i++) {
+			DataElt element = dataelements.get(i);
+			if (element instanceof LargeBinaryDataElt) {
+				LargeBinaryDataElt binaryelement = (LargeBinaryDataElt) element;
+				if (binaryelement.getPayload() != null)
+					binaryelement.getPayload().dispose();
+			}
+		}
+	}
+
 	/**
 	 * @return the number of elements
 	 */
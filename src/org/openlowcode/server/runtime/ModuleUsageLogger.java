@@ -0,0 +1,255 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.runtime;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import org.openlowcode.module.system.data.Appuser;
+import org.openlowcode.module.system.data.Moduleusage;
+import org.openlowcode.module.system.data.ModuleusageDefinition;
+import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.properties.StoredobjectQueryHelper;
+import org.openlowcode.server.data.storage.QueryFilter;
+import org.openlowcode.server.data.storage.QueryOperatorEqual;
+import org.openlowcode.server.data.storage.SimpleQueryCondition;
+
+/**
+ * A daemon aggregating in memory the number of actions per user, module and
+ * day, and persisting them regularly in module usage objects. Actions are
+ * counted without any access to the database, and the persistence is done for
+ * all users at once, with one query per day and massive update and insert.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class ModuleUsageLogger
+		extends
+		Thread {
+	private static Logger logger = Logger.getLogger(ModuleUsageLogger.class.getName());
+	private ConcurrentHashMap<UsageKey, LongAdder> counters;
+	private long flushintervalms;
+
+	/**
+	 * key of the usage counters
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	private static class UsageKey {
+		private DataObjectId<Appuser> userid;
+		private String module;
+		private Date day;
+
+		private UsageKey(DataObjectId<Appuser> userid, String module, Date day) {
+			this.userid = userid;
+			this.module = module;
+			this.day = day;
+		}
+
+		@Override
+		public int hashCode() {
+			return (userid.hashCode() * 31 + module.hashCode()) * 31 + day.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof UsageKey))
+				return false;
+			UsageKey other = (UsageKey) obj;
+			return (userid.equals(other.userid) && module.equals(other.module) && day.equals(other.day));
+		}
+	}
+
+	/**
+	 * creates the module usage logger
+	 *
+	 * @param flushintervalms interval between two persistences of usage in
+	 *                        milliseconds
+	 */
+	public ModuleUsageLogger(long flushintervalms) {
+		if (flushintervalms <= 0)
+			throw new RuntimeException("Flush interval should be strictly positive, got " + flushintervalms);
+		this.counters = new ConcurrentHashMap<UsageKey, LongAdder>();
+		this.flushintervalms = flushintervalms;
+		this.setDaemon(true);
+		this.setName("ModuleUsageLogger");
+	}
+
+	/**
+	 * @param date a date
+	 * @return the date at noon server time, used as day for module usage
+	 */
+	public static Date getNormalizedDay(Date date) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.HOUR_OF_DAY, 12);
+		return calendar.getTime();
+	}
+
+	/**
+	 * counts an action for the user in the module for today
+	 *
+	 * @param userid user performing the action
+	 * @param module label of the module of the action
+	 */
+	public void logAction(DataObjectId<Appuser> userid, String module) {
+		if (userid == null)
+			return;
+		UsageKey key = new UsageKey(userid, module, getNormalizedDay(new Date()));
+		LongAdder counter = counters.get(key);
+		if (counter == null)
+			counter = counters.computeIfAbsent(key, k -> new LongAdder());
+		counter.increment();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				Thread.sleep(flushintervalms);
+				try {
+					flush();
+				} catch (Exception e) {
+					logger.warning("-- Module usage persistence: fatal error " + e.getMessage());
+					for (int i = 0; i < e.getStackTrace().length; i++)
+						logger.warning("   " + e.getStackTrace()[i]);
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.warning("Module usage logger interrupted: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * persists the actions counted since last persistence. Counters of previous
+	 * days are removed once persisted
+	 */
+	public synchronized void flush() {
+		Date today = getNormalizedDay(new Date());
+		HashMap<Date, HashMap<UsageKey, Long>> actionsperday = new HashMap<Date, HashMap<UsageKey, Long>>();
+		Iterator<Map.Entry<UsageKey, LongAdder>> iterator = counters.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<UsageKey, LongAdder> entry = iterator.next();
+			UsageKey key = entry.getKey();
+			long actions = entry.getValue().sum();
+			if (actions > 0) {
+				// actions counted concurrently stay in the counter for next persistence
+				entry.getValue().add(-actions);
+				HashMap<UsageKey, Long> actionsforday = actionsperday.get(key.day);
+				if (actionsforday == null) {
+					actionsforday = new HashMap<UsageKey, Long>();
+					actionsperday.put(key.day, actionsforday);
+				}
+				actionsforday.put(key, Long.valueOf(actions));
+			} else {
+				if (!key.day.equals(today))
+					iterator.remove();
+			}
+		}
+		RuntimeException firsterror = null;
+		Iterator<Map.Entry<Date, HashMap<UsageKey, Long>>> dayiterator = actionsperday.entrySet().iterator();
+		while (dayiterator.hasNext()) {
+			Map.Entry<Date, HashMap<UsageKey, Long>> dayentry = dayiterator.next();
+			try {
+				flushDay(dayentry.getKey(), dayentry.getValue());
+			} catch (RuntimeException e) {
+				// only actions not persisted are still in the map, they are put back in
+				// counters for next persistence
+				Iterator<Map.Entry<UsageKey, Long>> actioniterator = dayentry.getValue().entrySet().iterator();
+				while (actioniterator.hasNext()) {
+					Map.Entry<UsageKey, Long> action = actioniterator.next();
+					counters.computeIfAbsent(action.getKey(), k -> new LongAdder())
+							.add(action.getValue().longValue());
+				}
+				if (firsterror == null)
+					firsterror = e;
+			}
+		}
+		if (firsterror != null)
+			throw firsterror;
+	}
+
+	/**
+	 * persists the actions of the day. Actions are removed from the map as soon
+	 * as they are persisted, so that, in case of error, the map only keeps the
+	 * actions not persisted
+	 * 
+	 * @param day           the day
+	 * @param actionsforday number of actions per key for the day
+	 */
+	private void flushDay(Date day, HashMap<UsageKey, Long> actionsforday) {
+		Moduleusage[] existingusages = Moduleusage.getallactive(QueryFilter.get(new SimpleQueryCondition<Date>(
+				Moduleusage.getDefinition().getAlias(StoredobjectQueryHelper.maintablealiasforgetallactive),
+				ModuleusageDefinition.getModuleusageDefinition().getDayFieldSchema(), new QueryOperatorEqual<Date>(),
+				day)));
+		HashMap<UsageKey, Moduleusage> existingusagesperkey = new HashMap<UsageKey, Moduleusage>();
+		if (existingusages != null)
+			for (int i = 0; i < existingusages.length; i++) {
+				Moduleusage existingusage = existingusages[i];
+				if (existingusage.getModule() != null)
+					existingusagesperkey.putIfAbsent(new UsageKey(existingusage.getLinkedtoparentforsessionuserid(),
+							existingusage.getModule(), day), existingusage);
+			}
+		ArrayList<Moduleusage> usagestoupdate = new ArrayList<Moduleusage>();
+		ArrayList<UsageKey> keystoupdate = new ArrayList<UsageKey>();
+		ArrayList<Moduleusage> usagestoinsert = new ArrayList<Moduleusage>();
+		ArrayList<UsageKey> keystoinsert = new ArrayList<UsageKey>();
+		Iterator<Map.Entry<UsageKey, Long>> iterator = actionsforday.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<UsageKey, Long> entry = iterator.next();
+			UsageKey key = entry.getKey();
+			int actions = entry.getValue().intValue();
+			Moduleusage usage = existingusagesperkey.get(key);
+			if (usage != null) {
+				usage.setActionnr(Integer.valueOf(usage.getActionnr().intValue() + actions));
+				usagestoupdate.add(usage);
+				keystoupdate.add(key);
+			} else {
+				usage = new Moduleusage();
+				usage.setparentwithoutupdateforsessionuser(key.userid);
+				usage.setDay(day);
+				usage.setModule(key.module);
+				usage.setActionnr(Integer.valueOf(actions));
+				usagestoinsert.add(usage);
+				keystoinsert.add(key);
+			}
+		}
+		if (usagestoupdate.size() > 0) {
+			Moduleusage[] updatearray = usagestoupdate.toArray(new Moduleusage[0]);
+			updatearray[0].getMassiveUpdate().update(updatearray);
+			for (int i = 0; i < keystoupdate.size(); i++)
+				actionsforday.remove(keystoupdate.get(i));
+		}
+		if (usagestoinsert.size() > 0) {
+			Moduleusage[] insertarray = usagestoinsert.toArray(new Moduleusage[0]);
+			insertarray[0].getMassiveInsert().insert(insertarray);
+			for (int i = 0; i < keystoinsert.size(); i++)
+				actionsforday.remove(keystoinsert.get(i));
+		}
+		logger.fine("persisted module usage for day " + day + ", updated = " + usagestoupdate.size()
+				+ ", inserted = " + usagestoinsert.size());
+	}
+}
@@ -15,7 +15,6 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.net.InetAddress;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -37,14 +36,20 @@ import org.openlowcode.module.system.Systemmodule;
 import org.openlowcode.module.system.data.Appuser;
 import org.openlowcode.module.system.data.Authority;
 import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.DataObjectDefinition;
 import org.openlowcode.server.data.formula.TriggerToExecute;
+import org.openlowcode.server.data.loader.FlatFileLoader;
 import org.openlowcode.server.data.properties.AdminIdDefaultValueGenerator;
 import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.properties.StoredobjectQueryHelper;
 import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.PersistentStorage;
 import org.openlowcode.server.data.storage.jdbcpool.ConnectionPool;
+import org.openlowcode.server.data.storage.jdbcpool.FairConnectionPool;
+import org.openlowcode.server.data.storage.jdbcpool.PreparedStatementCache;
 import org.openlowcode.server.data.storage.jdbcpool.SimpleConnectionPool;
+import org.openlowcode.server.data.storage.standardjdbc.BaseJDBCStorage;
 import org.openlowcode.server.runtime.email.MailDaemon;
 import org.openlowcode.server.security.OTPSecurity;
 import org.openlowcode.server.security.SecurityManager;
@@ -66,8 +71,35 @@ public class OLcServer {
 
 	public final static String DBTYPE_DERBY = "DERBY";
 	public final static String DBTYPE_MARIA10_2 = "MARIA10.2";
+	/**
+	 * connection pool polling for free connections (default)
+	 * 
+	 * @since 1.14
+	 */
+	public final static String POOLTYPE_SIMPLE = "SIMPLE";
+	/**
+	 * connection pool with fair queue of waiting threads and direct hand-over of
+	 * connections
+	 * 
+	 * @since 1.14
+	 */
+	public final static String POOLTYPE_FAIR = "FAIR";
+	/**
+	 * listener with a thread per client connection (default)
+	 * 
+	 * @since 1.14
+	 */
+	public final static String LISTENERTYPE_THREAD = "THREAD";
+	/**
+	 * listener with a selector reading all client connections without blocking,
+	 * and a pool of worker threads treating complete messages
+	 * 
+	 * @since 1.14
+	 */
+	public final static String LISTENERTYPE_SELECTOR = "SELECTOR";
 	private ConnectionPool connectionpool;
 	private SecurityManager securitymanager;
+	private ModuleUsageLogger moduleusagelogger;
 	private OLcServerLogFilter consolelogfilter;
 	private OLcServerLogFilter filelogfilter;
 
@@ -76,7 +108,29 @@ public class OLcServer {
 	private static OLcServer serversingleton;
 	private InetAddress localhost;
 	private ConnectionListener connectionlisterner;
+	private SelectorConnectionListener selectorlistener;
 	private String alternativeonewayencryptionkey=null;
+	private boolean binaryframing = true;
+	private boolean streamencryption = true;
+	private boolean tracetriggerstack = false;
+
+	/**
+	 * @return true if the server proposes binary framing of messages to clients
+	 *         during the security handshake
+	 * @since 1.14
+	 */
+	public boolean isBinaryFramingAllowed() {
+		return this.binaryframing;
+	}
+
+	/**
+	 * @return true if the server proposes stream encryption to clients during the
+	 *         security handshake (only with binary framing)
+	 * @since 1.14
+	 */
+	public boolean isStreamEncryptionAllowed() {
+		return (this.binaryframing && this.streamencryption);
+	}
 	
 	public String getAlternativeOneWayEncryptionKey() {
 		return this.alternativeonewayencryptionkey;
@@ -140,6 +194,16 @@ public class OLcServer {
 		return securitymanager;
 	}
 
+	/**
+	 * gets the logger counting actions per user and module
+	 * 
+	 * @return the module usage logger
+	 * @since 1.14
+	 */
+	public ModuleUsageLogger getModuleUsageLogger() {
+		return moduleusagelogger;
+	}
+
 	/**
 	 * gets the main module on the server
 	 * 
@@ -218,7 +282,24 @@ public class OLcServer {
 				jdbcpassword = serverconfig.getCompulsoryValue("JDBC.PASSWORD");
 				maxconnection = serverconfig.getCompulsoryIntegerValue("JDBC.MAXCONNECTIONS");
 			}
-			connectionpool = new SimpleConnectionPool(jdbcurl, jdbcuser, jdbcpassword, minconnection, maxconnection);
+			String pooltype = serverconfig.getOptionalValue("JDBC.POOLTYPE");
+			if (POOLTYPE_FAIR.equals(pooltype)) {
+				minconnection = serverconfig.getOptionalIntegerValue("JDBC.MINCONNECTIONS", minconnection);
+				int idletimeout = serverconfig.getOptionalIntegerValue("JDBC.IDLETIMEOUT", 600);
+				connectionpool = new FairConnectionPool(jdbcurl, jdbcuser, jdbcpassword, minconnection, maxconnection,
+						idletimeout * 1000L);
+			} else {
+				if ((pooltype != null) && (!POOLTYPE_SIMPLE.equals(pooltype)))
+					throw new RuntimeException("Unsupported JDBC.POOLTYPE '" + pooltype + "', supported values are "
+							+ POOLTYPE_SIMPLE + " and " + POOLTYPE_FAIR);
+				connectionpool = new SimpleConnectionPool(jdbcurl, jdbcuser, jdbcpassword, minconnection,
+						maxconnection);
+			}
+			mainlogger.info("Connection pool type = " + connectionpool.getClass().getSimpleName());
+			PreparedStatementCache.setCapacity(serverconfig.getOptionalIntegerValue("JDBC.STATEMENTCACHE",
+					PreparedStatementCache.DEFAULT_CAPACITY));
+			StoredobjectQueryHelper.setStreamFetchSize(serverconfig.getOptionalIntegerValue("JDBC.STREAMFETCHSIZE",
+					StoredobjectQueryHelper.DEFAULT_STREAM_FETCH_SIZE));
 			// connection pool and persistence gateway seem to be inconsistent / redundant
 			PersistenceGateway.setconnectionpool(dbtype, connectionpool);
 			PersistentStorage storage = PersistenceGateway.getStorage();
@@ -281,8 +362,21 @@ public class OLcServer {
 				ldappassword = serverconfig.getCompulsoryValue("LDAP.PASSWORD");
 			}
 
+			ServerSecurityBuffer
+					.setFullRefreshCycles(serverconfig.getOptionalIntegerValue("SECURITY.FULLREFRESHCYCLES", 10));
 			securitymanager = new SecurityManager(ldapconnectionstring, ldapuser, ldappassword);
 			securitymanager.start();
+			moduleusagelogger = new ModuleUsageLogger(
+					serverconfig.getOptionalIntegerValue("USAGE.FLUSHINTERVAL", 60) * 1000L);
+			moduleusagelogger.start();
+			this.tracetriggerstack = serverconfig.getOptionalBooleanValue("TRIGGER.TRACESTACK", false);
+			FlatFileLoader.setDefaultBatchSize(serverconfig.getOptionalIntegerValue("LOADER.BATCHSIZE", 1));
+			FlatFileLoader.setDefaultWorkers(serverconfig.getOptionalIntegerValue("LOADER.WORKERS", 1));
+			FlatFileLoader.setStreamingWorkbookThreshold(
+					serverconfig.getOptionalIntegerValue("LOADER.STREAMINGWORKBOOKKB", 4096) * 1024L);
+			BaseJDBCStorage.setInsertBatchSize(serverconfig.getOptionalIntegerValue("LOADER.INSERTBATCHSIZE",
+					BaseJDBCStorage.DEFAULT_INSERT_BATCH_SIZE));
+			BaseJDBCStorage.setMultiRowInsert(serverconfig.getOptionalBooleanValue("LOADER.MULTIROWINSERT", true));
 
 			String otptype = serverconfig.getOptionalValue("OTP.TYPE");
 			if (otptype != null) {
@@ -307,8 +401,19 @@ public class OLcServer {
 			// ConnectionGateway.initSingle(connectionpool.getConnection());
 
 			boolean messageaudit = serverconfig.getOptionalBooleanValue("MESSAGE.AUDIT", false);
+			this.binaryframing = serverconfig.getOptionalBooleanValue("MESSAGE.BINARYFRAMING", true);
+			this.streamencryption = serverconfig.getOptionalBooleanValue("MESSAGE.STREAMENCRYPTION", true);
 
-			connectionlisterner = new ConnectionListener(port, this, messageaudit);
+			String listenertype = serverconfig.getOptionalValue("LISTENER.TYPE");
+			if (LISTENERTYPE_SELECTOR.equals(listenertype)) {
+				int workers = serverconfig.getOptionalIntegerValue("LISTENER.WORKERS", 32);
+				selectorlistener = new SelectorConnectionListener(port, this, messageaudit, workers);
+			} else {
+				if ((listenertype != null) && (!LISTENERTYPE_THREAD.equals(listenertype)))
+					throw new RuntimeException("Unsupported LISTENER.TYPE '" + listenertype
+							+ "', supported values are " + LISTENERTYPE_THREAD + " and " + LISTENERTYPE_SELECTOR);
+				connectionlisterner = new ConnectionListener(port, this, messageaudit);
+			}
 			mainlogger.severe(serverstartuptimer.logTimer(" STARTUP STEP 7: all port listeners initiated"));
 			String smtpurl = serverconfig.getOptionalValue("SMTP.URL");
 			if (smtpurl != null) {
@@ -557,6 +662,8 @@ public class OLcServer {
 		connectionhandler.setLevel(Level.FINEST);
 		connectionhandler.setFormatter(new FileFormatter(false));
 		connectionlogger.addHandler(connectionhandler);
+		Logger fairconnectionlogger = Logger.getLogger(FairConnectionPool.class.getCanonicalName());
+		fairconnectionlogger.addHandler(connectionhandler);
 	}
 
 	/**
@@ -574,7 +681,7 @@ public class OLcServer {
 	 */
 	public void resetTriggersList() {
 		currentriggerexecution.set(new Integer(-1));
-		triggerstoexecute.set(new ArrayList<TriggerToExecute<?>>());
+		triggerstoexecute.set(new TriggerQueue());
 		triggersobjectbuffer.set(new HashMap<String, UniqueidentifiedInterface<?>>());
 	}
 
@@ -588,12 +695,39 @@ public class OLcServer {
 	@SuppressWarnings("unchecked")
 	public <E extends DataObject<E> & UniqueidentifiedInterface<E>> E getObjectInTriggerUpdateBuffer(
 			DataObjectId<E> id) {
-		UniqueidentifiedInterface<?> object = triggersobjectbuffer.get().get(id.getObjectId());
+		UniqueidentifiedInterface<?> object = triggersobjectbuffer.get().get(getTriggerUpdateBufferKey(id));
 		if (object == null)
 			return null;
 		return (E) (object);
 	}
 
+	/**
+	 * checks if the buffer specific to the thread calling holds objects of the
+	 * given type. If not, the values of those objects in the database are up to
+	 * date, and can be aggregated directly in the database
+	 * 
+	 * @param definition definition of a data object
+	 * @return true if at least one object of the given type is in the buffer
+	 * @since 1.14
+	 */
+	public boolean hasObjectTypeInTriggerUpdateBuffer(DataObjectDefinition<?> definition) {
+		HashMap<String, UniqueidentifiedInterface<?>> buffer = triggersobjectbuffer.get();
+		if (buffer == null)
+			return false;
+		Iterator<UniqueidentifiedInterface<?>> iterator = buffer.values().iterator();
+		while (iterator.hasNext()) {
+			UniqueidentifiedInterface<?> object = iterator.next();
+			if (object instanceof DataObject) {
+				DataObject<?> dataobject = (DataObject<?>) object;
+				if (dataobject.getDefinitionFromObject().getName().equals(definition.getName()))
+					return true;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * adds a data object to put in the buffer specific to the thread calling
 	 * 
@@ -601,121 +735,92 @@ public class OLcServer {
 	 */
 	public void setObjectInTriggerUpdateBuffer(UniqueidentifiedInterface<?> object) {
 		mainlogger.fine(" -+-+- Add object in trigger object buffer " + object.getId());
-		triggersobjectbuffer.get().put(object.getId().getObjectId(), object);
+		triggersobjectbuffer.get().put(getTriggerUpdateBufferKey(object.getId()), object);
+	}
+
+	/**
+	 * @param id id of a data object
+	 * @return the key of the object in the trigger update buffer (type and id of
+	 *         the object)
+	 */
+	private static String getTriggerUpdateBufferKey(DataObjectId<?> id) {
+		return id.getObjectId() + "/" + id.getId();
 	}
 
 	/**
-	 * adds a trigger to the list of triggers to execute for the thread
+	 * records the evaluation of a formula for the thread calling, and tells if it
+	 * should be performed (see TriggerQueue.startEvaluation)
+	 * 
+	 * @param calculatedfield name of the trigger calculating the field
+	 * @param targetid        id of the object the field is on (can be null)
+	 * @return true if the formula should be evaluated, false if the field was
+	 *         already evaluated on this object during recalculation
+	 * @since 1.14
+	 */
+	public boolean startFormulaEvaluation(String calculatedfield, DataObjectId<?> targetid) {
+		TriggerQueue currenttriggers = triggerstoexecute.get();
+		if (currenttriggers == null)
+			return true;
+		return currenttriggers.startEvaluation(calculatedfield, targetid);
+	}
+
+	/**
+	 * adds a trigger to the list of triggers to execute for the thread. If a
+	 * trigger with the same name is pending on the same object, the trigger is
+	 * coalesced with it
 	 * 
 	 * @param newtrigger the trigger to add in the list of triggers to execute
 	 */
-	@SuppressWarnings("unchecked")
 	public void addTriggerToList(TriggerToExecute<?> newtrigger) {
-		// this is costly traceability. Removed for normal operation, may be needed for
-		// debugging
-		Thread currentThread = Thread.currentThread();
-		StackTraceElement[] stacktrace = currentThread.getStackTrace();
-		mainlogger.fine("Adding Trigger to list at ------------------------");
-		for (int i = 0; i < stacktrace.length; i++) {
-			mainlogger.fine("   " + stacktrace[i]);
-		}
-
-		DataObject<?> newtriggerobject = newtrigger.getContextobject();
-		DataObjectId<?> newtriggerid = null;
-		if (newtriggerobject instanceof UniqueidentifiedInterface)
-			newtriggerid = ((UniqueidentifiedInterface<?>) newtriggerobject).getId();
-		mainlogger.fine("		NEW TRIGGER " + newtrigger + ", DataObjectId = " + newtriggerid);
-		mainlogger.fine("		NEW TRIGGER Object" + newtriggerobject.dropToString());
-		// will look at all triggers after the one under execution, and only add the
-		// object if not already present
-		// if object already present, replaces by the newer version
-		int executionindex = currentriggerexecution.get();
-		boolean objecttriggeralreadypresent = false;
-		ArrayList<TriggerToExecute<?>> currenttriggers = triggerstoexecute.get();
-		mainlogger.fine(" getting triggers from currentriggers list = " + currenttriggers.toString() + " for Thread "
-				+ Thread.currentThread().getId());
-
-		for (int i = executionindex + 1; i < currenttriggers.size(); i++) {
-			mainlogger.fine("----------------- LOOP IN TRIGGER --- " + i + " ----");
-			@SuppressWarnings("rawtypes")
-			TriggerToExecute thistrigger = currenttriggers.get(i);
-			DataObject<?> thisobject = thistrigger.getContextobject();
-
-			if (thisobject instanceof UniqueidentifiedInterface) {
-				DataObjectId<?> thisobjectid = ((UniqueidentifiedInterface<?>) thisobject).getId();
-				mainlogger
-						.fine("		Existing Trigger [" + i + "] " + thistrigger + ", DataObjectId = " + thisobjectid);
-				mainlogger.fine("		Existing trigger object = " + thisobject.dropToString());
-				if (thisobjectid.equals(newtriggerid)) {
-					// replace object
-
-					mainlogger.fine(" --**--- [EXIND=" + executionindex + ",IND=" + i + "] OLDTRIG="
-							+ thistrigger.toString() + " NEWTRIG=" + newtrigger.toString()
-							+ " replace object with id = " + thisobjectid + " by object with same id " + newtriggerid);
-					thistrigger.replacetrigger(newtriggerobject);
-					if (thistrigger.getName().equals(newtrigger.getName())) {
-						objecttriggeralreadypresent = true;
-					} else {
-						mainlogger.fine("Does not replace both triggers as different classes " + thistrigger.getName()
-								+ " - " + newtrigger.getName());
-					}
-					// suppressing break as there could be several classes of triggers
-					// break;
-				}
+		// this is costly traceability, only performed if trigger trace is activated
+		if (tracetriggerstack) {
+			StackTraceElement[] stacktrace = Thread.currentThread().getStackTrace();
+			mainlogger.info("Adding Trigger to list at ------------------------");
+			for (int i = 0; i < stacktrace.length; i++) {
+				mainlogger.info("   " + stacktrace[i]);
 			}
 		}
-
-		if (!objecttriggeralreadypresent) {
-			DataObject<?> thisobject = newtrigger.getContextobject();
-			if (thisobject instanceof UniqueidentifiedInterface) {
-				DataObjectId<?> thisobjectid = ((UniqueidentifiedInterface<?>) thisobject).getId();
-				mainlogger.fine("   --- *** [EXIND=" + executionindex + "]-- adding normally trigger "
-						+ newtrigger.toString() + " ID=" + thisobjectid + " at index " + currenttriggers.size());
-
-			}
-			mainlogger.fine(" adding triggers from currentriggers list = " + currenttriggers.toString() + " for Thread "
-					+ Thread.currentThread().getId());
-
-			currenttriggers.add(newtrigger);
-		} else {
-			if (executionindex >= 0)
-				mainlogger.fine("During execution [EXIND=" + executionindex + "] of trigger " + executionindex
-						+ ", did not add object " + newtriggerid + " as already present in further event");
-			if (executionindex == -1)
-				mainlogger.fine("During initial configuration [EXIND=" + executionindex + "], did not add object "
-						+ newtriggerid + " as already present in further event");
-		}
+		int executionindex = currentriggerexecution.get();
+		TriggerQueue currenttriggers = triggerstoexecute.get();
+		boolean coalesced = currenttriggers.add(newtrigger, executionindex);
+		if (mainlogger.isLoggable(Level.FINE))
+			mainlogger.fine("[EXIND=" + executionindex + "] " + (coalesced ? "coalesced" : "queued") + " trigger "
+					+ newtrigger + " for Thread " + Thread.currentThread().getId() + ", " + currenttriggers);
 	}
 
 	/**
 	 * This method will execute triggers for the calling thread with the following
 	 * order
 	 * <ul>
-	 * <li>first execute the internal triggers</li>
+	 * <li>first execute the internal triggers, in the order of the formula
+	 * dependency graph</li>
 	 * <li>then persist objects</li>
 	 * <li>then execute custom triggers</li>
 	 * </ul>
 	 * 
 	 */
 	public void executeTriggerList() {
-		ArrayList<TriggerToExecute<?>> triggerforthread = triggerstoexecute.get();
-		int index = 0;
+		TriggerQueue triggerforthread = triggerstoexecute.get();
 		if (triggerforthread != null)
-			while (index < triggerforthread.size()) {
-				if (index > 1024)
-					throw new RuntimeException("Breaker: more than 1024 external threads for an action");
-				TriggerToExecute<?> thistrigger = triggerforthread.get(index);
-				if (!thistrigger.isCustomTrigger()) {
+			try {
+				triggerforthread.setRecalculating(true);
+				int index = triggerforthread.pollNextCalculation();
+				while (index != -1) {
+					if (index > 1024)
+						throw new RuntimeException("Breaker: more than 1024 external threads for an action");
 					mainlogger.info(" ------ ** -- ** -- executing trigger index " + index + " out of current size "
 							+ triggerforthread.size());
 					@SuppressWarnings({ "rawtypes", "unchecked" })
 					NamedList<TriggerToExecute> newtriggers = (NamedList) triggerforthread.get(index).execute(true);
+					triggerforthread.countExecution();
 					for (int j = 0; j < newtriggers.getSize(); j++) {
-						triggerforthread.add(newtriggers.get(j));
+						triggerforthread.append(newtriggers.get(j));
 						mainlogger.info("				-*- adding a new trigger ");
 					}
+					index = triggerforthread.pollNextCalculation();
 				}
-				index++;
+			} finally {
+				triggerforthread.setRecalculating(false);
 			}
 		HashMap<String, UniqueidentifiedInterface<?>> buffer = triggersobjectbuffer.get();
 		mainlogger.info(" ----------- ** ** -- updating objects in the trigger buffer, buffer size =  "
@@ -731,7 +836,7 @@ public class OLcServer {
 		// not be executed.
 		// note 2 on second wave: there is no buffer. Not sure why, it makes things very
 		// slow
-		index = 0;
+		int index = 0;
 		if (triggerforthread != null)
 			while (index < triggerforthread.size()) {
 				currentriggerexecution.set(new Integer(index));
@@ -743,13 +848,16 @@ public class OLcServer {
 							+ " out of current size " + triggerforthread.size());
 					@SuppressWarnings({ "rawtypes", "unchecked" })
 					NamedList<TriggerToExecute> newtriggers = (NamedList) triggerforthread.get(index).execute(true);
+					triggerforthread.countExecution();
 					for (int j = 0; j < newtriggers.getSize(); j++) {
-						triggerforthread.add(newtriggers.get(j));
+						triggerforthread.append(newtriggers.get(j));
 						mainlogger.info("				-*- adding a new trigger ");
 					}
 				}
 				index++;
 			}
+		if (triggerforthread != null)
+			mainlogger.info(" ----------- ** ** -- executed trigger list " + triggerforthread.getSummary());
 
 	}
 
@@ -760,8 +868,7 @@ public class OLcServer {
 	private ThreadLocal<DataObjectId<Appuser>> connectionuserid = new ThreadLocal<DataObjectId<Appuser>>();
 	private ThreadLocal<Integer> currentriggerexecution = new ThreadLocal<Integer>();
 	private ThreadLocal<Long> sequenceperthread = new ThreadLocal<Long>();
-	private ThreadLocal<
-			ArrayList<TriggerToExecute<?>>> triggerstoexecute = new ThreadLocal<ArrayList<TriggerToExecute<?>>>();
+	private ThreadLocal<TriggerQueue> triggerstoexecute = new ThreadLocal<TriggerQueue>();
 	private ThreadLocal<HashMap<String, UniqueidentifiedInterface<?>>> triggersobjectbuffer = new ThreadLocal<
 			HashMap<String, UniqueidentifiedInterface<?>>>();
 
@@ -824,6 +931,15 @@ public class OLcServer {
 		return this.aescommunicator.get();
 	}
 
+	/**
+	 * removes the reference to the aes cipher for the calling thread
+	 * 
+	 * @since 1.14
+	 */
+	public void removeAESCommunicatorReference() {
+		this.aescommunicator.remove();
+	}
+
 
 
 	/**
@@ -845,6 +961,15 @@ public class OLcServer {
 		return connectionuserid.get();
 	}
 
+	/**
+	 * removes the reference to the user id for the calling thread
+	 * 
+	 * @since 1.14
+	 */
+	public void removeUserIdConnectionReference() {
+		connectionuserid.remove();
+	}
+
 	/**
 	 * sets the client id for the connection for the calling thread
 	 * 
@@ -873,6 +998,15 @@ public class OLcServer {
 		this.otpauthorization.set(Boolean.TRUE);
 	}
 
+	/**
+	 * removes the OTP Authorization for the current thread
+	 * 
+	 * @since 1.14
+	 */
+	public void removeOTPConnectionReference() {
+		this.otpauthorization.remove();
+	}
+
 	/**
 	 * @return gets the client id for the connection for the calling thread
 	 */
@@ -948,6 +1082,10 @@ public class OLcServer {
 	 * sends a shutdown request to all connections
 	 */
 	public void sendShutdownToAllConnections() {
+		if (selectorlistener != null) {
+			selectorlistener.sendShutdownToAllConnections();
+			return;
+		}
 		connectionlisterner.sendShutdownToAllConnections();
 
 	}
@@ -958,7 +1096,8 @@ public class OLcServer {
 	 * @param id reports that a thread with
 	 */
 	public void reportThreadFinished(long id) {
-		connectionlisterner.reportThreadFinished(id);
+		if (connectionlisterner != null)
+			connectionlisterner.reportThreadFinished(id);
 
 	}
 
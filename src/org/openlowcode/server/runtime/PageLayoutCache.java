@@ -0,0 +1,202 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.runtime;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openlowcode.module.system.data.Authority;
+import org.openlowcode.server.graphic.SPage;
+import org.openlowcode.server.graphic.SPageData;
+import org.openlowcode.server.security.SecurityBuffer;
+import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageSequence;
+
+/**
+ * A bounded cache of page layouts serialized for the client, with the hash and
+ * size of their text. Only pages declaring a layout variant are cached, as the
+ * layout of most pages depends on the data displayed. The layout is keyed by
+ * page class, layout variant, locale, OTP status and authorities of the user.
+ * The cache is cleared when the security buffer is refreshed.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class PageLayoutCache {
+	/**
+	 * maximum number of page layouts kept in the cache
+	 */
+	public static final int CAPACITY = 1024;
+	private static final LinkedHashMap<String, PageLayout> cache = new LinkedHashMap<String, PageLayout>(256, 0.75f,
+			true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PageLayout> eldest) {
+			return size() > CAPACITY;
+		}
+	};
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+
+	/**
+	 * the layout of a page, recorded once, with the hash code and size of its
+	 * text used to check the pages buffered on the client
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	public static class PageLayout {
+		private MessageSequence sequence;
+		private int contenthashcode;
+		private int size;
+
+		private PageLayout(MessageSequence sequence, int contenthashcode, int size) {
+			this.sequence = sequence;
+			this.contenthashcode = contenthashcode;
+			this.size = size;
+		}
+
+		/**
+		 * generates the layout of the page
+		 *
+		 * @param page   the page
+		 * @param data   the data of the page
+		 * @param buffer security buffer
+		 * @return the layout of the page
+		 * @throws IOException if any issue is encountered writing the page
+		 */
+		public static PageLayout record(SPage page, SPageData data, SecurityBuffer buffer) throws IOException {
+			MessageSequence sequence = new MessageSequence();
+			sequence.startNewMessage();
+			page.getFinalContent().WriteToCDL(sequence, data, buffer);
+			page.resetPath();
+			sequence.endMessage();
+			StringWriter pageblankstringbuffer = new StringWriter();
+			MessageBufferedWriter pageblankwriter = new MessageBufferedWriter(
+					new BufferedWriter(pageblankstringbuffer), false);
+			pageblankwriter.startNewMessage();
+			sequence.writeTo(pageblankwriter);
+			pageblankwriter.endMessage();
+			String pageblank = pageblankstringbuffer.toString();
+			return new PageLayout(sequence, pageblank.hashCode(), pageblank.length());
+		}
+
+		/**
+		 * @return the recorded layout
+		 */
+		public MessageSequence getSequence() {
+			return sequence;
+		}
+
+		/**
+		 * @return the hash code of the layout text
+		 */
+		public int getContentHashcode() {
+			return contenthashcode;
+		}
+
+		/**
+		 * @return the size of the layout text
+		 */
+		public int getSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * @param page        the page
+	 * @param locale      locale of the user
+	 * @param otpstatus   status of the one-time password for the connection
+	 * @param authorities authorities of the user (can be null)
+	 * @return the key of the layout in the cache, or null if the layout of the
+	 *         page cannot be cached
+	 */
+	public static String getKey(SPage page, String locale, String otpstatus, Authority[] authorities) {
+		String variant = page.getFinalLayoutVariant();
+		if (variant == null)
+			return null;
+		StringBuilder key = new StringBuilder();
+		key.append(page.getClass().getName()).append('|').append(variant).append('|').append(locale).append('|')
+				.append(otpstatus).append('|');
+		if (authorities == null) {
+			key.append("NOAUTHORITY");
+		} else {
+			String[] numbers = new String[authorities.length];
+			for (int i = 0; i < authorities.length; i++)
+				numbers[i] = authorities[i].getNr();
+			Arrays.sort(numbers);
+			String lastnumber = null;
+			for (int i = 0; i < numbers.length; i++) {
+				if (lastnumber != null)
+					if (lastnumber.equals(numbers[i]))
+						continue;
+				key.append(numbers[i]).append(',');
+				lastnumber = numbers[i];
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @param key key of the layout
+	 * @return the layout if in cache, null else
+	 */
+	public static PageLayout get(String key) {
+		PageLayout layout;
+		synchronized (cache) {
+			layout = cache.get(key);
+		}
+		if (layout != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return layout;
+	}
+
+	/**
+	 * @param key    key of the layout
+	 * @param layout layout to store in cache
+	 */
+	public static void put(String key, PageLayout layout) {
+		synchronized (cache) {
+			cache.put(key, layout);
+		}
+	}
+
+	/**
+	 * removes all layouts from the cache
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * @return a one line summary of the counters of the cache
+	 */
+	public static String getStatistics() {
+		int size;
+		synchronized (cache) {
+			size = cache.size();
+		}
+		return "PAGELAYOUTCACHE[size=" + size + ",hits=" + hits.sum() + ",misses=" + misses.sum() + "]";
+	}
+}
@@ -0,0 +1,446 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.runtime;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.openlowcode.tools.enc.AESCommunicator;
+import org.openlowcode.tools.messages.MessageBinaryReader;
+import org.openlowcode.tools.messages.MessageBinaryWriter;
+import org.openlowcode.tools.messages.MessageBufferedWriter;
+import org.openlowcode.tools.messages.MessageFrameScanner;
+import org.openlowcode.tools.messages.MessageReader;
+import org.openlowcode.tools.messages.MessageSimpleReader;
+import org.openlowcode.tools.messages.MessageWriter;
+
+/**
+ * A listener to outside connections using a single selector thread instead of
+ * a thread per connection. Sockets are read without blocking, and only when a
+ * complete message has been received, it is handed over to a bounded pool of
+ * worker threads. Idle connections do not use any thread.<br>
+ * Messages of a connection are treated one at a time, in the order they are
+ * received. Responses are written by the selector thread when the socket
+ * accepts data.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class SelectorConnectionListener
+		extends
+		Thread {
+	private static Logger logger = Logger.getLogger(SelectorConnectionListener.class.getName());
+	/**
+	 * maximum size of a message received from the client (in bytes)
+	 */
+	public static int MAX_MESSAGE_SIZE = 256 * 1024 * 1024;
+	private int port;
+	private OLcServer parent;
+	private boolean messageaudit;
+	private Selector selector;
+	private ServerSocketChannel serverchannel;
+	private ThreadPoolExecutor workers;
+	private ConcurrentLinkedQueue<Runnable> selectortasks;
+	private ConcurrentHashMap<ClientChannel, ClientChannel> clients;
+	private AtomicInteger runningtreatments;
+	private ByteBuffer readbuffer;
+	private volatile boolean active;
+
+	/**
+	 * Creates a connection listener on the given port
+	 * 
+	 * @param port         port
+	 * @param parent       parent server
+	 * @param messageaudit true if messages are audited
+	 * @param workernumber number of worker threads treating messages
+	 * @throws IOException if any problem is encountered setting up the server
+	 *                     socket. Typically, this may be because a server is
+	 *                     already running on the same port
+	 */
+	public SelectorConnectionListener(int port, OLcServer parent, boolean messageaudit, int workernumber)
+			throws IOException {
+		super("OLcSelectorListener");
+		if (workernumber < 1)
+			throw new RuntimeException("Number of workers should be at least 1, got " + workernumber);
+		this.port = port;
+		this.parent = parent;
+		this.messageaudit = messageaudit;
+		logger.info("initiating selector listener to listen on port " + port + " with " + workernumber + " workers");
+		this.selector = Selector.open();
+		this.serverchannel = ServerSocketChannel.open();
+		this.serverchannel.bind(new InetSocketAddress(port));
+		this.serverchannel.configureBlocking(false);
+		this.serverchannel.register(selector, SelectionKey.OP_ACCEPT);
+		this.workers = new ThreadPoolExecutor(workernumber, workernumber, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private AtomicInteger counter = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						return new Thread(runnable, "OLcWorker-" + counter.incrementAndGet());
+					}
+
+				});
+		this.selectortasks = new ConcurrentLinkedQueue<Runnable>();
+		this.clients = new ConcurrentHashMap<ClientChannel, ClientChannel>();
+		this.runningtreatments = new AtomicInteger(0);
+		this.readbuffer = ByteBuffer.allocateDirect(64 * 1024);
+		this.active = true;
+		this.start();
+		logger.info("port " + this.port + " listening initialized. Starts listening in the background");
+	}
+
+	/**
+	 * The state of a client connection. All methods except send are called by the
+	 * selector thread.
+	 *
+	 */
+	private class ClientChannel {
+		private SocketChannel channel;
+		private SelectionKey key;
+		private ServerConnection connection;
+		private MessageFrameScanner scanner;
+		private ArrayDeque<ByteBuffer> output;
+		private boolean treating;
+		private boolean closing;
+		private boolean binaryframing;
+		private boolean streamencryption;
+
+		private ClientChannel(SocketChannel channel) throws IOException {
+			this.channel = channel;
+			this.connection = new ServerConnection(channel.socket().getInetAddress(), parent, messageaudit);
+			this.scanner = new MessageFrameScanner(MAX_MESSAGE_SIZE);
+			this.output = new ArrayDeque<ByteBuffer>();
+			this.treating = false;
+			this.closing = false;
+			this.binaryframing = false;
+			this.streamencryption = false;
+			this.key = channel.register(selector, 0, this);
+		}
+
+		/**
+		 * called by a worker thread to send bytes to the client
+		 * 
+		 * @param bytes bytes to send
+		 */
+		private void send(byte[] bytes) {
+			synchronized (output) {
+				output.add(ByteBuffer.wrap(bytes));
+			}
+			runOnSelector(() -> {
+				if (key.isValid())
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			});
+		}
+
+		private void read() throws IOException {
+			readbuffer.clear();
+			int read = channel.read(readbuffer);
+			if (read == -1) {
+				logger.fine("normal client disconnection from " + channel.socket().getInetAddress());
+				close();
+				return;
+			}
+			readbuffer.flip();
+			scanner.append(readbuffer);
+			dispatchNextMessage();
+		}
+
+		private void write() throws IOException {
+			synchronized (output) {
+				while (!output.isEmpty()) {
+					ByteBuffer buffer = output.peek();
+					channel.write(buffer);
+					if (buffer.hasRemaining())
+						return;
+					output.poll();
+				}
+			}
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			if (closing)
+				close();
+		}
+
+		private void dispatchNextMessage() {
+			if (treating)
+				return;
+			if (closing)
+				return;
+			if (!scanner.hasFrame()) {
+				key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+				return;
+			}
+			if (!active) {
+				logger.severe("Closing connection as got shutdown request from server");
+				closeAfterOutput();
+				return;
+			}
+			byte[] message = scanner.nextFrame();
+			MessageReader reader;
+			if (streamencryption) {
+				AESCommunicator communicator = connection.getAESCommunicator();
+				reader = new MessageBinaryReader(communicator.getDecryptingStream(new ByteArrayInputStream(message)));
+				reader.setAESCommunicator(communicator);
+			} else if (binaryframing) {
+				reader = new MessageBinaryReader(new ByteArrayInputStream(message));
+			} else {
+				reader = new MessageSimpleReader(
+						new InputStreamReader(new ByteArrayInputStream(message), Charset.forName("UTF-8")));
+			}
+			submitTreatment((writer) -> connection.treatSelectorMessage(reader, writer));
+		}
+
+		private void startSession() {
+			submitTreatment((writer) -> {
+				try {
+					connection.startSelectorSession(writer);
+					return true;
+				} catch (Exception e) {
+					logger.severe("Could not start session with " + channel.socket().getInetAddress() + " "
+							+ e.getMessage());
+					return false;
+				}
+			});
+		}
+
+		private void submitTreatment(Treatment treatment) {
+			treating = true;
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			runningtreatments.incrementAndGet();
+			boolean binarywriter = binaryframing;
+			boolean encryptingwriter = streamencryption;
+			workers.execute(() -> {
+				boolean keepopen = false;
+				try {
+					MessageWriter writer;
+					if (encryptingwriter) {
+						AESCommunicator communicator = connection.getAESCommunicator();
+						writer = new MessageBinaryWriter(communicator.getEncryptingStream(new ChannelOutputStream(this)),
+								messageaudit);
+						writer.setAESCommunicator(communicator);
+					} else if (binarywriter) {
+						writer = new MessageBinaryWriter(new ChannelOutputStream(this), messageaudit);
+					} else {
+						writer = new MessageBufferedWriter(
+								new BufferedWriter(new OutputStreamWriter(new ChannelOutputStream(this),
+										Charset.forName("UTF-8"))),
+								messageaudit);
+					}
+					keepopen = treatment.treat(writer);
+				} catch (Throwable t) {
+					logger.severe("Exception while treating message " + t.getClass().getName() + " " + t.getMessage());
+					for (int i = 0; i < t.getStackTrace().length; i++)
+						logger.severe(" at " + t.getStackTrace()[i].toString());
+				} finally {
+					runningtreatments.decrementAndGet();
+				}
+				boolean finalkeepopen = keepopen;
+				runOnSelector(() -> {
+					treating = false;
+					if (!key.isValid())
+						return;
+					// binary framing is negotiated by the security handshake
+					if ((!binaryframing) && (connection.isBinaryFraming())) {
+						binaryframing = true;
+						scanner.setBinaryFraming();
+					}
+					if ((!streamencryption) && (connection.isStreamEncryption())) {
+						streamencryption = true;
+						scanner.setRecordFraming();
+					}
+					if (finalkeepopen) {
+						dispatchNextMessage();
+					} else {
+						closeAfterOutput();
+					}
+				});
+			});
+		}
+
+		private void closeAfterOutput() {
+			closing = true;
+			boolean outputpending;
+			synchronized (output) {
+				outputpending = !output.isEmpty();
+			}
+			if (!outputpending)
+				close();
+		}
+
+		private void close() {
+			clients.remove(this);
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.warning("Exception while closing connection " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * the treatment of a message on a worker thread
+	 *
+	 */
+	@FunctionalInterface
+	private interface Treatment {
+		/**
+		 * @param writer writer to the client
+		 * @return true if the connection should be kept open
+		 * @throws Exception if any error is encountered
+		 */
+		public boolean treat(MessageWriter writer) throws Exception;
+	}
+
+	/**
+	 * An output stream sending the content to the client each time it is flushed
+	 * (the message writer flushes at the end of each message)
+	 *
+	 */
+	private static class ChannelOutputStream
+			extends
+			ByteArrayOutputStream {
+		private ClientChannel client;
+
+		private ChannelOutputStream(ClientChannel client) {
+			super(8192);
+			this.client = client;
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			if (this.count > 0) {
+				client.send(this.toByteArray());
+				this.reset();
+			}
+		}
+	}
+
+	private void runOnSelector(Runnable task) {
+		selectortasks.add(task);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				selector.select();
+				Runnable task = selectortasks.poll();
+				while (task != null) {
+					task.run();
+					task = selectortasks.poll();
+				}
+				Set<SelectionKey> selectedkeys = selector.selectedKeys();
+				Iterator<SelectionKey> iterator = selectedkeys.iterator();
+				while (iterator.hasNext()) {
+					SelectionKey key = iterator.next();
+					iterator.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					ClientChannel client = (ClientChannel) key.attachment();
+					try {
+						if (key.isReadable())
+							client.read();
+						if ((key.isValid()) && (key.isWritable()))
+							client.write();
+					} catch (Exception e) {
+						logger.warning("Closing connection from " + client.channel.socket().getInetAddress()
+								+ " after exception " + e.getClass().getName() + " " + e.getMessage());
+						client.close();
+					}
+				}
+			}
+		} catch (Exception e) {
+			logger.severe("received exception in connection listening thread " + e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++)
+				logger.severe(e.getStackTrace()[i].toString());
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverchannel.accept();
+		if (channel == null)
+			return;
+		if (!active) {
+			channel.close();
+			logger.info("Although received a connection, was requested from server to stop");
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		ClientChannel client = new ClientChannel(channel);
+		clients.put(client, client);
+		logger.info("starting clientconnection from address " + channel.socket().getInetAddress()
+				+ ", currently " + clients.size() + " connections");
+		client.startSession();
+	}
+
+	/**
+	 * stops accepting new connections and new messages from existing connections.
+	 * Then waits up to 200 seconds for messages being treated to finish. This
+	 * method is typically called while treating the shutdown message, that is not
+	 * waited for.
+	 */
+	public void sendShutdownToAllConnections() {
+		active = false;
+		long waitingtimestart = System.currentTimeMillis();
+		int loop = 0;
+		logger.severe("Notified all connections (" + clients.size() + ") of shutdown.");
+		waitingloop: while (System.currentTimeMillis() - waitingtimestart < 1000 * 200) {
+			loop++;
+			if (runningtreatments.get() <= 1) {
+				logger.severe("All treatments finished, proceeding");
+				break waitingloop;
+			}
+			// log every 2 seconds progress with treatment stop
+			if (loop % 40 == 0)
+				logger.severe("- Still remaining " + (runningtreatments.get() - 1) + " treatments");
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				logger.severe("Got an interruption exception.");
+				break waitingloop;
+			}
+		}
+		logger.severe("--------------------------------------------------------------------------------------------");
+		logger.severe("finished waiting, will shutdown,  (" + (runningtreatments.get() - 1)
+				+ ") treatments still running (not normal if different from zero).");
+		logger.severe("---------------------------------------------------------------------------------------------");
+	}
+}
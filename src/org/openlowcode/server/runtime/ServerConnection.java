@@ -11,7 +11,11 @@
 package org.openlowcode.server.runtime;
 
 import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -19,11 +23,10 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.net.InetAddress;
 import java.net.Socket;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -31,35 +34,32 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.openlowcode.tools.enc.AESCommunicator;
+import org.openlowcode.tools.messages.MessageBinaryReader;
+import org.openlowcode.tools.messages.MessageBinaryWriter;
 import org.openlowcode.tools.messages.MessageBufferedWriter;
 import org.openlowcode.tools.messages.MessageElement;
+import org.openlowcode.tools.messages.MessageEndStructure;
+import org.openlowcode.tools.messages.MessageReader;
 import org.openlowcode.tools.messages.MessageSimpleReader;
 import org.openlowcode.tools.messages.MessageStartStructure;
 import org.openlowcode.tools.messages.MessageStringField;
 import org.openlowcode.tools.messages.MessageWriter;
 import org.openlowcode.tools.messages.OLcRemoteException;
 import org.openlowcode.tools.messages.SFile;
-import org.openlowcode.tools.misc.StringExtremityPrinter;
 import org.openlowcode.tools.structure.DataElt;
 import org.openlowcode.tools.structure.TextDataElt;
 import org.openlowcode.tools.trace.ExceptionLogger;
 import org.openlowcode.OLcVersion;
 import org.openlowcode.module.system.data.Appuser;
-import org.openlowcode.module.system.data.Moduleusage;
-import org.openlowcode.module.system.data.ModuleusageDefinition;
 import org.openlowcode.module.system.page.SimpleloginPage;
 import org.openlowcode.server.action.ActionExecution;
 import org.openlowcode.server.action.SActionData;
 import org.openlowcode.server.data.DataObject;
 import org.openlowcode.server.data.properties.DataObjectId;
-import org.openlowcode.server.data.properties.LinkedtoparentQueryHelper;
-import org.openlowcode.server.data.storage.AndQueryCondition;
 import org.openlowcode.server.data.storage.OrQueryCondition;
 import org.openlowcode.server.data.storage.PersistenceGateway;
 import org.openlowcode.server.data.storage.QueryCondition;
 import org.openlowcode.server.data.storage.QueryFilter;
-import org.openlowcode.server.data.storage.QueryOperatorEqual;
-import org.openlowcode.server.data.storage.SimpleQueryCondition;
 import org.openlowcode.server.data.storage.TableAlias;
 import org.openlowcode.server.graphic.SPage;
 import org.openlowcode.server.graphic.SPageData;
@@ -80,6 +80,7 @@ public class ServerConnection
 		Thread {
 	private static Logger logger = Logger.getLogger(ServerConnection.class.getName());
 	private Socket socket;
+	private InetAddress address;
 	private String ip; // ip of the computer connecting
 	private OLcServer server;
 	private long starttime;
@@ -92,6 +93,11 @@ public class ServerConnection
 	private static final int MESSAGESTART_FOUND = 1;
 	private static final int MESSAGESTART_ERROR = 2;
 	private final static String CLIENT_JAR = "OLcClient.jar";
+	// context of the connection kept between messages when served by a selector
+	private boolean handshakedone = false;
+	private AESCommunicator aescommunicator;
+	private boolean otpconfirmed = false;
+
 	/**
 	 * Creates a server connection
 	 * 
@@ -101,11 +107,30 @@ public class ServerConnection
 	 */
 	public ServerConnection(Socket socket, OLcServer server, boolean messageaudit) {
 		this.socket = socket;
+		this.address = socket.getInetAddress();
 		this.ip = socket.getInetAddress().toString();
 		this.server = server;
 		this.messageaudit = messageaudit;
 	}
 
+	/**
+	 * Creates a server connection for a client served by a selector. The
+	 * connection is not started as a thread: each complete message received is
+	 * treated on a worker thread by the method treatSelectorMessage
+	 * 
+	 * @param address      address of the client
+	 * @param server       main server class
+	 * @param messageaudit true if messages should be audited in logs
+	 * @since 1.14
+	 */
+	public ServerConnection(InetAddress address, OLcServer server, boolean messageaudit) {
+		this.socket = null;
+		this.address = address;
+		this.ip = address.toString();
+		this.server = server;
+		this.messageaudit = messageaudit;
+	}
+
 	/**
 	 * a link allowing to access directly most of actions
 	 * 
@@ -321,25 +346,103 @@ public class ServerConnection
 	 * @throws Exception
 	 * @since 1.10
 	 */
-	public void performSecurityHandshake(MessageSimpleReader reader, MessageBufferedWriter writer) throws Exception {
+	public void performSecurityHandshake(MessageReader reader, MessageWriter writer) throws Exception {
+		sendRSAPublicKey(writer);
+		readAESKey(reader, writer);
+	}
+
+	/**
+	 * first part of the security handshake: sends the RSA public key to the client
+	 * 
+	 * @param writer message writer to the client
+	 * @throws Exception
+	 * @since 1.14
+	 */
+	private void sendRSAPublicKey(MessageWriter writer) throws Exception {
 		writer.startNewMessage();
 		writer.startStructure("RSAKEY");
 		byte[] rsapublickey = OLcServer.getServer().getSecuritymanager().getMainRSAPublicKey();
-		writer.addLongBinaryField("PUBLICKEY", new SFile("PUBLICKEY", rsapublickey));
+		// a server supporting binary framing shows it in the name of the key file,
+		// that is ignored by older clients
+		String keyfilename = "PUBLICKEY";
+		if (server.isBinaryFramingAllowed())
+			keyfilename = (server.isStreamEncryptionAllowed() ? AESCommunicator.STREAM_ENCRYPTION_KEYFILE
+					: AESCommunicator.BINARY_FRAMING_KEYFILE);
+		writer.addLongBinaryField("PUBLICKEY", new SFile(keyfilename, rsapublickey));
 		writer.endStructure("RSAKEY");
 		writer.endMessage();
+	}
 
+	/**
+	 * second part of the security handshake: reads the AES key sent by the client
+	 * 
+	 * @param reader message reader from the client
+	 * @param writer message writer to the client
+	 * @throws Exception
+	 * @since 1.14
+	 */
+	private void readAESKey(MessageReader reader, MessageWriter writer) throws Exception {
 		reader.returnNextMessageStart();
 		reader.returnNextStartStructure("SESAESKEY");
-		byte[] encryptedaeskey = reader.returnNextLargeBinary("AESKEY").getContent();
+		byte[] encryptedaeskey = reader.returnNextLargeBinaryContent("AESKEY");
 		byte[] decryptedaeskey = OLcServer.getServer().getSecuritymanager().decodeWithRSAPrivateKey(encryptedaeskey);
 		SecretKey aeskey = new SecretKeySpec(decryptedaeskey, 0, decryptedaeskey.length, "AES");
-		OLcServer.getServer().setAESCommunicator(new AESCommunicator(aeskey,writer.getMessageAudit()));
-		reader.returnNextEndStructure("SESAESKEY");
+		AESCommunicator newaescommunicator = new AESCommunicator(aeskey,messageaudit);
+		OLcServer.getServer().setAESCommunicator(newaescommunicator);
+		// optional framing and stream encryption requested by the client
+		boolean binaryframing = false;
+		boolean streamencryption = false;
+		MessageElement element = reader.getNextElement();
+		if (isStringField(element, "FRM")) {
+			MessageStringField framing = (MessageStringField) element;
+			if (!MessageBinaryWriter.FRAMING_NAME.equals(framing.getFieldcontent()))
+				throw new RuntimeException("Unsupported framing requested by client " + framing.getFieldcontent());
+			if (!server.isBinaryFramingAllowed())
+				throw new RuntimeException("Binary framing requested by client while not proposed by server");
+			binaryframing = true;
+			element = reader.getNextElement();
+		}
+		if ((binaryframing) && (isStringField(element, "ENC"))) {
+			MessageStringField encryption = (MessageStringField) element;
+			if (!AESCommunicator.STREAM_ENCRYPTION_NAME.equals(encryption.getFieldcontent()))
+				throw new RuntimeException(
+						"Unsupported encryption requested by client " + encryption.getFieldcontent());
+			if (!server.isStreamEncryptionAllowed())
+				throw new RuntimeException("Stream encryption requested by client while not proposed by server");
+			streamencryption = true;
+			element = reader.getNextElement();
+		}
+		if (!(element instanceof MessageEndStructure))
+			throw new RuntimeException("Unexpected element in security handshake " + element);
+		if (!((MessageEndStructure) element).getName().equals("SESAESKEY"))
+			throw new RuntimeException(
+					"Unexpected end of structure in security handshake " + ((MessageEndStructure) element).getName());
 		reader.returnNextEndMessage();
+		if (binaryframing) {
+			// confirmation is sent in text, all following messages are binary
+			writer.startNewMessage();
+			writer.startStructure("FRMOK");
+			writer.addStringField("FRM", MessageBinaryWriter.FRAMING_NAME);
+			if (streamencryption)
+				writer.addStringField("ENC", AESCommunicator.STREAM_ENCRYPTION_NAME);
+			writer.endStructure("FRMOK");
+			writer.endMessage();
+			newaescommunicator.setBinaryFraming(true);
+			logger.info("    ---- binary framing negotiated with client --- ");
+			if (streamencryption) {
+				newaescommunicator.setStreamEncryption(false);
+				logger.info("    ---- stream encryption negotiated with client --- ");
+			}
+		}
 		logger.info("    ---- successfull security handshacke with client --- ");
 	}
 
+	private static boolean isStringField(MessageElement element, String name) {
+		if (!(element instanceof MessageStringField))
+			return false;
+		return ((MessageStringField) element).getFieldName().equals(name);
+	}
+
 	/**
 	 * launches the action corresponding to the CLink, or throw a RuntimeException
 	 * else
@@ -349,7 +452,7 @@ public class ServerConnection
 	 * @throws IOException if any issue is encountered sending the action to the
 	 *                     client
 	 */
-	public void processCLink(String address, MessageBufferedWriter writer) throws IOException {
+	public void processCLink(String address, MessageWriter writer) throws IOException {
 		logger.info("received CLINK request for " + address);
 		CLink parsedlinkinfo = new CLink(address);
 		ActionExecution action = null;
@@ -384,7 +487,7 @@ public class ServerConnection
 
 	}
 
-	private boolean requestdecodedquery(String majorquery, MessageBufferedWriter writer, MessageSimpleReader reader)
+	private boolean requestdecodedquery(String majorquery, MessageWriter writer, MessageReader reader)
 			throws OLcRemoteException, IOException {
 
 		if (majorquery.compareTo("REQUEST") == 0) {
@@ -563,7 +666,13 @@ public class ServerConnection
 								logger.info("executed inline action " + modulename + "." + actionname
 										+ ", execution time = " + (requestend - requeststart) + "ms");
 								
-								this.sendInlineData(inlineanswer, writer);
+								try {
+									this.sendInlineData(inlineanswer, writer);
+								} finally {
+									// temporary files of downloaded files are not needed anymore
+									if (inlineanswer != null)
+										inlineanswer.dispose();
+								}
 								logger.info("sent inlinedata from page " + action.getName() + "to to ip = " + ip
 										+ ", for session of user " + userid.getId());
 							} catch (Throwable t) {
@@ -609,16 +718,32 @@ public class ServerConnection
 			starttime = System.currentTimeMillis();
 			InputStreamReader inputstreamreader = new InputStreamReader(socket.getInputStream(),
 					Charset.forName("UTF-8"));
-			MessageSimpleReader reader = new MessageSimpleReader(new BufferedReader(inputstreamreader));
+			MessageSimpleReader textreader = new MessageSimpleReader(new BufferedReader(inputstreamreader));
 			OutputStreamWriter outputstreamwriter = new OutputStreamWriter(socket.getOutputStream(),
 					Charset.forName("UTF-8"));
-			MessageBufferedWriter writer = new MessageBufferedWriter(new BufferedWriter(outputstreamwriter),
+			MessageBufferedWriter textwriter = new MessageBufferedWriter(new BufferedWriter(outputstreamwriter),
 					messageaudit);
 			logger.info("Received new connection from " + ip);
 			logger.info("audit of connection encoding : inbound " + inputstreamreader.getEncoding() + ", outbound = "
 					+ outputstreamwriter.getEncoding());
 
-			performSecurityHandshake(reader, writer);
+			performSecurityHandshake(textreader, textwriter);
+			AESCommunicator communicator = server.getAESCommunicator();
+			MessageReader reader = textreader;
+			MessageWriter writer = textwriter;
+			if (communicator.isStreamEncryption()) {
+				reader = new MessageBinaryReader(
+						communicator.getDecryptingStream(new BufferedInputStream(socket.getInputStream())));
+				writer = new MessageBinaryWriter(
+						communicator.getEncryptingStream(new BufferedOutputStream(socket.getOutputStream())),
+						messageaudit);
+				reader.setAESCommunicator(communicator);
+				writer.setAESCommunicator(communicator);
+			} else if (communicator.isBinaryFraming()) {
+				reader = new MessageBinaryReader(new BufferedInputStream(socket.getInputStream()));
+				writer = new MessageBinaryWriter(new BufferedOutputStream(socket.getOutputStream()), messageaudit);
+			}
+			MessageReader finalreader = reader;
 
 			labelloop: while ((socket.isConnected()) && (!socket.isClosed())) {
 				// read one CML message
@@ -632,7 +757,7 @@ public class ServerConnection
 						@Override
 						public void run() {
 							try {
-								reader.returnNextMessageStart();
+								finalreader.returnNextMessageStart();
 								messagefound = MESSAGESTART_FOUND;
 							} catch (OLcRemoteException | IOException e) {
 								exceptionduringmessagestart = e;
@@ -661,150 +786,303 @@ public class ServerConnection
 						break labelloop;
 						// throw exceptionduringmessagestart;
 					}
+				} catch (Throwable t) {
+					if (!treatMessageThrowable(t, writer))
+						socket.close();
+					continue labelloop;
+				}
+				if (!treatMessage(reader, writer))
+					socket.close();
+			}
 
-					boolean majorquerytreated = false;
-					String majorquery = reader.returnNextStartStructure();
-					if (majorquery.equals("ENCMES")) {
-						byte[] encryptedmessage = reader.returnNextLargeBinary("ENCMES").getContent();
-						String decryptedmessage = OLcServer.getServer().getAESCommunicator()
-								.decryptandunzip(encryptedmessage);
-						MessageSimpleReader specificmessagereader = new MessageSimpleReader(
-								new StringReader(decryptedmessage));
-						specificmessagereader.setAESCommunicator(OLcServer.getServer().getAESCommunicator());
-						StringWriter writertoencrypt = new StringWriter();
-						MessageBufferedWriter specificmessagewriter = new MessageBufferedWriter(
-								new BufferedWriter(writertoencrypt), false);
-						specificmessagewriter.setAESCommunicator(OLcServer.getServer().getAESCommunicator());
-						specificmessagereader.returnNextMessageStart();
-						String majorqueryinsideencryption = specificmessagereader.returnNextStartStructure();
-						majorquerytreated = requestdecodedquery(majorqueryinsideencryption, specificmessagewriter,
-								specificmessagereader);
-						specificmessagereader.returnNextEndMessage();
-						if (majorquerytreated) {
-							specificmessagewriter.flushMessage();
-							byte[] encryptedresponse = OLcServer.getServer().getAESCommunicator()
-									.zipandencrypt(writertoencrypt.toString());
-
-							writer.startNewMessage();
-							writer.startStructure("ENCRES");
-							writer.addLongBinaryField("RESMES", new SFile("PLD", encryptedresponse));
-							writer.endStructure("ENCRES");
-							writer.endMessage();
+		} catch (Exception e) {
+			logger.severe("received exception [" + e.getClass().getCanonicalName() + "] in connection listening thread "
+					+ e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++)
+				logger.severe(" at " + e.getStackTrace()[i].toString());
 
-						}
-						reader.returnNextEndStructure("ENCMES");
-						specificmessagewriter.close();
-						specificmessagereader.close();
-					}
+		}
+		OLcServer.getServer().reportThreadFinished(this.getId());
+	}
 
-					if (majorquery.equals("DOWNLOADCLIENT")) {
-						majorquerytreated = true;
-						reader.returnNextEndStructure("DOWNLOADCLIENT");
-						reader.returnNextEndMessage();
-						logger.severe("Starting treating download client request");
-						writer.startNewMessage();
-						File clienttodownload = new File("." + File.separator + "client" + File.separator
-								+ CLIENT_JAR);
-						if (!clienttodownload.exists()) {
-							writer.sendMessageError(9999, "Client file missing on server "
-									+ clienttodownload.getAbsolutePath() + ". Please contact technical support.");
-							logger.severe("Download client requested download failed, file "
-									+ clienttodownload.getAbsolutePath() + " does not exists");
-						} else {
-							byte[] filecontent = new byte[(int) clienttodownload.length()];
-							FileInputStream fisfordownload = new FileInputStream(clienttodownload);
-							fisfordownload.read(filecontent);
-							fisfordownload.close();
-							SFile filetodownload = new SFile(CLIENT_JAR, filecontent);
-							writer.startStructure("NEWCLIENTJAR");
-							writer.addLongBinaryField("JAR", filetodownload);
-							writer.endStructure("NEWCLIENTJAR");
-							writer.endMessage();
-							writer.flushMessage();
-						}
-						logger.severe("Download client requested download finished");
+	/**
+	 * starts the session with a client served by a selector, sending the RSA
+	 * public key to the client
+	 * 
+	 * @param writer message writer to the client
+	 * @throws Exception if any issue is encountered sending the key
+	 * @since 1.14
+	 */
+	public void startSelectorSession(MessageWriter writer) throws Exception {
+		starttime = System.currentTimeMillis();
+		logger.info("Received new connection from " + ip);
+		sendRSAPublicKey(writer);
+	}
 
-					}
-					if (majorquery.equals("SHUTDOWN")) {
-						if (socket.getInetAddress().isAnyLocalAddress()
-								|| socket.getInetAddress().isLoopbackAddress()) {
-							logger.severe("------------------------------------------------------------");
-							logger.severe("       S H U T D O W N . R E Q U E S T . R E C E I V E D");
-							logger.severe("------------------------------------------------------------");
-
-							reader.returnNextEndStructure("SHUTDOWN");
-							reader.returnNextEndMessage();
-							// send message to all connections to stop current action and loop
-							OLcServer.getServer().sendShutdownToAllConnections();
-
-							// sends a message to client requesting shutdown
-							try {
-								writer.startNewMessage();
-								writer.startStructure("SHUTDOWNOK");
-								writer.endStructure("SHUTDOWNOK");
-								writer.endMessage();
-								writer.flushMessage();
-
-								// wait 200ms
-								Thread.sleep(200);
-							} catch (Throwable t) {
-								logger.severe("Exception while sending shutdownOK message to client " + t.getMessage());
-								for (int i = 0; i < t.getStackTrace().length; i++) {
-									logger.severe(t.getStackTrace()[i].toString());
-								}
-							}
-							System.exit(0);
-						} else {
-							throw new RuntimeException(
-									"Shutdown is only authorized from local, but request received from "
-											+ socket.getInetAddress().toString());
-						}
-						majorquerytreated = true;
+	/**
+	 * @return true if binary framing was negotiated with the client served by a
+	 *         selector during the security handshake
+	 * @since 1.14
+	 */
+	public boolean isBinaryFraming() {
+		if (aescommunicator == null)
+			return false;
+		return aescommunicator.isBinaryFraming();
+	}
 
-					}
+	/**
+	 * @return true if stream encryption was negotiated with the client served by
+	 *         a selector during the security handshake
+	 * @since 1.14
+	 */
+	public boolean isStreamEncryption() {
+		if (aescommunicator == null)
+			return false;
+		return aescommunicator.isStreamEncryption();
+	}
+
+	/**
+	 * @return the AES communicator of the client served by a selector, or null if
+	 *         the security handshake is not done
+	 * @since 1.14
+	 */
+	public AESCommunicator getAESCommunicator() {
+		return aescommunicator;
+	}
 
-					if (!majorquerytreated) {
-						throw new RuntimeException(String.format("The majorquery type is invalid :" + majorquery, ip));
+	/**
+	 * treats a complete message received from a client served by a selector. The
+	 * context of the connection (ip, encryption, OTP confirmation) is set on the
+	 * calling worker thread for the time of the treatment, and removed afterwards
+	 * so that it does not leak to the next connection served by the thread.
+	 * 
+	 * @param reader reader on the complete message
+	 * @param writer message writer to the client
+	 * @return true if the connection with the client should be kept open
+	 * @since 1.14
+	 */
+	public boolean treatSelectorMessage(MessageReader reader, MessageWriter writer) {
+		server.setIpForConnection(ip);
+		server.setAESCommunicator(aescommunicator);
+		if (otpconfirmed)
+			server.setOTPForConnection();
+		try {
+			if (!handshakedone) {
+				readAESKey(reader, writer);
+				handshakedone = true;
+				return true;
+			}
+			try {
+				reader.returnNextMessageStart();
+			} catch (Throwable t) {
+				return treatMessageThrowable(t, writer);
+			}
+			return treatMessage(reader, writer);
+		} catch (Exception e) {
+			logger.severe("received exception [" + e.getClass().getCanonicalName() + "] for connection from " + ip
+					+ " " + e.getMessage());
+			for (int i = 0; i < e.getStackTrace().length; i++)
+				logger.severe(" at " + e.getStackTrace()[i].toString());
+			return false;
+		} finally {
+			aescommunicator = server.getAESCommunicator();
+			otpconfirmed = Boolean.TRUE.equals(server.getOTPForConnection());
+			server.removeIpConnectionReference();
+			server.removeCidConnectionReference();
+			server.removeUserIdConnectionReference();
+			server.removeAESCommunicatorReference();
+			server.removeOTPConnectionReference();
+			PersistenceGateway.releaseForThread();
+		}
+	}
+
+	/**
+	 * treats one message from the client. The start of the message should already
+	 * have been read.
+	 * 
+	 * @param reader message reader from the client
+	 * @param writer message writer to the client
+	 * @return true if the connection with the client should be kept open
+	 * @throws IOException if any communication issue is encountered sending an
+	 *                     error to the client
+	 * @since 1.14
+	 */
+	private boolean treatMessage(MessageReader reader, MessageWriter writer) throws IOException {
+		try {
+			boolean majorquerytreated = false;
+			String majorquery = reader.returnNextStartStructure();
+			if (majorquery.equals("ENCMES")) {
+				byte[] encryptedmessage = reader.returnNextLargeBinaryContent("ENCMES");
+				AESCommunicator communicator = OLcServer.getServer().getAESCommunicator();
+				MessageReader specificmessagereader;
+				MessageWriter specificmessagewriter;
+				StringWriter writertoencrypt = null;
+				ByteArrayOutputStream binarytoencrypt = null;
+				if (communicator.isBinaryFraming()) {
+					specificmessagereader = new MessageBinaryReader(
+							new ByteArrayInputStream(communicator.decryptandunzipbytes(encryptedmessage)));
+					binarytoencrypt = new ByteArrayOutputStream();
+					specificmessagewriter = new MessageBinaryWriter(binarytoencrypt, false);
+				} else {
+					String decryptedmessage = communicator.decryptandunzip(encryptedmessage);
+					specificmessagereader = new MessageSimpleReader(new StringReader(decryptedmessage));
+					writertoencrypt = new StringWriter();
+					specificmessagewriter = new MessageBufferedWriter(new BufferedWriter(writertoencrypt), false);
+				}
+				specificmessagereader.setAESCommunicator(communicator);
+				specificmessagewriter.setAESCommunicator(communicator);
+				specificmessagereader.returnNextMessageStart();
+				String majorqueryinsideencryption = specificmessagereader.returnNextStartStructure();
+				majorquerytreated = requestdecodedquery(majorqueryinsideencryption, specificmessagewriter,
+						specificmessagereader);
+				specificmessagereader.returnNextEndMessage();
+				if (majorquerytreated) {
+					specificmessagewriter.flushMessage();
+					byte[] encryptedresponse = (binarytoencrypt != null
+							? communicator.zipandencrypt(binarytoencrypt.toByteArray())
+							: communicator.zipandencrypt(writertoencrypt.toString()));
+
+					writer.startNewMessage();
+					writer.startStructure("ENCRES");
+					writer.addLongBinaryField("RESMES", new SFile("PLD", encryptedresponse));
+					writer.endStructure("ENCRES");
+					writer.endMessage();
+
+				}
+				reader.returnNextEndStructure("ENCMES");
+				specificmessagewriter.close();
+				specificmessagereader.close();
+			}
+
+			if (majorquery.equals("DOWNLOADCLIENT")) {
+				majorquerytreated = true;
+				reader.returnNextEndStructure("DOWNLOADCLIENT");
+				reader.returnNextEndMessage();
+				logger.severe("Starting treating download client request");
+				writer.startNewMessage();
+				File clienttodownload = new File("." + File.separator + "client" + File.separator
+						+ CLIENT_JAR);
+				if (!clienttodownload.exists()) {
+					writer.sendMessageError(9999, "Client file missing on server "
+							+ clienttodownload.getAbsolutePath() + ". Please contact technical support.");
+					logger.severe("Download client requested download failed, file "
+							+ clienttodownload.getAbsolutePath() + " does not exists");
+				} else {
+					byte[] filecontent = new byte[(int) clienttodownload.length()];
+					FileInputStream fisfordownload = new FileInputStream(clienttodownload);
+					fisfordownload.read(filecontent);
+					fisfordownload.close();
+					SFile filetodownload = new SFile(CLIENT_JAR, filecontent);
+					writer.startStructure("NEWCLIENTJAR");
+					writer.addLongBinaryField("JAR", filetodownload);
+					writer.endStructure("NEWCLIENTJAR");
+					writer.endMessage();
+					writer.flushMessage();
+				}
+				logger.severe("Download client requested download finished");
+
+			}
+			if (majorquery.equals("SHUTDOWN")) {
+				if (address.isAnyLocalAddress()
+						|| address.isLoopbackAddress()) {
+					logger.severe("------------------------------------------------------------");
+					logger.severe("       S H U T D O W N . R E Q U E S T . R E C E I V E D");
+					logger.severe("------------------------------------------------------------");
+
+					reader.returnNextEndStructure("SHUTDOWN");
+					reader.returnNextEndMessage();
+					// send message to all connections to stop current action and loop
+					OLcServer.getServer().sendShutdownToAllConnections();
+					// persists module usage counted since last persistence
+					try {
+						OLcServer.getServer().getModuleUsageLogger().flush();
+					} catch (Exception e) {
+						logger.severe("Exception while persisting module usage " + e.getMessage());
 					}
 
-					reader.returnNextEndMessage(); // CLOSE MESSAGE
-				} catch (Throwable t) {
-					boolean disconnectionerror = false;
-					if (t instanceof IOException)
-						disconnectionerror = true;
-
-					if (disconnectionerror) {
-						long endtime = System.currentTimeMillis();
-						long connectiontime = (endtime - starttime) / 1000;
-						logger.fine("normal client disconnection between messages, total connected time = "
-								+ connectiontime + "s");
-					} else {
+					// sends a message to client requesting shutdown
+					try {
+						writer.startNewMessage();
+						writer.startStructure("SHUTDOWNOK");
+						writer.endStructure("SHUTDOWNOK");
+						writer.endMessage();
+						writer.flushMessage();
 
-						logger.severe("Exception " + t.getMessage());
+						// wait 200ms
+						Thread.sleep(200);
+					} catch (Throwable t) {
+						logger.severe("Exception while sending shutdownOK message to client " + t.getMessage());
 						for (int i = 0; i < t.getStackTrace().length; i++) {
 							logger.severe(t.getStackTrace()[i].toString());
 						}
-						treatThrowable(t, "SYSTEM", null, writer);
-					}
-					boolean isrecoverableerror = false;
-					if (t instanceof OLcRemoteException) {
-						OLcRemoteException exception = (OLcRemoteException) t;
-						if (exception.getRemoteErrorCode() == 1)
-							isrecoverableerror = true;
 					}
-					if (!isrecoverableerror)
-						socket.close();
+					System.exit(0);
+				} else {
+					throw new RuntimeException(
+							"Shutdown is only authorized from local, but request received from "
+									+ address.toString());
 				}
+				majorquerytreated = true;
+
 			}
 
-		} catch (Exception e) {
-			logger.severe("received exception [" + e.getClass().getCanonicalName() + "] in connection listening thread "
-					+ e.getMessage());
-			for (int i = 0; i < e.getStackTrace().length; i++)
-				logger.severe(" at " + e.getStackTrace()[i].toString());
+			if ((!majorquerytreated) && (!majorquery.equals("ENCMES"))) {
+				// with stream encryption, the connection is encrypted, and messages are
+				// not wrapped in an ENCMES message
+				AESCommunicator communicator = OLcServer.getServer().getAESCommunicator();
+				if ((communicator != null) && (communicator.isStreamEncryption())) {
+					majorquerytreated = requestdecodedquery(majorquery, writer, reader);
+					if (majorquerytreated)
+						writer.flushMessage();
+				}
+			}
 
+			if (!majorquerytreated) {
+				throw new RuntimeException(String.format("The majorquery type is invalid :" + majorquery, ip));
+			}
+
+			reader.returnNextEndMessage(); // CLOSE MESSAGE
+			return true;
+		} catch (Throwable t) {
+			return treatMessageThrowable(t, writer);
 		}
-		OLcServer.getServer().reportThreadFinished(this.getId());
+	}
+
+	/**
+	 * treats an exception received while processing a message from the client
+	 * 
+	 * @param t      the exception
+	 * @param writer message writer to the client
+	 * @return true if the error is recoverable and the connection can be kept open
+	 * @throws IOException if any communication issue is encountered sending the
+	 *                     error to the client
+	 * @since 1.14
+	 */
+	private boolean treatMessageThrowable(Throwable t, MessageWriter writer) throws IOException {
+		boolean disconnectionerror = false;
+		if (t instanceof IOException)
+			disconnectionerror = true;
+
+		if (disconnectionerror) {
+			long endtime = System.currentTimeMillis();
+			long connectiontime = (endtime - starttime) / 1000;
+			logger.fine("normal client disconnection between messages, total connected time = " + connectiontime
+					+ "s");
+		} else {
+
+			logger.severe("Exception " + t.getMessage());
+			for (int i = 0; i < t.getStackTrace().length; i++) {
+				logger.severe(t.getStackTrace()[i].toString());
+			}
+			treatThrowable(t, "SYSTEM", null, writer);
+		}
+		boolean isrecoverableerror = false;
+		if (t instanceof OLcRemoteException) {
+			OLcRemoteException exception = (OLcRemoteException) t;
+			if (exception.getRemoteErrorCode() == 1)
+				isrecoverableerror = true;
+		}
+		return isrecoverableerror;
 	}
 
 	/**
@@ -816,7 +1094,7 @@ public class ServerConnection
 	 * @param writer     writer to provide output
 	 * @throws IOException if any communication issue is encountered
 	 */
-	public void setLoginWithContextAction(ActionExecution action, SActionData actiondata, MessageBufferedWriter writer)
+	public void setLoginWithContextAction(ActionExecution action, SActionData actiondata, MessageWriter writer)
 			throws IOException {
 		try {
 
@@ -862,7 +1140,7 @@ public class ServerConnection
 			Throwable e,
 			String actionname,
 			DataObjectId<Appuser> userid,
-			MessageBufferedWriter writer) throws IOException {
+			MessageWriter writer) throws IOException {
 		// send error message instead of sending page. Else, it is the same
 		// note: no possibility now to send error properly if exception while sending
 		// page, need clean mechanism like buffer that flushes
@@ -885,7 +1163,7 @@ public class ServerConnection
 			DataObjectId<Appuser> userid,
 			ActionExecution action,
 			SActionData actiondata,
-			MessageBufferedWriter writer) throws IOException {
+			MessageWriter writer) throws IOException {
 		executeAction(userid, action, actiondata, writer, null);
 	}
 
@@ -893,7 +1171,7 @@ public class ServerConnection
 			DataObjectId<Appuser> userid,
 			ActionExecution action,
 			SActionData actiondata,
-			MessageBufferedWriter writer,
+			MessageWriter writer,
 			ArrayList<PageBufferSpec> clientpagesinbuffer) throws IOException {
 		String actionname = action.getName();
 		SecurityBuffer buffer = new SecurityBuffer();
@@ -930,7 +1208,7 @@ public class ServerConnection
 		}
 	}
 
-	private void sendInlineData(SPageData inlineanswer, MessageBufferedWriter writer) throws IOException {
+	private void sendInlineData(SPageData inlineanswer, MessageWriter writer) throws IOException {
 		if (inlineanswer == null)
 			logger.severe("page was not found");
 		writer.startNewMessage();
@@ -1025,30 +1303,36 @@ public class ServerConnection
 
 		writer.startStructure("CONTENT");
 		SPageData data = page.getAllFinalPageAttributes();
-		String pageblank = null;
+		PageLayoutCache.PageLayout layout = null;
 		PageBufferSpec validbufferspec = null;
 		if (clientpagesinbuffer != null) {
-			StringWriter pageblankstringbuffer = new StringWriter();
-			MessageWriter pageblankwriter = new MessageBufferedWriter(new BufferedWriter(pageblankstringbuffer), false);
-			pageblankwriter.startNewMessage();
-			page.getFinalContent().WriteToCDL(pageblankwriter, data, buffer);
-			page.resetPath();
-			pageblankwriter.endMessage();
-			pageblank = pageblankstringbuffer.toString();
-			logger.fine("---- wrote page blank length=" + pageblank.length() + ", hashcode = " + pageblank.hashCode());
-			logger.fine(StringExtremityPrinter.printextremity(pageblank, 15));
-			logger.fine("--------------------------------------------");
+			// the layout is generated only once, and reused if the page is not buffered
+			// on the client. Layouts not depending on page data are kept in cache
+			String layoutkey = null;
+			if (page.getFinalLayoutVariant() != null) {
+				layoutkey = PageLayoutCache.getKey(page, locale, otpstatus,
+						OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser());
+				layout = PageLayoutCache.get(layoutkey);
+			}
+			if (layout == null) {
+				layout = PageLayoutCache.PageLayout.record(page, data, buffer);
+				if (layoutkey != null)
+					PageLayoutCache.put(layoutkey, layout);
+			}
+			logger.fine("---- page blank length=" + layout.getSize() + ", hashcode = " + layout.getContentHashcode()
+					+ ", cached = " + (layoutkey != null));
 
 			for (int i = 0; i < clientpagesinbuffer.size(); i++) {
 				PageBufferSpec thispagebuffer = clientpagesinbuffer.get(i);
-				if ((thispagebuffer.getContentHashcode() == pageblank.hashCode())
-						&& (thispagebuffer.getSize() == pageblank.length())) {
+				if ((thispagebuffer.getContentHashcode() == layout.getContentHashcode())
+						&& (thispagebuffer.getSize() == layout.getSize())) {
 					validbufferspec = thispagebuffer;
-					logger.fine(
-							"    ** found match for page hash=" + pageblank.hashCode() + ",size=" + pageblank.length());
+					logger.fine("    ** found match for page hash=" + layout.getContentHashcode() + ",size="
+							+ layout.getSize());
 				} else {
-					logger.fine("    ** no match, size = " + thispagebuffer.getSize() + " - " + pageblank.length()
-							+ ", hashcode  = " + thispagebuffer.getContentHashcode() + " - " + pageblank.hashCode());
+					logger.fine("    ** no match, size = " + thispagebuffer.getSize() + " - " + layout.getSize()
+							+ ", hashcode  = " + thispagebuffer.getContentHashcode() + " - "
+							+ layout.getContentHashcode());
 				}
 			}
 		}
@@ -1060,8 +1344,11 @@ public class ServerConnection
 			writer.addIntegerField("SIZ", validbufferspec.getSize());
 
 		} else {
-
-			page.getFinalContent().WriteToCDL(writer, data, buffer);
+			if (layout != null) {
+				layout.getSequence().writeTo(writer);
+			} else {
+				page.getFinalContent().WriteToCDL(writer, data, buffer);
+			}
 		}
 		writer.endStructure("CONTENT");
 		data.writeToCML(writer);
@@ -1240,49 +1527,16 @@ public class ServerConnection
 	}
 
 	/**
-	 * logging the action on the server. This helps monitoring the business activity
+	 * logging the action on the server. This helps monitoring the business activity.
+	 * The action is counted in memory, and persisted later by the module usage
+	 * logger
 	 * 
 	 * @param action action
 	 */
 	public void logAction(ActionExecution action) {
-		// first generate date for today noon on server time
-		Date date = new Date();
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(date);
-		calendar.set(Calendar.MILLISECOND, 0);
-		calendar.set(Calendar.SECOND, 0);
-		calendar.set(Calendar.MINUTE, 0);
-		calendar.set(Calendar.HOUR_OF_DAY, 12);
-		Date normalizedday = calendar.getTime();
 		// get current user in an efficient way
 		DataObjectId<Appuser> currentuserid = OLcServer.getServer().getCurrentUserId();
-		String module = action.getParent().getLabel();
-		Moduleusage[] usage = Moduleusage
-				.getallchildrenforsessionuser(currentuserid,
-						QueryFilter.get(new AndQueryCondition(
-								new SimpleQueryCondition<Date>(
-										Moduleusage.getDefinition()
-												.getAlias(LinkedtoparentQueryHelper.CHILD_OBJECT_ALIAS),
-										ModuleusageDefinition.getModuleusageDefinition().getDayFieldSchema(),
-										new QueryOperatorEqual<Date>(), normalizedday),
-								new SimpleQueryCondition<String>(
-										Moduleusage.getDefinition()
-												.getAlias(LinkedtoparentQueryHelper.CHILD_OBJECT_ALIAS),
-										ModuleusageDefinition.getModuleusageDefinition().getModuleFieldSchema(),
-										new QueryOperatorEqual<String>(), module))));
-		if (usage != null)
-			if (usage.length > 0) {
-				Moduleusage currentusage = usage[0];
-				currentusage.setActionnr(new Integer(currentusage.getActionnr().intValue() + 1));
-				currentusage.update();
-			} else {
-				Moduleusage currentusage = new Moduleusage();
-				currentusage.setparentwithoutupdateforsessionuser(currentuserid);
-				currentusage.setDay(normalizedday);
-				currentusage.setModule(module);
-				currentusage.setActionnr(new Integer(1));
-				currentusage.insert();
-			}
+		OLcServer.getServer().getModuleUsageLogger().logAction(currentuserid, action.getParent().getLabel());
 	}
 
 }
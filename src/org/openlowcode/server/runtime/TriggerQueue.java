@@ -0,0 +1,253 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.runtime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.formula.FormulaDependencyGraph;
+import org.openlowcode.server.data.formula.TriggerToExecute;
+import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
+
+/**
+ * The list of triggers to execute for an action, held per thread. Triggers are
+ * executed in the order they are queued. The position of triggers is indexed
+ * per object id, so that a new trigger for an object already having a pending
+ * trigger is found without scanning the list:
+ * <ul>
+ * <li>all pending triggers on the same object get the newer version of the
+ * object</li>
+ * <li>if one of them has the same name, the new trigger is coalesced with it
+ * and not queued</li>
+ * </ul>
+ * Calculations (triggers that are not custom) are given in the order of the
+ * level of their calculated field in the formula dependency graph, so that a
+ * calculated field is evaluated after all the calculated fields it depends on.
+ * During this recalculation, a calculated field that is not recursive is
+ * evaluated only once per object.<br>
+ * The queue counts triggers queued, coalesced and executed, and formulas
+ * evaluated and skipped for the action, and adds them to counters for the
+ * whole server.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class TriggerQueue {
+	private static final LongAdder totalactions = new LongAdder();
+	private static final LongAdder totalqueued = new LongAdder();
+	private static final LongAdder totalcoalesced = new LongAdder();
+	private static final LongAdder totalexecuted = new LongAdder();
+	private static final LongAdder totalevaluated = new LongAdder();
+	private static final LongAdder totalskipped = new LongAdder();
+
+	private ArrayList<TriggerToExecute<?>> triggers;
+	private HashMap<DataObjectId<?>, ArrayList<Integer>> positionsperobject;
+	private TreeMap<Integer, ArrayDeque<Integer>> pendingcalculations;
+	private HashSet<String> evaluatedfields;
+	private boolean recalculating;
+	private int queued;
+	private int coalesced;
+	private int executed;
+	private int evaluated;
+	private int skipped;
+	private int levels;
+
+	/**
+	 * creates an empty trigger queue for a new action
+	 */
+	public TriggerQueue() {
+		this.triggers = new ArrayList<TriggerToExecute<?>>();
+		this.positionsperobject = new HashMap<DataObjectId<?>, ArrayList<Integer>>();
+		this.pendingcalculations = new TreeMap<Integer, ArrayDeque<Integer>>();
+		this.evaluatedfields = new HashSet<String>();
+		totalactions.increment();
+	}
+
+	private static DataObjectId<?> getObjectId(TriggerToExecute<?> trigger) {
+		DataObject<?> object = trigger.getContextobject();
+		if (object instanceof UniqueidentifiedInterface)
+			return ((UniqueidentifiedInterface<?>) object).getId();
+		return null;
+	}
+
+	/**
+	 * adds a trigger, or coalesces it with a pending trigger with the same name on
+	 * the same object
+	 *
+	 * @param newtrigger     the trigger to add
+	 * @param executionindex index of the trigger being executed (-1 if execution
+	 *                       of triggers has not started). Only triggers after this
+	 *                       index are considered pending
+	 * @return true if the trigger was coalesced with a pending trigger, false if
+	 *         it was queued
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public boolean add(TriggerToExecute<?> newtrigger, int executionindex) {
+		DataObjectId<?> newtriggerid = getObjectId(newtrigger);
+		boolean alreadypresent = false;
+		if (newtriggerid != null) {
+			ArrayList<Integer> positions = positionsperobject.get(newtriggerid);
+			if (positions != null)
+				for (int i = 0; i < positions.size(); i++) {
+					int position = positions.get(i).intValue();
+					if (position > executionindex) {
+						TriggerToExecute thistrigger = triggers.get(position);
+						thistrigger.replacetrigger(newtrigger.getContextobject());
+						if (thistrigger.getName().equals(newtrigger.getName()))
+							alreadypresent = true;
+					}
+				}
+		}
+		if (alreadypresent) {
+			coalesced++;
+			totalcoalesced.increment();
+			return true;
+		}
+		append(newtrigger);
+		return false;
+	}
+
+	/**
+	 * adds a trigger at the end of the queue without looking for pending triggers
+	 * on the same object
+	 *
+	 * @param newtrigger the trigger to add
+	 */
+	public void append(TriggerToExecute<?> newtrigger) {
+		DataObjectId<?> newtriggerid = getObjectId(newtrigger);
+		if (newtriggerid != null) {
+			ArrayList<Integer> positions = positionsperobject.get(newtriggerid);
+			if (positions == null) {
+				positions = new ArrayList<Integer>(2);
+				positionsperobject.put(newtriggerid, positions);
+			}
+			positions.add(Integer.valueOf(triggers.size()));
+		}
+		if (!newtrigger.isCustomTrigger()) {
+			Integer level = Integer.valueOf(FormulaDependencyGraph.getLevel(newtrigger.getName()));
+			ArrayDeque<Integer> calculationsforlevel = pendingcalculations.get(level);
+			if (calculationsforlevel == null) {
+				calculationsforlevel = new ArrayDeque<Integer>();
+				pendingcalculations.put(level, calculationsforlevel);
+			}
+			calculationsforlevel.add(Integer.valueOf(triggers.size()));
+		}
+		triggers.add(newtrigger);
+		queued++;
+		totalqueued.increment();
+	}
+
+	/**
+	 * @return the number of triggers in the queue (executed or not)
+	 */
+	public int size() {
+		return triggers.size();
+	}
+
+	/**
+	 * @param index index of the trigger
+	 * @return the trigger at the given index
+	 */
+	public TriggerToExecute<?> get(int index) {
+		return triggers.get(index);
+	}
+
+	/**
+	 * removes the next calculation to execute from the pending calculations. The
+	 * calculations with the lowest level in the formula dependency graph are
+	 * given first, in the order they were queued
+	 *
+	 * @return the index of the trigger, or -1 if no calculation is pending
+	 */
+	public int pollNextCalculation() {
+		Entry<Integer, ArrayDeque<Integer>> lowestlevel = pendingcalculations.firstEntry();
+		if (lowestlevel == null)
+			return -1;
+		ArrayDeque<Integer> calculationsforlevel = lowestlevel.getValue();
+		int position = calculationsforlevel.poll().intValue();
+		if (calculationsforlevel.isEmpty()) {
+			pendingcalculations.remove(lowestlevel.getKey());
+			levels++;
+		}
+		return position;
+	}
+
+	/**
+	 * @param recalculating true when calculations are executed in the order of
+	 *                      the formula dependency graph
+	 */
+	public void setRecalculating(boolean recalculating) {
+		this.recalculating = recalculating;
+	}
+
+	/**
+	 * records the evaluation of a formula, and tells if it should be performed.
+	 * During recalculation, a calculated field that is not recursive is evaluated
+	 * only once per object: all the fields it depends on have a lower level, and
+	 * are already calculated
+	 *
+	 * @param calculatedfield name of the trigger calculating the field
+	 * @param targetid        id of the object the field is on (can be null)
+	 * @return true if the formula should be evaluated, false if the field was
+	 *         already evaluated on this object
+	 */
+	public boolean startEvaluation(String calculatedfield, DataObjectId<?> targetid) {
+		if ((recalculating) && (targetid != null) && (targetid.getId() != null))
+			if (!FormulaDependencyGraph.isRecursive(calculatedfield))
+				if (!evaluatedfields.add(calculatedfield + "/" + targetid.getObjectId() + "/" + targetid.getId())) {
+					skipped++;
+					totalskipped.increment();
+					return false;
+				}
+		evaluated++;
+		totalevaluated.increment();
+		return true;
+	}
+
+	/**
+	 * records the execution of a trigger
+	 */
+	public void countExecution() {
+		executed++;
+		totalexecuted.increment();
+	}
+
+	/**
+	 * @return a one line summary of the counters for this action
+	 */
+	public String getSummary() {
+		return "TRIGGERS[queued=" + queued + ",coalesced=" + coalesced + ",executed=" + executed + ",levels=" + levels
+				+ ",evaluated=" + evaluated + ",skipped=" + skipped + "]";
+	}
+
+	@Override
+	public String toString() {
+		return getSummary();
+	}
+
+	/**
+	 * @return a one line summary of the counters for all actions since server
+	 *         start
+	 */
+	public static String getStatistics() {
+		return "TRIGGERQUEUE[actions=" + totalactions.sum() + ",queued=" + totalqueued.sum() + ",coalesced="
+				+ totalcoalesced.sum() + ",executed=" + totalexecuted.sum() + ",evaluated=" + totalevaluated.sum()
+				+ ",skipped=" + totalskipped.sum() + "]";
+	}
+}
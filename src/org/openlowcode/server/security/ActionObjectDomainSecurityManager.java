@@ -11,6 +11,7 @@
 package org.openlowcode.server.security;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -67,23 +68,19 @@ public abstract class ActionObjectDomainSecurityManager<E extends DataObject<E>
 
 	@Override
 	public void freezeUnauthorizedObjects(DataObject<?>[] dataarray, SecurityBuffer buffer) {
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
+		if (userauthorities == null)
+			return;
 		for (int h = 0; h < dataarray.length; h++) {
 			try {
 				@SuppressWarnings("unchecked")
 				E object = (E) dataarray[h];
 
-				DataObjectId<Domain> domainid = object.getLocationdomainid();
-				Domain domain = ServerSecurityBuffer.getUniqueInstance().getDomainPerId(domainid);
-
-				String authority = domain.getNr() + "_" + authoritysuffix;
-				Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
-				if (userauthorities != null)
-					for (int i = 0; i < userauthorities.length; i++) {
-						String thisauthority = userauthorities[i].getNr();
-						if (thisauthority.equals(authority))
-							object.setUnfrozen();
-
-					}
+				int authority = model.getDomainAuthorityIndex(object.getLocationdomainid(), authoritysuffix);
+				if (authority >= 0)
+					if (userauthorities.get(authority))
+						object.setUnfrozen();
 
 			} catch (ClassCastException e) {
 				logger.warning("Exception in security manager " + e.getMessage());
@@ -103,28 +100,19 @@ public abstract class ActionObjectDomainSecurityManager<E extends DataObject<E>
 			throw new RuntimeException(
 					"Trying to use SecurityManager but object is not initialized, security manager" + this);
 
-		boolean isauthorized = false;
 		DataObjectId<Domain> domainid = object.getLocationdomainid();
 
 		Domain domain = ServerSecurityBuffer.getUniqueInstance().getDomainPerId(domainid);
 		if (domain != null) {
-
-			Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
+			AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+			BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
 
 			if (userauthorities == null)
 				return false;
-			for (int i = 0; i < userauthorities.length; i++) {
-				String thisauthority = userauthorities[i].getNr();
-				if (thisauthority.equals(domain.getNr() + "_" + authoritysuffix)) {
-					logger.info("evaluating authority for domain " + domain.getNr() + " for suffix = " + authoritysuffix
-							+ " for authority " + thisauthority + " -> OK");
-					isauthorized = true;
-				} else {
-					logger.info("evaluating authority for domain " + domain.getNr() + " for suffix = " + authoritysuffix
-							+ " for authority " + thisauthority + " -> KO");
-				}
-
-			}
+			int authority = model.getDomainAuthorityIndex(domainid, authoritysuffix);
+			boolean isauthorized = (authority >= 0 ? userauthorities.get(authority) : false);
+			logger.fine("evaluating authority for domain " + domain.getNr() + " for suffix = " + authoritysuffix
+					+ " -> " + (isauthorized ? "OK" : "KO"));
 			return isauthorized;
 		} else {
 			return isMaybeAuthorized();
@@ -134,23 +122,13 @@ public abstract class ActionObjectDomainSecurityManager<E extends DataObject<E>
 
 	@Override
 	public boolean isMaybeAuthorized() {
-		boolean isauthorized = false;
-		Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
 		if (userauthorities == null)
 			return false;
-		for (int i = 0; i < userauthorities.length; i++) {
-			String thisauthority = userauthorities[i].getNr();
-			if (thisauthority.endsWith(authoritysuffix)) {
-				logger.info("evaluating authority for suffix = " + authoritysuffix + " for authority " + thisauthority
-						+ " for blank domain object-> OK");
-
-				isauthorized = true;
-			} else {
-				logger.info("evaluating authority for suffix = " + authoritysuffix + " for authority " + thisauthority
-						+ " for blank domain object-> KO");
-
-			}
-		}
+		boolean isauthorized = userauthorities.intersects(model.getAuthorityBitsEndingWith(authoritysuffix));
+		logger.fine("evaluating authority for suffix = " + authoritysuffix + " for blank domain object-> "
+				+ (isauthorized ? "OK" : "KO"));
 		return isauthorized;
 	}
 
@@ -11,6 +11,8 @@
 package org.openlowcode.server.security;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -46,6 +48,7 @@ public abstract class ActionObjectStateDomainSecurityManager<E extends DataObjec
 	private static final Logger logger = Logger.getLogger(ActionObjectStateDomainSecurityManager.class.getName());
 	private String authoritysuffix;
 	private String[] states;
+	private HashSet<String> statesset;
 
 	/**
 	 * @param authoritysuffix domain suffix for the authority (full authority name
@@ -56,6 +59,10 @@ public abstract class ActionObjectStateDomainSecurityManager<E extends DataObjec
 		super();
 		this.authoritysuffix = authoritysuffix;
 		this.states = states;
+		this.statesset = new HashSet<String>();
+		if (states != null)
+			for (int i = 0; i < states.length; i++)
+				this.statesset.add(states[i]);
 
 	}
 
@@ -72,27 +79,19 @@ public abstract class ActionObjectStateDomainSecurityManager<E extends DataObjec
 
 	@Override
 	public void freezeUnauthorizedObjects(DataObject<?>[] dataarray, SecurityBuffer buffer) {
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
+		if (userauthorities == null)
+			return;
 		for (int h = 0; h < dataarray.length; h++) {
 			try {
 				@SuppressWarnings("unchecked")
 				E object = (E) dataarray[h];
-				DataObjectId<Domain> domainid = object.getLocationdomainid();
-				Domain domain = ServerSecurityBuffer.getUniqueInstance().getDomainPerId(domainid);
-				String authority = domain.getNr() + "_" + authoritysuffix;
-				Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
-				if (userauthorities != null)
-					for (int i = 0; i < userauthorities.length; i++) {
-						String thisauthority = userauthorities[i].getNr();
-						if (thisauthority.equals(authority)) {
-							String objectstate = object.getState();
-							for (int j = 0; j < states.length; j++) {
-								logger.info("  --- comparing " + objectstate + "-" + states[j]);
-								if (states[j].equals(objectstate))
-									object.setUnfrozen();
-							}
-						}
-
-					}
+				int authority = model.getDomainAuthorityIndex(object.getLocationdomainid(), authoritysuffix);
+				if (authority >= 0)
+					if (userauthorities.get(authority))
+						if (statesset.contains(object.getState()))
+							object.setUnfrozen();
 			} catch (ClassCastException e) {
 				logger.warning("Exception in security manager " + e.getMessage());
 				for (int i = 0; i < e.getStackTrace().length; i++) {
@@ -121,50 +120,37 @@ public abstract class ActionObjectStateDomainSecurityManager<E extends DataObjec
 			if (object.getState().trim().length() > 0)
 				hasstate = true;
 
-		boolean valid = false;
-		Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
 
 		if (userauthorities == null)
 			return false;
-		for (int i = 0; i < userauthorities.length; i++) {
-			String thisauthority = userauthorities[i].getNr();
-			boolean authorityvalid = false;
-			if (hasdomain)
-				if (thisauthority.equals(domain.getNr() + "_" + authoritysuffix))
-					authorityvalid = true;
-			if (!hasdomain)
-				if (thisauthority.endsWith(authoritysuffix))
-					authorityvalid = true;
-
-			if (authorityvalid) {
-				String objectstate = object.getState();
-				if (!hasstate) {
-					logger.info(" --- one match OK for " + authoritysuffix + " with state unspecified.");
-					valid = true;
-				} else {
-					for (int j = 0; j < states.length; j++) {
-						logger.info("  --- comparing " + objectstate + "-" + states[j]);
-						if (states[j].equals(objectstate)) {
-							valid = true;
-							logger.info(" --- one match OK for " + authoritysuffix);
-						}
-					}
-				}
-
-			}
-
+		boolean authorityvalid = false;
+		if (hasdomain) {
+			int authority = model.getDomainAuthorityIndex(domainid, authoritysuffix);
+			if (authority >= 0)
+				authorityvalid = userauthorities.get(authority);
+		} else {
+			authorityvalid = userauthorities.intersects(model.getAuthorityBitsEndingWith(authoritysuffix));
+		}
+		if (!authorityvalid)
+			return false;
+		if (!hasstate) {
+			logger.fine(" --- one match OK for " + authoritysuffix + " with state unspecified.");
+			return true;
 		}
+		boolean valid = statesset.contains(object.getState());
+		logger.fine(" --- checking state " + object.getState() + " for " + authoritysuffix + " -> "
+				+ (valid ? "OK" : "KO"));
 		return valid;
 	}
 
 	public boolean isMaybeAuthorized() {
-		Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
-		for (int i = 0; i < userauthorities.length; i++) {
-			String thisauthority = userauthorities[i].getNr();
-			if (thisauthority.endsWith(authoritysuffix))
-				return true;
-		}
-		return false;
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
+		if (userauthorities == null)
+			return false;
+		return userauthorities.intersects(model.getAuthorityBitsEndingWith(authoritysuffix));
 	}
 
 	@Override
@@ -213,15 +199,7 @@ public abstract class ActionObjectStateDomainSecurityManager<E extends DataObjec
 					/// State Query Condition
 					/// ---------------------------------------------------------------------
 
-					boolean securitymanagerappliestouser = false;
-					Authority[] userauthorities = OLcServer.getServer().getSecuritymanager()
-							.getAuthoritiesForCurrentUser();
-					for (int i = 0; i < userauthorities.length; i++) {
-						String thisauthority = userauthorities[i].getNr();
-						if (thisauthority.endsWith(authoritysuffix)) {
-							securitymanagerappliestouser = true;
-						}
-					}
+					boolean securitymanagerappliestouser = isMaybeAuthorized();
 					QueryCondition statequerycondition = null;
 					if (securitymanagerappliestouser) {
 						StoredFieldSchema<String> state = new StringStoredField("STATE", null, 64);
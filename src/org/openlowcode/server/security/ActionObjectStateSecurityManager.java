@@ -2,10 +2,11 @@
 
 package org.openlowcode.server.security;
 
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
-import org.openlowcode.module.system.data.Authority;
 import org.openlowcode.server.action.SActionData;
 import org.openlowcode.server.data.DataObject;
 
@@ -46,46 +47,53 @@ public abstract class ActionObjectStateSecurityManager<E extends DataObject<E> &
 
 	@Override
 	public boolean isObjectAuthorized(E object) {
-		boolean valid = false;
-		Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
 		if (userauthorities == null)
 			return false;
 		if (object == null)
 			throw new RuntimeException(
 					"Trying to use SecurityManager but object is not initialized, security manager" + this);
-		for (int i = 0; i < userauthorities.length; i++) {
-			String thisauthority = userauthorities[i].getNr();
-			if (thisauthority.equals(authority)) {
-				String objectstate = object.getState();
-				for (int j = 0; j < states.length; j++) {
-					logger.info("  --- comparing " + objectstate + "-" + states[j]);
-					if (states[j].equals(objectstate))
-						valid = true;
-				}
-			}
-
-		}
-		return valid;
+		if (!hasAuthority(model, userauthorities))
+			return false;
+		logger.fine("  --- checking state " + object.getState());
+		return statesset.contains(object.getState());
 	}
 
 	@Override
 	public boolean isMaybeAuthorized() {
-		Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
-		for (int i = 0; i < userauthorities.length; i++) {
-			String thisauthority = userauthorities[i].getNr();
-			if (thisauthority.equals(authority))
-				return true;
-		}
-		return false;
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
+		if (userauthorities == null)
+			return false;
+		return hasAuthority(model, userauthorities);
+	}
+
+	/**
+	 * @param model           authorization model
+	 * @param userauthorities authorities of the user in the model
+	 * @return true if the user has the authority of the security manager
+	 * @since 1.14
+	 */
+	private boolean hasAuthority(AuthorizationModel model, BitSet userauthorities) {
+		int index = model.getAuthorityIndex(authority);
+		if (index < 0)
+			return false;
+		return userauthorities.get(index);
 	}
 
 	private String authority;
 	private String[] states;
+	private HashSet<String> statesset;
 
 	public ActionObjectStateSecurityManager(String authority, String[] states) {
 		super();
 		this.authority = authority;
 		this.states = states;
+		this.statesset = new HashSet<String>();
+		if (states != null)
+			for (int i = 0; i < states.length; i++)
+				this.statesset.add(states[i]);
 
 	}
 
@@ -97,14 +105,7 @@ public abstract class ActionObjectStateSecurityManager<E extends DataObject<E> &
 			@Override
 			public QueryFilter apply(TableAlias alias) {
 
-				boolean securitymanagerappliestouser = false;
-				Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
-				for (int i = 0; i < userauthorities.length; i++) {
-					String thisauthority = userauthorities[i].getNr();
-					if (thisauthority.equals(authority)) {
-						securitymanagerappliestouser = true;
-					}
-				}
+				boolean securitymanagerappliestouser = isMaybeAuthorized();
 				if (securitymanagerappliestouser) {
 					StoredFieldSchema<String> state = new StringStoredField("STATE", null, 64);
 
@@ -135,24 +136,15 @@ public abstract class ActionObjectStateSecurityManager<E extends DataObject<E> &
 
 	@Override
 	public void freezeUnauthorizedObjects(DataObject<?>[] dataarray, SecurityBuffer buffer) {
+		if (!isMaybeAuthorized())
+			return;
 		for (int h = 0; h < dataarray.length; h++) {
 			try {
 				@SuppressWarnings("unchecked")
 				E object = (E) dataarray[h];
 
-				Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
-				if (userauthorities != null)
-					for (int i = 0; i < userauthorities.length; i++) {
-						String thisauthority = userauthorities[i].getNr();
-						if (thisauthority.equals(authority)) {
-							String objectstate = object.getState();
-							for (int j = 0; j < states.length; j++) {
-								logger.info("  --- comparing " + objectstate + "-" + states[j]);
-								if (states[j].equals(objectstate))
-									object.setUnfrozen();
-							}
-						}
-					}
+				if (statesset.contains(object.getState()))
+					object.setUnfrozen();
 			} catch (ClassCastException e) {
 				logger.warning("Exception in security manager " + e.getMessage());
 				for (int i = 0; i < e.getStackTrace().length; i++) {
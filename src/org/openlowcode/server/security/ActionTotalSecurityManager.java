@@ -11,11 +11,11 @@
 package org.openlowcode.server.security;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
-import org.openlowcode.module.system.data.Authority;
 import org.openlowcode.server.action.SActionData;
 import org.openlowcode.server.data.DataObject;
 
@@ -35,6 +35,22 @@ public abstract class ActionTotalSecurityManager extends ActionSecurityManager {
 	private ArrayList<String> relevantauthorities; // stores the authorities number
 	private static final Logger logger = Logger.getLogger("");
 	private HashMap<String, String> orderedauthorities;
+	private volatile CompiledAuthorities compiledauthorities;
+
+	/**
+	 * the relevant authorities compiled as a bit set for an authorization model
+	 * 
+	 * @since 1.14
+	 */
+	private static class CompiledAuthorities {
+		private AuthorizationModel model;
+		private BitSet authorities;
+
+		private CompiledAuthorities(AuthorizationModel model, BitSet authorities) {
+			this.model = model;
+			this.authorities = authorities;
+		}
+	}
 
 	@Override
 	public boolean queryObjectData() {
@@ -73,26 +89,38 @@ public abstract class ActionTotalSecurityManager extends ActionSecurityManager {
 		logger.info(" --- for " + context
 				+ " checking authorization for current user through CSPActionTotalSecurityManager class "
 				+ this.getClass().getName() + "---");
-		Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
 
 		if (userauthorities == null) {
 			logger.info("no authority returned for current session, not authorized");
 			return false;
 		}
-		for (int i = 0; i < userauthorities.length; i++) {
-			if (isRelevantAuthority(userauthorities[i].getNr())) {
-				logger.info("--- access granted through authority " + userauthorities[i].getNr());
-				return true;
-			}
-
+		if (userauthorities.intersects(getRelevantAuthorityBits(model))) {
+			logger.info("--- access granted");
+			return true;
 		}
-		logger.info("--- despite checking user " + userauthorities.length + " authorities against "
+		logger.info("--- despite checking user " + userauthorities.cardinality() + " authorities against "
 				+ this.orderedauthorities.size() + ", no match was found");
-		logger.fine("     - user autorities " + buildListSummary(userauthorities));
 		logger.fine("     - authoritized " + buildListSummary(relevantauthorities));
 		return false;
 	}
 
+	/**
+	 * @param model authorization model
+	 * @return the relevant authorities as a bit set of the model, compiled once
+	 *         per model
+	 * @since 1.14
+	 */
+	private BitSet getRelevantAuthorityBits(AuthorizationModel model) {
+		CompiledAuthorities compiled = this.compiledauthorities;
+		if (compiled == null || compiled.model != model) {
+			compiled = new CompiledAuthorities(model, model.getAuthorityBits(relevantauthorities));
+			this.compiledauthorities = compiled;
+		}
+		return compiled.authorities;
+	}
+
 	public boolean isRelevantAuthority(String authoritynumber) {
 		return this.orderedauthorities.containsKey(authoritynumber);
 	}
@@ -116,14 +144,13 @@ public abstract class ActionTotalSecurityManager extends ActionSecurityManager {
 	@Override
 	public void freezeUnauthorizedObjects(DataObject<?>[] dataarray, SecurityBuffer buffer) {
 		boolean authorized = false;
-		Authority[] userauthorities = OLcServer.getServer().getSecuritymanager().getAuthoritiesForCurrentUser();
+		AuthorizationModel model = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel();
+		BitSet userauthorities = OLcServer.getServer().getSecuritymanager().getAuthorityBitsForCurrentUser(model);
 
 		if (userauthorities != null)
-			for (int i = 0; i < userauthorities.length; i++) {
-				if (isRelevantAuthority(userauthorities[i].getNr())) {
-					logger.info("--- access granted through authority " + userauthorities[i].getNr());
-					authorized = true;
-				}
+			if (userauthorities.intersects(getRelevantAuthorityBits(model))) {
+				logger.info("--- access granted");
+				authorized = true;
 			}
 
 		if (authorized)
@@ -0,0 +1,233 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.security;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openlowcode.module.system.data.Appuser;
+import org.openlowcode.module.system.data.Authority;
+import org.openlowcode.module.system.data.Domain;
+import org.openlowcode.module.system.data.Usergroup;
+import org.openlowcode.server.data.properties.DataObjectId;
+
+/**
+ * A compiled view of the authorities of users, built by the security buffer
+ * each time authorities, groups or domains are refreshed. Every authority
+ * number is given a dense index, and the authorities of each user are
+ * precomputed as a bit set, so that security managers evaluate privileges with
+ * bit operations instead of comparing authority numbers.<br>
+ * Privileges compiled for security managers (authorities ending with a suffix,
+ * authority per domain for a suffix) are kept in the model, and are discarded
+ * with it when the buffer is refreshed. Indexes are only valid inside a given
+ * model: bit sets from two different models should never be combined.<br>
+ * The model is immutable once built, and bit sets returned are shared and
+ * should not be modified.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class AuthorizationModel {
+	private static final BitSet NOAUTHORITY = new BitSet(0);
+	private final HashMap<String, Integer> indexpernumber;
+	private final ArrayList<String> numbers;
+	private final HashMap<DataObjectId<Appuser>, BitSet> bitsperuser;
+	private final HashMap<DataObjectId<Appuser>, Authority[]> authoritiesperuser;
+	private final Map<DataObjectId<Domain>, Domain> domainsperid;
+	private final ConcurrentHashMap<String, BitSet> bitspersuffix;
+	private final ConcurrentHashMap<String, Map<DataObjectId<Domain>, Integer>> domainindexespersuffix;
+
+	/**
+	 * an empty model, where no user has any authority
+	 */
+	AuthorizationModel() {
+		this(Collections.<DataObjectId<Appuser>, ArrayList<Usergroup>>emptyMap(),
+				Collections.<DataObjectId<Usergroup>, ArrayList<Authority>>emptyMap(),
+				Collections.<DataObjectId<Domain>, ArrayList<Authority>>emptyMap(),
+				Collections.<DataObjectId<Domain>, Domain>emptyMap());
+	}
+
+	/**
+	 * compiles the authorization model from the content of the security buffer
+	 *
+	 * @param groupsperuser        groups of each user
+	 * @param authoritiespergroup  authorities of each group
+	 * @param authoritiesperdomain authorities of each domain
+	 * @param domainsperid         domains per id
+	 */
+	AuthorizationModel(
+			Map<DataObjectId<Appuser>, ArrayList<Usergroup>> groupsperuser,
+			Map<DataObjectId<Usergroup>, ArrayList<Authority>> authoritiespergroup,
+			Map<DataObjectId<Domain>, ArrayList<Authority>> authoritiesperdomain,
+			Map<DataObjectId<Domain>, Domain> domainsperid) {
+		this.indexpernumber = new HashMap<String, Integer>();
+		this.numbers = new ArrayList<String>();
+		this.bitsperuser = new HashMap<DataObjectId<Appuser>, BitSet>();
+		this.authoritiesperuser = new HashMap<DataObjectId<Appuser>, Authority[]>();
+		this.domainsperid = domainsperid;
+		this.bitspersuffix = new ConcurrentHashMap<String, BitSet>();
+		this.domainindexespersuffix = new ConcurrentHashMap<String, Map<DataObjectId<Domain>, Integer>>();
+		Iterator<ArrayList<Authority>> domainauthorities = authoritiesperdomain.values().iterator();
+		while (domainauthorities.hasNext())
+			indexAuthorities(domainauthorities.next());
+		Iterator<ArrayList<Authority>> groupauthorities = authoritiespergroup.values().iterator();
+		while (groupauthorities.hasNext())
+			indexAuthorities(groupauthorities.next());
+		Iterator<Map.Entry<DataObjectId<Appuser>, ArrayList<Usergroup>>> users = groupsperuser.entrySet().iterator();
+		while (users.hasNext()) {
+			Map.Entry<DataObjectId<Appuser>, ArrayList<Usergroup>> user = users.next();
+			BitSet bits = new BitSet(numbers.size());
+			ArrayList<Authority> authorities = new ArrayList<Authority>();
+			ArrayList<Usergroup> groups = user.getValue();
+			for (int i = 0; i < groups.size(); i++) {
+				ArrayList<Authority> authoritiesforgroup = authoritiespergroup.get(groups.get(i).getId());
+				if (authoritiesforgroup != null)
+					for (int j = 0; j < authoritiesforgroup.size(); j++) {
+						Authority authority = authoritiesforgroup.get(j);
+						authorities.add(authority);
+						int index = getAuthorityIndex(authority.getNr());
+						if (index >= 0)
+							bits.set(index);
+					}
+			}
+			bitsperuser.put(user.getKey(), bits);
+			authoritiesperuser.put(user.getKey(), authorities.toArray(new Authority[0]));
+		}
+	}
+
+	private void indexAuthorities(ArrayList<Authority> authorities) {
+		for (int i = 0; i < authorities.size(); i++) {
+			String number = authorities.get(i).getNr();
+			if (number != null)
+				if (!indexpernumber.containsKey(number)) {
+					indexpernumber.put(number, Integer.valueOf(numbers.size()));
+					numbers.add(number);
+				}
+		}
+	}
+
+	/**
+	 * @return the number of distinct authority numbers in the model
+	 */
+	public int getAuthorityNumber() {
+		return numbers.size();
+	}
+
+	/**
+	 * @param number number of an authority
+	 * @return the index of the authority in this model, or -1 if the authority is
+	 *         not known
+	 */
+	public int getAuthorityIndex(String number) {
+		if (number == null)
+			return -1;
+		Integer index = indexpernumber.get(number);
+		if (index == null)
+			return -1;
+		return index.intValue();
+	}
+
+	/**
+	 * @param userid id of a user
+	 * @return the authorities of the user as a bit set (shared, should not be
+	 *         modified), null if the user id is null
+	 */
+	public BitSet getAuthorityBitsForUser(DataObjectId<Appuser> userid) {
+		if (userid == null)
+			return null;
+		BitSet bits = bitsperuser.get(userid);
+		if (bits == null)
+			return NOAUTHORITY;
+		return bits;
+	}
+
+	/**
+	 * @param userid id of a user
+	 * @return all authorities of the user (with potential duplicates)
+	 */
+	public Authority[] getAuthoritiesForUser(DataObjectId<Appuser> userid) {
+		Authority[] authorities = authoritiesperuser.get(userid);
+		if (authorities == null)
+			return new Authority[0];
+		return authorities.clone();
+	}
+
+	/**
+	 * @param authoritynumbers a list of authority numbers
+	 * @return a new bit set with the authorities known in this model
+	 */
+	public BitSet getAuthorityBits(Collection<String> authoritynumbers) {
+		BitSet bits = new BitSet(numbers.size());
+		Iterator<String> iterator = authoritynumbers.iterator();
+		while (iterator.hasNext()) {
+			int index = getAuthorityIndex(iterator.next());
+			if (index >= 0)
+				bits.set(index);
+		}
+		return bits;
+	}
+
+	/**
+	 * @param suffix a suffix of authority numbers
+	 * @return all authorities with a number ending with the suffix (shared, should
+	 *         not be modified)
+	 */
+	public BitSet getAuthorityBitsEndingWith(String suffix) {
+		BitSet bits = bitspersuffix.get(suffix);
+		if (bits != null)
+			return bits;
+		return bitspersuffix.computeIfAbsent(suffix, key -> {
+			BitSet newbits = new BitSet(numbers.size());
+			for (int i = 0; i < numbers.size(); i++)
+				if (numbers.get(i).endsWith(key))
+					newbits.set(i);
+			return newbits;
+		});
+	}
+
+	/**
+	 * gets the index of the authority of the domain for the suffix, i.e. the
+	 * authority with number domainnumber_suffix
+	 *
+	 * @param domainid id of a domain
+	 * @param suffix   suffix of the authority
+	 * @return the index of the authority, or -1 if the domain or the authority is
+	 *         not known
+	 */
+	public int getDomainAuthorityIndex(DataObjectId<Domain> domainid, String suffix) {
+		Map<DataObjectId<Domain>, Integer> indexes = domainindexespersuffix.get(suffix);
+		if (indexes == null)
+			indexes = domainindexespersuffix.computeIfAbsent(suffix, key -> {
+				HashMap<DataObjectId<Domain>, Integer> newindexes = new HashMap<DataObjectId<Domain>, Integer>();
+				Iterator<Domain> domains = domainsperid.values().iterator();
+				while (domains.hasNext()) {
+					Domain domain = domains.next();
+					int index = getAuthorityIndex(domain.getNr() + "_" + key);
+					if (index >= 0)
+						newindexes.put(domain.getId(), Integer.valueOf(index));
+				}
+				return newindexes;
+			});
+		if (domainid == null)
+			return -1;
+		Integer index = indexes.get(domainid);
+		if (index == null)
+			return -1;
+		return index.intValue();
+	}
+}
@@ -14,7 +14,7 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.logging.Logger;
@@ -27,7 +27,6 @@ import org.openlowcode.module.system.data.Appuser;
 import org.openlowcode.module.system.data.Authority;
 import org.openlowcode.module.system.data.Otpcheck;
 import org.openlowcode.module.system.data.OtpcheckDefinition;
-import org.openlowcode.module.system.data.Usergroup;
 import org.openlowcode.module.system.data.Usersession;
 import org.openlowcode.server.data.properties.DataObjectId;
 import org.openlowcode.server.data.properties.LinkedtoparentQueryHelper;
@@ -49,6 +48,12 @@ public class SecurityManager
 		Thread {
 	Logger logger = Logger.getLogger("");
 	private static long TIMEOUTINMS = 60000;
+	/**
+	 * validity of a one-time password for a client
+	 * 
+	 * @since 1.14
+	 */
+	public static final long OTP_VALIDITY_MS = 8 * 3600 * 1000;
 	private String ldapconnectionstring = null;
 	private String ldapuser = null;
 	private String ldappassword = null;
@@ -131,7 +136,8 @@ public class SecurityManager
 
 	/**
 	 * @return a list of authorities for the current user, null if user is not
-	 *         authorized
+	 *         authorized. The list is precomputed in the authorization model of
+	 *         the security buffer
 	 */
 	public Authority[] getAuthoritiesForCurrentUser() {
 
@@ -139,35 +145,40 @@ public class SecurityManager
 
 		if (userid == null)
 			return null;
-		// TODO maybe better to format with user id
-		Usergroup[] usergroups = ServerSecurityBuffer.getUniqueInstance().getGroupsForUser(userid);
-		if (usergroups == null)
-			return null;
-		logger.info(" --- found " + usergroups.length + " groups for userid = " + userid.getId());
-		ArrayList<Authority> authoritieslist = new ArrayList<Authority>();
-		for (int i = 0; i < usergroups.length; i++) {
-			Usergroup thisgroup = usergroups[i];
-			Authority[] authoritiesforgroup = ServerSecurityBuffer.getUniqueInstance()
-					.getAuthoritiesForGroup(thisgroup.getId());
-			if (authoritiesforgroup != null)
-				for (int j = 0; j < authoritiesforgroup.length; j++) {
-					authoritieslist.add(authoritiesforgroup[j]);
-				}
-		}
-		logger.info(" --- found " + authoritieslist.size() + " authorities for userid = " + userid.getId());
-		return authoritieslist.toArray(new Authority[0]);
+		Authority[] authorities = ServerSecurityBuffer.getUniqueInstance().getAuthorizationModel()
+				.getAuthoritiesForUser(userid);
+		logger.fine(" --- found " + authorities.length + " authorities for userid = " + userid.getId());
+		return authorities;
 	}
 
 	/**
-	 * This method is low performance way to get the user, and check that there is a
-	 * valid session. This method should only be called from the Connection
-	 * management of user authorization for action. Indeed, the method is low
-	 * performance and
+	 * @param model the authorization model used for the evaluation
+	 * @return the authorities of the current user in the model (shared, should
+	 *         not be modified), null if user is not authorized
+	 * @since 1.14
+	 */
+	public BitSet getAuthorityBitsForCurrentUser(AuthorizationModel model) {
+		return model.getAuthorityBitsForUser(OLcServer.getServer().getCurrentUserId());
+	}
+
+	/**
+	 * This method gets the user, and checks that there is a valid session. This
+	 * method should only be called from the Connection management of user
+	 * authorization for action. Sessions are kept in the session cache once
+	 * checked on the database, so that the check does not access the database in
+	 * most cases.
 	 * 
 	 * @param ipaddress the ip address of the connection
 	 * @return null String if no session is found, else returns the user id
 	 */
 	public DataObjectId<Appuser> isValidSession(String ipaddress, String cid) {
+		SessionCache.CachedSession cachedsession = SessionCache.get(ipaddress, cid);
+		if (cachedsession != null) {
+			OLcServer.getServer().setUserIdForConnection(cachedsession.getUserid());
+			if (cachedsession.hasValidOTP())
+				OLcServer.getServer().setOTPForConnection();
+			return cachedsession.getUserid();
+		}
 		Usersession session = GetsessionforclientAction.get().executeActionLogic(ipaddress, cid, null);
 
 		if (session == null) {
@@ -178,16 +189,19 @@ public class SecurityManager
 		// TODO - check if good way to return user info
 		DataObjectId<Appuser> userid = session.getLinkedtoparentforsessionuserid();
 		OLcServer.getServer().setUserIdForConnection(userid);
-		checkOTPForClient(userid, cid, ipaddress);
+		long otpvaliduntil = checkOTPForClient(userid, cid, ipaddress);
+		SessionCache.put(ipaddress, cid, session, otpvaliduntil);
 		return userid;
 	}
 
 	/**
 	 * Check OTP for client
 	 * 
+	 * @return the time until which the one-time password of the client is valid,
+	 *         0 if there is no valid one-time password
 	 * @since 1.10
 	 */
-	private void checkOTPForClient(DataObjectId<Appuser> userid, String cid, String ipaddress) {
+	private long checkOTPForClient(DataObjectId<Appuser> userid, String cid, String ipaddress) {
 		Otpcheck[] check = Otpcheck.getallchildrenforuser(userid, QueryFilter.get(new AndQueryCondition(
 				new SimpleQueryCondition<String>(
 						OtpcheckDefinition.getOtpcheckDefinition()
@@ -199,17 +213,21 @@ public class SecurityManager
 						Otpcheck.getDefinition().getClientipFieldSchema(), new QueryOperatorEqual<String>(),
 						ipaddress))));
 		boolean hasvalidotp = false;
+		long otpvaliduntil = 0;
 		for (int i = 0; i < check.length; i++) {
 			Date date = new Date();
 			Date creationdate = check[i].getCreated();
 			long hoursofage = (date.getTime() - creationdate.getTime()) / (1000 * 3600);
-			if (hoursofage < 8)
+			if (date.getTime() - creationdate.getTime() < OTP_VALIDITY_MS) {
 				hasvalidotp = true;
+				otpvaliduntil = Math.max(otpvaliduntil, creationdate.getTime() + OTP_VALIDITY_MS);
+			}
 			logger.info(
 					"recovered old OTP connection (" + i + "/" + check.length + ")with hours of age = " + hoursofage);
 		}
 		if (hasvalidotp)
 			OLcServer.getServer().setOTPForConnection();
+		return otpvaliduntil;
 	}
 
 	/**
@@ -239,13 +257,20 @@ public class SecurityManager
 				// separate in 2 to ensure their are not done at same time as mail
 				Thread.sleep(TIMEOUTINMS / 2);
 				try {
-					ServerSecurityBuffer.getUniqueInstance().refreshData();
+					ServerSecurityBuffer.getUniqueInstance().refreshChanges();
 
 				} catch (Exception e) {
 					logger.warning("-- Security buffer refresh: fatal error " + e.getMessage());
 					for (int i = 0; i < e.getStackTrace().length; i++)
 						logger.warning("   " + e.getStackTrace()[i]);
 				}
+				try {
+					SessionCache.persistActivity();
+				} catch (Exception e) {
+					logger.warning("-- Session activity persistence: fatal error " + e.getMessage());
+					for (int i = 0; i < e.getStackTrace().length; i++)
+						logger.warning("   " + e.getStackTrace()[i]);
+				}
 
 				Thread.sleep(TIMEOUTINMS / 2);
 
@@ -272,6 +297,8 @@ public class SecurityManager
 
 		newotpcheck.setCreated(new Date());
 		newotpcheck.insert();
+		SessionCache.registerOTP(newotpcheck.getClientip(), newotpcheck.getClientpid(),
+				newotpcheck.getCreated().getTime() + OTP_VALIDITY_MS);
 		OLcServer.getServer().setOTPForConnection();
 		return valid;
 	}
@@ -10,7 +10,11 @@
 
 package org.openlowcode.server.security;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 import org.openlowcode.module.system.data.Appuser;
@@ -22,12 +26,18 @@ import org.openlowcode.module.system.data.Systemattribute;
 import org.openlowcode.module.system.data.Usergroup;
 import org.openlowcode.server.data.ThreeDataObjects;
 import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.runtime.PageLayoutCache;
 
 
 
 /**
  * This class aims at storing in the memory of the server all information related to users and groups
- * Requirement of memory is estimated at 1KB per user
+ * Requirement of memory is estimated at 1KB per user.<br>
+ * The data is held in an immutable snapshot, replaced as a whole when refreshed, so that it can be
+ * read by any thread without locking. The snapshot is made of several parts (users, group members,
+ * authorities of groups, domains and system attributes). Changes to security objects done on this
+ * server are notified by the persistence layer, and only the parts affected are reloaded. A full
+ * reload is still done every few cycles for changes performed outside of this server.
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
  *
@@ -35,34 +45,96 @@ import org.openlowcode.server.data.properties.DataObjectId;
 public class ServerSecurityBuffer {
 
 	private static Logger logger = Logger.getLogger(ServerSecurityBuffer.class.getName());
+	private static final int PART_USERS = 1;
+	private static final int PART_MEMBERS = 2;
+	private static final int PART_GROUPAUTHORITIES = 4;
+	private static final int PART_DOMAINS = 8;
+	private static final int PART_ATTRIBUTES = 16;
+	private static final int PART_ALL = 31;
+	private static int fullrefreshcycles = 10;
+	
 	/**
 	 * @return the singleton of this class
 	 */
 	public static ServerSecurityBuffer getUniqueInstance()  {
-		if (uniqueinstance==null) {
-			uniqueinstance = new ServerSecurityBuffer();
-			uniqueinstance.refreshData();
+		ServerSecurityBuffer instance = uniqueinstance;
+		if (instance!=null) return instance;
+		synchronized (ServerSecurityBuffer.class) {
+			if (uniqueinstance==null) {
+				uniqueinstance = new ServerSecurityBuffer();
+				uniqueinstance.refreshData();
+			}
+			return uniqueinstance;
 		}
-		return uniqueinstance;
 	}
-	private static ServerSecurityBuffer uniqueinstance;
+	private static volatile ServerSecurityBuffer uniqueinstance;
 	
+	/**
+	 * sets the number of refresh cycles between two full reloads of the buffer. In
+	 * other cycles, only data changed on this server is reloaded
+	 * @param fullrefreshcycles number of cycles (1 to perform a full reload at every cycle)
+	 * @since 1.14
+	 */
+	public static void setFullRefreshCycles(int fullrefreshcycles) {
+		if (fullrefreshcycles<1) throw new RuntimeException("Full refresh cycles should be at least 1, got "+fullrefreshcycles);
+		ServerSecurityBuffer.fullrefreshcycles = fullrefreshcycles;
+	}
 	
+	/**
+	 * an immutable state of the buffer. Parts not reloaded are shared with the previous snapshot
+	 * @since 1.14
+	 */
+	private static class Snapshot {
+		private Map<DataObjectId<Appuser>,ArrayList<Usergroup>> groupsperuser = Collections.emptyMap(); // note identification of the user should be the same as in CSPServerSession, i.e. server userid
+		private Map<DataObjectId<Usergroup>,ArrayList<Authority>> authoritiespergroup = Collections.emptyMap();
+		private Map<DataObjectId<Authority>,ArrayList<Usergroup>> groupsperauthority = Collections.emptyMap();
+		private Map<DataObjectId<Usergroup>,ArrayList<Appuser>> userspergroup = Collections.emptyMap();
+		private Map<DataObjectId<Domain>,Domain> domainsperid = Collections.emptyMap();
+		private Map<String,Domain> domainspernumber = Collections.emptyMap();
+		private Map<DataObjectId<Domain>,ArrayList<Authority>> authoritiesperdomain = Collections.emptyMap();
+		private Map<String,Systemattribute> attributesbuffer = Collections.emptyMap();
+		private Map<DataObjectId<Appuser>, Appuser> usersperuserid = Collections.emptyMap();
+		private AuthorizationModel authorizationmodel = new AuthorizationModel();
+		
+		private Snapshot() {
+		}
+		
+		private Snapshot(Snapshot previous) {
+			this.groupsperuser = previous.groupsperuser;
+			this.authoritiespergroup = previous.authoritiespergroup;
+			this.groupsperauthority = previous.groupsperauthority;
+			this.userspergroup = previous.userspergroup;
+			this.domainsperid = previous.domainsperid;
+			this.domainspernumber = previous.domainspernumber;
+			this.authoritiesperdomain = previous.authoritiesperdomain;
+			this.attributesbuffer = previous.attributesbuffer;
+			this.usersperuserid = previous.usersperuserid;
+			this.authorizationmodel = previous.authorizationmodel;
+		}
+	}
 	
-	private HashMap<DataObjectId<Appuser>,ArrayList<Usergroup>> groupsperuser; // note identification of the user should be the same as in CSPServerSession, i.e. server userid
-	private HashMap<DataObjectId<Usergroup>,ArrayList<Authority>> authoritiespergroup;
-	private HashMap<DataObjectId<Authority>,ArrayList<Usergroup>> groupsperauthority;
-	private HashMap<DataObjectId<Usergroup>,ArrayList<Appuser>> userspergroup;
-	private HashMap<DataObjectId<Domain>,Domain> domainsperid;
-	private HashMap<String,Domain> domainspernumber;
-	private HashMap<DataObjectId<Domain>,ArrayList<Authority>> authoritiesperdomain;
-	private HashMap<String,Systemattribute> attributesbuffer;
-
-
-	private HashMap<DataObjectId<Appuser>, Appuser> usersperuserid;
+	private final AtomicReference<Snapshot> snapshot;
+	private final AtomicInteger changedparts;
+	private int cyclessincefullrefresh;
+	
+	private ServerSecurityBuffer() {
+		this.snapshot = new AtomicReference<Snapshot>(new Snapshot());
+		this.changedparts = new AtomicInteger(0);
+		Appuser.getDefinition().getTableschema().addChangeListener(() -> notifyChange(PART_USERS | PART_MEMBERS));
+		Usergroup.getDefinition().getTableschema().addChangeListener(() -> notifyChange(PART_MEMBERS | PART_GROUPAUTHORITIES));
+		Groupmemberlink.getDefinition().getTableschema().addChangeListener(() -> notifyChange(PART_MEMBERS));
+		Groupswithauthority.getDefinition().getTableschema().addChangeListener(() -> notifyChange(PART_GROUPAUTHORITIES));
+		Authority.getDefinition().getTableschema().addChangeListener(() -> notifyChange(PART_GROUPAUTHORITIES | PART_DOMAINS));
+		Domain.getDefinition().getTableschema().addChangeListener(() -> notifyChange(PART_DOMAINS));
+		Systemattribute.getDefinition().getTableschema().addChangeListener(() -> notifyChange(PART_ATTRIBUTES));
+	}
+	
+	private void notifyChange(int parts) {
+		changedparts.getAndUpdate(current -> current | parts);
+	}
 	
 	public Appuser getUserPerUserId(DataObjectId<Appuser> appuserid) {
-		return this.usersperuserid.get(appuserid);
+		return snapshot.get().usersperuserid.get(appuserid);
 	}
 	
 	/**
@@ -74,7 +146,7 @@ public class ServerSecurityBuffer {
 		logger.finer(" -------------------- query for authorityid ---------------------");
 		logger.finer(" authorityid = "+authorityid);
 		
-		ArrayList<Usergroup> groups = groupsperauthority.get(authorityid);
+		ArrayList<Usergroup> groups = snapshot.get().groupsperauthority.get(authorityid);
 		if (groups!=null) {
 			logger.info(" query on authorityid returned  "+groups.size()+" lines");
 			return groups.toArray(new Usergroup[0]);
@@ -92,7 +164,7 @@ public class ServerSecurityBuffer {
 		logger.finer(" -------------------- query for groupid ---------------------");
 		logger.finer(" groupid = "+groupid);
 		
-		ArrayList<Appuser> users = userspergroup.get(groupid);
+		ArrayList<Appuser> users = snapshot.get().userspergroup.get(groupid);
 		if (users!=null) {
 			logger.finer(" query on groupid returned  "+users.size()+" lines");
 			return users.toArray(new Appuser[0]);
@@ -108,12 +180,16 @@ public class ServerSecurityBuffer {
 	 */
 	
 	public Authority[] getAuthoritiesForUser(DataObjectId<Appuser> userid) {
-		ArrayList<Usergroup> groups = this.groupsperuser.get(userid);
-		ArrayList<Authority> allauthorities = new ArrayList<Authority>();
-		for (int i=0;i<groups.size();i++) {
-			allauthorities.addAll(this.authoritiespergroup.get(groups.get(i).getId()));
-		}
-		return allauthorities.toArray(new Authority[0]);
+		return snapshot.get().authorizationmodel.getAuthoritiesForUser(userid);
+	}
+	
+	/**
+	 * @return the authorization model compiled from the current content of the buffer. A caller should
+	 * get the model once, and use it for all its evaluations, as indexes of authorities differ between models
+	 * @since 1.14
+	 */
+	public AuthorizationModel getAuthorizationModel() {
+		return snapshot.get().authorizationmodel;
 	}
 	
 	/**
@@ -125,7 +201,7 @@ public class ServerSecurityBuffer {
 		logger.finer(" -------------------- query for groupid ---------------------");
 		logger.finer(" groupid = "+groupid);
 		
-		ArrayList<Authority> authorities = authoritiespergroup.get(groupid);
+		ArrayList<Authority> authorities = snapshot.get().authoritiespergroup.get(groupid);
 		if (authorities!=null) {
 			logger.finer(" query on groupid returned  "+authorities.size()+" lines");
 			return authorities.toArray(new Authority[0]);
@@ -133,6 +209,7 @@ public class ServerSecurityBuffer {
 		logger.finer(" query on groupid, not found");
 		return new Authority[0];
 	}
+	
 	/**
 	 * gets all the users that have this authority from the buffer (using group as an intermediate)
 	 * @param authority unique id of the authority
@@ -165,7 +242,7 @@ public class ServerSecurityBuffer {
 	public Usergroup[] getGroupsForUser(DataObjectId<Appuser> userid) {
 		logger.finer(" -------------------- query for userid ---------------------");
 		logger.finer(" userid = "+userid);
-		ArrayList<Usergroup> grouplist = groupsperuser.get(userid);
+		ArrayList<Usergroup> grouplist = snapshot.get().groupsperuser.get(userid);
 		if (grouplist!=null) {
 			logger.finer(" query on userid returned  "+grouplist.size()+" lines");
 			return grouplist.toArray(new Usergroup[0]);
@@ -179,8 +256,7 @@ public class ServerSecurityBuffer {
 	 * @return the Domain object
 	 */
 	public Domain getDomainPerId(DataObjectId<Domain> id) {
-		if (this.domainsperid==null) return null;
-		return this.domainsperid.get(id);
+		return snapshot.get().domainsperid.get(id);
 	}
 	/**
 	 * get a domain from its business id (number)
@@ -188,8 +264,7 @@ public class ServerSecurityBuffer {
 	 * @return the domain object
 	 */
 	public Domain getDomainPerNr(String nr) {
-		if (this.domainspernumber==null) return null;
-		return this.domainspernumber.get(nr);
+		return snapshot.get().domainspernumber.get(nr);
 	}
 	
 	/**
@@ -198,8 +273,7 @@ public class ServerSecurityBuffer {
 	 * @return all authorities for this domain
 	 */
 	public Authority[] getAuthoritiesForDomain(DataObjectId<Domain> domainid) {
-		if (this.authoritiesperdomain==null) return new Authority[0];
-		ArrayList<Authority> authorities = this.authoritiesperdomain.get(domainid);
+		ArrayList<Authority> authorities = snapshot.get().authoritiesperdomain.get(domainid);
 		if (authorities==null) return new Authority[0];
 		return authorities.toArray(new Authority[0]);
 	}
@@ -209,117 +283,163 @@ public class ServerSecurityBuffer {
 	 * @return the SystemAttrbute object
 	 */
 	public Systemattribute getSystemattribute(String number) {
-		return this.attributesbuffer.get(number);
+		return snapshot.get().attributesbuffer.get(number);
+	}
+	
+	
+	/**
+	 * refreshes all data in the buffer. It is managed so that the buffer can be queried even while refreshing
+	 */
+	public synchronized void refreshData()  {
+		changedparts.set(0);
+		cyclessincefullrefresh = 0;
+		refreshParts(PART_ALL);
 	}
 	
 	/**
-	 * refreshes data in the buffer. It is managed so that the buffer can be queried even while refreshing
+	 * refreshes the parts of the buffer for which a change was notified. A full refresh is performed
+	 * every few cycles to take into account changes done outside of this server. A change is
+	 * notified once it is committed, so parts notified are reloaded only once
+	 * @since 1.14
 	 */
-	public void refreshData()  {
+	public synchronized void refreshChanges() {
+		cyclessincefullrefresh++;
+		if (cyclessincefullrefresh>=fullrefreshcycles) {
+			refreshData();
+			return;
+		}
+		int parts = changedparts.getAndSet(0);
+		if (parts==0) {
+			logger.fine(" ------------- No change in security cache ---------------------");
+			return;
+		}
+		refreshParts(parts);
+	}
+	
+	private void refreshParts(int parts) {
 		try {
-		logger.info(" ------------- Refreshing security cache ---------------------");
+		logger.info(" ------------- Refreshing security cache, parts = "+parts+" ---------------------");
 		long starttimestamp = System.currentTimeMillis();
-		HashMap<DataObjectId<Appuser>,Appuser> temporaryusersperuserid = new HashMap<DataObjectId<Appuser>,Appuser>();
-		Appuser[] allusers = Appuser.getallactive(null);
-		for (int i=0;i<allusers.length;i++) {
-			temporaryusersperuserid.put(allusers[i].getId(),allusers[i]);
-		
-		}
-		HashMap<DataObjectId<Appuser>,ArrayList<Usergroup>> temporarymapforusergroup = new HashMap<DataObjectId<Appuser>,ArrayList<Usergroup>>();
-		HashMap<DataObjectId<Usergroup>,ArrayList<Appuser>> temporarymapforappuser = new HashMap<DataObjectId<Usergroup>,ArrayList<Appuser>>();
-		ThreeDataObjects<Usergroup, Groupmemberlink, Appuser>[] queryresult = Groupmemberlink.getlinksandbothobjects(null);
-		
-
-		logger.info("found "+queryresult.length+" lines in query for user & group link");
-		for (int i=0;i<queryresult.length;i++) {
-			Usergroup group = queryresult[i].getObjectOne();
-			Appuser user = queryresult[i].getObjectThree();
-			logger.finer(" -- User id:"+user.getId()+", number:"+user.getNr()+" -- Group id:"+group.getId()+", number:"+group.getNr());
-		
-			if (temporarymapforusergroup.get(user.getId())==null) {
-				ArrayList<Usergroup> grouparray = new ArrayList<Usergroup>();
-				grouparray.add(group);
-				temporarymapforusergroup.put(user.getId(),grouparray);
-			} else {
-				ArrayList<Usergroup> grouparray = temporarymapforusergroup.get(user.getId());
-				grouparray.add(group);
-			}
-			if (temporarymapforappuser.get(group.getId())==null) {
-				ArrayList<Appuser> appuserarray = new ArrayList<Appuser>();
-				appuserarray.add(user);
-				temporarymapforappuser.put(group.getId(),appuserarray);
-			} else {
-				ArrayList<Appuser> appuserarray = temporarymapforappuser.get(group.getId());
-				appuserarray.add(user);
+		Snapshot newsnapshot = new Snapshot(snapshot.get());
+		if ((parts & PART_USERS)!=0) {
+			HashMap<DataObjectId<Appuser>,Appuser> temporaryusersperuserid = new HashMap<DataObjectId<Appuser>,Appuser>();
+			Appuser[] allusers = Appuser.getallactive(null);
+			for (int i=0;i<allusers.length;i++) {
+				temporaryusersperuserid.put(allusers[i].getId(),allusers[i]);
+			
 			}
+			newsnapshot.usersperuserid = temporaryusersperuserid;
 		}
-		HashMap<DataObjectId<Usergroup>,ArrayList<Authority>> temporarymapforauthorities = new HashMap<DataObjectId<Usergroup>,ArrayList<Authority>>();
-		HashMap<DataObjectId<Authority>,ArrayList<Usergroup>> temporarymapforgroupsperauthority = new HashMap<DataObjectId<Authority>,ArrayList<Usergroup>>();
-		
-		ThreeDataObjects<Authority, Groupswithauthority, Usergroup>[] authorityqueryresult = Groupswithauthority.getlinksandbothobjects(null);
-			logger.info("found "+authorityqueryresult.length+" lines in query for authority & user group link");
-				
-			for (int i=0;i<authorityqueryresult.length;i++) {
-				Authority authority = authorityqueryresult[i].getObjectOne();
-				Usergroup group = authorityqueryresult[i].getObjectThree();
-				logger.finer(" -- Group id:"+group.getId()+", number:"+group.getNr()+" --- Authority: id:"+authority.getId()+", number:"+authority.getNr());
-				if (temporarymapforauthorities.get(group.getId())==null) {
-					ArrayList<Authority> authorityarray = new ArrayList<Authority>();
-					authorityarray.add(authority);
-					temporarymapforauthorities.put(group.getId(),authorityarray);
-				} else {
-					ArrayList<Authority> authorityarray = temporarymapforauthorities.get(group.getId());
-					authorityarray.add(authority);
-				}
-				if (temporarymapforgroupsperauthority.get(authority.getId())==null) {
+		if ((parts & PART_MEMBERS)!=0) {
+			HashMap<DataObjectId<Appuser>,ArrayList<Usergroup>> temporarymapforusergroup = new HashMap<DataObjectId<Appuser>,ArrayList<Usergroup>>();
+			HashMap<DataObjectId<Usergroup>,ArrayList<Appuser>> temporarymapforappuser = new HashMap<DataObjectId<Usergroup>,ArrayList<Appuser>>();
+			ThreeDataObjects<Usergroup, Groupmemberlink, Appuser>[] queryresult = Groupmemberlink.getlinksandbothobjects(null);
+			
+	
+			logger.info("found "+queryresult.length+" lines in query for user & group link");
+			for (int i=0;i<queryresult.length;i++) {
+				Usergroup group = queryresult[i].getObjectOne();
+				Appuser user = queryresult[i].getObjectThree();
+				logger.finer(" -- User id:"+user.getId()+", number:"+user.getNr()+" -- Group id:"+group.getId()+", number:"+group.getNr());
+			
+				if (temporarymapforusergroup.get(user.getId())==null) {
 					ArrayList<Usergroup> grouparray = new ArrayList<Usergroup>();
 					grouparray.add(group);
-					temporarymapforgroupsperauthority.put(authority.getId(),grouparray);
+					temporarymapforusergroup.put(user.getId(),grouparray);
 				} else {
-					ArrayList<Usergroup> grouparray = temporarymapforgroupsperauthority.get(authority.getId());
+					ArrayList<Usergroup> grouparray = temporarymapforusergroup.get(user.getId());
 					grouparray.add(group);
 				}
-				
+				if (temporarymapforappuser.get(group.getId())==null) {
+					ArrayList<Appuser> appuserarray = new ArrayList<Appuser>();
+					appuserarray.add(user);
+					temporarymapforappuser.put(group.getId(),appuserarray);
+				} else {
+					ArrayList<Appuser> appuserarray = temporarymapforappuser.get(group.getId());
+					appuserarray.add(user);
+				}
 			}
-		HashMap<DataObjectId<Domain>,Domain> temporarydomainsperid = new HashMap<DataObjectId<Domain>,Domain>();
-		HashMap<String,Domain> temporarydomainspernumber = new HashMap<String,Domain>();
-		HashMap<DataObjectId<Domain>,ArrayList<Authority>> temporaryauthoritiesperdomain = new HashMap<DataObjectId<Domain>,ArrayList<Authority>>();
-		
-		Domain[] domains = Domain.getallactive(null);
-		for (int i=0;i<domains.length;i++) {
-			temporarydomainsperid.put(domains[i].getId(),domains[i]);
-			temporarydomainspernumber.put(domains[i].getNr(),domains[i]);
+			newsnapshot.groupsperuser = temporarymapforusergroup;
+			newsnapshot.userspergroup = temporarymapforappuser;
+		}
+		if ((parts & PART_GROUPAUTHORITIES)!=0) {
+			HashMap<DataObjectId<Usergroup>,ArrayList<Authority>> temporarymapforauthorities = new HashMap<DataObjectId<Usergroup>,ArrayList<Authority>>();
+			HashMap<DataObjectId<Authority>,ArrayList<Usergroup>> temporarymapforgroupsperauthority = new HashMap<DataObjectId<Authority>,ArrayList<Usergroup>>();
+			
+			ThreeDataObjects<Authority, Groupswithauthority, Usergroup>[] authorityqueryresult = Groupswithauthority.getlinksandbothobjects(null);
+				logger.info("found "+authorityqueryresult.length+" lines in query for authority & user group link");
+					
+				for (int i=0;i<authorityqueryresult.length;i++) {
+					Authority authority = authorityqueryresult[i].getObjectOne();
+					Usergroup group = authorityqueryresult[i].getObjectThree();
+					logger.finer(" -- Group id:"+group.getId()+", number:"+group.getNr()+" --- Authority: id:"+authority.getId()+", number:"+authority.getNr());
+					if (temporarymapforauthorities.get(group.getId())==null) {
+						ArrayList<Authority> authorityarray = new ArrayList<Authority>();
+						authorityarray.add(authority);
+						temporarymapforauthorities.put(group.getId(),authorityarray);
+					} else {
+						ArrayList<Authority> authorityarray = temporarymapforauthorities.get(group.getId());
+						authorityarray.add(authority);
+					}
+					if (temporarymapforgroupsperauthority.get(authority.getId())==null) {
+						ArrayList<Usergroup> grouparray = new ArrayList<Usergroup>();
+						grouparray.add(group);
+						temporarymapforgroupsperauthority.put(authority.getId(),grouparray);
+					} else {
+						ArrayList<Usergroup> grouparray = temporarymapforgroupsperauthority.get(authority.getId());
+						grouparray.add(group);
+					}
+					
+				}
+			newsnapshot.authoritiespergroup = temporarymapforauthorities;
+			newsnapshot.groupsperauthority = temporarymapforgroupsperauthority;
 		}
+		if ((parts & PART_DOMAINS)!=0) {
+			HashMap<DataObjectId<Domain>,Domain> temporarydomainsperid = new HashMap<DataObjectId<Domain>,Domain>();
+			HashMap<String,Domain> temporarydomainspernumber = new HashMap<String,Domain>();
+			HashMap<DataObjectId<Domain>,ArrayList<Authority>> temporaryauthoritiesperdomain = new HashMap<DataObjectId<Domain>,ArrayList<Authority>>();
+			
+			Domain[] domains = Domain.getallactive(null);
+			for (int i=0;i<domains.length;i++) {
+				temporarydomainsperid.put(domains[i].getId(),domains[i]);
+				temporarydomainspernumber.put(domains[i].getNr(),domains[i]);
+			}
+			
+			Authority[] allauthorities = Authority.getallactive(null);
 		
-		Authority[] allauthorities = Authority.getallactive(null);
-	
-		for (int i=0;i<allauthorities.length;i++) {
-			Authority thisauthority = allauthorities[i];
-			ArrayList<Authority> authoritiesfordomain=temporaryauthoritiesperdomain.get(thisauthority.getLinkedtoparentforscopeid());
-			if (authoritiesfordomain==null) {
-				authoritiesfordomain = new ArrayList<Authority>();
-				temporaryauthoritiesperdomain.put(thisauthority.getLinkedtoparentforscopeid(),authoritiesfordomain);
+			for (int i=0;i<allauthorities.length;i++) {
+				Authority thisauthority = allauthorities[i];
+				ArrayList<Authority> authoritiesfordomain=temporaryauthoritiesperdomain.get(thisauthority.getLinkedtoparentforscopeid());
+				if (authoritiesfordomain==null) {
+					authoritiesfordomain = new ArrayList<Authority>();
+					temporaryauthoritiesperdomain.put(thisauthority.getLinkedtoparentforscopeid(),authoritiesfordomain);
+				}
+				authoritiesfordomain.add(thisauthority);
 			}
-			authoritiesfordomain.add(thisauthority);
+			newsnapshot.domainsperid = temporarydomainsperid;
+			newsnapshot.domainspernumber = temporarydomainspernumber;
+			newsnapshot.authoritiesperdomain = temporaryauthoritiesperdomain;
+		}
+		if ((parts & PART_ATTRIBUTES)!=0) {
+			HashMap<String,Systemattribute> attributes = new HashMap<String,Systemattribute>();
+			Systemattribute[] attributeslist = Systemattribute.getallactive(null);
+			for (int i=0;i<attributeslist.length;i++) attributes.put(attributeslist[i].getNr(),attributeslist[i]);
+			newsnapshot.attributesbuffer = attributes;
+		}
+		if ((parts & (PART_MEMBERS | PART_GROUPAUTHORITIES | PART_DOMAINS))!=0) {
+			newsnapshot.authorizationmodel = new AuthorizationModel(newsnapshot.groupsperuser,
+					newsnapshot.authoritiespergroup, newsnapshot.authoritiesperdomain, newsnapshot.domainsperid);
 		}
 		
-		HashMap<String,Systemattribute> attributes = new HashMap<String,Systemattribute>();
-		Systemattribute[] attributeslist = Systemattribute.getallactive(null);
-		for (int i=0;i<attributeslist.length;i++) attributes.put(attributeslist[i].getNr(),attributeslist[i]);
-		
-		this.groupsperuser = temporarymapforusergroup;
-		this.authoritiespergroup = temporarymapforauthorities;
-		this.userspergroup = temporarymapforappuser;
-		this.groupsperauthority = temporarymapforgroupsperauthority;
-		this.domainsperid = temporarydomainsperid;
-		this.domainspernumber = temporarydomainspernumber;
-		this.authoritiesperdomain = temporaryauthoritiesperdomain;
-		this.usersperuserid = temporaryusersperuserid;
-		this.attributesbuffer=attributes;
+		snapshot.set(newsnapshot);
+		// page layouts depend on authorities and system attributes
+		PageLayoutCache.clear();
 		long endtimestamp = System.currentTimeMillis();
 		logger.info(" ------------- Refreshing security cache end, loaded ("+
-		(groupsperuser.size())+"/"+(authoritiespergroup.size())+") elements in "+(endtimestamp-starttimestamp)+"ms ---------------------");
+		(newsnapshot.groupsperuser.size())+"/"+(newsnapshot.authoritiespergroup.size())+") elements in "+(endtimestamp-starttimestamp)+"ms ---------------------");
 		} catch (Exception  e) {
+			// parts not reloaded are reloaded at next cycle
+			notifyChange(parts);
 			logger.severe("------------- Error while refreshing security buffer ------------");
 			logger.severe("    "+e.getMessage());
 			for (int i=0;i<e.getStackTrace().length;i++) logger.severe("   "+e.getStackTrace()[i]);
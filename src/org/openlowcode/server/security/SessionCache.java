@@ -0,0 +1,284 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.security;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import org.openlowcode.module.system.action.GetsessionforclientAction;
+import org.openlowcode.module.system.data.Appuser;
+import org.openlowcode.module.system.data.Usersession;
+import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.storage.QueryOperatorEqual;
+import org.openlowcode.server.data.storage.SimpleQueryCondition;
+
+/**
+ * A cache of the valid sessions per client (ip address and client id), with
+ * the user and the validity of the one-time password. Checking a session in
+ * cache does not access the database. The activity on the session (number of
+ * actions and time of last action) is kept in memory, and persisted regularly
+ * by the security manager daemon, or when the session is invalidated. The
+ * activity is only written on sessions still open on the database, so that a
+ * session closed by another action is never reopened.<br>
+ * The cache is filled when the session is checked on the database, and has to
+ * be invalidated by any action modifying sessions.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class SessionCache {
+	private static Logger logger = Logger.getLogger(SessionCache.class.getName());
+	private static final ConcurrentHashMap<String, CachedSession> sessions = new ConcurrentHashMap<
+			String, CachedSession>();
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+
+	/**
+	 * a session in cache
+	 *
+	 * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+	 *         SAS</a>
+	 * @since 1.14
+	 */
+	public static class CachedSession {
+		private DataObjectId<Usersession> sessionid;
+		private DataObjectId<Appuser> userid;
+		private long lastaction;
+		private int pendingactions;
+		private long otpvaliduntil;
+		private final Object persistencelock = new Object();
+
+		private CachedSession(Usersession session, long otpvaliduntil) {
+			this.sessionid = session.getId();
+			this.userid = session.getLinkedtoparentforsessionuserid();
+			this.lastaction = session.getLastaction().getTime();
+			this.pendingactions = 0;
+			this.otpvaliduntil = otpvaliduntil;
+		}
+
+		/**
+		 * @return the user of the session
+		 */
+		public DataObjectId<Appuser> getUserid() {
+			return userid;
+		}
+
+		/**
+		 * @return true if the user entered a valid one-time password that is not
+		 *         yet expired
+		 */
+		public synchronized boolean hasValidOTP() {
+			return (System.currentTimeMillis() < otpvaliduntil);
+		}
+
+		private synchronized boolean isTimeOut(long now) {
+			return (now - lastaction > GetsessionforclientAction.TIMEOUT_SECOND * 1000);
+		}
+
+		private synchronized void touch(long now) {
+			lastaction = now;
+			pendingactions++;
+		}
+
+		private synchronized void setOTPValidUntil(long otpvaliduntil) {
+			this.otpvaliduntil = otpvaliduntil;
+		}
+
+		private synchronized int takePendingActions() {
+			int actions = pendingactions;
+			pendingactions = 0;
+			return actions;
+		}
+
+		private synchronized long getLastaction() {
+			return lastaction;
+		}
+
+		private synchronized void restorePendingActions(int actions) {
+			pendingactions += actions;
+		}
+
+		/**
+		 * persists the actions performed since last persistence, and checks the
+		 * session is still open on the database. The database is accessed outside of
+		 * the session monitor so that actions on the session are not blocked, and the
+		 * update only applies if the session has no end time
+		 *
+		 * @return false if the session is not active anymore on the database
+		 */
+		private boolean persistActivity() {
+			synchronized (persistencelock) {
+				int actions = takePendingActions();
+				long lastactiontopersist = getLastaction();
+				try {
+					Usersession session = Usersession.readone(sessionid);
+					if (session.getEndtime() != null)
+						return false;
+					if (actions == 0)
+						return true;
+					session.setActions(session.getActions().intValue() + actions);
+					session.setLastaction(new Date(lastactiontopersist));
+					return session.updateifmatches(new SimpleQueryCondition<Date>(null,
+							Usersession.getDefinition().getEndtimeFieldSchema(), new QueryOperatorEqual<Date>(), null));
+				} catch (RuntimeException e) {
+					restorePendingActions(actions);
+					throw e;
+				}
+			}
+		}
+	}
+
+	private static String getKey(String ipaddress, String cid) {
+		return ipaddress + "|" + cid;
+	}
+
+	/**
+	 * gets the session for the client in cache, and records an action on it. A
+	 * session timed-out is removed from the cache after its activity is persisted,
+	 * so that it is closed when checked on the database
+	 *
+	 * @param ipaddress ip address of the client
+	 * @param cid       id of the client
+	 * @return the session in cache, or null if not in cache or timed-out
+	 */
+	public static CachedSession get(String ipaddress, String cid) {
+		String key = getKey(ipaddress, cid);
+		CachedSession session = sessions.get(key);
+		if (session == null) {
+			misses.increment();
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		if (session.isTimeOut(now)) {
+			misses.increment();
+			remove(key, session);
+			return null;
+		}
+		session.touch(now);
+		hits.increment();
+		return session;
+	}
+
+	/**
+	 * puts in cache a session just checked on the database
+	 *
+	 * @param ipaddress     ip address of the client
+	 * @param cid           id of the client
+	 * @param session       the session, with last action up to date on the
+	 *                      database
+	 * @param otpvaliduntil time until which the one-time password of the client
+	 *                      is valid (0 if no valid one-time password)
+	 */
+	public static void put(String ipaddress, String cid, Usersession session, long otpvaliduntil) {
+		sessions.put(getKey(ipaddress, cid), new CachedSession(session, otpvaliduntil));
+	}
+
+	/**
+	 * records a one-time password confirmed for the client
+	 *
+	 * @param ipaddress     ip address of the client
+	 * @param cid           id of the client
+	 * @param otpvaliduntil time until which the one-time password is valid
+	 */
+	public static void registerOTP(String ipaddress, String cid, long otpvaliduntil) {
+		CachedSession session = sessions.get(getKey(ipaddress, cid));
+		if (session != null)
+			session.setOTPValidUntil(otpvaliduntil);
+	}
+
+	/**
+	 * removes the session of the client from the cache, after persisting its
+	 * activity
+	 *
+	 * @param ipaddress ip address of the client
+	 * @param cid       id of the client
+	 */
+	public static void invalidate(String ipaddress, String cid) {
+		String key = getKey(ipaddress, cid);
+		CachedSession session = sessions.get(key);
+		if (session != null)
+			remove(key, session);
+	}
+
+	/**
+	 * removes all sessions of the user from the cache, after persisting their
+	 * activity
+	 *
+	 * @param userid id of the user
+	 */
+	public static void invalidateUser(DataObjectId<Appuser> userid) {
+		Iterator<Map.Entry<String, CachedSession>> iterator = sessions.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, CachedSession> entry = iterator.next();
+			if (entry.getValue().getUserid().equals(userid))
+				remove(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * removes all sessions from the cache, after persisting their activity
+	 */
+	public static void invalidateAll() {
+		Iterator<Map.Entry<String, CachedSession>> iterator = sessions.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, CachedSession> entry = iterator.next();
+			remove(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * persists the activity of all sessions in cache, and removes sessions
+	 * timed-out or closed on the database. This is called regularly by the
+	 * security manager daemon
+	 */
+	public static void persistActivity() {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<String, CachedSession>> iterator = sessions.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, CachedSession> entry = iterator.next();
+			CachedSession session = entry.getValue();
+			if (session.isTimeOut(now)) {
+				remove(entry.getKey(), session);
+			} else {
+				try {
+					if (!session.persistActivity())
+						sessions.remove(entry.getKey(), session);
+				} catch (Exception e) {
+					logger.warning("Error while persisting activity for session " + entry.getKey() + ", removing from cache: "
+							+ e.getMessage());
+					sessions.remove(entry.getKey(), session);
+				}
+			}
+		}
+	}
+
+	private static void remove(String key, CachedSession session) {
+		if (!sessions.remove(key, session))
+			return;
+		try {
+			session.persistActivity();
+		} catch (Exception e) {
+			logger.warning("Error while persisting activity for session " + key + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return a one line summary of the counters of the cache
+	 */
+	public static String getStatistics() {
+		return "SESSIONCACHE[size=" + sessions.size() + ",hits=" + hits.sum() + ",misses=" + misses.sum() + "]";
+	}
+}
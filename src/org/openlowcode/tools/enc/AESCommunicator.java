@@ -11,22 +11,39 @@
 package org.openlowcode.tools.enc;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 
+import org.openlowcode.tools.messages.MessageBinaryWriter;
 import org.openlowcode.tools.messages.MessageBufferedWriter;
 import org.openlowcode.tools.messages.MessageSimpleReader;
 import org.openlowcode.tools.messages.SFile;
 
 /**
+ * Encryption of the communication between client and server with an AES key
+ * exchanged during the security handshake. Two modes are supported:
+ * <ul>
+ * <li>encryption of a full message, compressed and encrypted in one block, and
+ * sent inside another message (ENCMES / ENCRES)</li>
+ * <li>since 1.14, if negotiated during the handshake, stream encryption: the
+ * socket streams are wrapped, and all messages are compressed and sent as
+ * records of limited size, each encrypted and authenticated with AES-GCM</li>
+ * </ul>
  * 
  * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
  *         SAS</a>
@@ -35,13 +52,75 @@ import org.openlowcode.tools.messages.SFile;
  */
 public class AESCommunicator {
 	private static Logger logger = Logger.getLogger(AESCommunicator.class.getName());
-	@SuppressWarnings("unused")
 	private SecretKey secretkey;
 	private Cipher encryptaescipher;
 	private Cipher decryptaescipher;
 	private Deflater deflater;
 	private Inflater inflater;
 	private boolean messageaudit=false;
+	private boolean binaryframing=false;
+	/**
+	 * name of the RSA key file sent by a server supporting binary framing
+	 * 
+	 * @since 1.14
+	 */
+	public static final String BINARY_FRAMING_KEYFILE = "PUBLICKEY." + MessageBinaryWriter.FRAMING_NAME;
+	/**
+	 * name of the stream encryption exchanged during the handshake
+	 * 
+	 * @since 1.14
+	 */
+	public static final String STREAM_ENCRYPTION_NAME = "SGCM1";
+	/**
+	 * name of the RSA key file sent by a server supporting binary framing and
+	 * stream encryption
+	 * 
+	 * @since 1.14
+	 */
+	public static final String STREAM_ENCRYPTION_KEYFILE = BINARY_FRAMING_KEYFILE + "." + STREAM_ENCRYPTION_NAME;
+	/**
+	 * type of an encrypted record followed by other records of the same message
+	 * 
+	 * @since 1.14
+	 */
+	public static final int RECORD_DATA = 0xE1;
+	/**
+	 * type of the last encrypted record of a message
+	 * 
+	 * @since 1.14
+	 */
+	public static final int RECORD_END = 0xE2;
+	/**
+	 * length of the header of a record (type and length of the encrypted content)
+	 * 
+	 * @since 1.14
+	 */
+	public static final int RECORD_HEADER_LENGTH = 5;
+	/**
+	 * maximum size of the compressed content of a record
+	 * 
+	 * @since 1.14
+	 */
+	public static final int RECORD_PAYLOAD_SIZE = 16384;
+	private static final int RECORD_TAG_LENGTH = 16;
+	/**
+	 * maximum size of the encrypted content of a record
+	 * 
+	 * @since 1.14
+	 */
+	public static final int MAX_RECORD_LENGTH = RECORD_PAYLOAD_SIZE + RECORD_TAG_LENGTH;
+	private static final int RECORD_NONCE_LENGTH = 12;
+	private static final int CLIENT_DIRECTION = 0x4F4C4343;
+	private static final int SERVER_DIRECTION = 0x4F4C4353;
+	private boolean streamencryption = false;
+	private Cipher recordencryptcipher;
+	private Cipher recorddecryptcipher;
+	private int senddirection;
+	private int receivedirection;
+	private long sendrecordcounter;
+	private long receiverecordcounter;
+	private Deflater recorddeflater;
+	private Inflater recordinflater;
 	/**
 	 * @param secretkey
 	 * @throws Exception
@@ -62,20 +141,347 @@ public class AESCommunicator {
 		this.messageaudit=messageaudit;
 	}
 
+	/**
+	 * @return true if the connection uses binary framing for messages
+	 * @since 1.14
+	 */
+	public boolean isBinaryFraming() {
+		return this.binaryframing;
+	}
+
+	/**
+	 * @param binaryframing true if the connection uses binary framing for
+	 *                      messages, including the messages encrypted by this
+	 *                      communicator
+	 * @since 1.14
+	 */
+	public void setBinaryFraming(boolean binaryframing) {
+		this.binaryframing = binaryframing;
+	}
+
+	/**
+	 * @return true if the connection uses stream encryption
+	 * @since 1.14
+	 */
+	public boolean isStreamEncryption() {
+		return this.streamencryption;
+	}
+
+	/**
+	 * starts stream encryption. Streams should then be wrapped using
+	 * getEncryptingStream and getDecryptingStream. Stream encryption is always
+	 * used with binary framing.
+	 * 
+	 * @param clientside true if the communicator is used on the client, false if
+	 *                   it is used on the server
+	 * @throws GeneralSecurityException if the cipher for records is not available
+	 * @since 1.14
+	 */
+	public void setStreamEncryption(boolean clientside) throws GeneralSecurityException {
+		this.recordencryptcipher = Cipher.getInstance("AES/GCM/NoPadding");
+		this.recorddecryptcipher = Cipher.getInstance("AES/GCM/NoPadding");
+		this.senddirection = (clientside ? CLIENT_DIRECTION : SERVER_DIRECTION);
+		this.receivedirection = (clientside ? SERVER_DIRECTION : CLIENT_DIRECTION);
+		this.sendrecordcounter = 0;
+		this.receiverecordcounter = 0;
+		this.recorddeflater = new Deflater();
+		this.recordinflater = new Inflater();
+		this.binaryframing = true;
+		this.streamencryption = true;
+	}
+
+	/**
+	 * wraps an output stream so that content written is compressed and sent as
+	 * encrypted records. Content is sent when the stream is flushed, the end of
+	 * the compressed content being marked by a record of type RECORD_END. Only
+	 * one encrypting stream should be used at a time for a connection.
+	 * 
+	 * @param output the stream to the other party
+	 * @return a stream encrypting the content
+	 * @since 1.14
+	 */
+	public OutputStream getEncryptingStream(OutputStream output) {
+		if (!streamencryption)
+			throw new RuntimeException("Stream encryption was not negotiated for this connection");
+		return new RecordOutputStream(output);
+	}
+
+	/**
+	 * wraps an input stream sending encrypted records. Records are only read when
+	 * all the decrypted content of the previous record has been read. Only one
+	 * decrypting stream should be used at a time for a connection.
+	 * 
+	 * @param input the stream from the other party
+	 * @return a stream decrypting the content
+	 * @since 1.14
+	 */
+	public InputStream getDecryptingStream(InputStream input) {
+		if (!streamencryption)
+			throw new RuntimeException("Stream encryption was not negotiated for this connection");
+		return new RecordInputStream(input);
+	}
+
+	/**
+	 * the nonce of a record is made of the direction of the communication and the
+	 * number of the record in this direction, so that it is never used twice with
+	 * the same key, and records cannot be replayed or reordered
+	 */
+	private static GCMParameterSpec getRecordNonce(int direction, long counter) {
+		byte[] nonce = new byte[RECORD_NONCE_LENGTH];
+		for (int i = 0; i < 4; i++)
+			nonce[i] = (byte) (direction >>> (24 - 8 * i));
+		for (int i = 0; i < 8; i++)
+			nonce[4 + i] = (byte) (counter >>> (56 - 8 * i));
+		return new GCMParameterSpec(RECORD_TAG_LENGTH * 8, nonce);
+	}
+
+	private byte[] encryptRecord(int type, byte[] content, int length) throws IOException {
+		try {
+			recordencryptcipher.init(Cipher.ENCRYPT_MODE, secretkey,
+					getRecordNonce(senddirection, sendrecordcounter));
+			sendrecordcounter++;
+			recordencryptcipher.updateAAD(new byte[] { (byte) type });
+			return recordencryptcipher.doFinal(content, 0, length);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Error while encrypting record " + e.getMessage(), e);
+		}
+	}
+
+	private byte[] decryptRecord(int type, byte[] content, int length) throws IOException {
+		try {
+			recorddecryptcipher.init(Cipher.DECRYPT_MODE, secretkey,
+					getRecordNonce(receivedirection, receiverecordcounter));
+			receiverecordcounter++;
+			recorddecryptcipher.updateAAD(new byte[] { (byte) type });
+			return recorddecryptcipher.doFinal(content, 0, length);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Invalid encrypted record " + (receiverecordcounter - 1) + ": " + e.getMessage(),
+					e);
+		}
+	}
+
+	/**
+	 * compresses the content written, and sends it by encrypted records. The
+	 * compression is finished for each flush, so that all content written can be
+	 * read by the other party.
+	 *
+	 */
+	private class RecordOutputStream
+			extends
+			OutputStream {
+		private OutputStream output;
+		private byte[] record;
+		private int recordlength;
+		private boolean pending;
+		private byte[] header;
+
+		private RecordOutputStream(OutputStream output) {
+			this.output = output;
+			this.record = new byte[RECORD_PAYLOAD_SIZE];
+			this.recordlength = 0;
+			this.pending = false;
+			this.header = new byte[RECORD_HEADER_LENGTH];
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0)
+				return;
+			pending = true;
+			recorddeflater.setInput(bytes, offset, length);
+			while (!recorddeflater.needsInput())
+				deflate();
+		}
+
+		private void deflate() throws IOException {
+			recordlength += recorddeflater.deflate(record, recordlength, record.length - recordlength);
+			if (recordlength == record.length)
+				if (!recorddeflater.finished())
+					writeRecord(RECORD_DATA);
+		}
+
+		private void writeRecord(int type) throws IOException {
+			byte[] encrypted = encryptRecord(type, record, recordlength);
+			header[0] = (byte) type;
+			header[1] = (byte) (encrypted.length >>> 24);
+			header[2] = (byte) (encrypted.length >>> 16);
+			header[3] = (byte) (encrypted.length >>> 8);
+			header[4] = (byte) encrypted.length;
+			output.write(header);
+			output.write(encrypted);
+			recordlength = 0;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (pending) {
+				recorddeflater.finish();
+				while (!recorddeflater.finished())
+					deflate();
+				writeRecord(RECORD_END);
+				recorddeflater.reset();
+				pending = false;
+			}
+			output.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			output.close();
+		}
+	}
+
+	/**
+	 * reads encrypted records, and gives their decrypted and uncompressed content
+	 *
+	 */
+	private class RecordInputStream
+			extends
+			InputStream {
+		private InputStream input;
+		private byte[] header;
+		private byte[] encrypted;
+		private byte[] decoded;
+		private int decodedposition;
+		private int decodedlength;
+		private boolean endrecord;
+
+		private RecordInputStream(InputStream input) {
+			this.input = input;
+			this.header = new byte[RECORD_HEADER_LENGTH];
+			this.encrypted = new byte[MAX_RECORD_LENGTH];
+			this.decoded = new byte[RECORD_PAYLOAD_SIZE];
+			this.decodedposition = 0;
+			this.decodedlength = 0;
+			this.endrecord = false;
+		}
+
+		/**
+		 * @return true if decoded content is available, false if the end of the
+		 *         stream is reached
+		 */
+		private boolean fill() throws IOException {
+			while (decodedposition >= decodedlength) {
+				if (recordinflater.finished()) {
+					if (recordinflater.getRemaining() > 0)
+						throw new IOException("Unexpected content after end of compressed content in record");
+					recordinflater.reset();
+					endrecord = false;
+				}
+				if (recordinflater.needsInput()) {
+					if (endrecord)
+						throw new IOException("Compressed content is not complete at end record");
+					if (!readRecord())
+						return false;
+					continue;
+				}
+				try {
+					decodedlength = recordinflater.inflate(decoded);
+				} catch (DataFormatException e) {
+					throw new IOException("Invalid compressed content in record " + e.getMessage(), e);
+				}
+				decodedposition = 0;
+				if ((decodedlength == 0) && (recordinflater.needsDictionary()))
+					throw new IOException("Compressed content in record requires a dictionary");
+			}
+			return true;
+		}
+
+		/**
+		 * @return true if a record was read, false if the stream ended before the
+		 *         start of a new record
+		 */
+		private boolean readRecord() throws IOException {
+			int type = input.read();
+			// blanks may remain after the last text message of the handshake
+			while ((type == ' ') || (type == '\n') || (type == '\r') || (type == '\t'))
+				type = input.read();
+			if (type == -1)
+				return false;
+			if ((type != RECORD_DATA) && (type != RECORD_END))
+				throw new IOException("Invalid type of encrypted record " + type);
+			header[0] = (byte) type;
+			readFully(header, 1, RECORD_HEADER_LENGTH - 1);
+			int length = ((header[1] & 0xFF) << 24) | ((header[2] & 0xFF) << 16) | ((header[3] & 0xFF) << 8)
+					| (header[4] & 0xFF);
+			if ((length < RECORD_TAG_LENGTH) || (length > MAX_RECORD_LENGTH))
+				throw new IOException("Invalid length of encrypted record " + length);
+			readFully(encrypted, 0, length);
+			recordinflater.setInput(decryptRecord(type, encrypted, length));
+			endrecord = (type == RECORD_END);
+			return true;
+		}
+
+		private void readFully(byte[] bytes, int offset, int length) throws IOException {
+			int read = 0;
+			while (read < length) {
+				int count = input.read(bytes, offset + read, length - read);
+				if (count == -1)
+					throw new EOFException("End of stream in the middle of an encrypted record");
+				read += count;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill())
+				return -1;
+			return decoded[decodedposition++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int copied = Math.min(length, decodedlength - decodedposition);
+			System.arraycopy(decoded, decodedposition, bytes, offset, copied);
+			decodedposition += copied;
+			return copied;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return decodedlength - decodedposition;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+
 	/**
 	 * @param message
 	 * @return
 	 * @throws Exception
 	 */
 	public byte[] zipandencrypt(String message) throws Exception {
+		if (this.messageaudit) {
+			logger.info("--------------------------- FULL MESSAGE AUDIT (before encryption)-----------------------");
+			logger.info(message);
+			logger.info("--------------------------- FULL MESSAGE AUDIT END (after encryption) -------------------");
+		}
+		if (message==null) return null;
+		return zipandencrypt(message.getBytes("UTF-8"));
+	}
+
+	/**
+	 * @param messagebinary a message in binary form
+	 * @return the message compressed and encrypted
+	 * @throws Exception
+	 * @since 1.14
+	 */
+	public byte[] zipandencrypt(byte[] messagebinary) throws Exception {
 		try {
-			if (this.messageaudit) {
-				logger.info("--------------------------- FULL MESSAGE AUDIT (before encryption)-----------------------");
-				logger.info(message);
-				logger.info("--------------------------- FULL MESSAGE AUDIT END (after encryption) -------------------");
-			}
-			if (message==null) return null;
-			byte[] messagebinary = message.getBytes("UTF-8");
+			if (messagebinary==null) return null;
 			ByteArrayOutputStream baos = new ByteArrayOutputStream();
 			deflater.setInput(messagebinary);
 			deflater.finish();
@@ -101,6 +507,17 @@ public class AESCommunicator {
 	 * @throws Exception
 	 */
 	public String decryptandunzip(byte[] encryptedmessage) throws Exception {
+		if (encryptedmessage==null) return null;
+		return new String(decryptandunzipbytes(encryptedmessage), "UTF-8");
+	}
+
+	/**
+	 * @param encryptedmessage
+	 * @return the message decrypted and uncompressed, in binary form
+	 * @throws Exception
+	 * @since 1.14
+	 */
+	public byte[] decryptandunzipbytes(byte[] encryptedmessage) throws Exception {
 		try {
 			if (encryptedmessage==null) return null;
 			byte[] decryptedzipcontent = decryptaescipher.doFinal(encryptedmessage);
@@ -112,7 +529,7 @@ public class AESCommunicator {
 				baos.write(buffer, 0, chars);
 			}
 			inflater.reset();
-			return baos.toString("UTF-8");
+			return baos.toByteArray();
 		} catch (Exception e) {
 			logger.severe(" Exception in  DecryptAndUnzip " + e.getClass().getName() + " - " + e.getMessage());
 			for (int i = 0; i < e.getStackTrace().length; i++)
@@ -161,10 +578,62 @@ public class AESCommunicator {
 	 */
 	public static AESCommunicator performServerHandshake(MessageSimpleReader reader, MessageBufferedWriter writer)
 			throws Exception {
-		
+		return performServerHandshake(reader, writer, false);
+	}
+
+	/**
+	 * perform an handshake with the server to get and send back to the server an
+	 * AES Key, and optionally negotiate binary framing of messages. Binary framing
+	 * is only requested if the server supports it, and the server confirms it
+	 * before any binary message is sent.
+	 * 
+	 * @param reader        message reader connected with the server
+	 * @param writer        message writer connected with the server
+	 * @param requestbinary true to use binary framing if the server supports it
+	 * @return the AES communicator allowing encryption for communication with the
+	 *         server. If binary framing is used, this is indicated by the
+	 *         communicator
+	 * @throws Exception if any communication error is encountered
+	 * @since 1.14
+	 */
+	public static AESCommunicator performServerHandshake(
+			MessageSimpleReader reader,
+			MessageBufferedWriter writer,
+			boolean requestbinary) throws Exception {
+		return performServerHandshake(reader, writer, requestbinary, false);
+	}
+
+	/**
+	 * perform an handshake with the server to get and send back to the server an
+	 * AES Key, and optionally negotiate binary framing of messages and stream
+	 * encryption. Binary framing and stream encryption are only requested if the
+	 * server supports them, and the server confirms them before any binary message
+	 * is sent.
+	 * 
+	 * @param reader        message reader connected with the server
+	 * @param writer        message writer connected with the server
+	 * @param requestbinary true to use binary framing if the server supports it
+	 * @param requeststream true to use stream encryption if the server supports it
+	 *                      (only used with binary framing)
+	 * @return the AES communicator allowing encryption for communication with the
+	 *         server. If binary framing or stream encryption are used, this is
+	 *         indicated by the communicator
+	 * @throws Exception if any communication error is encountered
+	 * @since 1.14
+	 */
+	public static AESCommunicator performServerHandshake(
+			MessageSimpleReader reader,
+			MessageBufferedWriter writer,
+			boolean requestbinary,
+			boolean requeststream) throws Exception {
+
 		reader.returnNextMessageStart();
 		reader.returnNextStartStructure("RSAKEY");
-		byte[] rsapublickey = reader.returnNextLargeBinary("PUBLICKEY").getContent();
+		SFile rsapublickeyfile = reader.returnNextLargeBinary("PUBLICKEY");
+		byte[] rsapublickey = rsapublickeyfile.getContent();
+		boolean serverstream = STREAM_ENCRYPTION_KEYFILE.equals(rsapublickeyfile.getFileName());
+		boolean serverbinary = (serverstream || BINARY_FRAMING_KEYFILE.equals(rsapublickeyfile.getFileName()));
+		rsapublickeyfile.dispose();
 		reader.returnNextEndStructure("RSAKEY");
 		reader.returnNextEndMessage();
 
@@ -186,8 +655,32 @@ public class AESCommunicator {
 		writer.startNewMessage();
 		writer.startStructure("SESAESKEY");
 		writer.addLongBinaryField("AESKEY", new SFile("Aeskey", aeskeyencoded));
+		boolean binary = (requestbinary && serverbinary);
+		boolean stream = (binary && requeststream && serverstream);
+		if (binary)
+			writer.addStringField("FRM", MessageBinaryWriter.FRAMING_NAME);
+		if (stream)
+			writer.addStringField("ENC", STREAM_ENCRYPTION_NAME);
 		writer.endStructure("SESAESKEY");
 		writer.endMessage();
+		if (binary) {
+			reader.returnNextMessageStart();
+			reader.returnNextStartStructure("FRMOK");
+			String framing = reader.returnNextStringField("FRM");
+			String encryption = null;
+			if (stream)
+				encryption = reader.returnNextStringField("ENC");
+			reader.returnNextEndStructure("FRMOK");
+			reader.returnNextEndMessage();
+			if (!MessageBinaryWriter.FRAMING_NAME.equals(framing))
+				throw new RuntimeException("Server confirmed unexpected framing " + framing);
+			aescommunicator.setBinaryFraming(true);
+			if (stream) {
+				if (!STREAM_ENCRYPTION_NAME.equals(encryption))
+					throw new RuntimeException("Server confirmed unexpected encryption " + encryption);
+				aescommunicator.setStreamEncryption(true);
+			}
+		}
 		return aescommunicator;
 	}
 }
@@ -0,0 +1,367 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.tools.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.SAXException;
+
+/**
+ * A parser reading a Microsoft Excel XLSX file as a stream, without building
+ * the full workbook in memory. Shared strings and styles are read once, then
+ * the rows of the active sheet are read one by one from the sheet XML. Values
+ * are returned the same way as the {@link ExcelReader}: strings, dates for
+ * numbers with a date format, doubles for other numbers, and null for other
+ * types. For formulas, the cached result is returned.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class StreamingExcelReader
+		implements
+		FileParser {
+	private OPCPackage opcpackage;
+	private XSSFReader xssfreader;
+	private ReadOnlySharedStringsTable sharedstrings;
+	private StylesTable styles;
+	private HashMap<Integer, Boolean> datestyles;
+	private boolean date1904;
+	private int activesheetindex;
+	private ArrayList<String> sheetnames;
+	private XMLInputFactory xmlinputfactory;
+	private InputStream sheetdata;
+	private XMLStreamReader sheetreader;
+
+	/**
+	 * Opens the specific file, and the active sheet
+	 * 
+	 * @param data content of the XLSX file
+	 * @throws IOException            if any problem reading the file
+	 * @throws InvalidFormatException if the file is not a valid XLSX file
+	 */
+	public StreamingExcelReader(InputStream data) throws IOException, InvalidFormatException {
+		opcpackage = OPCPackage.open(data);
+		boolean opened = false;
+		try {
+			xmlinputfactory = XMLInputFactory.newInstance();
+			xmlinputfactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			xmlinputfactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			xssfreader = new XSSFReader(opcpackage);
+			sharedstrings = new ReadOnlySharedStringsTable(opcpackage);
+			styles = xssfreader.getStylesTable();
+			datestyles = new HashMap<Integer, Boolean>();
+			readWorkbookProperties();
+			sheetnames = new ArrayList<String>();
+			XSSFReader.SheetIterator sheetiterator = (XSSFReader.SheetIterator) xssfreader.getSheetsData();
+			while (sheetiterator.hasNext()) {
+				InputStream sheet = sheetiterator.next();
+				sheetnames.add(sheetiterator.getSheetName());
+				sheet.close();
+			}
+			if ((activesheetindex < 0) || (activesheetindex >= sheetnames.size()))
+				activesheetindex = 0;
+			openSheet(activesheetindex);
+			opened = true;
+		} catch (OpenXML4JException | SAXException | XMLStreamException e) {
+			throw new IOException("Error in opening workbook " + e.getClass().getName() + " - " + e.getMessage(), e);
+		} finally {
+			if (!opened)
+				opcpackage.revert();
+		}
+	}
+
+	/**
+	 * reads the active sheet and date system in the workbook part
+	 * 
+	 * @throws IOException            if any problem reading the file
+	 * @throws InvalidFormatException if the file is not a valid XLSX file
+	 * @throws XMLStreamException     if the workbook part is not valid XML
+	 */
+	private void readWorkbookProperties() throws IOException, InvalidFormatException, XMLStreamException {
+		activesheetindex = 0;
+		date1904 = false;
+		boolean activesheetfound = false;
+		try (InputStream workbookdata = xssfreader.getWorkbookData()) {
+			XMLStreamReader workbookreader = xmlinputfactory.createXMLStreamReader(workbookdata);
+			try {
+				while (workbookreader.hasNext()) {
+					if (workbookreader.next() != XMLStreamConstants.START_ELEMENT)
+						continue;
+					String element = workbookreader.getLocalName();
+					if (element.equals("workbookPr")) {
+						String date1904value = workbookreader.getAttributeValue(null, "date1904");
+						date1904 = (("1".equals(date1904value)) || ("true".equals(date1904value)));
+					}
+					if ((element.equals("workbookView")) && (!activesheetfound)) {
+						activesheetfound = true;
+						String activetab = workbookreader.getAttributeValue(null, "activeTab");
+						if (activetab != null)
+							activesheetindex = Integer.parseInt(activetab.trim());
+					}
+					if (element.equals("sheets"))
+						break;
+				}
+			} finally {
+				workbookreader.close();
+			}
+		}
+	}
+
+	/**
+	 * opens the sheet at the given index for reading its rows
+	 * 
+	 * @param index index of the sheet in the workbook
+	 * @throws IOException            if any problem reading the file
+	 * @throws InvalidFormatException if the file is not a valid XLSX file
+	 * @throws XMLStreamException     if the sheet part is not valid XML
+	 */
+	private void openSheet(int index) throws IOException, InvalidFormatException, XMLStreamException {
+		closeSheet();
+		XSSFReader.SheetIterator sheetiterator = (XSSFReader.SheetIterator) xssfreader.getSheetsData();
+		int currentindex = 0;
+		while (sheetiterator.hasNext()) {
+			InputStream sheet = sheetiterator.next();
+			if (currentindex == index) {
+				sheetdata = sheet;
+				sheetreader = xmlinputfactory.createXMLStreamReader(sheetdata);
+				activesheetindex = index;
+				return;
+			}
+			sheet.close();
+			currentindex++;
+		}
+	}
+
+	/**
+	 * closes the sheet currently read if any
+	 * 
+	 * @throws IOException if any problem closing the file
+	 */
+	private void closeSheet() throws IOException {
+		try {
+			if (sheetreader != null)
+				sheetreader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Error in closing sheet " + e.getMessage(), e);
+		} finally {
+			sheetreader = null;
+			if (sheetdata != null)
+				sheetdata.close();
+			sheetdata = null;
+		}
+	}
+
+	/**
+	 * @return the index of the active worksheet
+	 */
+	public int getActiveSheetIndex() {
+		return activesheetindex;
+	}
+
+	/**
+	 * get the list of sheet names
+	 * 
+	 * @return the list of sheet names
+	 */
+	public String[] getSheetNameList() {
+		return sheetnames.toArray(new String[0]);
+	}
+
+	/**
+	 * put as active sheet the sheet with the given name. If no sheet has this
+	 * name, the current sheet stays active
+	 * 
+	 * @param sheetname name of the sheet (case is ignored)
+	 * @throws IOException            if any issue is encountered accessing the file
+	 * @throws InvalidFormatException if file is not of the correct format
+	 */
+	public void GoToSheet(String sheetname) throws IOException, InvalidFormatException {
+		for (int i = 0; i < sheetnames.size(); i++)
+			if (sheetnames.get(i).equalsIgnoreCase(sheetname)) {
+				try {
+					openSheet(i);
+				} catch (XMLStreamException e) {
+					throw new IOException("Error in opening sheet " + sheetname + " - " + e.getMessage(), e);
+				}
+				return;
+			}
+	}
+
+	@Override
+	public Object[] parseOneLine() throws IOException {
+		if (sheetreader == null)
+			return null;
+		try {
+			while (sheetreader.hasNext()) {
+				int event = sheetreader.next();
+				if ((event == XMLStreamConstants.START_ELEMENT) && (sheetreader.getLocalName().equals("row")))
+					return readRow();
+			}
+			closeSheet();
+			return null;
+		} catch (XMLStreamException e) {
+			throw new IOException("Error in reading sheet " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * reads the row the reader is positioned on, until the end of the row
+	 * 
+	 * @return the content of the row, with null for missing cells
+	 * @throws XMLStreamException if the sheet part is not valid XML
+	 */
+	private Object[] readRow() throws XMLStreamException {
+		ArrayList<Object> rowcontent = new ArrayList<Object>();
+		while (sheetreader.hasNext()) {
+			int event = sheetreader.next();
+			if ((event == XMLStreamConstants.END_ELEMENT) && (sheetreader.getLocalName().equals("row")))
+				break;
+			if ((event == XMLStreamConstants.START_ELEMENT) && (sheetreader.getLocalName().equals("c"))) {
+				int column = getColumnIndex(sheetreader.getAttributeValue(null, "r"), rowcontent.size());
+				String type = sheetreader.getAttributeValue(null, "t");
+				String style = sheetreader.getAttributeValue(null, "s");
+				Object value = readCell(type, style);
+				while (rowcontent.size() < column)
+					rowcontent.add(null);
+				if (column < rowcontent.size())
+					rowcontent.set(column, value);
+				else
+					rowcontent.add(value);
+			}
+		}
+		return rowcontent.toArray();
+	}
+
+	/**
+	 * @param reference   reference of the cell (e.g. 'C12'), can be null
+	 * @param nextcolumn  index of the column after the last cell read, used if
+	 *                    there is no reference
+	 * @return the index of the column, starting at 0
+	 */
+	private static int getColumnIndex(String reference, int nextcolumn) {
+		if (reference == null)
+			return nextcolumn;
+		int column = 0;
+		for (int i = 0; i < reference.length(); i++) {
+			char letter = reference.charAt(i);
+			if ((letter < 'A') || (letter > 'Z'))
+				break;
+			column = column * 26 + (letter - 'A' + 1);
+		}
+		if (column == 0)
+			return nextcolumn;
+		return column - 1;
+	}
+
+	/**
+	 * reads the cell the reader is positioned on, until the end of the cell
+	 * 
+	 * @param type  type of the cell as stored in the file (null for number)
+	 * @param style index of the style of the cell (null for default style)
+	 * @return the following objects
+	 *         <ul>
+	 *         <li>a string in case the cell is text</li>
+	 *         <li>a date in case the cell is a date</li>
+	 *         <li>A double in case it is a number</li>
+	 *         <li>null in case it is another type</li>
+	 *         </ul>
+	 * @throws XMLStreamException if the sheet part is not valid XML
+	 */
+	private Object readCell(String type, String style) throws XMLStreamException {
+		StringBuilder value = new StringBuilder();
+		StringBuilder inlinestring = new StringBuilder();
+		boolean inphonetic = false;
+		while (sheetreader.hasNext()) {
+			int event = sheetreader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				String element = sheetreader.getLocalName();
+				if (element.equals("c"))
+					break;
+				if (element.equals("rPh"))
+					inphonetic = false;
+			}
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String element = sheetreader.getLocalName();
+				if (element.equals("v"))
+					value.append(sheetreader.getElementText());
+				if (element.equals("rPh"))
+					inphonetic = true;
+				if ((element.equals("t")) && (!inphonetic))
+					inlinestring.append(sheetreader.getElementText());
+			}
+		}
+		if ("s".equals(type)) {
+			if (value.length() == 0)
+				return null;
+			return sharedstrings.getItemAt(Integer.parseInt(value.toString().trim())).getString();
+		}
+		if ("inlineStr".equals(type))
+			return inlinestring.toString();
+		if ("str".equals(type))
+			return value.toString();
+		if ((type != null) && (!"n".equals(type)))
+			return null;
+		if (value.length() == 0)
+			return null;
+		double number = Double.parseDouble(value.toString().trim());
+		if ((isDateStyle(style)) && (DateUtil.isValidExcelDate(number)))
+			return DateUtil.getJavaDate(number, date1904);
+		return Double.valueOf(number);
+	}
+
+	/**
+	 * @param style index of the style of the cell (null for default style)
+	 * @return true if the style has a date format
+	 */
+	private boolean isDateStyle(String style) {
+		if (styles == null)
+			return false;
+		int styleindex = (style != null ? Integer.parseInt(style.trim()) : 0);
+		Boolean datestyle = datestyles.get(Integer.valueOf(styleindex));
+		if (datestyle != null)
+			return datestyle.booleanValue();
+		boolean date = false;
+		if (styleindex < styles.getNumCellStyles()) {
+			XSSFCellStyle cellstyle = styles.getStyleAt(styleindex);
+			if (cellstyle != null)
+				date = DateUtil.isADateFormat(cellstyle.getDataFormat(), cellstyle.getDataFormatString());
+		}
+		datestyles.put(Integer.valueOf(styleindex), Boolean.valueOf(date));
+		return date;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			closeSheet();
+		} finally {
+			opcpackage.revert();
+		}
+	}
+
+}
@@ -25,6 +25,7 @@ public class MessageBinaryField extends MessageField<MessageFieldTypeBinary> {
 	private static Base64.Encoder base64encoder = Base64.getEncoder();
 	private byte[] payload;
 	private String filename;
+	private SFile payloadfile;
 
 	public MessageBinaryField(String fieldname) {
 		super(fieldname);
@@ -39,8 +40,12 @@ public class MessageBinaryField extends MessageField<MessageFieldTypeBinary> {
 	 */
 	public MessageBinaryField(String fieldname, SFile payloadfile) {
 		super(fieldname);
-
-		payload = payloadfile.getContent();
+		// content not held in memory is only read when the field is serialized
+		if (payloadfile.isInMemory()) {
+			payload = payloadfile.getContent();
+		} else {
+			this.payloadfile = payloadfile;
+		}
 		this.filename = payloadfile.getFileName();
 	}
 
@@ -52,6 +57,9 @@ public class MessageBinaryField extends MessageField<MessageFieldTypeBinary> {
 
 	@Override
 	public String serializepayload(String contextstring) {
+		byte[] payload = this.payload;
+		if (payloadfile != null)
+			payload = payloadfile.getContent();
 		if (payload == null) {
 			return "B0:";
 		}
@@ -66,6 +74,8 @@ public class MessageBinaryField extends MessageField<MessageFieldTypeBinary> {
 	}
 
 	public SFile getFieldContent() {
+		if (payloadfile != null)
+			return payloadfile;
 		return new SFile(filename, payload);
 	}
 
@@ -0,0 +1,445 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * A reader of the binary framing of the OLc messages, as sent by the
+ * MessageBinaryWriter. A full frame is read from the stream before it is
+ * decoded, so that no read is performed on the stream character by character.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class MessageBinaryReader
+		extends
+		MessageReader {
+	private DataInputStream input;
+	private byte[] frame;
+	private int framelength;
+	private int position;
+	private ArrayList<String> labels;
+	private MessageArrayStart currentarraystart;
+	private Calendar calendar;
+	private boolean lastfieldfirstinstructure;
+	private RecordingWriter recorder;
+
+	/**
+	 * creates a binary reader that will throw an OLcRemoteException if an error is
+	 * received
+	 * 
+	 * @param input the stream to read frames from
+	 */
+	public MessageBinaryReader(InputStream input) {
+		this(input, true);
+	}
+
+	/**
+	 * creates a binary reader
+	 * 
+	 * @param input      the stream to read frames from
+	 * @param throwerror true if the reader will throw an error when encountering a
+	 *                   MessageError Element
+	 */
+	public MessageBinaryReader(InputStream input, boolean throwerror) {
+		super(throwerror);
+		this.input = new DataInputStream(input);
+		this.frame = new byte[8192];
+		this.labels = new ArrayList<String>();
+		this.calendar = Calendar.getInstance();
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * reads the next frame from the stream
+	 * 
+	 * @throws IOException if the stream is closed or the frame is not valid
+	 */
+	private void readFrame() throws IOException {
+		int marker = input.read();
+		while (isBlank(marker))
+			marker = input.read();
+		if (marker < 0)
+			throw new EOFException("Connection closed while waiting for a binary message");
+		if (marker != MessageBinaryWriter.FRAME_MARKER)
+			throw new IOException("Invalid start of binary message " + marker);
+		int length = 0;
+		int shift = 0;
+		while (true) {
+			int next = input.read();
+			if (next < 0)
+				throw new EOFException("Connection closed while waiting for a binary message");
+			length |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0)
+				break;
+			shift += 7;
+			if (shift > 28)
+				throw new IOException("Invalid binary message length");
+		}
+		if (length < 0)
+			throw new IOException("Invalid binary message length " + length);
+		if (length > frame.length)
+			frame = new byte[Math.max(length, frame.length * 2)];
+		input.readFully(frame, 0, length);
+		framelength = length;
+		position = 0;
+		labels.clear();
+	}
+
+	/**
+	 * @param value a byte read from the stream
+	 * @return true if the byte is a blank that may remain after a text message
+	 */
+	static boolean isBlank(int value) {
+		return ((value == ' ') || (value == '\n') || (value == '\r') || (value == '\t'));
+	}
+
+	private int readByte() throws IOException {
+		if (position >= framelength)
+			throw new IOException("Unexpected end of binary message");
+		return frame[position++] & 0xFF;
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		int shift = 0;
+		while (true) {
+			int next = readByte();
+			value |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0)
+				return value;
+			shift += 7;
+			if (shift > 28)
+				throw new IOException("Invalid varint in binary message");
+		}
+	}
+
+	private long readVarlong() throws IOException {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			int next = readByte();
+			value |= ((long) (next & 0x7F)) << shift;
+			if ((next & 0x80) == 0)
+				return value;
+			shift += 7;
+			if (shift > 63)
+				throw new IOException("Invalid varlong in binary message");
+		}
+	}
+
+	private int readSignedVarint() throws IOException {
+		int value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private byte[] readBytes(int length) throws IOException {
+		if ((length < 0) || (position + length > framelength))
+			throw new IOException("Unexpected end of binary message, reading " + length + " bytes");
+		byte[] bytes = new byte[length];
+		System.arraycopy(frame, position, bytes, 0, length);
+		position += length;
+		return bytes;
+	}
+
+	private String readString() throws IOException {
+		int length = readVarint();
+		if (length == 0)
+			return null;
+		length--;
+		if ((length < 0) || (position + length > framelength))
+			throw new IOException("Unexpected end of binary message, reading string of " + length + " bytes");
+		String string = new String(frame, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return string;
+	}
+
+	private String readLabel() throws IOException {
+		int index = readVarint();
+		if (index == 0) {
+			String label = readString();
+			labels.add(label);
+			return label;
+		}
+		if (index > labels.size())
+			throw new IOException("Invalid label index " + index + " in binary message");
+		return labels.get(index - 1);
+	}
+
+	private BigDecimal readDecimal() throws IOException {
+		int length = readVarint();
+		if (length == 0)
+			return null;
+		int scale = readSignedVarint();
+		return new BigDecimal(new BigInteger(readBytes(length - 1)), scale);
+	}
+
+	private Date readDate() throws IOException {
+		long value = readVarlong();
+		if (value == 0)
+			return null;
+		calendar.clear();
+		int second = (int) (value % 100);
+		value = value / 100;
+		int minute = (int) (value % 100);
+		value = value / 100;
+		int hour = (int) (value % 100);
+		value = value / 100;
+		int day = (int) (value % 100);
+		value = value / 100;
+		int month = (int) (value % 100);
+		value = value / 100;
+		calendar.set((int) value, month - 1, day, hour, minute, second);
+		return calendar.getTime();
+	}
+
+	private Object readValue() throws IOException {
+		int type = readByte();
+		switch (type) {
+		case MessageBinaryWriter.VALUE_NULL:
+			return null;
+		case MessageBinaryWriter.VALUE_STRING:
+			return readString();
+		case MessageBinaryWriter.VALUE_INTEGER:
+			return Integer.valueOf(readSignedVarint());
+		case MessageBinaryWriter.VALUE_DECIMAL:
+			return readDecimal();
+		case MessageBinaryWriter.VALUE_BOOLEAN_TRUE:
+			return Boolean.TRUE;
+		case MessageBinaryWriter.VALUE_BOOLEAN_FALSE:
+			return Boolean.FALSE;
+		case MessageBinaryWriter.VALUE_DATE:
+			return readDate();
+		}
+		throw new IOException("Invalid value type " + type + " in binary message");
+	}
+
+	@Override
+	protected MessageElement parseNextElement() throws OLcRemoteException, IOException {
+		if (position >= framelength)
+			readFrame();
+		int tag = readByte();
+		lastfieldfirstinstructure = ((tag & MessageBinaryWriter.FLAG_FIRST_IN_STRUCTURE) != 0);
+		tag = tag & ~MessageBinaryWriter.FLAG_FIRST_IN_STRUCTURE;
+		switch (tag) {
+		case MessageBinaryWriter.TAG_MESSAGE_START:
+			return new MessageStart();
+		case MessageBinaryWriter.TAG_MESSAGE_END:
+			return new MessageEnd();
+		case MessageBinaryWriter.TAG_STRUCTURE_START:
+			return new MessageStartStructure(readLabel());
+		case MessageBinaryWriter.TAG_STRUCTURE_END:
+			return new MessageEndStructure();
+		case MessageBinaryWriter.TAG_STRING: {
+			String name = readLabel();
+			return new MessageStringField(name, readString());
+		}
+		case MessageBinaryWriter.TAG_INTEGER: {
+			String name = readLabel();
+			return MessageIntegerField.getCSPMessageIntegerField(name, readSignedVarint());
+		}
+		case MessageBinaryWriter.TAG_BOOLEAN_TRUE:
+			return new MessageBooleanField(readLabel(), true);
+		case MessageBinaryWriter.TAG_BOOLEAN_FALSE:
+			return new MessageBooleanField(readLabel(), false);
+		case MessageBinaryWriter.TAG_DECIMAL: {
+			String name = readLabel();
+			return new MessageDecimalField(name, readDecimal());
+		}
+		case MessageBinaryWriter.TAG_DATE: {
+			String name = readLabel();
+			return new MessageDateField(name, readDate());
+		}
+		case MessageBinaryWriter.TAG_BINARY: {
+			String name = readLabel();
+			int length = readVarint();
+			if (length == 0)
+				return new MessageBinaryField(name);
+			String filename = readString();
+			return new MessageBinaryField(name, readBytes(length - 1), filename);
+		}
+		case MessageBinaryWriter.TAG_ARRAY_START: {
+			String name = readLabel();
+			int fieldnumber = readVarint();
+			ArrayList<MessageFieldSpec> fieldspecs = new ArrayList<MessageFieldSpec>();
+			for (int i = 0; i < fieldnumber; i++) {
+				String fieldname = readLabel();
+				fieldspecs.add(new MessageFieldSpec(fieldname, readLabel()));
+			}
+			currentarraystart = new MessageArrayStart(name, fieldspecs);
+			return currentarraystart;
+		}
+		case MessageBinaryWriter.TAG_ARRAY_LINE: {
+			if (currentarraystart == null)
+				throw new IOException("Binary message array line received while no array is open");
+			int objectnumber = readVarint();
+			Object[] payload = new Object[objectnumber];
+			for (int i = 0; i < objectnumber; i++)
+				payload[i] = readValue();
+			return new MessageArrayLine(payload);
+		}
+		case MessageBinaryWriter.TAG_ARRAY_END:
+			currentarraystart = null;
+			return new MessageArrayEnd();
+		case MessageBinaryWriter.TAG_ERROR: {
+			int errorcode = readSignedVarint();
+			return new MessageError(errorcode, readString());
+		}
+		}
+		throw new IOException("Invalid tag " + tag + " in binary message");
+	}
+
+	@Override
+	public MessageElement getNextElement() throws OLcRemoteException, IOException {
+		MessageElement element = super.getNextElement();
+		if (recorder != null)
+			recorder.replay(element, lastfieldfirstinstructure);
+		return element;
+	}
+
+	/**
+	 * @return the number of bytes read since last start message (a message is
+	 *         sent in a single frame)
+	 */
+	@Override
+	public long charcountsinceStartMessage() {
+		return position;
+	}
+
+	/**
+	 * starts recording. As the binary message does not have a text form, elements
+	 * read are written again in text by a MessageBufferedWriter
+	 */
+	@Override
+	public void startrecord() {
+		try {
+			recorder = new RecordingWriter();
+			recorder.startNewMessage();
+		} catch (IOException e) {
+			throw new RuntimeException("Error while starting to record binary message " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the text of the elements read since start of recording, in the same
+	 *         form as the MessageSimpleReader, or null if the elements recorded do
+	 *         not form a complete text
+	 */
+	@Override
+	public String endrecord() {
+		if (recorder == null)
+			return null;
+		try {
+			return recorder.endRecording();
+		} catch (IOException e) {
+			throw new RuntimeException("Error while ending recording of binary message " + e.getMessage());
+		} finally {
+			recorder = null;
+		}
+	}
+
+	/**
+	 * a writer regenerating the text of the elements read, forcing the 'first
+	 * element in structure' flag as sent by the other party
+	 */
+	private static class RecordingWriter
+			extends
+			MessageBufferedWriter {
+		private StringWriter text;
+		private Boolean forcedfirstelement;
+		private int depth;
+		private boolean valid;
+
+		private RecordingWriter() {
+			this(new StringWriter());
+		}
+
+		private RecordingWriter(StringWriter text) {
+			super(new BufferedWriter(text), false);
+			this.text = text;
+			this.valid = true;
+		}
+
+		@Override
+		public boolean isIsfirstelementinstructure() {
+			if (forcedfirstelement != null)
+				return forcedfirstelement.booleanValue();
+			return super.isIsfirstelementinstructure();
+		}
+
+		private void replay(MessageElement element, boolean firstinstructure) throws IOException {
+			if (!valid)
+				return;
+			if (element instanceof MessageStartStructure) {
+				depth++;
+				this.startStructure(((MessageStartStructure) element).getStructurename());
+				return;
+			}
+			if (element instanceof MessageEndStructure) {
+				if (depth == 0) {
+					// structure opened before start of recording
+					valid = false;
+					return;
+				}
+				depth--;
+				this.endStructure(((MessageEndStructure) element).getName());
+				return;
+			}
+			if (element instanceof MessageField) {
+				forcedfirstelement = Boolean.valueOf(firstinstructure);
+				try {
+					this.sendMessageElement(element);
+				} finally {
+					forcedfirstelement = null;
+				}
+				return;
+			}
+			if ((element instanceof MessageArrayStart) || (element instanceof MessageArrayLine)
+					|| (element instanceof MessageArrayEnd)) {
+				this.sendMessageElement(element);
+				return;
+			}
+			valid = false;
+		}
+
+		private String endRecording() throws IOException {
+			if (!valid)
+				return null;
+			if (depth != 0)
+				return null;
+			this.endMessage();
+			String message = text.toString();
+			String start = new MessageStart().serialize("", true) + "\n";
+			String end = new MessageEnd().serialize("", true);
+			if (!message.startsWith(start))
+				return null;
+			if (!message.endsWith(end))
+				return null;
+			return message.substring(start.length(), message.length() - end.length());
+		}
+	}
+}
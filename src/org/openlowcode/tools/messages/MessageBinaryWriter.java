@@ -0,0 +1,419 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.logging.Logger;
+
+/**
+ * A writer of the binary framing of the OLc messages. This is an alternative to
+ * the text format of the MessageBufferedWriter, negotiated between client and
+ * server during the security handshake. Each message (or error) is sent as a
+ * frame made of a marker byte, its length as a varint and its elements:
+ * <ul>
+ * <li>each element starts with a one byte tag</li>
+ * <li>integers are sent as zig-zag varints</li>
+ * <li>labels (structure and field names) are sent as text the first time they
+ * are used in the frame, then as an index</li>
+ * <li>strings are sent in UTF-8 preceded by their length</li>
+ * <li>binary payloads are sent raw, without base64 encoding</li>
+ * </ul>
+ * Dates are sent as the local date and time up to the second, as for the text
+ * format.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class MessageBinaryWriter
+		extends
+		MessageWriter {
+	private static Logger logger = Logger.getLogger(MessageBinaryWriter.class.getName());
+	/**
+	 * name of the binary framing, used during negotiation
+	 */
+	public static final String FRAMING_NAME = "BIN1";
+	/**
+	 * first byte of each frame. Blanks remaining after the last text message can
+	 * then be ignored when switching to binary framing
+	 */
+	static final int FRAME_MARKER = 0xFE;
+	private static final int MAX_KEPT_FRAME_BUFFER = 1024 * 1024;
+	static final int TAG_MESSAGE_START = 1;
+	static final int TAG_MESSAGE_END = 2;
+	static final int TAG_STRUCTURE_START = 3;
+	static final int TAG_STRUCTURE_END = 4;
+	static final int TAG_STRING = 5;
+	static final int TAG_INTEGER = 6;
+	static final int TAG_BOOLEAN_TRUE = 7;
+	static final int TAG_BOOLEAN_FALSE = 8;
+	static final int TAG_DECIMAL = 9;
+	static final int TAG_DATE = 10;
+	static final int TAG_BINARY = 11;
+	static final int TAG_ARRAY_START = 12;
+	static final int TAG_ARRAY_LINE = 13;
+	static final int TAG_ARRAY_END = 14;
+	static final int TAG_ERROR = 15;
+	/**
+	 * flag added to the tag of a field if it is sent as first element of the
+	 * structure (this is kept so that the text form of the message can be
+	 * regenerated exactly)
+	 */
+	static final int FLAG_FIRST_IN_STRUCTURE = 0x20;
+
+	static final int VALUE_NULL = 0;
+	static final int VALUE_STRING = 1;
+	static final int VALUE_INTEGER = 2;
+	static final int VALUE_DECIMAL = 3;
+	static final int VALUE_BOOLEAN_TRUE = 4;
+	static final int VALUE_BOOLEAN_FALSE = 5;
+	static final int VALUE_DATE = 6;
+
+	private OutputStream output;
+	private byte[] frame;
+	private int framelength;
+	private HashMap<String, Integer> labels;
+	private Calendar calendar;
+	private long lastdatetime;
+	private long lastdatevalue;
+	private boolean messageaudit;
+	private StringBuffer auditbuffer;
+
+	/**
+	 * Creates a new binary writer
+	 * 
+	 * @param output       the stream to write frames to
+	 * @param messageaudit true if messages should be put in logs after being sent.
+	 *                     This has significant impact on performance and log size,
+	 *                     and should not be used in most production environments
+	 */
+	public MessageBinaryWriter(OutputStream output, boolean messageaudit) {
+		super();
+		this.output = output;
+		this.frame = new byte[8192];
+		this.framelength = 0;
+		this.lastdatetime = Long.MIN_VALUE;
+		this.labels = new HashMap<String, Integer>();
+		this.calendar = Calendar.getInstance();
+		this.messageaudit = messageaudit;
+		if (messageaudit)
+			this.auditbuffer = new StringBuffer();
+	}
+
+	/**
+	 * @return true if messages are audited in logs
+	 */
+	public boolean getMessageAudit() {
+		return this.messageaudit;
+	}
+
+	@Override
+	public void checkConnection() {
+
+	}
+
+	@Override
+	public void close() throws IOException {
+		output.close();
+	}
+
+	@Override
+	public void sendMessageElement(MessageElement messageelement) throws IOException {
+		if (messageaudit)
+			auditbuffer.append(messageelement.serialize("", this.isIsfirstelementinstructure()));
+		int first = (this.isIsfirstelementinstructure() ? FLAG_FIRST_IN_STRUCTURE : 0);
+		if (messageelement instanceof MessageStart) {
+			writeByte(TAG_MESSAGE_START);
+			return;
+		}
+		if (messageelement instanceof MessageEnd) {
+			writeByte(TAG_MESSAGE_END);
+			writeFrame();
+			return;
+		}
+		if (messageelement instanceof MessageStartStructure) {
+			writeByte(TAG_STRUCTURE_START);
+			writeLabel(((MessageStartStructure) messageelement).getStructurename());
+			return;
+		}
+		if (messageelement instanceof MessageEndStructure) {
+			writeByte(TAG_STRUCTURE_END);
+			return;
+		}
+		if (messageelement instanceof MessageStringField) {
+			MessageStringField stringfield = (MessageStringField) messageelement;
+			writeByte(TAG_STRING | first);
+			writeLabel(stringfield.getFieldName());
+			writeString(stringfield.getFieldcontent());
+			return;
+		}
+		if (messageelement instanceof MessageIntegerField) {
+			MessageIntegerField integerfield = (MessageIntegerField) messageelement;
+			writeByte(TAG_INTEGER | first);
+			writeLabel(integerfield.getFieldName());
+			writeSignedVarint(integerfield.getFieldContent());
+			return;
+		}
+		if (messageelement instanceof MessageBooleanField) {
+			MessageBooleanField booleanfield = (MessageBooleanField) messageelement;
+			writeByte((booleanfield.getFieldContent() ? TAG_BOOLEAN_TRUE : TAG_BOOLEAN_FALSE) | first);
+			writeLabel(booleanfield.getFieldName());
+			return;
+		}
+		if (messageelement instanceof MessageDecimalField) {
+			MessageDecimalField decimalfield = (MessageDecimalField) messageelement;
+			writeByte(TAG_DECIMAL | first);
+			writeLabel(decimalfield.getFieldName());
+			writeDecimal(decimalfield.getFieldcontent());
+			return;
+		}
+		if (messageelement instanceof MessageDateField) {
+			MessageDateField datefield = (MessageDateField) messageelement;
+			writeByte(TAG_DATE | first);
+			writeLabel(datefield.getFieldName());
+			writeDate(datefield.getFieldcontent());
+			return;
+		}
+		if (messageelement instanceof MessageBinaryField) {
+			MessageBinaryField binaryfield = (MessageBinaryField) messageelement;
+			writeByte(TAG_BINARY | first);
+			writeLabel(binaryfield.getFieldName());
+			SFile content = binaryfield.getFieldContent();
+			if (content.isEmpty()) {
+				writeVarint(0);
+			} else {
+				byte[] payload = content.getContent();
+				writeVarint(payload.length + 1);
+				writeString(content.getFileName());
+				writeBytes(payload);
+			}
+			return;
+		}
+		if (messageelement instanceof MessageArrayStart) {
+			MessageArrayStart arraystart = (MessageArrayStart) messageelement;
+			writeByte(TAG_ARRAY_START);
+			writeLabel(arraystart.getArrayName());
+			writeVarint(arraystart.getFieldSpecNr());
+			for (int i = 0; i < arraystart.getFieldSpecNr(); i++) {
+				MessageFieldSpec spec = arraystart.getFieldSpecAt(i);
+				writeLabel(spec.getName());
+				writeLabel(spec.getType().getMessageFieldAcronym());
+			}
+			return;
+		}
+		if (messageelement instanceof MessageArrayLine) {
+			MessageArrayLine arrayline = (MessageArrayLine) messageelement;
+			writeByte(TAG_ARRAY_LINE);
+			writeVarint(arrayline.getObjectNumber());
+			for (int i = 0; i < arrayline.getObjectNumber(); i++)
+				writeValue(arrayline.getPayloadAt(i));
+			return;
+		}
+		if (messageelement instanceof MessageArrayEnd) {
+			writeByte(TAG_ARRAY_END);
+			return;
+		}
+		if (messageelement instanceof MessageError) {
+			MessageError error = (MessageError) messageelement;
+			// a partially written message is dropped, the error is sent alone
+			framelength = 0;
+			labels.clear();
+			writeByte(TAG_ERROR);
+			writeSignedVarint(error.getErrorcode());
+			writeString(error.getErrormessage());
+			writeFrame();
+			return;
+		}
+		throw new RuntimeException("Message element not supported in binary framing " + messageelement.getClass());
+	}
+
+	private void writeFrame() throws IOException {
+		int length = framelength;
+		output.write(FRAME_MARKER);
+		while ((length & ~0x7F) != 0) {
+			output.write((length & 0x7F) | 0x80);
+			length >>>= 7;
+		}
+		output.write(length);
+		output.write(frame, 0, framelength);
+		output.flush();
+		if (messageaudit) {
+			logger.info("--------------------------- FULL MESSAGE AUDIT (binary, " + framelength
+					+ " bytes) -----------------------");
+			logger.info(auditbuffer.toString());
+			logger.info("--------------------------- FULL MESSAGE AUDIT END -------------------");
+			auditbuffer = new StringBuffer();
+		}
+		framelength = 0;
+		labels.clear();
+		// do not keep the memory of an exceptionally big message
+		if (frame.length > MAX_KEPT_FRAME_BUFFER)
+			frame = new byte[8192];
+	}
+
+	private void ensureCapacity(int added) {
+		if (framelength + added > frame.length) {
+			int newlength = frame.length * 2;
+			while (newlength < framelength + added)
+				newlength = newlength * 2;
+			byte[] newframe = new byte[newlength];
+			System.arraycopy(frame, 0, newframe, 0, framelength);
+			frame = newframe;
+		}
+	}
+
+	private void writeByte(int value) {
+		if (framelength == frame.length)
+			ensureCapacity(1);
+		frame[framelength++] = (byte) value;
+	}
+
+	private void writeBytes(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, frame, framelength, bytes.length);
+		framelength += bytes.length;
+	}
+
+	private void writeVarint(int value) {
+		while ((value & ~0x7F) != 0) {
+			writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+
+	private void writeVarlong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		writeByte((int) value);
+	}
+
+	private void writeSignedVarint(int value) {
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+
+	private void writeLabel(String label) {
+		Integer index = labels.get(label);
+		if (index != null) {
+			writeVarint(index.intValue() + 1);
+			return;
+		}
+		writeVarint(0);
+		writeString(label);
+		labels.put(label, Integer.valueOf(labels.size()));
+	}
+
+	/**
+	 * writes the length plus one (zero for a null string) followed by the UTF-8
+	 * bytes
+	 */
+	private void writeString(String string) {
+		if (string == null) {
+			writeVarint(0);
+			return;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length + 1);
+		writeBytes(bytes);
+	}
+
+	/**
+	 * writes the scale followed by the bytes of the unscaled value (length plus
+	 * one, zero for a null decimal)
+	 */
+	private void writeDecimal(BigDecimal decimal) {
+		if (decimal == null) {
+			writeVarint(0);
+			return;
+		}
+		byte[] unscaled = decimal.unscaledValue().toByteArray();
+		writeVarint(unscaled.length + 1);
+		writeSignedVarint(decimal.scale());
+		writeBytes(unscaled);
+	}
+
+	/**
+	 * writes the date as a number yyyyMMddHHmmss in local time, or zero for a null
+	 * date
+	 */
+	private void writeDate(Date date) {
+		if (date == null) {
+			writeVarint(0);
+			return;
+		}
+		// dates in a message are often identical (e.g. creation date of objects)
+		if (date.getTime() == lastdatetime) {
+			writeVarlong(lastdatevalue);
+			return;
+		}
+		calendar.setTime(date);
+		long value = calendar.get(Calendar.YEAR);
+		value = value * 100 + calendar.get(Calendar.MONTH) + 1;
+		value = value * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+		value = value * 100 + calendar.get(Calendar.HOUR_OF_DAY);
+		value = value * 100 + calendar.get(Calendar.MINUTE);
+		value = value * 100 + calendar.get(Calendar.SECOND);
+		lastdatetime = date.getTime();
+		lastdatevalue = value;
+		writeVarlong(value);
+	}
+
+	private void writeValue(Object value) {
+		if (value == null) {
+			writeByte(VALUE_NULL);
+			return;
+		}
+		if (value instanceof String) {
+			writeByte(VALUE_STRING);
+			writeString((String) value);
+			return;
+		}
+		if (value instanceof Integer) {
+			writeByte(VALUE_INTEGER);
+			writeSignedVarint(((Integer) value).intValue());
+			return;
+		}
+		if (value instanceof BigDecimal) {
+			writeByte(VALUE_DECIMAL);
+			writeDecimal((BigDecimal) value);
+			return;
+		}
+		if (value instanceof Boolean) {
+			writeByte(((Boolean) value).booleanValue() ? VALUE_BOOLEAN_TRUE : VALUE_BOOLEAN_FALSE);
+			return;
+		}
+		if (value instanceof Date) {
+			writeByte(VALUE_DATE);
+			writeDate((Date) value);
+			return;
+		}
+		throw new RuntimeException("Object " + value.getClass() + " not supported in binary compact array");
+	}
+
+	@Override
+	public void flushMessage() {
+		try {
+			output.flush();
+		} catch (IOException e) {
+			throw new RuntimeException(
+					String.format("Error in generating CML Message, original exception = %s at path %s", e.getMessage(),
+							this.currentpath()));
+		}
+	}
+
+}
@@ -0,0 +1,273 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.openlowcode.tools.messages;
+
+import java.nio.ByteBuffer;
+
+import org.openlowcode.tools.enc.AESCommunicator;
+
+/**
+ * Accumulates bytes received from a non-blocking channel, and detects when a
+ * complete message (from '{' to the matching '}') or error ('#code:"text"#')
+ * has been received. The scanner only looks at the structure characters
+ * outside of strings: the message is then parsed normally by a
+ * MessageSimpleReader on the bytes of the frame.<br>
+ * As the characters used for the structure are ASCII, the scan can be done on
+ * UTF-8 bytes directly (bytes of multi-byte characters are never ASCII).<br>
+ * After binary framing has been negotiated, frames are detected using the
+ * length sent before each message by the MessageBinaryWriter. After stream
+ * encryption has been negotiated, a frame is the list of encrypted records of
+ * a message, up to the record marking the end of the message.
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class MessageFrameScanner {
+	private final static byte MESSAGE_START = '{';
+	private final static byte MESSAGE_END = '}';
+	private final static byte STRING_DELIMITER = '"';
+	private final static byte ERROR_MARKER = '#';
+
+	private byte[] buffer;
+	private int length;
+	private int scanned;
+	private int depth;
+	private boolean instring;
+	private boolean inerror;
+	private int framestart;
+	private int frameend;
+	private int maxframesize;
+	private boolean binaryframing;
+	private boolean recordframing;
+
+	/**
+	 * creates a frame scanner
+	 * 
+	 * @param maxframesize maximum size in bytes of a frame. An exception is thrown
+	 *                     if a bigger message is received
+	 */
+	public MessageFrameScanner(int maxframesize) {
+		this.buffer = new byte[8192];
+		this.length = 0;
+		this.maxframesize = maxframesize;
+		reset();
+	}
+
+	/**
+	 * switches the scanner to binary framing. Blanks remaining after the last text
+	 * message are ignored
+	 */
+	public void setBinaryFraming() {
+		this.binaryframing = true;
+		reset();
+		scan();
+	}
+
+	/**
+	 * switches the scanner to encrypted records. Blanks remaining after the last
+	 * text message are ignored
+	 * 
+	 * @since 1.14
+	 */
+	public void setRecordFraming() {
+		this.recordframing = true;
+		reset();
+		scan();
+	}
+
+	private void reset() {
+		this.scanned = 0;
+		this.depth = 0;
+		this.instring = false;
+		this.inerror = false;
+		this.framestart = -1;
+		this.frameend = -1;
+	}
+
+	/**
+	 * adds the bytes remaining in the buffer to the scanner, and scans them
+	 * 
+	 * @param bytes a buffer ready to be read
+	 */
+	public void append(ByteBuffer bytes) {
+		int added = bytes.remaining();
+		if (length + added > buffer.length) {
+			int newlength = buffer.length * 2;
+			while (newlength < length + added)
+				newlength = newlength * 2;
+			byte[] newbuffer = new byte[newlength];
+			System.arraycopy(buffer, 0, newbuffer, 0, length);
+			buffer = newbuffer;
+		}
+		bytes.get(buffer, length, added);
+		length += added;
+		scan();
+	}
+
+	private void scan() {
+		if (recordframing) {
+			scanRecords();
+			return;
+		}
+		if (binaryframing) {
+			scanBinary();
+			return;
+		}
+		while ((frameend == -1) && (scanned < length)) {
+			byte current = buffer[scanned];
+			if (instring) {
+				// a double quote inside a string is written as two quotes, closing and
+				// reopening the string is equivalent
+				if (current == STRING_DELIMITER)
+					instring = false;
+			} else {
+				if ((current == STRING_DELIMITER) && ((depth > 0) || (inerror)))
+					instring = true;
+				if ((current == MESSAGE_START) && (!inerror)) {
+					if (depth == 0)
+						framestart = scanned;
+					depth++;
+				}
+				if ((current == MESSAGE_END) && (depth > 0)) {
+					depth--;
+					if (depth == 0)
+						frameend = scanned + 1;
+				}
+				if ((current == ERROR_MARKER) && (depth == 0)) {
+					if (inerror) {
+						inerror = false;
+						frameend = scanned + 1;
+					} else {
+						inerror = true;
+						framestart = scanned;
+					}
+				}
+			}
+			scanned++;
+		}
+		if (frameend == -1) {
+			// blanks between messages are dropped
+			if (framestart == -1) {
+				length = 0;
+				scanned = 0;
+			} else {
+				if (length - framestart > maxframesize)
+					throw new RuntimeException("Message received is bigger than the maximum size " + maxframesize);
+			}
+		}
+	}
+
+	private void scanBinary() {
+		if (frameend != -1)
+			return;
+		int blanks = 0;
+		while ((blanks < length) && (MessageBinaryReader.isBlank(buffer[blanks])))
+			blanks++;
+		if (blanks > 0) {
+			System.arraycopy(buffer, blanks, buffer, 0, length - blanks);
+			length -= blanks;
+		}
+		if (length == 0)
+			return;
+		if ((buffer[0] & 0xFF) != MessageBinaryWriter.FRAME_MARKER)
+			throw new RuntimeException("Invalid start of binary message " + (buffer[0] & 0xFF));
+		int framelength = 0;
+		int shift = 0;
+		int index = 1;
+		while (true) {
+			if (index >= length)
+				return;
+			int next = buffer[index] & 0xFF;
+			index++;
+			framelength |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0)
+				break;
+			shift += 7;
+			if (shift > 28)
+				throw new RuntimeException("Invalid binary message length");
+		}
+		if ((framelength < 0) || (framelength > maxframesize))
+			throw new RuntimeException("Message received is bigger than the maximum size " + maxframesize);
+		if (length >= index + framelength) {
+			framestart = 0;
+			frameend = index + framelength;
+		}
+	}
+
+	private void scanRecords() {
+		if (frameend != -1)
+			return;
+		if (framestart == -1) {
+			int blanks = 0;
+			while ((blanks < length) && (MessageBinaryReader.isBlank(buffer[blanks])))
+				blanks++;
+			if (blanks > 0) {
+				System.arraycopy(buffer, blanks, buffer, 0, length - blanks);
+				length -= blanks;
+			}
+			if (length == 0)
+				return;
+			framestart = 0;
+		}
+		while (scanned + AESCommunicator.RECORD_HEADER_LENGTH <= length) {
+			int type = buffer[scanned] & 0xFF;
+			if ((type != AESCommunicator.RECORD_DATA) && (type != AESCommunicator.RECORD_END))
+				throw new RuntimeException("Invalid type of encrypted record " + type);
+			int recordlength = ((buffer[scanned + 1] & 0xFF) << 24) | ((buffer[scanned + 2] & 0xFF) << 16)
+					| ((buffer[scanned + 3] & 0xFF) << 8) | (buffer[scanned + 4] & 0xFF);
+			if ((recordlength < 0) || (recordlength > AESCommunicator.MAX_RECORD_LENGTH))
+				throw new RuntimeException("Invalid length of encrypted record " + recordlength);
+			int recordend = scanned + AESCommunicator.RECORD_HEADER_LENGTH + recordlength;
+			if (recordend - framestart > maxframesize)
+				throw new RuntimeException("Message received is bigger than the maximum size " + maxframesize);
+			if (recordend > length)
+				return;
+			scanned = recordend;
+			if (type == AESCommunicator.RECORD_END) {
+				frameend = scanned;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return true if a complete message or error has been received
+	 */
+	public boolean hasFrame() {
+		return (frameend != -1);
+	}
+
+	/**
+	 * gets the first complete frame and removes it from the scanner. Bytes
+	 * received after the frame are kept, and scanned for the next frame.
+	 * 
+	 * @return the bytes of the frame, or null if no complete frame has been
+	 *         received
+	 */
+	public byte[] nextFrame() {
+		if (frameend == -1)
+			return null;
+		byte[] frame = new byte[frameend - framestart];
+		System.arraycopy(buffer, framestart, frame, 0, frame.length);
+		System.arraycopy(buffer, frameend, buffer, 0, length - frameend);
+		length = length - frameend;
+		reset();
+		scan();
+		return frame;
+	}
+
+	/**
+	 * @return the number of bytes received and not yet returned as a frame
+	 */
+	public int getBufferedLength() {
+		return length;
+	}
+}
@@ -414,6 +414,26 @@ public abstract class MessageReader {
 
 	}
 
+	/**
+	 * This method will execute correctly if the next element is a LargeBinary field
+	 * of the given name, or else,throw a RuntimeException. The content is read in
+	 * memory, and the file is disposed
+	 * 
+	 * @param name name of the element
+	 * @return content of the field
+	 * @throws OLcRemoteException if an error is received from the other party
+	 * @throws IOException        for any communication issue with the other party
+	 * @since 1.14
+	 */
+	public byte[] returnNextLargeBinaryContent(String name) throws OLcRemoteException, IOException {
+		SFile file = returnNextLargeBinary(name);
+		try {
+			return file.getContent();
+		} finally {
+			file.dispose();
+		}
+	}
+
 	/**
 	 * This method will execute correctly if the next element is an Integer field of
 	 * the given name, or else,throw a RuntimeException
@@ -524,6 +544,16 @@ public abstract class MessageReader {
 	 */
 	public abstract String endrecord();
 
+	/**
+	 * closes the underlying source of the reader. By default, does nothing
+	 * 
+	 * @throws IOException if any communication issue is encountered
+	 * @since 1.14
+	 */
+	public void close() throws IOException {
+
+	}
+
 	/**
 	 * @param arrayname name of the compact array structure
 	 * @return the MessageArrayStart element, or throws an exception if the next
@@ -0,0 +1,88 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.tools.messages;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A message writer recording the elements sent instead of transmitting them.
+ * The sequence of elements can then be written several times inside messages
+ * sent by other writers, without generating the content again. The sequence is
+ * typically recorded as:<br>
+ * <code>sequence.startNewMessage();<br>
+ * [write content]<br>
+ * sequence.endMessage();</code><br>
+ * The start and end of message are not recorded. Once recorded, a sequence
+ * should not be modified, and can be written concurrently by several threads.
+ *
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class MessageSequence
+		extends
+		MessageWriter {
+	private ArrayList<MessageElement> elements;
+	private ArrayList<Boolean> firstelementinstructure;
+	private boolean finalfirstelementinstructure;
+
+	/**
+	 * creates an empty message sequence
+	 */
+	public MessageSequence() {
+		super();
+		this.elements = new ArrayList<MessageElement>();
+		this.firstelementinstructure = new ArrayList<Boolean>();
+		this.finalfirstelementinstructure = true;
+	}
+
+	@Override
+	public void checkConnection() throws IOException {
+		// nothing to check, elements are kept in memory
+	}
+
+	@Override
+	public void sendMessageElement(MessageElement messageelement) throws IOException {
+		if (messageelement instanceof MessageStart)
+			return;
+		if (messageelement instanceof MessageEnd) {
+			this.finalfirstelementinstructure = this.isIsfirstelementinstructure();
+			return;
+		}
+		elements.add(messageelement);
+		firstelementinstructure.add(Boolean.valueOf(this.isIsfirstelementinstructure()));
+	}
+
+	@Override
+	public void flushMessage() throws IOException {
+		// nothing to flush, elements are kept in memory
+	}
+
+	/**
+	 * @return the number of elements recorded
+	 */
+	public int getElementNumber() {
+		return elements.size();
+	}
+
+	/**
+	 * writes the recorded elements in the message currently sent by the writer
+	 *
+	 * @param writer a writer with an active message
+	 * @throws IOException if any communication issue is encountered
+	 */
+	public void writeTo(MessageWriter writer) throws IOException {
+		for (int i = 0; i < elements.size(); i++)
+			writer.sendRecordedElement(elements.get(i), firstelementinstructure.get(i).booleanValue());
+		writer.setFirstElementInStructure(finalfirstelementinstructure);
+	}
+}
@@ -9,11 +9,14 @@
  ********************************************************************************/
 package org.openlowcode.tools.messages;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
 
@@ -31,6 +34,14 @@ public class MessageSimpleReader extends MessageReader {
 
 	private static Logger logger = Logger.getLogger(MessageSimpleReader.class.getName());
 	private static Base64.Decoder base64decoder = Base64.getDecoder();
+	/**
+	 * binary payloads bigger than this size (in bytes) are decoded to a temporary
+	 * file instead of being held in memory
+	 * 
+	 * @since 1.14
+	 */
+	public static int MAX_BINARY_IN_MEMORY = 16 * 1024 * 1024;
+	private static final int BINARY_READ_BUFFER = 65536;
 
 	private final static int MESSAGE_START = '{';
 	private final static int MESSAGE_END = '}';
@@ -454,34 +465,15 @@ public class MessageSimpleReader extends MessageReader {
 								throw new RuntimeException(String.format(
 										"Expected to have a separator ':' after filename '%s' in binary field, got '%c' at %s",
 										filename, currentcharacter, this.returnBufferTrace()));
-							char[] base64content = new char[size];
-							int read = 0;
-							int breaker = 0;
-							while ((read < size) && (breaker < 100000)) {
-								read += br.read(base64content, read, size - read);
-								breaker++;
-								logger.fine("total read = " + read);
-								try {
-									Thread.sleep(20);
-
-								} catch (InterruptedException e) {
-									logger.warning(
-											"Error while waiting for file to be completly received " + e.getMessage());
-								}
-							}
-
+							// base64 is decoded while it is received, only blocking on the reader
+							SFile payload = SFile.fromStream(filename, new Base64DecodingStream(size),
+									MAX_BINARY_IN_MEMORY);
 							charcounter += size;
-							String base64string = new String(base64content);
-							// Correct code
-							logger.fine("read = " + read + "generated ing length = " + base64string.length()
-							+ " hascode=" + base64string.hashCode() + " first 3 char = '"
-							+ base64string.substring(0, 3) + "' last 100 chars = '" + base64string.substring(
-									(base64string.length() - 100 > 0 ? base64string.length() - 100 : 0)));
-
-							byte[] binary = base64decoder.decode(base64string);
+							logger.fine("read binary field " + attributename + " of " + size + " base64 characters, "
+									+ payload.getLength() + " bytes");
 							currentcharacter = readOneCharacter();
 
-							return new MessageBinaryField(attributename, binary, filename);
+							return new MessageBinaryField(attributename, payload);
 						}
 						if (size == 0)
 							return new MessageBinaryField(attributename);
@@ -678,6 +670,85 @@ public class MessageSimpleReader extends MessageReader {
 		return thischar;
 	}
 
+	/**
+	 * A stream giving the decoded content of a binary field while it is read. The
+	 * base64 characters are read by chunks from the reader, and decoded by blocks
+	 * of 4 characters. The stream ends after the size of the content announced in
+	 * the message.
+	 * 
+	 * @since 1.14
+	 */
+	private class Base64DecodingStream
+			extends
+			InputStream {
+		private int remaining;
+		private char[] chunk;
+		private byte[] encoded;
+		private int encodedlength;
+		private byte[] decoded;
+		private int decodedposition;
+		private int decodedlength;
+
+		private Base64DecodingStream(int size) {
+			this.remaining = size;
+			this.chunk = new char[Math.min(size, BINARY_READ_BUFFER)];
+			// room for up to 3 characters not decoded in the previous chunk
+			this.encoded = new byte[chunk.length + 3];
+			this.decoded = new byte[((encoded.length + 3) / 4) * 3];
+		}
+
+		/**
+		 * @return true if decoded content is available, false if the end of the
+		 *         content is reached
+		 */
+		private boolean fill() throws IOException {
+			while (decodedposition >= decodedlength) {
+				if (remaining == 0)
+					return false;
+				int read = br.read(chunk, 0, Math.min(remaining, chunk.length));
+				if (read == -1)
+					throw new EOFException(
+							"End of stream while reading binary content, " + remaining + " characters missing");
+				if (recording)
+					recordedstring.append(chunk, 0, read);
+				remaining -= read;
+				for (int i = 0; i < read; i++)
+					encoded[encodedlength + i] = (byte) chunk[i];
+				encodedlength += read;
+				int complete = (remaining == 0 ? encodedlength : encodedlength - (encodedlength % 4));
+				try {
+					decodedlength = base64decoder.decode(Arrays.copyOf(encoded, complete), decoded);
+				} catch (IllegalArgumentException e) {
+					throw new RuntimeException("Invalid base64 content in binary field: " + e.getMessage()
+							+ " at " + returnBufferTrace());
+				}
+				decodedposition = 0;
+				System.arraycopy(encoded, complete, encoded, 0, encodedlength - complete);
+				encodedlength -= complete;
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill())
+				return -1;
+			return decoded[decodedposition++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int copied = Math.min(length, decodedlength - decodedposition);
+			System.arraycopy(decoded, decodedposition, bytes, offset, copied);
+			decodedposition += copied;
+			return copied;
+		}
+	}
+
 	/**
 	 * Closes the underlying Reader
 	 * @throws IOException
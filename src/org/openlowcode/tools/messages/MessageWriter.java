@@ -71,6 +71,16 @@ public abstract class MessageWriter {
 
 	public abstract void flushMessage() throws IOException;
 
+	/**
+	 * closes the underlying destination of the writer. By default, does nothing
+	 * 
+	 * @throws IOException if any problem happens with the communication
+	 * @since 1.14
+	 */
+	public void close() throws IOException {
+
+	}
+
 	private final static String firstcharLabel = "AZERTYUIOPQSDFGHJKLMWXCVBN";
 	private final static String followingcharLabel = "AZERTYUIOPQSDFGHJKLMWXCVBN1234567890_-";
 
@@ -362,4 +372,41 @@ public abstract class MessageWriter {
 	public boolean isActive() {
 		return this.active;
 	}
+
+	/**
+	 * sets the flag indicating that the next element is the first in the current
+	 * structure. This is used when replaying a message sequence
+	 * 
+	 * @param isfirstelementinstructure true if the next element is the first in
+	 *                                  the current structure
+	 * @since 1.14
+	 */
+	void setFirstElementInStructure(boolean isfirstelementinstructure) {
+		this.isfirstelementinstructure = isfirstelementinstructure;
+	}
+
+	/**
+	 * sends an element recorded in a message sequence, restoring the state of the
+	 * writer as it was when the element was recorded. The current path is
+	 * maintained for structure start and end
+	 * 
+	 * @param element                   element to send
+	 * @param firstelementinstructure   true if the element was the first in its
+	 *                                  structure when recorded
+	 * @throws IOException if any communication issue is encountered
+	 * @since 1.14
+	 */
+	void sendRecordedElement(MessageElement element, boolean firstelementinstructure) throws IOException {
+		if (!active)
+			throw new RuntimeException("cannot send recorded element when no active message being sent");
+		if (element instanceof MessageStartStructure)
+			currentpath.add(((MessageStartStructure) element).getStructurename());
+		if (element instanceof MessageEndStructure) {
+			if (currentpath.size() == 0)
+				throw new RuntimeException("cannot replay structure close when no structure open");
+			currentpath.remove(currentpath.size() - 1);
+		}
+		this.isfirstelementinstructure = firstelementinstructure;
+		sendMessageElement(element);
+	}
 }
@@ -10,24 +10,66 @@
 package org.openlowcode.tools.messages;
 
 import java.io.ByteArrayInputStream;
-
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Logger;
 
 /**
  * A light wrapper around a file, including
- * binary content and a filename
+ * binary content and a filename. The content is either held in memory, or
+ * read on demand from a content source (typically a temporary file) for
+ * large files.
  * @author Open Lowcode SAS
  *
  */
 public class SFile {
+	private static Logger logger = Logger.getLogger(SFile.class.getName());
+	private static final int COPY_BUFFER_SIZE = 65536;
+	
+	/**
+	 * A source giving the content of a file as a new stream each time it is
+	 * opened. It is used for files whose content is not held in memory
+	 * 
+	 * @since 1.14
+	 */
+	public interface ContentSource {
+		/**
+		 * @return a new stream on the content, to be closed by the caller
+		 * @throws IOException if the content cannot be read
+		 */
+		public InputStream open() throws IOException;
+	}
+	
 	private boolean empty;
 	private byte[] content;
 	private String filename;
+	private long length;
+	private ContentSource source;
 	/**
-	 * @return binary content
+	 * @return binary content. For a file not held in memory, the content is
+	 * read from the source at each call, getStream should be preferred
 	 */
 	public byte[] getContent() {
-		return content;
+		if (content!=null) return content;
+		if (source==null) return null;
+		if (length>Integer.MAX_VALUE) throw new RuntimeException("File "+filename+" is too big to be held in memory, size = "+length);
+		byte[] result = new byte[(int) length];
+		try (InputStream stream = source.open()) {
+			int offset = 0;
+			while (offset<result.length) {
+				int read = stream.read(result, offset, result.length-offset);
+				if (read<0) throw new IOException("Unexpected end of content at "+offset+" for "+length+" bytes");
+				offset+=read;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error in reading content of file "+filename+": "+e.getMessage());
+		}
+		return result;
 	}
 	/**
 	 * Creates a new file with no filename or content.
@@ -47,12 +89,137 @@ public class SFile {
 		this.filename = filename;
 		if (content!=null) {
 		this.empty=false;
+		this.length=content.length;
 		} else {
 			this.empty=true;
 		}
 		
 	}
 	
+	/**
+	 * Creates a file whose content is read on demand from the source
+	 * @param filename name of the file (it should not include the path)
+	 * @param length length of the content in bytes
+	 * @param source source of the content
+	 * @since 1.14
+	 */
+	public SFile(String filename,long length,ContentSource source) {
+		if (source==null) throw new RuntimeException("Content source cannot be null for file "+filename);
+		this.filename = filename;
+		this.length = length;
+		this.source = source;
+		this.empty = false;
+	}
+	
+	/**
+	 * Creates a file with the same content as the given file under another name.
+	 * The content is shared, not copied
+	 * @param filename name of the file (it should not include the path)
+	 * @param file file with the content
+	 * @since 1.14
+	 */
+	public SFile(String filename,SFile file) {
+		this.filename = filename;
+		this.empty = file.empty;
+		this.content = file.content;
+		this.length = file.length;
+		this.source = file.source;
+	}
+	
+	/**
+	 * Creates a file from a stream. If the content is small, it is held in memory,
+	 * else it is copied to a temporary file, deleted when the file is disposed.
+	 * The stream is read until the end but not closed.
+	 * @param filename name of the file (it should not include the path)
+	 * @param stream stream with the content
+	 * @param length length of the content in bytes
+	 * @param maxinmemory maximum length of content held in memory
+	 * @return the file
+	 * @throws IOException if the stream cannot be read or the temporary file written
+	 * @since 1.14
+	 */
+	public static SFile fromStream(String filename,InputStream stream,long length,int maxinmemory) throws IOException {
+		if (length<=maxinmemory) {
+			byte[] result = new byte[(int) length];
+			int offset = 0;
+			while (offset<result.length) {
+				int read = stream.read(result, offset, result.length-offset);
+				if (read<0) throw new IOException("Unexpected end of stream at "+offset+" for "+length+" bytes");
+				offset+=read;
+			}
+			return new SFile(filename,result);
+		}
+		File temporaryfile = File.createTempFile("olcfile", ".tmp");
+		TemporaryFileSource temporarysource = new TemporaryFileSource(temporaryfile);
+		long copied = 0;
+		try (OutputStream output = new FileOutputStream(temporaryfile)) {
+			byte[] buffer = new byte[COPY_BUFFER_SIZE];
+			int read = stream.read(buffer);
+			while (read>=0) {
+				output.write(buffer, 0, read);
+				copied+=read;
+				read = stream.read(buffer);
+			}
+		} catch (IOException e) {
+			temporarysource.delete();
+			throw e;
+		}
+		if (copied!=length) logger.warning("Stream for file "+filename+" had "+copied+" bytes, "+length+" were expected");
+		return new SFile(filename,copied,temporarysource);
+	}
+	
+	/**
+	 * Creates a file whose content is in a temporary file, deleted when the file
+	 * is disposed. The caller should not use the temporary file anymore
+	 * @param filename name of the file (it should not include the path)
+	 * @param temporaryfile temporary file with the content
+	 * @return the file
+	 * @since 1.14
+	 */
+	public static SFile fromTemporaryFile(String filename,File temporaryfile) {
+		return new SFile(filename,temporaryfile.length(),new TemporaryFileSource(temporaryfile));
+	}
+	
+	/**
+	 * Creates a file from a stream of unknown length. The content is held in
+	 * memory until it reaches the given size, it is then copied to a temporary
+	 * file, deleted when the file is disposed. The stream is read until the end
+	 * but not closed.
+	 * @param filename name of the file (it should not include the path)
+	 * @param stream stream with the content
+	 * @param maxinmemory maximum length of content held in memory
+	 * @return the file
+	 * @throws IOException if the stream cannot be read or the temporary file written
+	 * @since 1.14
+	 */
+	public static SFile fromStream(String filename,InputStream stream,int maxinmemory) throws IOException {
+		ByteArrayOutputStream memory = new ByteArrayOutputStream(Math.min(maxinmemory, COPY_BUFFER_SIZE));
+		byte[] buffer = new byte[COPY_BUFFER_SIZE];
+		int read = stream.read(buffer);
+		while (read>=0) {
+			if (memory.size()+read>maxinmemory) {
+				File temporaryfile = File.createTempFile("olcfile", ".tmp");
+				TemporaryFileSource temporarysource = new TemporaryFileSource(temporaryfile);
+				long copied = memory.size();
+				try (OutputStream output = new FileOutputStream(temporaryfile)) {
+					memory.writeTo(output);
+					memory = null;
+					while (read>=0) {
+						output.write(buffer, 0, read);
+						copied+=read;
+						read = stream.read(buffer);
+					}
+				} catch (IOException e) {
+					temporarysource.delete();
+					throw e;
+				}
+				return new SFile(filename,copied,temporarysource);
+			}
+			memory.write(buffer, 0, read);
+			read = stream.read(buffer);
+		}
+		return new SFile(filename,memory.toByteArray());
+	}
 	
 	/**
 	 * @return the file name
@@ -65,7 +232,13 @@ public class SFile {
 	 * @return an input stream with the content
 	 */
 	public InputStream getStream()  {
-		 return new ByteArrayInputStream(content);
+		if (content!=null) return new ByteArrayInputStream(content);
+		if (source==null) return new ByteArrayInputStream(new byte[0]);
+		try {
+			return source.open();
+		} catch (IOException e) {
+			throw new RuntimeException("Error in opening content of file "+filename+": "+e.getMessage());
+		}
 	
 	}
 	
@@ -73,7 +246,7 @@ public class SFile {
 	 * @return the length of the file
 	 */
 	public long getLength() {
-		return content.length;
+		return length;
 	}
 	/**
 	 * @return true if the file payload is 
@@ -82,6 +255,26 @@ public class SFile {
 	public boolean isEmpty() {
 		return empty;
 	}
+	
+	/**
+	 * @return true if the content is held in memory, false if it is read on demand
+	 * from a source
+	 * @since 1.14
+	 */
+	public boolean isInMemory() {
+		return source==null;
+	}
+	
+	/**
+	 * deletes the temporary file holding the content, if any. This should be
+	 * called by the last user of the file, once the content has been read or
+	 * sent. The content cannot be read anymore after this call, including by
+	 * files sharing the same content. Files held in memory are not modified
+	 * @since 1.14
+	 */
+	public void dispose() {
+		if (source instanceof TemporaryFileSource) ((TemporaryFileSource) source).delete();
+	}
 
 @Override
 public boolean equals(Object other) {
@@ -90,6 +283,49 @@ public boolean equals(Object other) {
 	SFile othersfile = (SFile) other;
 	if (this.empty) if (!othersfile.empty) return false;
 	if (!this.filename.equals(othersfile.filename)) return false;
-	return java.util.Arrays.equals(this.content,othersfile.content);
+	if (this.length!=othersfile.length) return false;
+	return java.util.Arrays.equals(this.getContent(),othersfile.getContent());
 }
+
+	/**
+	 * A content source on a temporary file. The file is deleted when the file
+	 * is disposed, or when the source is garbage collected if the file was not
+	 * disposed
+	 * 
+	 * @since 1.14
+	 */
+	private static class TemporaryFileSource implements ContentSource {
+		private File file;
+		private boolean deleted;
+
+		private TemporaryFileSource(File file) {
+			this.file = file;
+			this.deleted = false;
+		}
+
+		@Override
+		public synchronized InputStream open() throws IOException {
+			if (deleted)
+				throw new IOException("Temporary file " + file.getAbsolutePath() + " was already disposed");
+			return new FileInputStream(file);
+		}
+
+		/**
+		 * deletes the temporary file. This is done only once
+		 */
+		private synchronized void delete() {
+			if (deleted)
+				return;
+			deleted = true;
+			if (file.exists())
+				if (!file.delete())
+					logger.warning("Could not delete temporary file " + file.getAbsolutePath());
+		}
+
+		@Override
+		protected void finalize() throws Throwable {
+			// this ensures the temporary file is removed if the file was not disposed
+			delete();
+		}
+	}
 }
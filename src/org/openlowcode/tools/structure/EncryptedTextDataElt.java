@@ -80,7 +80,7 @@ public class EncryptedTextDataElt
 	@Override
 	public void addPayload(MessageReader reader) throws OLcRemoteException, IOException {
 		try {
-		this.payload = reader.getAESCommunicator().decryptandunzip(reader.returnNextLargeBinary("PLD").getContent());
+		this.payload = reader.getAESCommunicator().decryptandunzip(reader.returnNextLargeBinaryContent("PLD"));
 		} catch (Exception e) {
 			String loggerstring = "Error in AES encryption " + e.getClass() + " - " + e.getMessage();
 			logger.severe("Error in AES encryption " + e.getClass() + " - " + e.getMessage());
@@ -280,8 +280,12 @@ public class ClientUpdater
 
 					FileOutputStream fos = new FileOutputStream(new File(clientpath), false);
 					logger.info("opening output streal to update client at " + clientpath);
-					fos.write(newjar.getContent());
-					fos.close();
+					try {
+						fos.write(newjar.getContent());
+					} finally {
+						fos.close();
+						newjar.dispose();
+					}
 					logger.info("finished updating client file");
 					Label updatecompleted = new Label("Update is completed. Client will relaunch in 4 seconds.");
 					updatecompleted.setWrapText(true);
@@ -0,0 +1,118 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the levels and recursive flags computed by the formula dependency
+ * graph. The graph is shared by the whole server, so each test uses node names
+ * with its own prefix
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class FormulaDependencyGraphTest {
+	private static int testcounter = 0;
+	private String prefix;
+
+	@Before
+	public void setUp() {
+		testcounter++;
+		prefix = "GRAPHTEST" + testcounter + ".";
+	}
+
+	private String node(String name) {
+		return prefix + name;
+	}
+
+	@Test
+	public void testChainGivesIncreasingLevels() {
+		FormulaDependencyGraph.addDependency(node("PRICE"), node("AMOUNT"));
+		FormulaDependencyGraph.addDependency(node("AMOUNT"), node("TOTAL"));
+		FormulaDependencyGraph.addDependency(node("TOTAL"), node("TAX"));
+		int price = FormulaDependencyGraph.getLevel(node("PRICE"));
+		assertEquals(price + 1, FormulaDependencyGraph.getLevel(node("AMOUNT")));
+		assertEquals(price + 2, FormulaDependencyGraph.getLevel(node("TOTAL")));
+		assertEquals(price + 3, FormulaDependencyGraph.getLevel(node("TAX")));
+		assertFalse(FormulaDependencyGraph.isRecursive(node("AMOUNT")));
+		assertFalse(FormulaDependencyGraph.isRecursive(node("TAX")));
+	}
+
+	@Test
+	public void testDiamondUsesLongestPath() {
+		FormulaDependencyGraph.addDependency(node("A"), node("B"));
+		FormulaDependencyGraph.addDependency(node("B"), node("C"));
+		FormulaDependencyGraph.addDependency(node("C"), node("D"));
+		FormulaDependencyGraph.addDependency(node("A"), node("D"));
+		int a = FormulaDependencyGraph.getLevel(node("A"));
+		assertEquals(a + 3, FormulaDependencyGraph.getLevel(node("D")));
+	}
+
+	@Test
+	public void testLoopSharesLevelAndIsRecursive() {
+		FormulaDependencyGraph.addDependency(node("INPUT"), node("PARENT"));
+		FormulaDependencyGraph.addDependency(node("PARENT"), node("CHILD"));
+		FormulaDependencyGraph.addDependency(node("CHILD"), node("PARENT"));
+		FormulaDependencyGraph.addDependency(node("CHILD"), node("REPORT"));
+		int input = FormulaDependencyGraph.getLevel(node("INPUT"));
+		int parent = FormulaDependencyGraph.getLevel(node("PARENT"));
+		assertEquals(input + 1, parent);
+		assertEquals(parent, FormulaDependencyGraph.getLevel(node("CHILD")));
+		assertEquals(parent + 1, FormulaDependencyGraph.getLevel(node("REPORT")));
+		assertTrue(FormulaDependencyGraph.isRecursive(node("PARENT")));
+		assertTrue(FormulaDependencyGraph.isRecursive(node("CHILD")));
+		assertFalse(FormulaDependencyGraph.isRecursive(node("INPUT")));
+		assertFalse(FormulaDependencyGraph.isRecursive(node("REPORT")));
+	}
+
+	@Test
+	public void testSelfDependencyIsRecursive() {
+		FormulaDependencyGraph.addDependency(node("INPUT"), node("ROLLUP"));
+		FormulaDependencyGraph.addDependency(node("ROLLUP"), node("ROLLUP"));
+		assertTrue(FormulaDependencyGraph.isRecursive(node("ROLLUP")));
+		assertEquals(FormulaDependencyGraph.getLevel(node("INPUT")) + 1,
+				FormulaDependencyGraph.getLevel(node("ROLLUP")));
+	}
+
+	@Test
+	public void testUnknownFieldHasLevelZero() {
+		assertEquals(0, FormulaDependencyGraph.getLevel(node("UNKNOWN")));
+		assertFalse(FormulaDependencyGraph.isRecursive(node("UNKNOWN")));
+	}
+
+	@Test
+	public void testAddingDependencyRecomputesLevels() {
+		FormulaDependencyGraph.addDependency(node("A"), node("C"));
+		int a = FormulaDependencyGraph.getLevel(node("A"));
+		assertEquals(a + 1, FormulaDependencyGraph.getLevel(node("C")));
+		FormulaDependencyGraph.addDependency(node("A"), node("B"));
+		FormulaDependencyGraph.addDependency(node("B"), node("C"));
+		assertEquals(a + 2, FormulaDependencyGraph.getLevel(node("C")));
+		FormulaDependencyGraph.addDependency(node("C"), node("A"));
+		assertTrue(FormulaDependencyGraph.isRecursive(node("C")));
+		assertEquals(FormulaDependencyGraph.getLevel(node("A")), FormulaDependencyGraph.getLevel(node("C")));
+	}
+
+	@Test
+	public void testStatisticsCountRecursiveNodes() {
+		FormulaDependencyGraph.addDependency(node("LOOP"), node("LOOP"));
+		String statistics = FormulaDependencyGraph.getStatistics();
+		assertTrue(statistics, statistics.startsWith("FORMULAGRAPH[nodes="));
+		assertFalse(statistics, statistics.contains("recursive=0]"));
+	}
+}
@@ -0,0 +1,170 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.data.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openlowcode.server.data.storage.standardjdbc.SQLQueryConditionGenerator;
+import org.openlowcode.tools.misc.NamedList;
+
+/**
+ * Tests the keyset condition and the ordering generated by a query page
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class QueryPageTest {
+	private TableAlias alias;
+	private StringStoredField id;
+	private StringStoredField name;
+	private DecimalStoredField amount;
+
+	/**
+	 * generates the SQL of a condition, and keeps the values of the parameters
+	 * in the order they are bound
+	 */
+	private static class RecordingGenerator
+			extends
+			SQLQueryConditionGenerator {
+		private ArrayList<Object> values = new ArrayList<Object>();
+
+		private RecordingGenerator(StringBuffer querybuffer) {
+			super(querybuffer);
+		}
+
+		@Override
+		public <E extends Object> void visit(SimpleQueryCondition<E> simplequerycondition) {
+			super.visit(simplequerycondition);
+			if (simplequerycondition.getPayload() != null)
+				values.add(simplequerycondition.getPayload());
+		}
+	}
+
+	@Before
+	public void setUp() {
+		StoredTableSchema table = new StoredTableSchema("CUSTOMER");
+		id = new StringStoredField("ID", table, 200);
+		name = new StringStoredField("NAME", table, 64);
+		amount = new DecimalStoredField("AMOUNT", table, 16, 2);
+		alias = new TableAlias(table, "A");
+	}
+
+	private String generate(QueryCondition condition, ArrayList<Object> values) {
+		StringBuffer buffer = new StringBuffer();
+		RecordingGenerator generator = new RecordingGenerator(buffer);
+		condition.accept(generator);
+		values.addAll(generator.values);
+		return buffer.toString().replaceAll("\\s+", " ").trim();
+	}
+
+	@Test
+	public void noConditionWithoutKeysetOrOnFirstPage() {
+		QueryPage page = QueryPage.first(50);
+		page.addOrderBy(name, false);
+		assertNull(page.getKeysetCondition(alias));
+		page.setKeysetStart(id, null, false);
+		assertNull(page.getKeysetCondition(alias));
+	}
+
+	@Test
+	public void keysetOnlyComparesKeysetField() {
+		QueryPage page = QueryPage.first(50);
+		page.setKeysetStart(id, "ID42", false);
+		ArrayList<Object> values = new ArrayList<Object>();
+		assertEquals("A.ID > ?", generate(page.getKeysetCondition(alias), values));
+		assertEquals(1, values.size());
+		assertEquals("ID42", values.get(0));
+	}
+
+	@Test
+	public void descendingKeysetUsesSmallerThan() {
+		QueryPage page = QueryPage.first(50);
+		page.setKeysetStart(id, "ID42", true);
+		ArrayList<Object> values = new ArrayList<Object>();
+		assertEquals("A.ID < ?", generate(page.getKeysetCondition(alias), values));
+	}
+
+	@Test
+	public void orderFieldIsComparedBeforeKeysetField() {
+		QueryPage page = QueryPage.first(50);
+		page.addOrderBy(name, true);
+		page.setKeysetStart(id, "ID42", false, "Smith");
+		ArrayList<Object> values = new ArrayList<Object>();
+		assertEquals("( ( A.NAME < ? ) OR ( A.NAME = ? AND A.ID > ? ) )",
+				generate(page.getKeysetCondition(alias), values));
+		assertEquals(3, values.size());
+		assertEquals("Smith", values.get(0));
+		assertEquals("Smith", values.get(1));
+		assertEquals("ID42", values.get(2));
+	}
+
+	@Test
+	public void allOrderFieldsAreCompared() {
+		QueryPage page = QueryPage.first(50);
+		page.addOrderBy(amount, true);
+		page.addOrderBy(name, false);
+		BigDecimal lastamount = new BigDecimal("120.50");
+		page.setKeysetStart(id, "ID42", false, lastamount, "Smith");
+		ArrayList<Object> values = new ArrayList<Object>();
+		assertEquals(
+				"( ( A.AMOUNT < ? ) OR ( A.AMOUNT = ? AND A.NAME > ? ) OR ( A.AMOUNT = ? AND A.NAME = ? AND A.ID > ? ) )",
+				generate(page.getKeysetCondition(alias), values));
+		assertEquals(6, values.size());
+		assertEquals(lastamount, values.get(0));
+		assertEquals(lastamount, values.get(1));
+		assertEquals("Smith", values.get(2));
+		assertEquals(lastamount, values.get(3));
+		assertEquals("Smith", values.get(4));
+		assertEquals("ID42", values.get(5));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void missingOrderValueIsRefused() {
+		QueryPage page = QueryPage.first(50);
+		page.addOrderBy(amount, true);
+		page.addOrderBy(name, false);
+		page.setKeysetStart(id, "ID42", false, new BigDecimal("120.50"));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void nullOrderValueIsRefused() {
+		QueryPage page = QueryPage.first(50);
+		page.addOrderBy(name, false);
+		page.setKeysetStart(id, "ID42", false, (Object) null);
+	}
+
+	@Test
+	public void keysetFieldIsLastOrdering() {
+		QueryPage page = QueryPage.first(50);
+		page.addOrderBy(name, true);
+		page.setKeysetStart(id, "ID42", false, "Smith");
+		NamedList<TableAlias> tables = new NamedList<TableAlias>();
+		tables.add(alias);
+		SelectQuery query = new SelectQuery(tables, null);
+		page.apply(query, alias);
+		assertEquals(2, query.getOrderByNumber());
+		assertEquals("NAME", query.getOrderBy(0).getField().getName());
+		assertTrue(query.getOrderBy(0).isDescending());
+		assertEquals("ID", query.getOrderBy(1).getField().getName());
+		assertFalse(query.getOrderBy(1).isDescending());
+		assertEquals(0, query.getOffset());
+		assertEquals(50, query.getLimit());
+	}
+}
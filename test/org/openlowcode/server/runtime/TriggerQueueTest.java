@@ -0,0 +1,297 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.server.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openlowcode.server.data.DataObject;
+import org.openlowcode.server.data.DataObjectDefinition;
+import org.openlowcode.server.data.DataObjectProperty;
+import org.openlowcode.server.data.formula.DataUpdateTrigger;
+import org.openlowcode.server.data.formula.FormulaDependencyGraph;
+import org.openlowcode.server.data.formula.TriggerToExecute;
+import org.openlowcode.server.data.properties.DataObjectId;
+import org.openlowcode.server.data.properties.DataObjectMasterId;
+import org.openlowcode.server.data.properties.UniqueidentifiedInterface;
+import org.openlowcode.server.data.storage.Row;
+import org.openlowcode.server.data.storage.TableAlias;
+import org.openlowcode.tools.misc.NamedList;
+import org.openlowcode.tools.structure.ObjectIdDataElt;
+
+/**
+ * Tests the coalescing of triggers and the order of calculations given by the
+ * trigger queue. The formula dependency graph is shared by the whole server, so
+ * the test uses trigger names with its own prefix
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class TriggerQueueTest {
+	private static final String INPUT = "TRIGGERQUEUETEST_INPUT";
+	private static final String AMOUNT = "TRIGGERQUEUETEST_AMOUNT";
+	private static final String TOTAL = "TRIGGERQUEUETEST_TOTAL";
+	private static final String TAX = "TRIGGERQUEUETEST_TAX";
+	private static final String ROLLUP = "TRIGGERQUEUETEST_ROLLUP";
+	private static final TestDefinition definition = new TestDefinition();
+
+	private TriggerQueue queue;
+
+	@Before
+	public void setUp() {
+		FormulaDependencyGraph.addDependency(INPUT, AMOUNT);
+		FormulaDependencyGraph.addDependency(AMOUNT, TOTAL);
+		FormulaDependencyGraph.addDependency(TOTAL, TAX);
+		FormulaDependencyGraph.addDependency(INPUT, ROLLUP);
+		FormulaDependencyGraph.addDependency(ROLLUP, ROLLUP);
+		queue = new TriggerQueue();
+	}
+
+	@Test
+	public void testCalculationsFollowLevels() {
+		TestObject object = new TestObject("1");
+		queue.add(trigger(TAX, object), -1);
+		queue.add(trigger(AMOUNT, new TestObject("2")), -1);
+		queue.add(trigger(TOTAL, object), -1);
+		queue.add(trigger(AMOUNT, object), -1);
+		assertEquals(4, queue.size());
+		assertEquals(1, queue.pollNextCalculation());
+		assertEquals(3, queue.pollNextCalculation());
+		assertEquals(2, queue.pollNextCalculation());
+		assertEquals(0, queue.pollNextCalculation());
+		assertEquals(-1, queue.pollNextCalculation());
+	}
+
+	@Test
+	public void testCustomTriggerIsNotACalculation() {
+		queue.append(new TriggerToExecute<TestObject>(new TestTrigger("TRIGGERQUEUETEST_CUSTOM", true),
+				new TestObject("1")));
+		queue.append(trigger(AMOUNT, new TestObject("1")));
+		assertEquals(2, queue.size());
+		assertEquals(1, queue.pollNextCalculation());
+		assertEquals(-1, queue.pollNextCalculation());
+	}
+
+	@Test
+	public void testSameTriggerOnSameObjectIsCoalesced() {
+		TestObject firstversion = new TestObject("1");
+		TestObject secondversion = new TestObject("1");
+		assertFalse(queue.add(trigger(AMOUNT, firstversion), -1));
+		assertFalse(queue.add(trigger(TOTAL, firstversion), -1));
+		assertTrue(queue.add(trigger(AMOUNT, secondversion), -1));
+		assertEquals(2, queue.size());
+		assertSame(secondversion, queue.get(0).getContextobject());
+		assertSame(secondversion, queue.get(1).getContextobject());
+		assertTrue(queue.getSummary(), queue.getSummary().contains("queued=2,coalesced=1"));
+	}
+
+	@Test
+	public void testTriggerOnOtherObjectIsQueued() {
+		assertFalse(queue.add(trigger(AMOUNT, new TestObject("1")), -1));
+		assertFalse(queue.add(trigger(AMOUNT, new TestObject("2")), -1));
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testExecutedTriggerIsNotCoalesced() {
+		TestObject object = new TestObject("1");
+		assertFalse(queue.add(trigger(AMOUNT, object), -1));
+		assertFalse(queue.add(trigger(AMOUNT, object), 0));
+		assertEquals(2, queue.size());
+		assertTrue(queue.add(trigger(AMOUNT, object), 0));
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testFieldEvaluatedOnceDuringRecalculation() {
+		DataObjectId<TestObject> firstid = id("1");
+		DataObjectId<TestObject> secondid = id("2");
+		queue.setRecalculating(true);
+		assertTrue(queue.startEvaluation(TOTAL, firstid));
+		assertFalse(queue.startEvaluation(TOTAL, id("1")));
+		assertTrue(queue.startEvaluation(TOTAL, secondid));
+		assertTrue(queue.startEvaluation(TAX, firstid));
+		assertTrue(queue.getSummary(), queue.getSummary().contains("evaluated=3,skipped=1"));
+	}
+
+	@Test
+	public void testRecursiveFieldIsAlwaysEvaluated() {
+		DataObjectId<TestObject> firstid = id("1");
+		queue.setRecalculating(true);
+		assertTrue(queue.startEvaluation(ROLLUP, firstid));
+		assertTrue(queue.startEvaluation(ROLLUP, firstid));
+	}
+
+	@Test
+	public void testFieldAlwaysEvaluatedOutsideRecalculation() {
+		DataObjectId<TestObject> firstid = id("1");
+		assertTrue(queue.startEvaluation(TOTAL, firstid));
+		assertTrue(queue.startEvaluation(TOTAL, firstid));
+		queue.setRecalculating(true);
+		assertTrue(queue.startEvaluation(TOTAL, null));
+		assertTrue(queue.startEvaluation(TOTAL, null));
+	}
+
+	private static DataObjectId<TestObject> id(String id) {
+		return DataObjectId.generatefromDataObjectIdElt(new ObjectIdDataElt("ID", id), definition);
+	}
+
+	private static TriggerToExecute<TestObject> trigger(String name, TestObject object) {
+		return new TriggerToExecute<TestObject>(new TestTrigger(name, false), object);
+	}
+
+	/**
+	 * a trigger that does not calculate anything
+	 */
+	private static class TestTrigger extends DataUpdateTrigger<TestObject> {
+		private boolean custom;
+
+		private TestTrigger(String name, boolean custom) {
+			super(name);
+			this.custom = custom;
+		}
+
+		@Override
+		public NamedList<TriggerToExecute<TestObject>> compute(TestObject contextobject, boolean forcelocalupdate) {
+			return new NamedList<TriggerToExecute<TestObject>>();
+		}
+
+		@Override
+		public boolean isLocal() {
+			return true;
+		}
+
+		@Override
+		public boolean isCustomTrigger() {
+			return custom;
+		}
+	}
+
+	/**
+	 * an object without fields or properties, only holding an id
+	 */
+	private static class TestObject extends DataObject<TestObject> implements UniqueidentifiedInterface<TestObject> {
+		private DataObjectId<TestObject> id;
+
+		private TestObject(String id) {
+			super(definition);
+			this.id = id(id);
+		}
+
+		@Override
+		public DataObjectId<TestObject> getId() {
+			return id;
+		}
+
+		@Override
+		public TestObject deepcopy() {
+			return new TestObject(id.getId());
+		}
+
+		@Override
+		public <Z extends DataObjectProperty<TestObject>> Z getPropertyForObject(Z otherobjectproperty) {
+			return null;
+		}
+
+		@Override
+		public void insert() {
+			throw new RuntimeException("test object cannot be persisted");
+		}
+
+		@Override
+		public MassiveInsert<TestObject> getMassiveInsert() {
+			throw new RuntimeException("test object cannot be persisted");
+		}
+
+		@Override
+		public void update() {
+			throw new RuntimeException("test object cannot be persisted");
+		}
+
+		@Override
+		public void delete() {
+			throw new RuntimeException("test object cannot be persisted");
+		}
+
+		@Override
+		public MassiveUpdate<TestObject> getMassiveUpdate() {
+			throw new RuntimeException("test object cannot be persisted");
+		}
+
+		@Override
+		public MassiveDelete<TestObject> getMassiveDelete() {
+			throw new RuntimeException("test object cannot be persisted");
+		}
+	}
+
+	/**
+	 * definition of the test object
+	 */
+	private static class TestDefinition extends DataObjectDefinition<TestObject> {
+
+		private TestDefinition() {
+			super("TRIGGERQUEUETESTOBJECT", "TEST", "Trigger Queue Test Object");
+		}
+
+		@Override
+		public void initFields() {
+		}
+
+		@Override
+		public void initProperties() {
+		}
+
+		@Override
+		public void initPropertyGenericLinks() {
+		}
+
+		@Override
+		protected void setCalculatedFieldTriggers() {
+		}
+
+		@Override
+		public String getModuleName() {
+			return "TEST";
+		}
+
+		@Override
+		public TestObject generateFromRow(Row row, TableAlias alias) {
+			throw new RuntimeException("test object cannot be read from the database");
+		}
+
+		@Override
+		public TestObject[] generateArrayTemplate() {
+			return new TestObject[0];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public DataObjectId<TestObject>[] generateIdArrayTemplate() {
+			return new DataObjectId[0];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public DataObjectMasterId<TestObject>[] generateMasterIdArrayTemplate() {
+			return new DataObjectMasterId[0];
+		}
+
+		@Override
+		public TestObject generateBlank() {
+			throw new RuntimeException("test object needs an id");
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.tools.enc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the streams of encrypted records of the AESCommunicator
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class AESCommunicatorRecordStreamTest {
+	private AESCommunicator client;
+	private AESCommunicator server;
+
+	@Before
+	public void setUp() throws Exception {
+		KeyGenerator generator = KeyGenerator.getInstance("AES");
+		generator.init(128);
+		SecretKey key = generator.generateKey();
+		client = new AESCommunicator(key);
+		client.setStreamEncryption(true);
+		server = new AESCommunicator(key);
+		server.setStreamEncryption(false);
+	}
+
+	private static byte[] readAll(InputStream input, int length) throws IOException {
+		byte[] result = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int count = input.read(result, read, length - read);
+			if (count == -1)
+				throw new IOException("End of stream after " + read + " bytes, expecting " + length);
+			read += count;
+		}
+		return result;
+	}
+
+	@Test
+	public void contentIsReadBackAfterEachFlush() throws Exception {
+		byte[] text = "A short message sent in one record".getBytes(StandardCharsets.UTF_8);
+		// random content does not compress, and is sent in several records
+		byte[] binary = new byte[5 * AESCommunicator.RECORD_PAYLOAD_SIZE + 123];
+		new Random(7).nextBytes(binary);
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		OutputStream output = client.getEncryptingStream(wire);
+		output.write(text);
+		output.flush();
+		output.write(binary);
+		output.flush();
+		output.write('Z');
+		output.flush();
+
+		InputStream input = server.getDecryptingStream(new ByteArrayInputStream(wire.toByteArray()));
+		assertArrayEquals(text, readAll(input, text.length));
+		assertArrayEquals(binary, readAll(input, binary.length));
+		assertEquals('Z', input.read());
+		assertEquals(-1, input.read());
+	}
+
+	@Test
+	public void contentIsEncryptedAndCompressed() throws Exception {
+		byte[] content = new byte[100000];
+		for (int i = 0; i < content.length; i++)
+			content[i] = (byte) ('A' + (i % 3));
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		OutputStream output = client.getEncryptingStream(wire);
+		output.write(content);
+		output.flush();
+		byte[] sent = wire.toByteArray();
+		assertTrue("Repetitive content should be compressed, sent " + sent.length, sent.length < content.length / 10);
+		assertEquals(AESCommunicator.RECORD_END, sent[0] & 0xFF);
+		assertFalse(new String(sent, StandardCharsets.ISO_8859_1).contains("ABCABC"));
+	}
+
+	@Test
+	public void bothDirectionsAreIndependent() throws Exception {
+		ByteArrayOutputStream clientwire = new ByteArrayOutputStream();
+		ByteArrayOutputStream serverwire = new ByteArrayOutputStream();
+		OutputStream clientoutput = client.getEncryptingStream(clientwire);
+		OutputStream serveroutput = server.getEncryptingStream(serverwire);
+		clientoutput.write("REQUEST".getBytes(StandardCharsets.UTF_8));
+		clientoutput.flush();
+		serveroutput.write("RESPONSE".getBytes(StandardCharsets.UTF_8));
+		serveroutput.flush();
+		InputStream serverinput = server.getDecryptingStream(new ByteArrayInputStream(clientwire.toByteArray()));
+		InputStream clientinput = client.getDecryptingStream(new ByteArrayInputStream(serverwire.toByteArray()));
+		assertEquals("RESPONSE", new String(readAll(clientinput, 8), StandardCharsets.UTF_8));
+		assertEquals("REQUEST", new String(readAll(serverinput, 7), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void blanksBeforeFirstRecordAreIgnored() throws Exception {
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		wire.write("\r\n  ".getBytes(StandardCharsets.US_ASCII));
+		OutputStream output = client.getEncryptingStream(wire);
+		output.write("HELLO".getBytes(StandardCharsets.UTF_8));
+		output.flush();
+		InputStream input = server.getDecryptingStream(new ByteArrayInputStream(wire.toByteArray()));
+		assertEquals("HELLO", new String(readAll(input, 5), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void modifiedRecordIsRefused() throws Exception {
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		OutputStream output = client.getEncryptingStream(wire);
+		output.write("TRANSFER 100".getBytes(StandardCharsets.UTF_8));
+		output.flush();
+		byte[] sent = wire.toByteArray();
+		sent[AESCommunicator.RECORD_HEADER_LENGTH + 2] ^= 0x01;
+		expectRefused(server.getDecryptingStream(new ByteArrayInputStream(sent)));
+	}
+
+	@Test
+	public void replayedRecordIsRefused() throws Exception {
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		OutputStream output = client.getEncryptingStream(wire);
+		output.write("PAY".getBytes(StandardCharsets.UTF_8));
+		output.flush();
+		byte[] record = wire.toByteArray();
+		wire.write(record);
+		InputStream input = server.getDecryptingStream(new ByteArrayInputStream(wire.toByteArray()));
+		assertEquals("PAY", new String(readAll(input, 3), StandardCharsets.UTF_8));
+		expectRefused(input);
+	}
+
+	@Test
+	public void recordSentBackToSenderIsRefused() throws Exception {
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		OutputStream output = client.getEncryptingStream(wire);
+		output.write("ECHO".getBytes(StandardCharsets.UTF_8));
+		output.flush();
+		expectRefused(client.getDecryptingStream(new ByteArrayInputStream(wire.toByteArray())));
+	}
+
+	@Test
+	public void truncatedRecordIsRefused() throws Exception {
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		OutputStream output = client.getEncryptingStream(wire);
+		output.write("INCOMPLETE".getBytes(StandardCharsets.UTF_8));
+		output.flush();
+		byte[] sent = wire.toByteArray();
+		byte[] truncated = new byte[sent.length - 3];
+		System.arraycopy(sent, 0, truncated, 0, truncated.length);
+		expectRefused(server.getDecryptingStream(new ByteArrayInputStream(truncated)));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void streamsRequireNegotiation() throws Exception {
+		KeyGenerator generator = KeyGenerator.getInstance("AES");
+		generator.init(128);
+		new AESCommunicator(generator.generateKey()).getEncryptingStream(new ByteArrayOutputStream());
+	}
+
+	private static void expectRefused(InputStream input) {
+		try {
+			input.read();
+			fail("Invalid record should be refused");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.tools.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+/**
+ * Checks that the streaming excel reader gives the same rows as the excel
+ * reader built on the full POI workbook, for the types of cells found in the
+ * files loaded by users
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class StreamingExcelReaderTest {
+	private static final Date DATE = new GregorianCalendar(2020, 2, 15).getTime();
+
+	/**
+	 * creates a workbook with a first sheet holding all the cell types, and a
+	 * second sheet with a few values
+	 * 
+	 * @return a workbook in memory
+	 */
+	private static XSSFWorkbook createWorkbook() {
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		CellStyle datestyle = workbook.createCellStyle();
+		datestyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+		CellStyle numberstyle = workbook.createCellStyle();
+		numberstyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("#,##0.00"));
+
+		Sheet data = workbook.createSheet("Data");
+		Row header = data.createRow(0);
+		header.createCell(0).setCellValue("Name");
+		header.createCell(1).setCellValue("Amount");
+		header.createCell(2).setCellValue("Date");
+		header.createCell(3).setCellValue("Formula");
+		header.createCell(4).setCellValue("Label");
+
+		Row first = data.createRow(1);
+		first.createCell(0).setCellValue("Caf\u00e9 & <Bar>");
+		Cell amount = first.createCell(1);
+		amount.setCellValue(1234.5);
+		amount.setCellStyle(numberstyle);
+		Cell date = first.createCell(2);
+		date.setCellValue(DATE);
+		date.setCellStyle(datestyle);
+		first.createCell(3).setCellFormula("B2*2");
+		first.createCell(4).setCellFormula("CONCATENATE(A2,\"!\")");
+
+		// gaps in the row, a blank styled cell and a boolean
+		Row second = data.createRow(2);
+		second.createCell(1).setCellValue(-3);
+		second.createCell(2).setCellStyle(datestyle);
+		second.createCell(3).setCellValue(true);
+		second.createCell(5).setCellValue("last");
+
+		// row 3 is missing
+		Row fourth = data.createRow(4);
+		fourth.createCell(0).setCellValue("Caf\u00e9 & <Bar>");
+		fourth.createCell(1).setCellValue(0.1);
+
+		Sheet other = workbook.createSheet("Other");
+		other.createRow(0).createCell(0).setCellValue("other sheet");
+		other.createRow(1).createCell(2).setCellValue(42);
+
+		workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+		return workbook;
+	}
+
+	private static byte[] write(Workbook workbook) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		workbook.write(output);
+		workbook.close();
+		return output.toByteArray();
+	}
+
+	private static ArrayList<Object[]> readAll(FileParser parser) throws IOException {
+		ArrayList<Object[]> rows = new ArrayList<Object[]>();
+		Object[] row = parser.parseOneLine();
+		while (row != null) {
+			rows.add(row);
+			row = parser.parseOneLine();
+		}
+		return rows;
+	}
+
+	private static void assertSameRows(ArrayList<Object[]> expected, ArrayList<Object[]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertArrayEquals("row " + i, expected.get(i), actual.get(i));
+	}
+
+	@Test
+	public void testSameRowsAsExcelReader() throws IOException, InvalidFormatException {
+		byte[] file = write(createWorkbook());
+		ExcelReader reference = new ExcelReader(new ByteArrayInputStream(file));
+		StreamingExcelReader streaming = new StreamingExcelReader(new ByteArrayInputStream(file));
+		try {
+			assertArrayEquals(reference.getSheetNameList(), streaming.getSheetNameList());
+			assertEquals(reference.getActiveSheetIndex(), streaming.getActiveSheetIndex());
+			ArrayList<Object[]> expected = readAll(reference);
+			assertSameRows(expected, readAll(streaming));
+			assertEquals(4, expected.size());
+			assertEquals(DATE, expected.get(1)[2]);
+			assertEquals(Double.valueOf(2469), expected.get(1)[3]);
+			assertEquals("Caf\u00e9 & <Bar>!", expected.get(1)[4]);
+			assertNull(expected.get(2)[3]);
+		} finally {
+			reference.close();
+			streaming.close();
+		}
+	}
+
+	@Test
+	public void testGoToSheet() throws IOException, InvalidFormatException {
+		byte[] file = write(createWorkbook());
+		ExcelReader reference = new ExcelReader(new ByteArrayInputStream(file));
+		StreamingExcelReader streaming = new StreamingExcelReader(new ByteArrayInputStream(file));
+		try {
+			reference.GoToSheet("Other");
+			streaming.GoToSheet("Other");
+			assertSameRows(readAll(reference), readAll(streaming));
+			reference.GoToSheet("Data");
+			streaming.GoToSheet("Data");
+			assertSameRows(readAll(reference), readAll(streaming));
+			streaming.GoToSheet("Unknown");
+			assertEquals(0, streaming.getActiveSheetIndex());
+		} finally {
+			reference.close();
+			streaming.close();
+		}
+	}
+
+	@Test
+	public void testActiveSheetIsReadFirst() throws IOException, InvalidFormatException {
+		XSSFWorkbook workbook = createWorkbook();
+		workbook.setActiveSheet(1);
+		byte[] file = write(workbook);
+		ExcelReader reference = new ExcelReader(new ByteArrayInputStream(file));
+		StreamingExcelReader streaming = new StreamingExcelReader(new ByteArrayInputStream(file));
+		try {
+			assertEquals(1, reference.getActiveSheetIndex());
+			assertEquals(1, streaming.getActiveSheetIndex());
+			ArrayList<Object[]> expected = readAll(reference);
+			assertEquals("other sheet", expected.get(0)[0]);
+			assertSameRows(expected, readAll(streaming));
+		} finally {
+			reference.close();
+			streaming.close();
+		}
+	}
+
+	@Test
+	public void testInlineStrings() throws IOException, InvalidFormatException {
+		XSSFWorkbook template = new XSSFWorkbook();
+		template.createSheet("Inline");
+		SXSSFWorkbook workbook = new SXSSFWorkbook(template, 10, false, false);
+		Sheet sheet = workbook.getSheet("Inline");
+		for (int i = 0; i < 50; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue("line " + i);
+			row.createCell(2).setCellValue(i * 1.5);
+		}
+		byte[] file = write(workbook);
+		workbook.dispose();
+		ExcelReader reference = new ExcelReader(new ByteArrayInputStream(file));
+		StreamingExcelReader streaming = new StreamingExcelReader(new ByteArrayInputStream(file));
+		try {
+			ArrayList<Object[]> expected = readAll(reference);
+			assertEquals(50, expected.size());
+			assertTrue(expected.get(49)[0] instanceof String);
+			assertSameRows(expected, readAll(streaming));
+		} finally {
+			reference.close();
+			streaming.close();
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/********************************************************************************
+ * Copyright (c) 2019-2020 [Open Lowcode SAS](https://openlowcode.com/)
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0 .
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+
+package org.openlowcode.tools.messages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that messages written by the MessageBinaryWriter are read back
+ * identically by the MessageBinaryReader
+ * 
+ * @author <a href="https://openlowcode.com/" rel="nofollow">Open Lowcode
+ *         SAS</a>
+ * @since 1.14
+ */
+public class MessageBinaryRoundTripTest {
+
+	private static MessageBinaryReader reader(ByteArrayOutputStream output) {
+		return new MessageBinaryReader(new ByteArrayInputStream(output.toByteArray()));
+	}
+
+	private static void writeCustomer(MessageWriter writer, Date date, byte[] binary) throws IOException {
+		writer.startNewMessage();
+		writer.startStructure("CUSTOMER");
+		writer.addStringField("NAME", "Ren\u00e9e \u2713 \"quoted\"");
+		writer.addStringField("COMMENT", null);
+		writer.addIntegerField("COUNT", -1234567);
+		writer.addBooleanField("ACTIVE", true);
+		writer.addBooleanField("BLOCKED", false);
+		writer.addDecimalField("AMOUNT", new BigDecimal("-1234.5678"));
+		writer.addDateField("CREATED", date);
+		writer.startStructure("ADDRESS");
+		writer.addStringField("CITY", "Paris");
+		writer.endStructure("ADDRESS");
+		if (binary != null)
+			writer.addLongBinaryField("FILE", new SFile("data.bin", binary));
+		writer.endStructure("CUSTOMER");
+		writer.endMessage();
+	}
+
+	private static Date dateToSecond() {
+		return new Date((System.currentTimeMillis() / 1000) * 1000);
+	}
+
+	@Test
+	public void allFieldTypesAreReadBack() throws Exception {
+		Date date = dateToSecond();
+		byte[] binary = new byte[100000];
+		new Random(42).nextBytes(binary);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		writeCustomer(new MessageBinaryWriter(output, false), date, binary);
+
+		MessageBinaryReader reader = reader(output);
+		reader.returnNextMessageStart();
+		reader.returnNextStartStructure("CUSTOMER");
+		assertEquals("Ren\u00e9e \u2713 \"quoted\"", reader.returnNextStringField("NAME"));
+		assertNull(reader.returnNextStringField("COMMENT"));
+		assertEquals(-1234567, reader.returnNextIntegerField("COUNT"));
+		assertTrue(reader.returnNextBooleanField("ACTIVE"));
+		assertFalse(reader.returnNextBooleanField("BLOCKED"));
+		assertEquals(new BigDecimal("-1234.5678"), reader.returnNextDecimalField("AMOUNT"));
+		assertEquals(date, reader.returnNextDateField("CREATED"));
+		reader.returnNextStartStructure("ADDRESS");
+		assertEquals("Paris", reader.returnNextStringField("CITY"));
+		reader.returnNextEndStructure("ADDRESS");
+		SFile file = reader.returnNextLargeBinary("FILE");
+		assertEquals(binary.length, file.getLength());
+		assertArrayEquals(binary, file.getContent());
+		reader.returnNextEndStructure("CUSTOMER");
+		reader.returnNextEndMessage();
+	}
+
+	@Test
+	public void successiveMessagesAreReadBack() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		MessageBinaryWriter writer = new MessageBinaryWriter(output, false);
+		for (int i = 0; i < 3; i++) {
+			writer.startNewMessage();
+			writer.startStructure("PING");
+			writer.addIntegerField("INDEX", i);
+			writer.endStructure("PING");
+			writer.endMessage();
+		}
+		MessageBinaryReader reader = reader(output);
+		for (int i = 0; i < 3; i++) {
+			reader.returnNextMessageStart();
+			reader.returnNextStartStructure("PING");
+			assertEquals(i, reader.returnNextIntegerField("INDEX"));
+			reader.returnNextEndStructure("PING");
+			reader.returnNextEndMessage();
+		}
+	}
+
+	@Test
+	public void arrayIsReadBack() throws Exception {
+		ArrayList<MessageFieldSpec> fields = new ArrayList<MessageFieldSpec>();
+		fields.add(new MessageFieldSpec("LABEL", MessageFieldTypeString.singleton));
+		fields.add(new MessageFieldSpec("QUANTITY", MessageFieldTypeInteger.singleton));
+		MessageArrayStart arraystart = new MessageArrayStart("LINES", fields);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		MessageBinaryWriter writer = new MessageBinaryWriter(output, false);
+		writer.startNewMessage();
+		writer.startStructure("ORDER");
+		writer.sendMessageElement(arraystart);
+		for (int i = 0; i < 3; i++)
+			writer.sendMessageElement(
+					new MessageArrayLine(arraystart, new Object[] { "Line " + i, Integer.valueOf(i * 10) }));
+		writer.sendMessageElement(new MessageArrayEnd());
+		writer.endStructure("ORDER");
+		writer.endMessage();
+
+		MessageBinaryReader reader = reader(output);
+		reader.returnNextMessageStart();
+		reader.returnNextStartStructure("ORDER");
+		MessageArrayStart readarraystart = reader.returnNextMessageStartArray("LINES");
+		assertEquals(2, readarraystart.getFieldSpecNr());
+		assertEquals("QUANTITY", readarraystart.getFieldSpecAt(1).getName());
+		int count = 0;
+		while (reader.hasArrayNextLine()) {
+			MessageArrayLine line = reader.getArrayNextLine();
+			assertEquals("Line " + count, line.getPayloadAt(0));
+			assertEquals(Integer.valueOf(count * 10), line.getPayloadAt(1));
+			count++;
+		}
+		assertEquals(3, count);
+		reader.returnNextEndStructure("ORDER");
+		reader.returnNextEndMessage();
+	}
+
+	@Test
+	public void errorIsThrownAsRemoteException() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		MessageBinaryWriter writer = new MessageBinaryWriter(output, false);
+		writer.sendMessageError(42, "Something went wrong");
+		MessageBinaryReader reader = reader(output);
+		try {
+			reader.returnNextMessageStart();
+			fail("Error message should be thrown as remote exception");
+		} catch (OLcRemoteException e) {
+			assertEquals(42, e.getRemoteErrorCode());
+			assertTrue(e.getMessage().contains("Something went wrong"));
+		}
+	}
+
+	@Test
+	public void recordedTextIsTheTextForm() throws Exception {
+		Date date = dateToSecond();
+		StringWriter text = new StringWriter();
+		MessageBufferedWriter textwriter = new MessageBufferedWriter(new BufferedWriter(text), false);
+		writeCustomer(textwriter, date, null);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		writeCustomer(new MessageBinaryWriter(output, false), date, null);
+
+		MessageBinaryReader reader = reader(output);
+		reader.returnNextMessageStart();
+		reader.startrecord();
+		reader.returnNextStartStructure("CUSTOMER");
+		reader.returnNextStringField("NAME");
+		reader.returnNextStringField("COMMENT");
+		reader.returnNextIntegerField("COUNT");
+		reader.returnNextBooleanField("ACTIVE");
+		reader.returnNextBooleanField("BLOCKED");
+		reader.returnNextDecimalField("AMOUNT");
+		reader.returnNextDateField("CREATED");
+		reader.returnNextStartStructure("ADDRESS");
+		reader.returnNextStringField("CITY");
+		reader.returnNextEndStructure("ADDRESS");
+		reader.returnNextEndStructure("CUSTOMER");
+		String recorded = reader.endrecord();
+		reader.returnNextEndMessage();
+		String textmessage = text.toString();
+		assertNotNull(recorded);
+		assertTrue(recorded.contains("CUSTOMER"));
+		assertTrue(recorded.contains("Paris"));
+		assertTrue("Recorded text " + recorded + " not found in " + textmessage, textmessage.contains(recorded));
+	}
+}